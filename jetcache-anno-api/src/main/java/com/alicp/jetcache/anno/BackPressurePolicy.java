@@ -0,0 +1,25 @@
+package com.alicp.jetcache.anno;
+
+/**
+ * What to do with a remote write when the write behind queue of MultiLevelCache is full.
+ * Created on 2017/6/6.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public interface BackPressurePolicy {
+    /**
+     * Wait until the queue has room.
+     */
+    String BLOCK = "BLOCK";
+
+    /**
+     * Write to the remote cache in the caller thread.
+     */
+    String CALLER_RUNS = "CALLER_RUNS";
+
+    /**
+     * Drop the remote write, the value is kept in the local levels only.
+     * Removes are never dropped, they run in the caller thread.
+     */
+    String DISCARD = "DISCARD";
+}
@@ -16,8 +16,18 @@ public @interface Cached {
     String name() default CacheConsts.UNDEFINED_STRING;
     boolean enabled() default CacheConsts.DEFAULT_ENABLED;
     int expire() default CacheConsts.UNDEFINED_INT;
+
+    /**
+     * Add a random extra time in [0, expire * expireJitterPercent / 100] to the expire time of each entry.
+     */
+    int expireJitterPercent() default CacheConsts.UNDEFINED_INT;
     CacheType cacheType() default CacheType.REMOTE;
     int localLimit() default CacheConsts.UNDEFINED_INT;
+
+    /**
+     * Eviction policy of the local cache, see {@link EvictionPolicy}.
+     */
+    String localEvictionPolicy() default CacheConsts.UNDEFINED_STRING;
     String serialPolicy() default CacheConsts.UNDEFINED_STRING;
 
     String keyConvertor() default CacheConsts.UNDEFINED_STRING;
@@ -14,8 +14,18 @@ public @interface CreateCache {
     String area() default CacheConsts.DEFAULT_AREA;
     String name() default CacheConsts.UNDEFINED_STRING;
     int expire() default CacheConsts.UNDEFINED_INT;
+
+    /**
+     * Add a random extra time in [0, expire * expireJitterPercent / 100] to the expire time of each entry.
+     */
+    int expireJitterPercent() default CacheConsts.UNDEFINED_INT;
     CacheType cacheType() default CacheType.REMOTE;
     int localLimit() default CacheConsts.UNDEFINED_INT;
+
+    /**
+     * Eviction policy of the local cache, see {@link EvictionPolicy}.
+     */
+    String localEvictionPolicy() default CacheConsts.UNDEFINED_STRING;
     String serialPolicy() default CacheConsts.UNDEFINED_STRING;
 
     String keyConvertor() default CacheConsts.UNDEFINED_STRING;
@@ -0,0 +1,26 @@
+package com.alicp.jetcache.anno;
+
+/**
+ * Eviction policies of the local cache.
+ * Created on 2017/5/29.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public interface EvictionPolicy {
+    /**
+     * Least recently used.
+     */
+    String LRU = "LRU";
+
+    /**
+     * Segmented LRU, an entry hit in the probation segment is promoted to the protected segment,
+     * so a scan only flushes the probation segment.
+     */
+    String SLRU = "SLRU";
+
+    /**
+     * A small LRU window in front of a SLRU main space, an entry leaving the window is admitted
+     * only if it is used more frequently than the eviction victim, estimated by a count-min sketch.
+     */
+    String TINY_LFU = "TINY_LFU";
+}
@@ -11,6 +11,7 @@ import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.ProxyMethodInvocation;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -62,6 +63,11 @@ public class JetCacheInterceptor implements MethodInterceptor, ApplicationContex
         }
         CacheInvokeContext context = globalCacheConfig.getCacheContext().createCacheInvokeContext();
         context.setInvoker(invocation::proceed);
+        if (invocation instanceof ProxyMethodInvocation) {
+            // proceed() of an invocation can't be called again after it returns
+            ProxyMethodInvocation pmi = (ProxyMethodInvocation) invocation;
+            context.setInvokerSupplier(() -> pmi.invocableClone()::proceed);
+        }
         context.setMethod(method);
         context.setArgs(invocation.getArguments());
         context.setCacheInvokeConfig(cac);
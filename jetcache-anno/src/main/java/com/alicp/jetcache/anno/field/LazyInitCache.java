@@ -11,6 +11,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -61,8 +62,10 @@ class LazyInitCache implements ProxyCache {
         cac.setArea(ann.area());
         cac.setName(ann.name());
         cac.setExpire(ann.expire());
+        cac.setExpireJitterPercent(ann.expireJitterPercent());
         cac.setCacheType(ann.cacheType());
         cac.setLocalLimit(ann.localLimit());
+        cac.setLocalEvictionPolicy(ann.localEvictionPolicy());
         cac.setSerialPolicy(ann.serialPolicy());
         cac.setKeyConvertor(ann.keyConvertor());
 
@@ -128,6 +131,24 @@ class LazyInitCache implements ProxyCache {
         return cache.computeIfAbsent(key, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit);
     }
 
+    @Override
+    public Map computeIfAbsentAll(Set keys, Function loader) {
+        checkInit();
+        return cache.computeIfAbsentAll(keys, loader);
+    }
+
+    @Override
+    public Map computeIfAbsentAll(Set keys, Function loader, boolean cacheNullWhenLoaderReturnNull) {
+        checkInit();
+        return cache.computeIfAbsentAll(keys, loader, cacheNullWhenLoaderReturnNull);
+    }
+
+    @Override
+    public Map computeIfAbsentAll(Set keys, Function loader, boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit) {
+        checkInit();
+        return cache.computeIfAbsentAll(keys, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit);
+    }
+
     @Override
     public void put(Object key, Object value) {
         checkInit();
@@ -230,5 +251,58 @@ class LazyInitCache implements ProxyCache {
         return cache.PUT_IF_ABSENT(key, value, expire, timeUnit);
     }
 
+    @Override
+    public CompletionStage<CacheGetResult> GET_ASYNC(Object key) {
+        checkInit();
+        return cache.GET_ASYNC(key);
+    }
+
+    @Override
+    public CompletionStage<MultiGetResult> GET_ALL_ASYNC(Set keys) {
+        checkInit();
+        return cache.GET_ALL_ASYNC(keys);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(Object key, Object value) {
+        checkInit();
+        return cache.PUT_ASYNC(key, value);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(Object key, Object value, long expire, TimeUnit timeUnit) {
+        checkInit();
+        return cache.PUT_ASYNC(key, value, expire, timeUnit);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map map) {
+        checkInit();
+        return cache.PUT_ALL_ASYNC(map);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map map, long expire, TimeUnit timeUnit) {
+        checkInit();
+        return cache.PUT_ALL_ASYNC(map, expire, timeUnit);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ASYNC(Object key) {
+        checkInit();
+        return cache.REMOVE_ASYNC(key);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ALL_ASYNC(Set keys) {
+        checkInit();
+        return cache.REMOVE_ALL_ASYNC(keys);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_IF_ABSENT_ASYNC(Object key, Object value, long expire, TimeUnit timeUnit) {
+        checkInit();
+        return cache.PUT_IF_ABSENT_ASYNC(key, value, expire, timeUnit);
+    }
 
 }
@@ -24,7 +24,9 @@ public class CacheConfigUtil {
         cc.setCacheType(anno.cacheType());
         cc.setEnabled(anno.enabled());
         cc.setExpire(anno.expire());
+        cc.setExpireJitterPercent(anno.expireJitterPercent());
         cc.setLocalLimit(anno.localLimit());
+        cc.setLocalEvictionPolicy(anno.localEvictionPolicy());
         cc.setCacheNullValue(anno.cacheNullValue());
         cc.setCondition(anno.condition());
         cc.setUnless(anno.unless());
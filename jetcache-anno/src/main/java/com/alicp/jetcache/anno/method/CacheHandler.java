@@ -5,9 +5,12 @@ package com.alicp.jetcache.anno.method;
 
 import com.alicp.jetcache.Cache;
 import com.alicp.jetcache.CacheGetResult;
+import com.alicp.jetcache.CacheInvokeException;
+import com.alicp.jetcache.CacheUtil;
 import com.alicp.jetcache.MonitoredCache;
 import com.alicp.jetcache.anno.support.CacheAnnoConfig;
 import com.alicp.jetcache.anno.support.CacheContext;
+import com.alicp.jetcache.event.CacheEvent;
 import com.alicp.jetcache.event.CacheLoadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +18,9 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -79,6 +85,7 @@ public class CacheHandler implements InvocationHandler {
             return method.invoke(src, args);
         } else {
             context.invoker = () -> method.invoke(src, args);
+            context.invokerSupplier = () -> () -> method.invoke(src, args);
             context.hiddenPackages = hiddenPackages;
             context.args = args;
             context.method = method;
@@ -126,15 +133,27 @@ public class CacheHandler implements InvocationHandler {
             return loadAndCount(context, cache, key);
         }
 
+        Function<Object, Object> loader = createLoader(context, cache);
+        Consumer<Object> cacheUpdater = createCacheUpdater(context, cache, key);
+        Consumer<CacheEvent> eventListener = null;
+        if (cache instanceof MonitoredCache) {
+            eventListener = ((MonitoredCache) cache)::notity;
+        }
+        CacheUtil.touchRefreshTask(cache, key, loader, cacheUpdater, eventListener);
+
         // the semantics of "unless" and "cacheNullValue" is not very accurate, we do our best to process it.
         CacheGetResult cacheGetResult = cache.GET(key);
         if (cacheGetResult.isSuccess()) {
             context.result = cacheGetResult.getValue();
         }
-        if (!cacheGetResult.isSuccess()) {//not hit
-            context.result = loadAndCount(context, cache, key);
-            if (!canNotCache(context)) {
-                cache.put(key, context.result);
+        if (cacheGetResult.isStale()
+                && CacheUtil.revalidate(cache, key, loader, cacheUpdater, eventListener)) {//stale hit, reload in background
+            context.result = cacheGetResult.getValue();
+        } else if (!cacheGetResult.isSuccess()) {//not hit
+            try {
+                context.result = CacheUtil.load(cache, key, loader, cacheUpdater, eventListener);
+            } catch (CacheInvokeException e) {
+                throw e.getCause();
             }
         } else { //cache hit
             if (canNotCache(context)) {
@@ -148,17 +167,55 @@ public class CacheHandler implements InvocationHandler {
         return context.result;
     }
 
+    /**
+     * The loader and the cacheUpdater are kept by the refresh task and used by the background loads,
+     * so each load runs with a context of its own instead of the context of this call.
+     */
+    private static Function<Object, Object> createLoader(CacheInvokeContext context, Cache cache) {
+        return (k) -> {
+            try {
+                CacheInvokeContext c = copyContext(context);
+                c.invoker = context.invokerSupplier == null ? context.invoker : context.invokerSupplier.get();
+                return loadAndCount(c, cache, k);
+            } catch (Throwable e) {
+                throw new CacheInvokeException(e);
+            }
+        };
+    }
+
+    private static Consumer<Object> createCacheUpdater(CacheInvokeContext context, Cache cache, Object key) {
+        return (loadedValue) -> {
+            CacheInvokeContext c = copyContext(context);
+            c.result = loadedValue;
+            if (!canNotCache(c)) {
+                cache.put(key, loadedValue);
+            }
+        };
+    }
+
+    private static CacheInvokeContext copyContext(CacheInvokeContext context) {
+        CacheInvokeContext c = new CacheInvokeContext();
+        c.invokerSupplier = context.invokerSupplier;
+        c.method = context.method;
+        c.args = context.args;
+        c.cacheInvokeConfig = context.cacheInvokeConfig;
+        c.cacheFunction = context.cacheFunction;
+        c.hiddenPackages = context.hiddenPackages;
+        return c;
+    }
+
     private static Object loadAndCount(CacheInvokeContext context, Cache cache, Object key) throws Throwable {
-        long t = System.currentTimeMillis();
+        long t = cache.config().getClock().nanoTime();
         Object v = null;
         boolean success = false;
         try {
             v = invokeOrigin(context);
             success = true;
         } finally {
-            t = System.currentTimeMillis() - t;
+            t = TimeUnit.NANOSECONDS.toMillis(cache.config().getClock().nanoTime() - t);
             if(cache instanceof MonitoredCache) {
-                CacheLoadEvent event = new CacheLoadEvent(cache, t, key, v, success);
+                CacheLoadEvent event = new CacheLoadEvent(cache, t, key, v, success,
+                        CacheUtil.currentCoalescedCount());
                 ((MonitoredCache)cache).notity(event);
             }
         }
@@ -7,12 +7,15 @@ import com.alicp.jetcache.Cache;
 
 import java.lang.reflect.Method;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
 public class CacheInvokeContext {
     Invoker invoker;
+    // creates the invoker of a load in background (refresh or revalidate), the invoker of the call is used if null
+    Supplier<Invoker> invokerSupplier;
     Method method;
     Object[] args;
     CacheInvokeConfig cacheInvokeConfig;
@@ -30,6 +33,10 @@ public class CacheInvokeContext {
         this.invoker = invoker;
     }
 
+    public void setInvokerSupplier(Supplier<Invoker> invokerSupplier) {
+        this.invokerSupplier = invokerSupplier;
+    }
+
     public Method getMethod() {
         return method;
     }
@@ -3,6 +3,7 @@
  */
 package com.alicp.jetcache.anno.support;
 
+import com.alicp.jetcache.anno.CacheConsts;
 import com.alicp.jetcache.anno.CacheType;
 
 /**
@@ -14,8 +15,10 @@ public class CacheAnnoConfig {
     private String name;
     private boolean enabled;
     private int expire;
+    private int expireJitterPercent = CacheConsts.UNDEFINED_INT;
     private CacheType cacheType;
     private int localLimit;
+    private String localEvictionPolicy = CacheConsts.UNDEFINED_STRING;
     private boolean cacheNullValue;
     private String condition;
     private String unless;
@@ -109,4 +112,20 @@ public class CacheAnnoConfig {
     public void setKeyConvertor(String keyConvertor) {
         this.keyConvertor = keyConvertor;
     }
+
+    public int getExpireJitterPercent() {
+        return expireJitterPercent;
+    }
+
+    public void setExpireJitterPercent(int expireJitterPercent) {
+        this.expireJitterPercent = expireJitterPercent;
+    }
+
+    public String getLocalEvictionPolicy() {
+        return localEvictionPolicy;
+    }
+
+    public void setLocalEvictionPolicy(String localEvictionPolicy) {
+        this.localEvictionPolicy = localEvictionPolicy;
+    }
 }
@@ -7,18 +7,30 @@ import com.alicp.jetcache.Cache;
 import com.alicp.jetcache.CacheConfigException;
 import com.alicp.jetcache.MonitoredCache;
 import com.alicp.jetcache.MultiLevelCache;
+import com.alicp.jetcache.MultiLevelCacheBuilder;
+import com.alicp.jetcache.WriteBehindCache;
 import com.alicp.jetcache.anno.CacheConsts;
 import com.alicp.jetcache.anno.CacheType;
 import com.alicp.jetcache.anno.EnableCache;
 import com.alicp.jetcache.anno.method.CacheInvokeContext;
 import com.alicp.jetcache.anno.method.ClassUtil;
 import com.alicp.jetcache.embedded.EmbeddedCacheBuilder;
+import com.alicp.jetcache.embedded.LinkedHashMapCache;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.embedded.OffHeapCache;
+import com.alicp.jetcache.embedded.OffHeapCacheBuilder;
 import com.alicp.jetcache.external.ExternalCacheBuilder;
+import com.alicp.jetcache.external.ExternalCacheConfig;
 import com.alicp.jetcache.support.DefaultCacheMonitor;
 import com.alicp.jetcache.support.DefaultCacheMonitorManager;
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -27,6 +39,8 @@ import java.util.function.Supplier;
  */
 public class CacheContext {
 
+    private static Logger logger = LoggerFactory.getLogger(CacheContext.class);
+
     private static ThreadLocal<CacheThreadLocal> cacheThreadLocal = new ThreadLocal<CacheThreadLocal>() {
         @Override
         protected CacheThreadLocal initialValue() {
@@ -39,6 +53,9 @@ public class CacheContext {
 
     private DefaultCacheMonitorManager defaultCacheMonitorManager;
     private CacheManager cacheManager;
+    // local caches holding direct memory or files
+    private List<AutoCloseable> closeableCaches = new ArrayList<>();
+    private InvalidationBroadcaster invalidationBroadcaster;
 
     public CacheContext(GlobalCacheConfig globalCacheConfig) {
         this.globalCacheConfig = globalCacheConfig;
@@ -57,6 +74,9 @@ public class CacheContext {
                         TimeUnit.MINUTES, globalCacheConfig.getConfigProvider().statCallback());
                 defaultCacheMonitorManager.start();
             }
+            if (globalCacheConfig.getInvalidationChannel() != null) {
+                invalidationBroadcaster = new InvalidationBroadcaster(globalCacheConfig.getInvalidationChannel());
+            }
         }
     }
 
@@ -65,6 +85,19 @@ public class CacheContext {
         if (defaultCacheMonitorManager != null) {
             defaultCacheMonitorManager.stop();
         }
+        // reverse order, a MultiLevelCache is closed before its levels
+        for (int i = closeableCaches.size() - 1; i >= 0; i--) {
+            try {
+                closeableCaches.get(i).close();
+            } catch (Exception e) {
+                logger.error("close cache error", e);
+            }
+        }
+        closeableCaches.clear();
+        if (invalidationBroadcaster != null) {
+            invalidationBroadcaster.close();
+            invalidationBroadcaster = null;
+        }
         cacheManager = null;
         defaultCacheMonitorManager = null;
     }
@@ -102,32 +135,77 @@ public class CacheContext {
     protected Cache buildCache(CacheAnnoConfig cacheAnnoConfig, String area, String fullCacheName) {
         Cache cache;
         if (cacheAnnoConfig.getCacheType() == CacheType.LOCAL) {
-            cache = buildLocal(cacheAnnoConfig, area);
+            cache = buildLocal(cacheAnnoConfig, area, fullCacheName);
         } else if (cacheAnnoConfig.getCacheType() == CacheType.REMOTE) {
             cache = buildRemote(cacheAnnoConfig, area, fullCacheName);
         } else {
-            Cache local = buildLocal(cacheAnnoConfig, area);
+            Cache local = buildLocal(cacheAnnoConfig, area, fullCacheName);
             Cache remote = buildRemote(cacheAnnoConfig, area, fullCacheName);
+            Cache versionCache = null;
+            if (globalCacheConfig.getFreshnessWindowInMillis() > 0) {
+                versionCache = buildRemote(cacheAnnoConfig, area, fullCacheName + "#version:");
+            }
 
+            DefaultCacheMonitor remoteMonitor = null;
             if (defaultCacheMonitorManager != null) {
                 DefaultCacheMonitor localMonitor = new DefaultCacheMonitor(fullCacheName + "_local");
+                bindLocalStat(localMonitor, local);
                 local = new MonitoredCache(local, localMonitor);
-                DefaultCacheMonitor remoteMonitor = new DefaultCacheMonitor(fullCacheName + "_remote");
+                remoteMonitor = new DefaultCacheMonitor(fullCacheName + "_remote");
                 remote = new MonitoredCache(remote, remoteMonitor);
                 defaultCacheMonitorManager.add(localMonitor, remoteMonitor);
             }
 
-            cache = new MultiLevelCache(local, remote);
+            MultiLevelCacheBuilder.MultiLevelCacheBuilderImpl builder = MultiLevelCacheBuilder.createMultiLevelCacheBuilder();
+            if (globalCacheConfig.isLazyDecode() && remote.config() instanceof ExternalCacheConfig) {
+                ExternalCacheConfig remoteConfig = (ExternalCacheConfig) remote.config();
+                builder.lazyDecode(true)
+                        .valueEncoder(remoteConfig.getValueEncoder())
+                        .valueDecoder(remoteConfig.getValueDecoder());
+            }
+            cache = builder
+                    .addCache(local, remote)
+                    .cachePenetrationProtect(remote.config().isCachePenetrationProtect())
+                    .penetrationProtectTimeout(remote.config().getPenetrationProtectTimeoutInMillis(), TimeUnit.MILLISECONDS)
+                    .distributedPenetrationProtect(remote.config().isDistributedPenetrationProtect())
+                    .penetrationProtectLockExpire(remote.config().getPenetrationProtectLockExpireInMillis(), TimeUnit.MILLISECONDS)
+                    .refreshPolicy(remote.config().getRefreshPolicy())
+                    .staleTtl(remote.config().getStaleTtlInMillis(), TimeUnit.MILLISECONDS)
+                    .earlyExpireBeta(remote.config().getEarlyExpireBeta())
+                    .clock(remote.config().getClock())
+                    .invalidationBroadcaster(invalidationBroadcaster)
+                    .invalidationName(fullCacheName)
+                    .versionCache(versionCache)
+                    .freshnessWindow(globalCacheConfig.getFreshnessWindowInMillis(), TimeUnit.MILLISECONDS)
+                    .writeBehind(globalCacheConfig.isWriteBehind())
+                    .writeBehindCapacity(globalCacheConfig.getWriteBehindCapacity())
+                    .backPressurePolicy(globalCacheConfig.getBackPressurePolicy())
+                    .buildCache();
+            WriteBehindCache writeBehindCache = ((MultiLevelCache) cache).writeBehindCache();
+            if (writeBehindCache != null) {
+                writeBehindCache.setMonitor(remoteMonitor);
+            }
+            // flushes the write behind queue and unregisters on shutdown, before the invalidation broadcaster is closed
+            closeableCaches.add((MultiLevelCache) cache);
         }
 
         if (defaultCacheMonitorManager != null) {
             DefaultCacheMonitor monitor = new DefaultCacheMonitor(fullCacheName);
+            bindLocalStat(monitor, cache);
             cache = new MonitoredCache(cache, monitor);
             defaultCacheMonitorManager.add(monitor);
         }
         return cache;
     }
 
+    private void bindLocalStat(DefaultCacheMonitor monitor, Cache cache) {
+        if (cache instanceof OffHeapCache) {
+            monitor.setOffHeapBytesSupplier(((OffHeapCache) cache)::offHeapBytes);
+        } else if (cache instanceof LinkedHashMapCache) {
+            ((LinkedHashMapCache) cache).setOverflowMonitor(monitor);
+        }
+    }
+
     protected Cache buildRemote(CacheAnnoConfig cacheAnnoConfig, String area, String prefix) {
         ExternalCacheBuilder cacheBuilder = (ExternalCacheBuilder) globalCacheConfig.getRemoteCacheBuilders().get(area);
         if (cacheBuilder == null) {
@@ -138,6 +216,9 @@ public class CacheContext {
         if (cacheAnnoConfig.getExpire() != CacheConsts.UNDEFINED_INT) {
             cacheBuilder.setDefaultExpireInMillis(cacheAnnoConfig.getExpire() * 1000L);
         }
+        if (cacheAnnoConfig.getExpireJitterPercent() != CacheConsts.UNDEFINED_INT) {
+            cacheBuilder.setExpireJitterPercent(cacheAnnoConfig.getExpireJitterPercent());
+        }
         cacheBuilder.setKeyPrefix(prefix);
         if (!CacheConsts.UNDEFINED_STRING.equals(cacheAnnoConfig.getKeyConvertor())) {
             cacheBuilder.setKeyConvertor(configProvider.parseKeyConvertor(cacheAnnoConfig.getKeyConvertor()));
@@ -149,7 +230,7 @@ public class CacheContext {
         return cacheBuilder.buildCache();
     }
 
-    protected Cache buildLocal(CacheAnnoConfig cacheAnnoConfig, String area) {
+    protected Cache buildLocal(CacheAnnoConfig cacheAnnoConfig, String area, String fullCacheName) {
         Cache cache;
         EmbeddedCacheBuilder cacheBuilder = (EmbeddedCacheBuilder) globalCacheConfig.getLocalCacheBuilders().get(area);
         if (cacheBuilder == null) {
@@ -160,13 +241,35 @@ public class CacheContext {
         if (cacheAnnoConfig.getLocalLimit() != CacheConsts.UNDEFINED_INT) {
             cacheBuilder.setLimit(cacheAnnoConfig.getLocalLimit());
         }
+        if (!CacheConsts.UNDEFINED_STRING.equals(cacheAnnoConfig.getLocalEvictionPolicy())) {
+            cacheBuilder.setEvictionPolicy(cacheAnnoConfig.getLocalEvictionPolicy());
+        }
         if (cacheAnnoConfig.getExpire() != CacheConsts.UNDEFINED_INT) {
             cacheBuilder.setDefaultExpireInMillis(cacheAnnoConfig.getExpire() * 1000L);
         }
+        if (cacheAnnoConfig.getExpireJitterPercent() != CacheConsts.UNDEFINED_INT) {
+            cacheBuilder.setExpireJitterPercent(cacheAnnoConfig.getExpireJitterPercent());
+        }
         if (!CacheConsts.UNDEFINED_STRING.equals(cacheAnnoConfig.getKeyConvertor())) {
             cacheBuilder.setKeyConvertor(configProvider.parseKeyConvertor(cacheAnnoConfig.getKeyConvertor()));
         }
+        if (!CacheConsts.UNDEFINED_STRING.equals(cacheAnnoConfig.getSerialPolicy())) {
+            // used by the caches storing bytes
+            cacheBuilder.setValueEncoder(configProvider.parseValueEncoder(cacheAnnoConfig.getSerialPolicy()));
+            cacheBuilder.setValueDecoder(configProvider.parseValueDecoder(cacheAnnoConfig.getSerialPolicy()));
+        }
+        // one file for each cache if persistDirectory or overflowDirectory is set
+        String fileName = fullCacheName.replaceAll("[^\\w.-]", "_");
+        if (cacheBuilder instanceof OffHeapCacheBuilder) {
+            ((OffHeapCacheBuilder) cacheBuilder).setPersistName(fileName + ".cache");
+        } else if (cacheBuilder instanceof LinkedHashMapCacheBuilder) {
+            ((LinkedHashMapCacheBuilder) cacheBuilder).setOverflowName(fileName + ".overflow");
+        }
         cache = cacheBuilder.buildCache();
+        if (cache instanceof AutoCloseable) {
+            // buildCache is called in synchronized block of __createOrGetCache
+            closeableCaches.add((AutoCloseable) cache);
+        }
         return cache;
     }
 
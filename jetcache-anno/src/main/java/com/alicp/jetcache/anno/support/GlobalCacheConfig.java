@@ -4,6 +4,8 @@
 package com.alicp.jetcache.anno.support;
 
 import com.alicp.jetcache.CacheBuilder;
+import com.alicp.jetcache.anno.BackPressurePolicy;
+import com.alicp.jetcache.support.InvalidationChannel;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -20,6 +22,12 @@ public class GlobalCacheConfig {
 
     private ConfigProvider configProvider = new SpringConfigProvider();
     protected int statIntervalMinutes;
+    private InvalidationChannel invalidationChannel;
+    private long freshnessWindowInMillis;
+    private boolean lazyDecode;
+    private boolean writeBehind;
+    private int writeBehindCapacity = 10000;
+    private String backPressurePolicy = BackPressurePolicy.CALLER_RUNS;
 
     private CacheContext cacheContext;
 
@@ -85,4 +93,70 @@ public class GlobalCacheConfig {
     public void setConfigProvider(ConfigProvider configProvider) {
         this.configProvider = configProvider;
     }
+
+    public InvalidationChannel getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    /**
+     * Evict the local level of CacheType.BOTH caches when other nodes write the keys.
+     */
+    public void setInvalidationChannel(InvalidationChannel invalidationChannel) {
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    public long getFreshnessWindowInMillis() {
+        return freshnessWindowInMillis;
+    }
+
+    /**
+     * If greater than 0, the local level of CacheType.BOTH caches is validated by a version stored in the remote
+     * area once the entry is older than the window.
+     */
+    public void setFreshnessWindowInMillis(long freshnessWindowInMillis) {
+        this.freshnessWindowInMillis = freshnessWindowInMillis;
+    }
+
+    public boolean isLazyDecode() {
+        return lazyDecode;
+    }
+
+    /**
+     * If true, CacheType.BOTH caches encode the value with the serializer of the remote area once, pass the bytes
+     * from remote to local and decode them on read.
+     */
+    public void setLazyDecode(boolean lazyDecode) {
+        this.lazyDecode = lazyDecode;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * If true, CacheType.BOTH caches write the local level at once and queue the writes to the remote area,
+     * which are coalesced by key and flushed in batches.
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public int getWriteBehindCapacity() {
+        return writeBehindCapacity;
+    }
+
+    public void setWriteBehindCapacity(int writeBehindCapacity) {
+        this.writeBehindCapacity = writeBehindCapacity;
+    }
+
+    public String getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    /**
+     * The policy when the write behind queue of a cache is full, see {@link BackPressurePolicy}.
+     */
+    public void setBackPressurePolicy(String backPressurePolicy) {
+        this.backPressurePolicy = backPressurePolicy;
+    }
 }
@@ -1,9 +1,28 @@
 package com.alicp.jetcache;
 
+import com.alicp.jetcache.event.CacheEvent;
+import com.alicp.jetcache.event.CacheLoaderLockEvent;
+import com.alicp.jetcache.event.CacheRefreshEvent;
 import com.alicp.jetcache.support.FastjsonKeyConvertor;
+import com.alicp.jetcache.support.JetCacheExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 /**
  * Created on 2016/10/7.
  *
@@ -13,6 +32,30 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
     private static Logger logger = LoggerFactory.getLogger(AbstractCache.class);
 
+    protected static final String LOADER_LOCK_SUFFIX = "_#LL#";
+    protected static final String REFRESH_LOCK_SUFFIX = "_#RL#";
+
+    private static final long MIN_LOADER_LOCK_BACKOFF_MILLIS = 10;
+    private static final long MAX_LOADER_LOCK_BACKOFF_MILLIS = 200;
+
+    private static ThreadLocal<LoaderLock> currentLoaderLock = new ThreadLocal<>();
+
+    private volatile ConcurrentHashMap<Object, LoaderLock> loaderMap;
+
+    private volatile ConcurrentHashMap<Object, RefreshTask> refreshTaskMap;
+
+    private volatile ConcurrentHashMap<Object, Boolean> revalidateMap;
+
+    private volatile long avgLoadMillis;
+
+    static class LoaderLock {
+        final CountDownLatch signal = new CountDownLatch(1);
+        final Thread loaderThread = Thread.currentThread();
+        volatile int waitCount;
+        volatile boolean success;
+        volatile Object value;
+    }
+
     protected abstract Object buildKey(K key);
 
     protected void logError(String oper, Object key, Throwable e) {
@@ -39,4 +82,512 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 //        return false;
         return true;
     }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loader, boolean cacheNullWhenLoaderReturnNull) {
+        return computeIfAbsentImpl(key, loader, cacheNullWhenLoaderReturnNull, 0, null, this, null);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loader, boolean cacheNullWhenLoaderReturnNull,
+                             long expire, TimeUnit timeUnit) {
+        return computeIfAbsentImpl(key, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit, this, null);
+    }
+
+    /**
+     * The computeIfAbsent implementation shared by AbstractCache and the proxies wrapping it.
+     * GET and PUT are invoked on the cache passed in (so a MonitoredCache still records them), while the
+     * penetration protect config and the in-flight load map come from the underlying AbstractCache.
+     *
+     * @param timeUnit      null means using the default expire time of the cache
+     * @param eventListener receives the CacheLoaderLockEvent of distributed penetration protect, may be null
+     */
+    static <K, V> V computeIfAbsentImpl(K key, Function<K, V> loader, boolean cacheNullWhenLoaderReturnNull,
+                                        long expire, TimeUnit timeUnit, Cache<K, V> cache,
+                                        Consumer<CacheEvent> eventListener) {
+        Consumer<V> cacheUpdater = (loadedValue) -> {
+            if (loadedValue != null || cacheNullWhenLoaderReturnNull) {
+                if (timeUnit == null) {
+                    cache.PUT(key, loadedValue);
+                } else {
+                    cache.PUT(key, loadedValue, expire, timeUnit);
+                }
+            }
+        };
+        touchRefreshTask(key, loader, cacheUpdater, cache, eventListener);
+        CacheGetResult<V> r = cache.GET(key);
+        if (r.isSuccess()) {
+            return r.getValue();
+        }
+        if (r.isStale() && revalidate(key, loader, cacheUpdater, cache, eventListener)) {
+            return r.getValue();
+        }
+        return load(key, loader, cacheUpdater, cache, eventListener);
+    }
+
+    /**
+     * Reload a stale key in background (at most one reload per key at a time), the caller
+     * should use the stale value. If the loader fails the stale value is kept until the stale ttl expires.
+     *
+     * @return false if the cache is not an AbstractCache (or a proxy of it), nothing is submitted
+     */
+    static <K, V> boolean revalidate(K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                                     Consumer<CacheEvent> eventListener) {
+        AbstractCache<K, V> abstractCache = CacheUtil.getAbstractCache(cache);
+        if (abstractCache == null) {
+            return false;
+        }
+        abstractCache.submitRevalidate(key, loader, cacheUpdater, cache, eventListener);
+        return true;
+    }
+
+    private ConcurrentHashMap<Object, Boolean> initOrGetRevalidateMap() {
+        if (revalidateMap == null) {
+            synchronized (this) {
+                if (revalidateMap == null) {
+                    revalidateMap = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return revalidateMap;
+    }
+
+    private void submitRevalidate(K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                                  Consumer<CacheEvent> eventListener) {
+        ConcurrentHashMap<Object, Boolean> revalidateMap = initOrGetRevalidateMap();
+        Object id = buildLoaderLockKey(key);
+        if (revalidateMap.putIfAbsent(id, Boolean.TRUE) != null) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                load(key, loader, cacheUpdater, cache, eventListener);
+            } catch (Throwable e) {
+                logError("revalidate", key, e);
+            } finally {
+                revalidateMap.remove(id);
+            }
+        };
+        try {
+            JetCacheExecutor.defaultExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            revalidateMap.remove(id);
+            logError("revalidate", key, e);
+        }
+    }
+
+    /**
+     * Reload the stale keys in background with one batch load, the keys being reloaded already are skipped.
+     * The caller should use the stale values.
+     */
+    protected void revalidateAll(Set<K> keys, Consumer<Set<K>> batchLoader) {
+        ConcurrentHashMap<Object, Boolean> revalidateMap = initOrGetRevalidateMap();
+        Map<Object, K> ids = new HashMap<>();
+        for (K key : keys) {
+            Object id = buildLoaderLockKey(key);
+            if (revalidateMap.putIfAbsent(id, Boolean.TRUE) == null) {
+                ids.put(id, key);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<K> loadKeys = new HashSet<>(ids.values());
+        Runnable task = () -> {
+            try {
+                batchLoader.accept(loadKeys);
+            } catch (Throwable e) {
+                logError("revalidate", "keys(" + loadKeys.size() + ")", e);
+            } finally {
+                ids.keySet().forEach(revalidateMap::remove);
+            }
+        };
+        try {
+            JetCacheExecutor.defaultExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            ids.keySet().forEach(revalidateMap::remove);
+            logError("revalidate", "keys(" + loadKeys.size() + ")", e);
+        }
+    }
+
+    /**
+     * Run the loader and the cacheUpdater of a missing key with the penetration protect
+     * configured on the cache.
+     */
+    static <K, V> V load(K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                         Consumer<CacheEvent> eventListener) {
+        Function<K, V> loadAndUpdate = (k) -> {
+            V loadedValue = loader.apply(k);
+            cacheUpdater.accept(loadedValue);
+            return loadedValue;
+        };
+        AbstractCache<K, V> abstractCache = CacheUtil.getAbstractCache(cache);
+        if (abstractCache == null) {
+            return loadAndUpdate.apply(key);
+        }
+        CacheConfig config = abstractCache.config();
+        Function<K, V> protectedLoader = (k) -> {
+            long t = config.getClock().nanoTime();
+            V loadedValue = loadAndUpdate.apply(k);
+            abstractCache.recordLoadTime(TimeUnit.NANOSECONDS.toMillis(config.getClock().nanoTime() - t));
+            return loadedValue;
+        };
+        if (config.isDistributedPenetrationProtect() && abstractCache.supportLoaderLock()) {
+            Function<K, V> timedLoader = protectedLoader;
+            protectedLoader = (k) -> abstractCache.distributedLoad(k, timedLoader, cache, eventListener);
+        }
+        if (config.isCachePenetrationProtect()) {
+            return abstractCache.synchronizedLoad(key, protectedLoader);
+        } else {
+            return protectedLoader.apply(key);
+        }
+    }
+
+    /**
+     * @return the ttl with a random extra time configured by expireJitterPercent/expireJitterInMillis
+     */
+    protected long jitterTtl(long ttlInMillis) {
+        return jitterTtl(config(), ttlInMillis);
+    }
+
+    static long jitterTtl(CacheConfig config, long ttlInMillis) {
+        long range = jitterRange(config, ttlInMillis);
+        if (range <= 0) {
+            return ttlInMillis;
+        }
+        long ttl = ttlInMillis + ThreadLocalRandom.current().nextLong(range + 1);
+        return ttl < ttlInMillis ? ttlInMillis : ttl;
+    }
+
+    /**
+     * @return the max extra time jitterTtl may add to the ttl
+     */
+    protected static long jitterRange(CacheConfig config, long ttlInMillis) {
+        long range = config.getExpireJitterInMillis();
+        int percent = config.getExpireJitterPercent();
+        if (percent > 0) {
+            // multiply first, or a ttl less than 100ms gets no jitter, divide first only to avoid overflow
+            range += ttlInMillis <= Long.MAX_VALUE / percent ?
+                    ttlInMillis * percent / 100 : ttlInMillis / 100 * percent;
+        }
+        return range < 0 ? 0 : range;
+    }
+
+    private void recordLoadTime(long millis) {
+        long avg = avgLoadMillis;
+        // moving average, the first load is used as is
+        avgLoadMillis = avg == 0 ? millis : (avg * 7 + millis) / 8;
+    }
+
+    /**
+     * Probabilistic early expiration (XFetch): the holder is treated as expired when
+     * <code>now - avgLoadMillis * beta * ln(random)</code> reaches its expire time.
+     * Always false if earlyExpireBeta is not configured or no load is recorded by this cache.
+     */
+    protected boolean isEarlyExpired(ValueHolder<?> holder, long now) {
+        double beta = config().getEarlyExpireBeta();
+        long loadMillis = avgLoadMillis;
+        if (beta <= 0 || loadMillis <= 0) {
+            return false;
+        }
+        double gap = -loadMillis * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return now + gap >= holder.getExpireTime();
+    }
+
+    /**
+     * Record an access of the key, and start the background refresh of it if the cache has a RefreshPolicy.
+     */
+    static <K, V> void touchRefreshTask(K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                                        Consumer<CacheEvent> eventListener) {
+        AbstractCache<K, V> abstractCache = CacheUtil.getAbstractCache(cache);
+        RefreshPolicy policy = abstractCache == null ? null : abstractCache.config().getRefreshPolicy();
+        if (policy == null || policy.getRefreshMillis() <= 0) {
+            return;
+        }
+        abstractCache.touchRefreshTask(key, loader, cacheUpdater, cache, eventListener, policy);
+    }
+
+    private void touchRefreshTask(K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                                  Consumer<CacheEvent> eventListener, RefreshPolicy policy) {
+        if (refreshTaskMap == null) {
+            synchronized (this) {
+                if (refreshTaskMap == null) {
+                    refreshTaskMap = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        Object taskId = buildLoaderLockKey(key);
+        RefreshTask task = refreshTaskMap.computeIfAbsent(taskId, (id) -> {
+            RefreshTask t = new RefreshTask(id, key, loader, cacheUpdater, cache, eventListener);
+            long refreshMillis = policy.getRefreshMillis();
+            t.future = JetCacheExecutor.refreshExecutor().scheduleWithFixedDelay(
+                    t, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+            return t;
+        });
+        task.lastAccessTime = config().getClock().currentTimeMillis();
+    }
+
+    /**
+     * Stop the background refresh of the removed key, it's started again by the next computeIfAbsent.
+     */
+    protected void cancelRefreshTask(K key) {
+        ConcurrentHashMap<Object, RefreshTask> map = refreshTaskMap;
+        if (map == null || key == null) {
+            return;
+        }
+        RefreshTask task = map.get(buildLoaderLockKey(key));
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    protected void cancelRefreshTasks(Collection<? extends K> keys) {
+        if (refreshTaskMap == null || keys == null) {
+            return;
+        }
+        for (K key : keys) {
+            cancelRefreshTask(key);
+        }
+    }
+
+    class RefreshTask implements Runnable {
+        private final Object taskId;
+        private final K key;
+        private final Function<K, V> loader;
+        private final Consumer<V> cacheUpdater;
+        private final Cache<K, V> cache;
+        private final Consumer<CacheEvent> eventListener;
+        private volatile long lastAccessTime;
+        private volatile long lastRefreshTime;
+        private volatile ScheduledFuture future;
+
+        RefreshTask(Object taskId, K key, Function<K, V> loader, Consumer<V> cacheUpdater, Cache<K, V> cache,
+                    Consumer<CacheEvent> eventListener) {
+            this.taskId = taskId;
+            this.key = key;
+            this.loader = loader;
+            this.cacheUpdater = cacheUpdater;
+            this.cache = cache;
+            this.eventListener = eventListener;
+        }
+
+        private void cancel() {
+            refreshTaskMap.remove(taskId, this);
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                RefreshPolicy policy = config().getRefreshPolicy();
+                if (policy == null) {
+                    cancel();
+                    return;
+                }
+                long stopRefreshAfterLastAccess = policy.getStopRefreshAfterLastAccessMillis();
+                if (stopRefreshAfterLastAccess <= 0) {
+                    stopRefreshAfterLastAccess = policy.getRefreshMillis() * RefreshPolicy.DEFAULT_STOP_REFRESH_INTERVALS;
+                }
+                if (config().getClock().currentTimeMillis() - lastAccessTime > stopRefreshAfterLastAccess) {
+                    cancel();
+                    return;
+                }
+                // evicted (or removed by another cache instance) and not accessed since the last refresh
+                if (lastRefreshTime > lastAccessTime
+                        && AbstractCache.this.GET(key).getResultCode() == CacheResultCode.NOT_EXISTS) {
+                    cancel();
+                    return;
+                }
+                if (supportLoaderLock()) {
+                    // the lock is never released but expires before next refresh, so that the key is
+                    // refreshed by only one node in each refresh interval
+                    long lockExpire = policy.getRefreshMillis() * 9 / 10;
+                    AutoReleaseLock lock = tryLoaderLock(key, REFRESH_LOCK_SUFFIX, lockExpire, TimeUnit.MILLISECONDS);
+                    if (lock == null) {
+                        return;
+                    }
+                }
+                long t = config().getClock().nanoTime();
+                boolean success = false;
+                try {
+                    V v = loader.apply(key);
+                    cacheUpdater.accept(v);
+                    success = true;
+                    lastRefreshTime = config().getClock().currentTimeMillis();
+                } finally {
+                    if (eventListener != null) {
+                        t = TimeUnit.NANOSECONDS.toMillis(config().getClock().nanoTime() - t);
+                        eventListener.accept(new CacheRefreshEvent(cache, t, key, success));
+                    }
+                }
+            } catch (Throwable e) {
+                logError("refresh", key, e);
+            }
+        }
+    }
+
+    private ConcurrentHashMap<Object, LoaderLock> initOrGetLoaderMap() {
+        if (loaderMap == null) {
+            synchronized (this) {
+                if (loaderMap == null) {
+                    loaderMap = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return loaderMap;
+    }
+
+    /**
+     * The key used to find the in-flight load, byte array keys of external caches are wrapped so
+     * that equals/hashCode compare the content.
+     */
+    protected Object buildLoaderLockKey(K key) {
+        Object newKey = buildKey(key);
+        if (newKey instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) newKey);
+        }
+        return newKey;
+    }
+
+    V synchronizedLoad(K key, Function<K, V> loader) {
+        ConcurrentHashMap<Object, LoaderLock> loaderMap = initOrGetLoaderMap();
+        Object lockKey = buildLoaderLockKey(key);
+        while (true) {
+            boolean[] create = new boolean[1];
+            LoaderLock ll = loaderMap.compute(lockKey, (unusedKey, existLock) -> {
+                if (existLock == null) {
+                    create[0] = true;
+                    return new LoaderLock();
+                } else {
+                    if (existLock.loaderThread != Thread.currentThread()) {
+                        existLock.waitCount++;
+                    }
+                    return existLock;
+                }
+            });
+            if (create[0] || ll.loaderThread == Thread.currentThread()) {
+                LoaderLock previous = currentLoaderLock.get();
+                currentLoaderLock.set(ll);
+                try {
+                    V loadedValue = loader.apply(key);
+                    ll.value = loadedValue;
+                    ll.success = true;
+                    return loadedValue;
+                } finally {
+                    if (previous == null) {
+                        currentLoaderLock.remove();
+                    } else {
+                        currentLoaderLock.set(previous);
+                    }
+                    if (create[0]) {
+                        loaderMap.remove(lockKey, ll);
+                        ll.signal.countDown();
+                    }
+                }
+            } else {
+                long timeout = config().getPenetrationProtectTimeoutInMillis();
+                try {
+                    if (timeout <= 0) {
+                        ll.signal.await();
+                    } else if (!ll.signal.await(timeout, TimeUnit.MILLISECONDS)) {
+                        logger.info("jetcache wait loader timeout, load by self. timeout={}ms", timeout);
+                        return loader.apply(key);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("jetcache wait loader interrupted, load by self.");
+                    return loader.apply(key);
+                }
+                if (ll.success) {
+                    return (V) ll.value;
+                }
+                // the loader thread failed, retry and maybe become the loader thread
+            }
+        }
+    }
+
+    /**
+     * Whether this cache can hold a lock visible to the whole cluster, which is required by
+     * distributed penetration protect.
+     */
+    protected boolean supportLoaderLock() {
+        return false;
+    }
+
+    /**
+     * Try to acquire the cluster-wide lock guarding the load (or refresh) of the key. The lock must not share
+     * the storage of the cached value.
+     *
+     * @param lockSuffix distinguishes the locks of the same key, {@link #LOADER_LOCK_SUFFIX} or
+     *                   {@link #REFRESH_LOCK_SUFFIX}
+     * @return the lock, or null if it is held by others
+     */
+    protected AutoReleaseLock tryLoaderLock(K key, String lockSuffix, long expire, TimeUnit timeUnit) {
+        return null;
+    }
+
+    V distributedLoad(K key, Function<K, V> loader, Cache<K, V> cache, Consumer<CacheEvent> eventListener) {
+        CacheConfig config = config();
+        long t = config.getClock().nanoTime();
+        long deadline = t + TimeUnit.MILLISECONDS.toNanos(config.getPenetrationProtectTimeoutInMillis());
+        long sleepMillis = MIN_LOADER_LOCK_BACKOFF_MILLIS;
+        while (true) {
+            try (AutoReleaseLock lock = tryLoaderLock(key, LOADER_LOCK_SUFFIX,
+                    config.getPenetrationProtectLockExpireInMillis(), TimeUnit.MILLISECONDS)) {
+                if (lock != null) {
+                    fireLoaderLockEvent(eventListener, cache, t, key, CacheLoaderLockEvent.Result.WIN);
+                    // another node may have finished the load between our GET and the lock
+                    CacheGetResult<V> r = cache.GET(key);
+                    if (r.isSuccess()) {
+                        return r.getValue();
+                    }
+                    return loader.apply(key);
+                }
+            }
+            long now = config.getClock().nanoTime();
+            if (now - deadline >= 0) {
+                fireLoaderLockEvent(eventListener, cache, t, key, CacheLoaderLockEvent.Result.TIMEOUT);
+                logger.info("jetcache wait loader lock timeout, load by self. timeout={}ms",
+                        config.getPenetrationProtectTimeoutInMillis());
+                return loader.apply(key);
+            }
+            try {
+                Thread.sleep(Math.min(sleepMillis, Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now))));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("jetcache wait loader lock interrupted, load by self.");
+                return loader.apply(key);
+            }
+            sleepMillis = Math.min(sleepMillis * 2, MAX_LOADER_LOCK_BACKOFF_MILLIS);
+            CacheGetResult<V> r = cache.GET(key);
+            if (r.isSuccess()) {
+                fireLoaderLockEvent(eventListener, cache, t, key, CacheLoaderLockEvent.Result.WAIT);
+                return r.getValue();
+            }
+        }
+    }
+
+    private void fireLoaderLockEvent(Consumer<CacheEvent> eventListener, Cache<K, V> cache, long startTime,
+                                     K key, CacheLoaderLockEvent.Result result) {
+        if (eventListener != null) {
+            long t = TimeUnit.NANOSECONDS.toMillis(config().getClock().nanoTime() - startTime);
+            eventListener.accept(new CacheLoaderLockEvent(cache, t, key, result));
+        }
+    }
+
+    /**
+     * Used by the loader proxy (see MonitoredCache) to find how many callers are waiting for the load
+     * which is running in current thread.
+     *
+     * @return the count of other callers coalesced into current load, or 0 if current thread is not loading
+     */
+    static int currentCoalescedCount() {
+        LoaderLock ll = currentLoaderLock.get();
+        if (ll == null) {
+            return 0;
+        }
+        return ll.waitCount;
+    }
 }
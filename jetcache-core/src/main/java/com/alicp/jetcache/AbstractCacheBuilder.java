@@ -1,5 +1,7 @@
 package com.alicp.jetcache;
 
+import com.alicp.jetcache.support.Clock;
+
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -96,4 +98,136 @@ public abstract class AbstractCacheBuilder<T extends AbstractCacheBuilder<T>> im
         getConfig().setExpireAfterAccess(expireAfterAccess);
     }
 
+    /**
+     * Let concurrent computeIfAbsent misses on the same key in this JVM wait for one loader call
+     * and share its result.
+     */
+    public T cachePenetrationProtect(boolean cachePenetrationProtect) {
+        getConfig().setCachePenetrationProtect(cachePenetrationProtect);
+        return self();
+    }
+
+    /**
+     * Max time a caller waits for a load started by another thread before it runs the loader itself,
+     * non-positive value means wait until the load finish.
+     */
+    public T penetrationProtectTimeout(long timeout, TimeUnit timeUnit) {
+        getConfig().setPenetrationProtectTimeoutInMillis(timeUnit.toMillis(timeout));
+        return self();
+    }
+
+    /**
+     * Let only one node in the cluster run the loader of a missing key, the others wait for the value
+     * written by it. Requires a remote cache (or a MultiLevelCache whose last level is remote).
+     */
+    public T distributedPenetrationProtect(boolean distributedPenetrationProtect) {
+        getConfig().setDistributedPenetrationProtect(distributedPenetrationProtect);
+        return self();
+    }
+
+    /**
+     * Expire time of the remote lock taken by the loading node, it should be longer than the loader takes.
+     */
+    public T penetrationProtectLockExpire(long expire, TimeUnit timeUnit) {
+        getConfig().setPenetrationProtectLockExpireInMillis(timeUnit.toMillis(expire));
+        return self();
+    }
+
+    /**
+     * Reload the keys accessed by computeIfAbsent in background, see {@link RefreshPolicy}.
+     */
+    public T refreshPolicy(RefreshPolicy refreshPolicy) {
+        RefreshPolicy.check(refreshPolicy);
+        getConfig().setRefreshPolicy(refreshPolicy);
+        return self();
+    }
+
+    /**
+     * Keep expired entries for the specified extra time (the expire time becomes a soft TTL). GET returns
+     * EXPIRED with the stale value, computeIfAbsent returns the stale value at once and reloads it in
+     * background, so a failing loader leads to stale reads instead of errors.
+     */
+    public T staleTtl(long staleTtl, TimeUnit timeUnit) {
+        getConfig().setStaleTtlInMillis(timeUnit.toMillis(staleTtl));
+        return self();
+    }
+
+    /**
+     * Enable probabilistic early expiration (XFetch). A GET near the expire time reports a miss with
+     * a probability which grows as the expire time approaches, weighted by the load time of the cache,
+     * so the keys put together are not reloaded together. 1.0 is a good default, bigger value expires earlier.
+     */
+    public T earlyExpireBeta(double earlyExpireBeta) {
+        getConfig().setEarlyExpireBeta(earlyExpireBeta);
+        return self();
+    }
+
+    /**
+     * Add a random extra time in [0, ttl * percent / 100] to the ttl of each entry,
+     * so the entries put together do not expire together.
+     */
+    public T expireJitterPercent(int percent) {
+        getConfig().setExpireJitterPercent(percent);
+        return self();
+    }
+
+    /**
+     * Add a random extra time in [0, jitter] to the ttl of each entry, can be used together with
+     * {@link #expireJitterPercent(int)}.
+     */
+    public T expireJitter(long jitter, TimeUnit timeUnit) {
+        getConfig().setExpireJitterInMillis(timeUnit.toMillis(jitter));
+        return self();
+    }
+
+    /**
+     * The time source of the cache, such as {@link com.alicp.jetcache.support.CachedClock}
+     * which avoids System.currentTimeMillis() in the hot path. Default is the system clock.
+     */
+    public T clock(Clock clock) {
+        getConfig().setClock(clock);
+        return self();
+    }
+
+    public void setCachePenetrationProtect(boolean cachePenetrationProtect) {
+        getConfig().setCachePenetrationProtect(cachePenetrationProtect);
+    }
+
+    public void setPenetrationProtectTimeoutInMillis(long penetrationProtectTimeoutInMillis) {
+        getConfig().setPenetrationProtectTimeoutInMillis(penetrationProtectTimeoutInMillis);
+    }
+
+    public void setDistributedPenetrationProtect(boolean distributedPenetrationProtect) {
+        getConfig().setDistributedPenetrationProtect(distributedPenetrationProtect);
+    }
+
+    public void setPenetrationProtectLockExpireInMillis(long penetrationProtectLockExpireInMillis) {
+        getConfig().setPenetrationProtectLockExpireInMillis(penetrationProtectLockExpireInMillis);
+    }
+
+    public void setRefreshPolicy(RefreshPolicy refreshPolicy) {
+        RefreshPolicy.check(refreshPolicy);
+        getConfig().setRefreshPolicy(refreshPolicy);
+    }
+
+    public void setStaleTtlInMillis(long staleTtlInMillis) {
+        getConfig().setStaleTtlInMillis(staleTtlInMillis);
+    }
+
+    public void setEarlyExpireBeta(double earlyExpireBeta) {
+        getConfig().setEarlyExpireBeta(earlyExpireBeta);
+    }
+
+    public void setExpireJitterPercent(int expireJitterPercent) {
+        getConfig().setExpireJitterPercent(expireJitterPercent);
+    }
+
+    public void setExpireJitterInMillis(long expireJitterInMillis) {
+        getConfig().setExpireJitterInMillis(expireJitterInMillis);
+    }
+
+    public void setClock(Clock clock) {
+        getConfig().setClock(clock);
+    }
+
 }
@@ -2,6 +2,8 @@ package com.alicp.jetcache;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -132,6 +134,27 @@ public interface Cache<K, V> {
         }
     }
 
+    /**
+     * Get the values of the keys, and load the missing ones with a single call of the loader.
+     * Issues one GET_ALL, one loader call (only if some keys are missing) and one PUT_ALL.
+     *
+     * @param loader receives the missing keys, returns the loaded values (keys it omits are not cached)
+     * @return the values found in cache or returned by the loader
+     */
+    default Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader) {
+        return computeIfAbsentAll(keys, loader, false);
+    }
+
+    default Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                         boolean cacheNullWhenLoaderReturnNull) {
+        return CacheUtil.computeIfAbsentAllImpl(this, keys, loader, cacheNullWhenLoaderReturnNull, 0, null);
+    }
+
+    default Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                         boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit) {
+        return CacheUtil.computeIfAbsentAllImpl(this, keys, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit);
+    }
+
     default void put(K key, V value, long expire, TimeUnit timeUnit) {
         PUT(key, value, expire, timeUnit);
     }
@@ -176,4 +199,56 @@ public interface Cache<K, V> {
      */
     CacheResult PUT_IF_ABSENT(K key, V value, long expire, TimeUnit timeUnit);
 
+    //--------------------------Async API------------------------------------------------
+
+    /**
+     * Asynchronous version of {@link #GET(Object)}. The default implementation completes
+     * immediately on the caller thread, which is appropriate for in-memory caches.
+     * Remote cache implementations should override it so that the caller is not blocked.
+     *
+     * @param key the key
+     * @return a stage completed with the same result GET would return
+     */
+    default CompletionStage<CacheGetResult<V>> GET_ASYNC(K key) {
+        return CompletableFuture.completedFuture(GET(key));
+    }
+
+    default CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC(Set<? extends K> keys) {
+        return CompletableFuture.completedFuture(GET_ALL(keys));
+    }
+
+    default CompletionStage<CacheResult> PUT_ASYNC(K key, V value) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        return PUT_ASYNC(key, value, config().getDefaultExpireInMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    default CompletionStage<CacheResult> PUT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        return CompletableFuture.completedFuture(PUT(key, value, expire, timeUnit));
+    }
+
+    default CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map) {
+        if (map == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        return PUT_ALL_ASYNC(map, config().getDefaultExpireInMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    default CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        return CompletableFuture.completedFuture(PUT_ALL(map, expire, timeUnit));
+    }
+
+    default CompletionStage<CacheResult> REMOVE_ASYNC(K key) {
+        return CompletableFuture.completedFuture(REMOVE(key));
+    }
+
+    default CompletionStage<CacheResult> REMOVE_ALL_ASYNC(Set<? extends K> keys) {
+        return CompletableFuture.completedFuture(REMOVE_ALL(keys));
+    }
+
+    default CompletionStage<CacheResult> PUT_IF_ABSENT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        return CompletableFuture.completedFuture(PUT_IF_ABSENT(key, value, expire, timeUnit));
+    }
+
 }
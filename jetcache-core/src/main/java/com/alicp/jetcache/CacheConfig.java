@@ -1,6 +1,7 @@
 package com.alicp.jetcache;
 
 import com.alicp.jetcache.anno.CacheConsts;
+import com.alicp.jetcache.support.Clock;
 
 import java.util.function.Function;
 
@@ -13,6 +14,16 @@ public class CacheConfig implements Cloneable {
     private long defaultExpireInMillis = CacheConsts.DEFAULT_EXPIRE * 1000L;
     private boolean expireAfterAccess = false;
     private Function<Object,Object> keyConvertor;
+    private boolean cachePenetrationProtect = false;
+    private long penetrationProtectTimeoutInMillis = 3000;
+    private boolean distributedPenetrationProtect = false;
+    private long penetrationProtectLockExpireInMillis = 10000;
+    private RefreshPolicy refreshPolicy;
+    private long staleTtlInMillis = 0;
+    private double earlyExpireBeta = 0;
+    private int expireJitterPercent = 0;
+    private long expireJitterInMillis = 0;
+    private Clock clock = Clock.systemClock();
 
     @Override
     public CacheConfig clone() {
@@ -46,4 +57,84 @@ public class CacheConfig implements Cloneable {
     public void setDefaultExpireInMillis(long defaultExpireInMillis) {
         this.defaultExpireInMillis = defaultExpireInMillis;
     }
+
+    public boolean isCachePenetrationProtect() {
+        return cachePenetrationProtect;
+    }
+
+    public void setCachePenetrationProtect(boolean cachePenetrationProtect) {
+        this.cachePenetrationProtect = cachePenetrationProtect;
+    }
+
+    public long getPenetrationProtectTimeoutInMillis() {
+        return penetrationProtectTimeoutInMillis;
+    }
+
+    public void setPenetrationProtectTimeoutInMillis(long penetrationProtectTimeoutInMillis) {
+        this.penetrationProtectTimeoutInMillis = penetrationProtectTimeoutInMillis;
+    }
+
+    public boolean isDistributedPenetrationProtect() {
+        return distributedPenetrationProtect;
+    }
+
+    public void setDistributedPenetrationProtect(boolean distributedPenetrationProtect) {
+        this.distributedPenetrationProtect = distributedPenetrationProtect;
+    }
+
+    public long getPenetrationProtectLockExpireInMillis() {
+        return penetrationProtectLockExpireInMillis;
+    }
+
+    public void setPenetrationProtectLockExpireInMillis(long penetrationProtectLockExpireInMillis) {
+        this.penetrationProtectLockExpireInMillis = penetrationProtectLockExpireInMillis;
+    }
+
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
+    }
+
+    public void setRefreshPolicy(RefreshPolicy refreshPolicy) {
+        this.refreshPolicy = refreshPolicy;
+    }
+
+    public long getStaleTtlInMillis() {
+        return staleTtlInMillis;
+    }
+
+    public void setStaleTtlInMillis(long staleTtlInMillis) {
+        this.staleTtlInMillis = staleTtlInMillis;
+    }
+
+    public double getEarlyExpireBeta() {
+        return earlyExpireBeta;
+    }
+
+    public void setEarlyExpireBeta(double earlyExpireBeta) {
+        this.earlyExpireBeta = earlyExpireBeta;
+    }
+
+    public int getExpireJitterPercent() {
+        return expireJitterPercent;
+    }
+
+    public void setExpireJitterPercent(int expireJitterPercent) {
+        this.expireJitterPercent = expireJitterPercent;
+    }
+
+    public long getExpireJitterInMillis() {
+        return expireJitterInMillis;
+    }
+
+    public void setExpireJitterInMillis(long expireJitterInMillis) {
+        this.expireJitterInMillis = expireJitterInMillis;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
 }
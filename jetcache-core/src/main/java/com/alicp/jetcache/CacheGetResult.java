@@ -8,6 +8,7 @@ package com.alicp.jetcache;
  */
 public class CacheGetResult<V> extends CacheResult {
     private V value;
+    private boolean stale;
 
     public static final CacheGetResult NOT_EXISTS_WITHOUT_MSG = new CacheGetResult(CacheResultCode.NOT_EXISTS, null, null);
     public static final CacheGetResult EXPIRED_WITHOUT_MSG = new CacheGetResult(CacheResultCode.EXPIRED, null ,null);
@@ -21,6 +22,16 @@ public class CacheGetResult<V> extends CacheResult {
         super(ex);
     }
 
+    /**
+     * Create an EXPIRED result which carries the value, used when the entry is in the stale window
+     * of the cache (see {@link CacheConfig#getStaleTtlInMillis()}).
+     */
+    public static <V> CacheGetResult<V> createStaleResult(V value) {
+        CacheGetResult<V> r = new CacheGetResult<>(CacheResultCode.EXPIRED, null, value);
+        r.stale = true;
+        return r;
+    }
+
 
     public V getValue() {
         return value;
@@ -30,5 +41,12 @@ public class CacheGetResult<V> extends CacheResult {
         this.value = value;
     }
 
+    /**
+     * @return true if the result is EXPIRED but the value is still available by {@link #getValue()}
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
 
 }
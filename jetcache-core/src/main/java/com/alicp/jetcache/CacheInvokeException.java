@@ -6,7 +6,6 @@ package com.alicp.jetcache;
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
 public class CacheInvokeException extends CacheException {
-    private Throwable target;
 
     public CacheInvokeException(String message, Throwable cause) {
         super(message, cause);
@@ -15,10 +14,4 @@ public class CacheInvokeException extends CacheException {
     public CacheInvokeException(Throwable cause) {
         super(cause);
     }
-
-    @Override
-    public Throwable getCause(){
-        return target;
-    }
-
 }
@@ -1,6 +1,7 @@
 package com.alicp.jetcache;
 
 import com.alicp.jetcache.event.CacheEvent;
+import com.alicp.jetcache.event.CacheGetEvent;
 
 /**
  * Created on 2016/10/25.
@@ -12,4 +13,13 @@ public interface CacheMonitor {
 
     void afterOperation(CacheEvent event);
 
+    /**
+     * Called by MonitoredCache for a hit of get(). Override it to count the hit without an event,
+     * the default creates a CacheGetEvent.
+     */
+    default void afterGetHit(Cache cache, long millis, Object key, Object value) {
+        afterOperation(new CacheGetEvent(cache, millis, key,
+                new CacheGetResult(CacheResultCode.SUCCESS, null, value)));
+    }
+
 }
@@ -0,0 +1,136 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.event.CacheEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/22.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CacheUtil {
+
+    /**
+     * Unwrap the proxies (such as MonitoredCache) around the cache.
+     *
+     * @return the underlying AbstractCache, or null if the cache is not backed by an AbstractCache
+     */
+    public static <K, V> AbstractCache<K, V> getAbstractCache(Cache<K, V> c) {
+        while (c instanceof ProxyCache) {
+            c = ((ProxyCache) c).getTargetCache();
+        }
+        if (c instanceof AbstractCache) {
+            return (AbstractCache<K, V>) c;
+        }
+        return null;
+    }
+
+    /**
+     * Load the value of a missing key and update the cache, with the penetration protect configured on the cache.
+     * Used by callers (such as the @Cached handler) which do the GET and decide whether to cache the value by
+     * themselves.
+     *
+     * @param cacheUpdater  invoked with the loaded value by the node (and thread) which runs the loader
+     * @param eventListener receives the CacheLoaderLockEvent of distributed penetration protect, may be null
+     */
+    public static <K, V> V load(Cache<K, V> cache, K key, Function<K, V> loader, Consumer<V> cacheUpdater,
+                                Consumer<CacheEvent> eventListener) {
+        return AbstractCache.load(key, loader, cacheUpdater, cache, eventListener);
+    }
+
+    /**
+     * Reload a stale key (see {@link CacheGetResult#isStale()}) in background, the caller should use the stale value.
+     *
+     * @return false if nothing is submitted, the caller should load the key by {@link #load}
+     */
+    public static <K, V> boolean revalidate(Cache<K, V> cache, K key, Function<K, V> loader, Consumer<V> cacheUpdater,
+                                            Consumer<CacheEvent> eventListener) {
+        return AbstractCache.revalidate(key, loader, cacheUpdater, cache, eventListener);
+    }
+
+    /**
+     * Record an access of the key, the key is refreshed in background by the loader and cacheUpdater
+     * if the cache has a RefreshPolicy. Used by callers which do the GET by themselves, like {@link #load}.
+     */
+    public static <K, V> void touchRefreshTask(Cache<K, V> cache, K key, Function<K, V> loader,
+                                               Consumer<V> cacheUpdater, Consumer<CacheEvent> eventListener) {
+        AbstractCache.touchRefreshTask(key, loader, cacheUpdater, cache, eventListener);
+    }
+
+    /**
+     * @return the count of other callers coalesced into the load run by current thread, for the CacheLoadEvent
+     * of a loader passed to {@link #load}, or 0 if current thread is not loading
+     */
+    public static int currentCoalescedCount() {
+        return AbstractCache.currentCoalescedCount();
+    }
+
+    /**
+     * The computeIfAbsentAll implementation: one GET_ALL, one batch load for the missing keys
+     * and one PUT_ALL for the loaded values, all invoked on the cache passed in.
+     * Like computeIfAbsent, stale values are returned and reloaded in background by one batch load.
+     *
+     * @param timeUnit null means using the default expire time of the cache
+     */
+    static <K, V> Map<K, V> computeIfAbsentAllImpl(Cache<K, V> cache, Set<? extends K> keys,
+                                                  Function<Set<K>, Map<K, V>> loader,
+                                                  boolean cacheNullWhenLoaderReturnNull,
+                                                  long expire, TimeUnit timeUnit) {
+        Map<K, V> result = new HashMap<>();
+        Set<K> missKeys = new HashSet<>();
+        Set<K> staleKeys = new HashSet<>();
+        AbstractCache<K, V> abstractCache = getAbstractCache(cache);
+        MultiGetResult<K, V> r = cache.GET_ALL(keys);
+        Map<K, CacheGetResult<V>> values = r.getValues();
+        for (K key : keys) {
+            CacheGetResult<V> gr = values == null ? null : values.get(key);
+            if (gr != null && gr.isSuccess()) {
+                result.put(key, gr.getValue());
+            } else if (gr != null && gr.isStale() && abstractCache != null) {
+                result.put(key, gr.getValue());
+                staleKeys.add(key);
+            } else {
+                missKeys.add(key);
+            }
+        }
+        if (!staleKeys.isEmpty()) {
+            abstractCache.revalidateAll(staleKeys, (ks) -> loadAll(cache, ks, loader,
+                    cacheNullWhenLoaderReturnNull, expire, timeUnit, new HashMap<>()));
+        }
+        if (missKeys.isEmpty()) {
+            return result;
+        }
+        loadAll(cache, missKeys, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit, result);
+        return result;
+    }
+
+    private static <K, V> void loadAll(Cache<K, V> cache, Set<K> missKeys, Function<Set<K>, Map<K, V>> loader,
+                                       boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit,
+                                       Map<K, V> result) {
+        Map<K, V> loadedValues = loader.apply(missKeys);
+        Map<K, V> updateValues = new HashMap<>();
+        for (K key : missKeys) {
+            V v = loadedValues == null ? null : loadedValues.get(key);
+            if (v != null || cacheNullWhenLoaderReturnNull) {
+                updateValues.put(key, v);
+            }
+            if (v != null || (loadedValues != null && loadedValues.containsKey(key))) {
+                result.put(key, v);
+            }
+        }
+        if (!updateValues.isEmpty()) {
+            if (timeUnit == null) {
+                cache.PUT_ALL(updateValues);
+            } else {
+                cache.PUT_ALL(updateValues, expire, timeUnit);
+            }
+        }
+    }
+}
@@ -7,7 +7,7 @@ import java.io.Serializable;
  *
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
-public final class CacheValueHolder<V> implements Serializable {
+public class CacheValueHolder<V> implements ValueHolder<V>, Serializable {
     private static final long serialVersionUID = -7973743507831565203L;
     private V value;
     private long createTime;
@@ -27,6 +27,7 @@ public final class CacheValueHolder<V> implements Serializable {
         this.expireTime = createTime + initTtlInMillis;
     }
 
+    @Override
     public V getValue() {
         return value;
     }
@@ -43,6 +44,7 @@ public final class CacheValueHolder<V> implements Serializable {
         this.createTime = createTime;
     }
 
+    @Override
     public long getInitTtlInMillis() {
         return initTtlInMillis;
     }
@@ -51,10 +53,12 @@ public final class CacheValueHolder<V> implements Serializable {
         this.initTtlInMillis = initTtlInMillis;
     }
 
+    @Override
     public long getExpireTime() {
         return expireTime;
     }
 
+    @Override
     public void setExpireTime(long expireTime) {
         this.expireTime = expireTime;
     }
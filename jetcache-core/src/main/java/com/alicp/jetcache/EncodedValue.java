@@ -0,0 +1,51 @@
+package com.alicp.jetcache;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * Value stored by MultiLevelCache in lazyDecode mode. The value is encoded once on write, the bytes are passed
+ * between the levels as they are (decoding a holder of bytes doesn't rebuild the object graph), and decoded
+ * when the value is read. The decoded value is kept, so a value in a heap level is decoded only once.
+ * Created on 2017/6/5.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public final class EncodedValue implements Serializable {
+    private static final long serialVersionUID = -3156210496113724418L;
+
+    private byte[] bytes;
+    private transient volatile Object value;
+
+    /**
+     * used by kyro
+     */
+    public EncodedValue() {
+    }
+
+    public EncodedValue(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    EncodedValue(byte[] bytes, Object value) {
+        this.bytes = bytes;
+        this.value = value;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public boolean isDecoded() {
+        return value != null;
+    }
+
+    public Object decode(Function<byte[], Object> valueDecoder) {
+        Object v = value;
+        if (v == null) {
+            v = valueDecoder.apply(bytes);
+            value = v;
+        }
+        return v;
+    }
+}
@@ -1,10 +1,13 @@
 package com.alicp.jetcache;
 
+import com.alicp.jetcache.embedded.AbstractEmbeddedCache;
 import com.alicp.jetcache.event.*;
+import com.alicp.jetcache.support.Clock;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -39,6 +42,21 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
         return cache.config();
     }
 
+    // config() of the target may be null, the system clock is used then
+    private Clock clock() {
+        CacheConfig config = cache.config();
+        Clock clock = config == null ? null : config.getClock();
+        return clock == null ? Clock.systemClock() : clock;
+    }
+
+    private long startTime() {
+        return clock().nanoTime();
+    }
+
+    private long elapsedMillis(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(clock().nanoTime() - startTime);
+    }
+
     public void notity(CacheEvent e) {
         for (CacheMonitor m : monitors) {
             m.afterOperation(e);
@@ -47,19 +65,40 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheGetResult<V> GET(K key) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheGetResult<V> result = cache.GET(key);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CacheGetEvent event = new CacheGetEvent(cache, t, key, result);
         notity(event);
         return result;
     }
 
+    /**
+     * A hit of an embedded cache is passed to CacheMonitor.afterGetHit without creating the result and the event.
+     * A null value may be a miss or a cached null, it is looked up again by GET to report the result code.
+     */
+    @Override
+    public V get(K key) {
+        if (cache instanceof AbstractEmbeddedCache) {
+            long t = startTime();
+            V v = cache.get(key);
+            if (v != null) {
+                t = elapsedMillis(t);
+                for (CacheMonitor m : monitors) {
+                    m.afterGetHit(cache, t, key, v);
+                }
+                return v;
+            }
+        }
+        CacheGetResult<V> result = GET(key);
+        return result.isSuccess() ? result.getValue() : null;
+    }
+
     @Override
     public MultiGetResult<K, V> GET_ALL(Set<? extends K> keys) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         MultiGetResult<K, V> result = cache.GET_ALL(keys);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CacheGetAllEvent event = new CacheGetAllEvent(cache, t, keys, result);
         notity(event);
         return result;
@@ -67,15 +106,16 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     private Function<K, V> createProxyLoader(K key, Function<K, V> loader) {
         return (k) -> {
-            long t = System.currentTimeMillis();
+            long t = startTime();
             V v = null;
             boolean success = false;
             try {
                 v = loader.apply(k);
                 success = true;
             } finally {
-                t = System.currentTimeMillis() - t;
-                CacheLoadEvent event = new CacheLoadEvent(cache, t, key, v, success);
+                t = elapsedMillis(t);
+                CacheLoadEvent event = new CacheLoadEvent(cache, t, key, v, success,
+                        AbstractCache.currentCoalescedCount());
                 notity(event);
             }
             return v;
@@ -85,21 +125,54 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
     @Override
     public V computeIfAbsent(K key, Function<K, V> loader, boolean cacheNullWhenLoaderReturnNull) {
         Function<K, V> newLoader = createProxyLoader(key, loader);
-        return ProxyCache.super.computeIfAbsent(key, newLoader, cacheNullWhenLoaderReturnNull);
+        return AbstractCache.computeIfAbsentImpl(key, newLoader, cacheNullWhenLoaderReturnNull, 0, null, this,
+                this::notity);
     }
 
     @Override
     public V computeIfAbsent(K key, Function<K, V> loader, boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit) {
         Function<K, V> newLoader = createProxyLoader(key, loader);
-        return ProxyCache.super.computeIfAbsent(key, newLoader, cacheNullWhenLoaderReturnNull, expire, timeUnit);
+        return AbstractCache.computeIfAbsentImpl(key, newLoader, cacheNullWhenLoaderReturnNull, expire, timeUnit, this,
+                this::notity);
+    }
+
+    @Override
+    public Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                        boolean cacheNullWhenLoaderReturnNull) {
+        // the target may have its own batch path, e.g. MultiLevelCache
+        return cache.computeIfAbsentAll(keys, createProxyBatchLoader(loader), cacheNullWhenLoaderReturnNull);
+    }
+
+    @Override
+    public Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                        boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit) {
+        return cache.computeIfAbsentAll(keys, createProxyBatchLoader(loader), cacheNullWhenLoaderReturnNull,
+                expire, timeUnit);
+    }
+
+    private Function<Set<K>, Map<K, V>> createProxyBatchLoader(Function<Set<K>, Map<K, V>> loader) {
+        return (keys) -> {
+            long t = startTime();
+            Map<K, V> m = null;
+            boolean success = false;
+            try {
+                m = loader.apply(keys);
+                success = true;
+            } finally {
+                t = elapsedMillis(t);
+                CacheLoadEvent event = new CacheLoadEvent(cache, t, keys, m, success);
+                notity(event);
+            }
+            return m;
+        };
     }
 
     @Override
     public CacheResult PUT(K key, V value) {
         //override to prevent NullPointerException when config() is null
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.PUT(key, value);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CachePutEvent event = new CachePutEvent(cache, t, key, value, result);
         notity(event);
         return result;
@@ -107,9 +180,9 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheResult PUT(K key, V value, long expire, TimeUnit timeUnit) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.PUT(key, value, expire, timeUnit);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CachePutEvent event = new CachePutEvent(cache, t, key, value, result);
         notity(event);
         return result;
@@ -118,9 +191,9 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
     @Override
     public CacheResult PUT_ALL(Map<? extends K, ? extends V> map) {
         //override to prevent NullPointerException when config() is null
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.PUT_ALL(map);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CachePutAllEvent event = new CachePutAllEvent(cache, t, map, result);
         notity(event);
         return result;
@@ -128,9 +201,9 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheResult PUT_ALL(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.PUT_ALL(map, expire, timeUnit);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CachePutAllEvent event = new CachePutAllEvent(cache, t, map, result);
         notity(event);
         return result;
@@ -138,9 +211,9 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheResult REMOVE(K key) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.REMOVE(key);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CacheRemoveEvent event = new CacheRemoveEvent(cache, t, key, result);
         notity(event);
         return result;
@@ -148,9 +221,9 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheResult REMOVE_ALL(Set<? extends K> keys) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.REMOVE_ALL(keys);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CacheRemoveAllEvent event = new CacheRemoveAllEvent(cache, t, keys, result);
         notity(event);
         return result;
@@ -163,11 +236,103 @@ public class MonitoredCache<K, V> implements ProxyCache<K, V> {
 
     @Override
     public CacheResult PUT_IF_ABSENT(K key, V value, long expire, TimeUnit timeUnit) {
-        long t = System.currentTimeMillis();
+        long t = startTime();
         CacheResult result = cache.PUT_IF_ABSENT(key, value, expire, timeUnit);
-        t = System.currentTimeMillis() - t;
+        t = elapsedMillis(t);
         CachePutEvent event = new CachePutEvent(cache, t, key, value, result);
         notity(event);
         return result;
     }
+
+    @Override
+    public CompletionStage<CacheGetResult<V>> GET_ASYNC(K key) {
+        long t = startTime();
+        return cache.GET_ASYNC(key).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CacheGetEvent(cache, elapsedMillis(t), key, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC(Set<? extends K> keys) {
+        long t = startTime();
+        return cache.GET_ALL_ASYNC(keys).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CacheGetAllEvent(cache, elapsedMillis(t), keys, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(K key, V value) {
+        //override to prevent NullPointerException when config() is null
+        long t = startTime();
+        return cache.PUT_ASYNC(key, value).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CachePutEvent(cache, elapsedMillis(t), key, value, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        long t = startTime();
+        return cache.PUT_ASYNC(key, value, expire, timeUnit).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CachePutEvent(cache, elapsedMillis(t), key, value, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map) {
+        //override to prevent NullPointerException when config() is null
+        long t = startTime();
+        return cache.PUT_ALL_ASYNC(map).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CachePutAllEvent(cache, elapsedMillis(t), map, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        long t = startTime();
+        return cache.PUT_ALL_ASYNC(map, expire, timeUnit).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CachePutAllEvent(cache, elapsedMillis(t), map, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ASYNC(K key) {
+        long t = startTime();
+        return cache.REMOVE_ASYNC(key).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CacheRemoveEvent(cache, elapsedMillis(t), key, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ALL_ASYNC(Set<? extends K> keys) {
+        long t = startTime();
+        return cache.REMOVE_ALL_ASYNC(keys).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CacheRemoveAllEvent(cache, elapsedMillis(t), keys, result));
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_IF_ABSENT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        long t = startTime();
+        return cache.PUT_IF_ABSENT_ASYNC(key, value, expire, timeUnit).whenComplete((result, ex) -> {
+            if (result != null) {
+                notity(new CachePutEvent(cache, elapsedMillis(t), key, value, result));
+            }
+        });
+    }
 }
@@ -1,32 +1,359 @@
 package com.alicp.jetcache;
 
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Created on 16/9/13.
  *
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
-public class MultiLevelCache<K, V> implements Cache<K, V> {
+public class MultiLevelCache<K, V> extends AbstractCache<K, V> implements AutoCloseable {
 
     private Cache[] caches;
 
+    private MultiLevelCacheConfig config;
+
+    private WriteBehindCache<K, Object> writeBehindCache;
+
+    private Consumer<Set<Object>> invalidator;
+
     @SuppressWarnings("unchecked")
     public MultiLevelCache(Cache... caches) {
+        this.config = new MultiLevelCacheConfig();
+        this.config.setCaches(Arrays.asList(caches));
         this.caches = caches;
     }
 
+    @SuppressWarnings("unchecked")
+    public MultiLevelCache(MultiLevelCacheConfig config) {
+        this.config = config;
+        this.caches = config.getCaches().toArray(new Cache[config.getCaches().size()]);
+        if (config.isWriteBehind()) {
+            int last = caches.length - 1;
+            writeBehindCache = new WriteBehindCache<K, Object>(caches[last], config.getWriteBehindCapacity(),
+                    config.getWriteBehindBatchSize(), config.getWriteBehindFlushIntervalInMillis(),
+                    config.getBackPressurePolicy());
+            writeBehindCache.setFlushListener(this::doBroadcast);
+            // the upper levels must not keep a value the last level never received
+            writeBehindCache.setFailListener(this::evictUpperLevels);
+            caches[last] = writeBehindCache;
+        }
+        InvalidationBroadcaster broadcaster = config.getInvalidationBroadcaster();
+        if (broadcaster != null) {
+            if (config.getInvalidationName() == null) {
+                throw new CacheConfigException("invalidationName is required");
+            }
+            invalidator = this::invalidateLocal;
+            broadcaster.register(config.getInvalidationName(), invalidator);
+        }
+    }
+
+    /**
+     * Unregister from the invalidation broadcaster and flush the write behind queue. The levels are not closed.
+     */
+    @Override
+    public void close() {
+        if (invalidator != null) {
+            config.getInvalidationBroadcaster().unregister(config.getInvalidationName(), invalidator);
+        }
+        if (writeBehindCache != null) {
+            writeBehindCache.close();
+        }
+    }
+
+    /**
+     * Called when other nodes write the keys, the last level is shared so it's untouched.
+     */
+    private void invalidateLocal(Set<Object> keys) {
+        evictUpperLevels(keys);
+    }
+
+    private void evictUpperLevels(Set<?> keys) {
+        for (int i = 0; i < caches.length - 1; i++) {
+            caches[i].REMOVE_ALL(keys);
+        }
+    }
+
+    // called after the write to the last level, so other nodes reload the new value
+    private void broadcast(Collection<?> keys) {
+        // with write behind the keys are broadcast after the flush
+        if (writeBehindCache == null) {
+            doBroadcast(keys);
+        }
+    }
+
+    private void doBroadcast(Collection<?> keys) {
+        InvalidationBroadcaster broadcaster = config.getInvalidationBroadcaster();
+        if (broadcaster != null) {
+            broadcaster.invalidate(config.getInvalidationName(), keys);
+        }
+    }
+
+    private CompletionStage<CacheResult> broadcastAsync(CompletionStage<CacheResult> stage, Collection<?> keys) {
+        if (config.getInvalidationBroadcaster() == null || writeBehindCache != null) {
+            return stage;
+        }
+        return stage.whenComplete((r, ex) -> broadcast(keys));
+    }
+
+    private static long nextVersion() {
+        long v;
+        do {
+            v = ThreadLocalRandom.current().nextLong();
+        } while (v == 0);
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<K, Object> versionCache() {
+        return config.getVersionCache();
+    }
+
+    private long newVersion() {
+        return config.getVersionCache() == null ? 0 : nextVersion();
+    }
+
+    // the value is V, or EncodedValue in lazyDecode mode
+    @SuppressWarnings("unchecked")
+    private CacheValueHolder<V> newHolder(Object value, long now, long ttl, long version) {
+        V v = (V) value;
+        return version == 0 ? new CacheValueHolder<>(v, now, ttl) : new VersionedValueHolder<>(v, now, ttl, version);
+    }
+
+    private Object encode(V value) {
+        if (!config.isLazyDecode() || value == null) {
+            return value;
+        }
+        return new EncodedValue(config.getValueEncoder().apply(value), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V decode(Object value) {
+        if (value instanceof EncodedValue) {
+            return (V) ((EncodedValue) value).decode(config.getValueDecoder());
+        }
+        return (V) value;
+    }
+
+    private Map<K, Object> encodeAll(Map<? extends K, ? extends V> map) {
+        Map<K, Object> values = new HashMap<>();
+        for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
+            values.put(en.getKey(), encode(en.getValue()));
+        }
+        return values;
+    }
+
+    private CacheGetResult<V> successResult(Object value) {
+        if (value instanceof EncodedValue && !((EncodedValue) value).isDecoded()) {
+            return new LazyGetResult<>((EncodedValue) value, config.getValueDecoder());
+        }
+        return new CacheGetResult<V>(CacheResultCode.SUCCESS, null, decode(value));
+    }
+
+    /**
+     * Decodes the value on the first getValue(), so the unused values of GET_ALL are never decoded.
+     */
+    private static class LazyGetResult<V> extends CacheGetResult<V> {
+        private EncodedValue encodedValue;
+        private Function<byte[], Object> valueDecoder;
+
+        LazyGetResult(EncodedValue encodedValue, Function<byte[], Object> valueDecoder) {
+            super(CacheResultCode.SUCCESS, null, null);
+            this.encodedValue = encodedValue;
+            this.valueDecoder = valueDecoder;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (encodedValue != null) {
+                super.setValue((V) encodedValue.decode(valueDecoder));
+                encodedValue = null;
+            }
+            return super.getValue();
+        }
+
+        @Override
+        public void setValue(V value) {
+            encodedValue = null;
+            super.setValue(value);
+        }
+    }
+
+    private static long versionOf(CacheValueHolder<?> h) {
+        return h instanceof VersionedValueHolder ? ((VersionedValueHolder) h).getVersion() : 0;
+    }
+
+    /**
+     * The hits in the levels above the last one are validated against the version cache when they are older than
+     * the freshness window.
+     */
+    private boolean needValidate(int i, CacheValueHolder<V> h, long now) {
+        if (config.getVersionCache() == null || h == null || i == caches.length - 1) {
+            return false;
+        }
+        return !(h instanceof VersionedValueHolder)
+                || now - ((VersionedValueHolder) h).getValidateTime() >= config.getFreshnessWindowInMillis();
+    }
+
+    private boolean validate(CacheValueHolder<V> h, CacheGetResult<Object> version, long now) {
+        if (version.getResultCode() == CacheResultCode.FAIL) {
+            // keep serving the local value if the version cache is unavailable
+            return true;
+        }
+        if (version.isSuccess() && version.getValue() instanceof Long && h instanceof VersionedValueHolder) {
+            VersionedValueHolder<V> vh = (VersionedValueHolder<V>) h;
+            if ((Long) version.getValue() == vh.getVersion()) {
+                vh.setValidateTime(now);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean checkVersion(int i, K key, CacheValueHolder<V> h, long now) {
+        if (!needValidate(i, h, now)) {
+            return true;
+        }
+        CacheGetResult<Object> version = versionCache().GET(key);
+        if (validate(h, version, now)) {
+            return true;
+        }
+        caches[i].REMOVE(key);
+        return false;
+    }
+
+    private Set<K> keysToValidate(int i, Map<K, CacheValueHolder<V>> holders, long now) {
+        Set<K> keys = new HashSet<>();
+        for (Map.Entry<K, CacheValueHolder<V>> en : holders.entrySet()) {
+            if (needValidate(i, en.getValue(), now)) {
+                keys.add(en.getKey());
+            }
+        }
+        return keys;
+    }
+
+    private Map<K, CacheValueHolder<V>> removeOutdated(int i, Map<K, CacheValueHolder<V>> holders, Set<K> keys,
+                                                       MultiGetResult<K, Object> versions, long now) {
+        Map<K, CacheValueHolder<V>> result = new HashMap<>(holders);
+        Set<K> outdated = new HashSet<>();
+        CacheGetResult<Object> fail = new CacheGetResult<>(CacheResultCode.FAIL, null, null);
+        for (K key : keys) {
+            CacheGetResult<Object> version;
+            if (!versions.isSuccess() || versions.getValues() == null) {
+                version = fail;
+            } else {
+                version = versions.getValues().get(key);
+                if (version == null) {
+                    version = CacheGetResult.NOT_EXISTS_WITHOUT_MSG;
+                }
+            }
+            if (!validate(result.get(key), version, now)) {
+                outdated.add(key);
+                result.remove(key);
+            }
+        }
+        if (!outdated.isEmpty()) {
+            caches[i].REMOVE_ALL(outdated);
+        }
+        return result;
+    }
+
+    private Map<K, CacheValueHolder<V>> validateAll(int i, Map<K, CacheValueHolder<V>> holders, long now) {
+        Set<K> keys = keysToValidate(i, holders, now);
+        if (keys.isEmpty()) {
+            return holders;
+        }
+        return removeOutdated(i, holders, keys, versionCache().GET_ALL(keys), now);
+    }
+
+    private static <K> Map<K, Object> versionMap(Collection<? extends K> keys, long version) {
+        Map<K, Object> versions = new HashMap<>();
+        for (K key : keys) {
+            versions.put(key, version);
+        }
+        return versions;
+    }
+
+    // the version is written after the value, a reader may see the old version and keep the old value briefly
+    private void putVersion(K key, long version, boolean useDefaultExpire, long expire, TimeUnit timeUnit) {
+        if (config.getVersionCache() != null) {
+            if (useDefaultExpire) {
+                versionCache().PUT(key, version);
+            } else {
+                versionCache().PUT(key, version, expire, timeUnit);
+            }
+        }
+    }
+
+    private void putVersions(Collection<? extends K> keys, long version, boolean useDefaultExpire,
+                             long expire, TimeUnit timeUnit) {
+        if (config.getVersionCache() != null) {
+            if (useDefaultExpire) {
+                versionCache().PUT_ALL(versionMap(keys, version));
+            } else {
+                versionCache().PUT_ALL(versionMap(keys, version), expire, timeUnit);
+            }
+        }
+    }
+
+    private CompletionStage<CacheResult> versionAsync(CompletionStage<CacheResult> stage,
+                                                      Function<Cache<K, Object>, CompletionStage<CacheResult>> action) {
+        if (config.getVersionCache() == null) {
+            return stage;
+        }
+        return stage.thenCompose(r -> action.apply(versionCache()).handle((v, ex) -> r));
+    }
+
+    /**
+     * @return the proxy of the last level if writeBehind is enabled, or null
+     */
+    public WriteBehindCache<K, Object> writeBehindCache() {
+        return writeBehindCache;
+    }
+
     public Cache[] caches() {
         return caches;
     }
 
     @Override
-    public CacheConfig config() {
-        return null;
+    public MultiLevelCacheConfig config() {
+        return config;
+    }
+
+    @Override
+    protected Object buildKey(K key) {
+        Object newKey = key;
+        if (config.getKeyConvertor() != null) {
+            newKey = config.getKeyConvertor().apply(key);
+        }
+        return newKey;
+    }
+
+    @Override
+    protected boolean supportLoaderLock() {
+        AbstractCache<K, V> lastLevel = CacheUtil.getAbstractCache(caches[caches.length - 1]);
+        return lastLevel != null && lastLevel.supportLoaderLock();
+    }
+
+    @Override
+    protected AutoReleaseLock tryLoaderLock(K key, String lockSuffix, long expire, TimeUnit timeUnit) {
+        AbstractCache<K, V> lastLevel = CacheUtil.getAbstractCache(caches[caches.length - 1]);
+        return lastLevel.tryLoaderLock(key, lockSuffix, expire, timeUnit);
     }
 
     @Override
@@ -34,23 +361,64 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
         if (key == null) {
             return new CacheGetResult<V>(CacheResultCode.FAIL, CacheResult.MSG_ILLEGAL_ARGUMENT, null);
         }
+        CacheValueHolder<V> staleHolder = null;
+        long now = config.getClock().currentTimeMillis();
         for (int i = 0; i < caches.length; i++) {
             Cache cache = caches[i];
-            CacheValueHolder<V> h = (CacheValueHolder<V>) cache.get(key);
+            CacheGetResult<CacheValueHolder<V>> r = cache.GET(key);
+            CacheValueHolder<V> h = r.isSuccess() || r.isStale() ? r.getValue() : null;
+            if (h != null && !checkVersion(i, key, h, now)) {
+                continue;
+            }
+            if (h != null && now < h.getExpireTime() && isEarlyExpired(h, now)) {
+                return config.getStaleTtlInMillis() > 0 ?
+                        CacheGetResult.createStaleResult(decode(h.getValue())) : CacheGetResult.EXPIRED_WITHOUT_MSG;
+            }
             if (checkResultAndFillUpperCache(key, i, h))
-                return new CacheGetResult(CacheResultCode.SUCCESS, null, h.getValue());
+                return new CacheGetResult<V>(CacheResultCode.SUCCESS, null, decode(h.getValue()));
+            if (staleHolder == null && h != null) {
+                staleHolder = h;
+            }
+        }
+        if (staleHolder != null
+                && now < staleHolder.getExpireTime() + config.getStaleTtlInMillis()) {
+            return CacheGetResult.createStaleResult(decode(staleHolder.getValue()));
         }
         return CacheGetResult.NOT_EXISTS_WITHOUT_MSG;
     }
 
+    @Override
+    public V get(K key) {
+        if (key != null && caches.length > 0) {
+            // hit in the first level needs no back-fill, and allocates nothing if the level is an embedded cache
+            CacheValueHolder<V> h = (CacheValueHolder<V>) caches[0].get(key);
+            if (h != null) {
+                long now = config.getClock().currentTimeMillis();
+                if (now < h.getExpireTime() && !isEarlyExpired(h, now) && !needValidate(0, h, now)) {
+                    return decode(h.getValue());
+                }
+            }
+        }
+        CacheGetResult<V> r = GET(key);
+        return r.isSuccess() ? r.getValue() : null;
+    }
+
     private boolean checkResultAndFillUpperCache(K key, int i, CacheValueHolder<V> h) {
+        return checkResultAndFillUpperCache(key, i, h, false);
+    }
+
+    private boolean checkResultAndFillUpperCache(K key, int i, CacheValueHolder<V> h, boolean async) {
         if (h != null) {
             long currentExpire = h.getExpireTime();
-            long now = System.currentTimeMillis();
+            long now = config.getClock().currentTimeMillis();
             if (now <= currentExpire) {
                 long restTtl = currentExpire - now;
                 if (restTtl > 0) {
-                    PUT_caches(false, i, key, h.getValue(), restTtl, TimeUnit.MILLISECONDS);
+                    if (async) {
+                        PUT_caches_async(false, i, key, h.getValue(), restTtl, TimeUnit.MILLISECONDS, versionOf(h));
+                    } else {
+                        PUT_caches(false, i, key, h.getValue(), restTtl, TimeUnit.MILLISECONDS, versionOf(h));
+                    }
                 }
                 return true;
             }
@@ -58,41 +426,198 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
         return false;
     }
 
+    /**
+     * Back-fill the unexpired holders found in level i with one PUT_ALL for each upper level. Every entry keeps
+     * its rest ttl in the inner holder, the level ttl is the longest one.
+     *
+     * @return the unexpired holders
+     */
+    private Map<K, CacheValueHolder<V>> checkResultsAndFillUpperCaches(int i, Map<K, CacheValueHolder<V>> holders,
+                                                                       long now, boolean async) {
+        Map<K, CacheValueHolder<V>> hits = new HashMap<>();
+        long maxRestTtl = 0;
+        for (Map.Entry<K, CacheValueHolder<V>> en : holders.entrySet()) {
+            CacheValueHolder<V> h = en.getValue();
+            if (h != null && now <= h.getExpireTime()) {
+                hits.put(en.getKey(), h);
+                maxRestTtl = Math.max(maxRestTtl, h.getExpireTime() - now);
+            }
+        }
+        if (i == 0 || maxRestTtl <= 0) {
+            return hits;
+        }
+        for (int j = 0; j < i; j++) {
+            Cache cache = caches[j];
+            Map newMap = new HashMap();
+            for (Map.Entry<K, CacheValueHolder<V>> en : hits.entrySet()) {
+                CacheValueHolder<V> h = en.getValue();
+                long restTtl = h.getExpireTime() - now;
+                if (restTtl > 0) {
+                    long ttl = jitterTtl(cache.config(), restTtl);
+                    newMap.put(en.getKey(), newHolder(h.getValue(), now, ttl, versionOf(h)));
+                }
+            }
+            long levelTtl = maxRestTtl + jitterRange(cache.config(), maxRestTtl);
+            if (async) {
+                cache.PUT_ALL_ASYNC(newMap, levelTtl, TimeUnit.MILLISECONDS);
+            } else {
+                cache.PUT_ALL(newMap, levelTtl, TimeUnit.MILLISECONDS);
+            }
+        }
+        return hits;
+    }
+
+    private static <K, V> Map<K, CacheValueHolder<V>> holdersOf(MultiGetResult<K, CacheValueHolder<V>> r) {
+        Map<K, CacheValueHolder<V>> holders = new HashMap<>();
+        if (r.getValues() != null) {
+            for (Map.Entry<K, CacheGetResult<CacheValueHolder<V>>> en : r.getValues().entrySet()) {
+                CacheGetResult<CacheValueHolder<V>> gr = en.getValue();
+                if (gr.isSuccess() || gr.isStale()) {
+                    holders.put(en.getKey(), gr.getValue());
+                }
+            }
+        }
+        return holders;
+    }
+
+    /**
+     * Classify the holders of level i per key like GET: the unexpired ones are hits and back-filled, an early
+     * expired one ends the lookup of its key with a stale (or expired) result, and an expired one is kept in
+     * staleHolders while the lower levels are read. The resolved keys are removed from restKeys.
+     */
+    private void resolveLevel(int i, Map<K, CacheValueHolder<V>> holders, long now, boolean async, Set<K> restKeys,
+                              Map<K, CacheGetResult<V>> resultMap, Map<K, CacheValueHolder<V>> staleHolders) {
+        Map<K, CacheValueHolder<V>> fresh = new HashMap<>();
+        for (Map.Entry<K, CacheValueHolder<V>> en : holders.entrySet()) {
+            K key = en.getKey();
+            CacheValueHolder<V> h = en.getValue();
+            if (h == null) {
+                continue;
+            }
+            if (now < h.getExpireTime() && isEarlyExpired(h, now)) {
+                resultMap.put(key, config.getStaleTtlInMillis() > 0 ?
+                        CacheGetResult.createStaleResult(decode(h.getValue())) : CacheGetResult.EXPIRED_WITHOUT_MSG);
+                restKeys.remove(key);
+            } else if (now <= h.getExpireTime()) {
+                fresh.put(key, h);
+            } else {
+                staleHolders.putIfAbsent(key, h);
+            }
+        }
+        Map<K, CacheValueHolder<V>> hits = checkResultsAndFillUpperCaches(i, fresh, now, async);
+        for (Map.Entry<K, CacheValueHolder<V>> en : hits.entrySet()) {
+            resultMap.put(en.getKey(), successResult(en.getValue().getValue()));
+            restKeys.remove(en.getKey());
+        }
+    }
+
+    // the keys not found in any level, served stale within the stale ttl
+    private void resolveRest(Set<K> restKeys, Map<K, CacheGetResult<V>> resultMap,
+                             Map<K, CacheValueHolder<V>> staleHolders, long now) {
+        for (K k : restKeys) {
+            CacheValueHolder<V> h = staleHolders.get(k);
+            if (h != null && now < h.getExpireTime() + config.getStaleTtlInMillis()) {
+                resultMap.put(k, CacheGetResult.createStaleResult(decode(h.getValue())));
+            } else {
+                resultMap.put(k, CacheGetResult.NOT_EXISTS_WITHOUT_MSG);
+            }
+        }
+    }
+
+    private HashMap<K, CacheGetResult<V>> getAllFromLevels(Set<? extends K> keys) {
+        HashMap<K, CacheGetResult<V>> resultMap = new HashMap<>();
+        Map<K, CacheValueHolder<V>> staleHolders = new HashMap<>();
+        Set<K> restKeys = new HashSet<K>(keys);
+        long now = config.getClock().currentTimeMillis();
+        for (int i = 0; i < caches.length && restKeys.size() > 0; i++) {
+            Cache<K, CacheValueHolder<V>> c = caches[i];
+            Map<K, CacheValueHolder<V>> holders = validateAll(i, holdersOf(c.GET_ALL(restKeys)), now);
+            resolveLevel(i, holders, now, false, restKeys, resultMap, staleHolders);
+        }
+        resolveRest(restKeys, resultMap, staleHolders, now);
+        return resultMap;
+    }
+
     @Override
     public MultiGetResult<K, V> GET_ALL(Set<? extends K> keys) {
         if (keys == null) {
             return new MultiGetResult<>(CacheResultCode.FAIL, CacheResult.MSG_ILLEGAL_ARGUMENT, null);
         }
-        HashMap<K, CacheGetResult<V>> resultMap = new HashMap<>();
-        Set<K> restKeys = new HashSet<K>(keys);
-        for (int i = 0; i < caches.length; i++) {
-            if (restKeys.size() == 0) {
-                break;
-            }
-            Cache<K, CacheValueHolder<V>> c = caches[i];
-            Map<K, CacheValueHolder<V>> someResult = c.getAll(restKeys);
-            for (Map.Entry<K, CacheValueHolder<V>> en : someResult.entrySet()) {
-                K key = en.getKey();
-                CacheValueHolder<V> holder = en.getValue();
-                if (checkResultAndFillUpperCache(key, i, holder)) {
-                    resultMap.put(key, new CacheGetResult<V>(CacheResultCode.SUCCESS, null, holder.getValue()));
-                    restKeys.remove(key);
+        return new MultiGetResult<>(CacheResultCode.SUCCESS, null, getAllFromLevels(keys));
+    }
+
+    @Override
+    public Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                        boolean cacheNullWhenLoaderReturnNull) {
+        return computeIfAbsentAll_impl(true, keys, loader, cacheNullWhenLoaderReturnNull,
+                Integer.MIN_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Map<K, V> computeIfAbsentAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> loader,
+                                        boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit) {
+        return computeIfAbsentAll_impl(false, keys, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit);
+    }
+
+    private Map<K, V> computeIfAbsentAll_impl(boolean useDefaultExpire, Set<? extends K> keys,
+                                              Function<Set<K>, Map<K, V>> loader,
+                                              boolean cacheNullWhenLoaderReturnNull,
+                                              long expire, TimeUnit timeUnit) {
+        Map<K, V> result = new HashMap<>();
+        Set<K> staleKeys = new HashSet<>();
+        Set<K> restKeys = new HashSet<>();
+        for (Map.Entry<K, CacheGetResult<V>> en : getAllFromLevels(keys).entrySet()) {
+            CacheGetResult<V> r = en.getValue();
+            if (r.isSuccess() || r.isStale()) {
+                result.put(en.getKey(), r.getValue());
+                if (r.isStale()) {
+                    staleKeys.add(en.getKey());
                 }
+            } else {
+                restKeys.add(en.getKey());
             }
         }
-        for (K k : restKeys) {
-            resultMap.put(k, CacheGetResult.NOT_EXISTS_WITHOUT_MSG);
+        // like computeIfAbsent, the stale values are returned and reloaded in background
+        if (!staleKeys.isEmpty()) {
+            revalidateAll(staleKeys, (ks) -> loadAll(useDefaultExpire, ks, loader, cacheNullWhenLoaderReturnNull,
+                    expire, timeUnit, new HashMap<>()));
+        }
+        if (restKeys.isEmpty()) {
+            return result;
+        }
+        loadAll(useDefaultExpire, restKeys, loader, cacheNullWhenLoaderReturnNull, expire, timeUnit, result);
+        return result;
+    }
+
+    private void loadAll(boolean useDefaultExpire, Set<K> restKeys, Function<Set<K>, Map<K, V>> loader,
+                         boolean cacheNullWhenLoaderReturnNull, long expire, TimeUnit timeUnit, Map<K, V> result) {
+        Map<K, V> loadedValues = loader.apply(restKeys);
+        Map<K, V> updateValues = new HashMap<>();
+        for (K key : restKeys) {
+            V v = loadedValues == null ? null : loadedValues.get(key);
+            if (v != null || cacheNullWhenLoaderReturnNull) {
+                updateValues.put(key, v);
+            }
+            if (v != null || (loadedValues != null && loadedValues.containsKey(key))) {
+                result.put(key, v);
+            }
+        }
+        if (!updateValues.isEmpty()) {
+            PUT_ALL_impl(useDefaultExpire, updateValues, expire, timeUnit);
         }
-        return new MultiGetResult<>(CacheResultCode.SUCCESS, null, resultMap);
     }
 
     @Override
     public CacheResult PUT(K key, V value) {
-        //override to prevent NullPointerException when config() is null
+        //override to use the default expire time of each level
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
-        return PUT_caches(true, caches.length, key, value, Integer.MIN_VALUE, TimeUnit.MILLISECONDS);
+        long version = newVersion();
+        CacheResult r = PUT_caches(true, caches.length, key, encode(value), Integer.MIN_VALUE, TimeUnit.MILLISECONDS, version);
+        putVersion(key, version, true, Integer.MIN_VALUE, TimeUnit.MILLISECONDS);
+        broadcast(Collections.singleton(key));
+        return r;
     }
 
     @Override
@@ -100,12 +625,16 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
-        return PUT_caches(false, caches.length, key, value, expire, timeUnit);
+        long version = newVersion();
+        CacheResult r = PUT_caches(false, caches.length, key, encode(value), expire, timeUnit, version);
+        putVersion(key, version, false, expire, timeUnit);
+        broadcast(Collections.singleton(key));
+        return r;
     }
 
     @Override
     public CacheResult PUT_ALL(Map<? extends K, ? extends V> map) {
-        //override to prevent NullPointerException when config() is null
+        //override to use the default expire time of each level
         return PUT_ALL_impl(true, map, Integer.MIN_VALUE, TimeUnit.MILLISECONDS);
     }
 
@@ -120,47 +649,49 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
         int failCount = 0;
+        long now = config.getClock().currentTimeMillis();
+        long version = newVersion();
+        long versionExpire = expire;
+        TimeUnit versionTimeUnit = timeUnit;
+        Map<K, Object> values = encodeAll(map);
         for (Cache c : caches) {
             Map newMap = new HashMap();
             if (useDefaultExpire) {
                 expire = c.config().getDefaultExpireInMillis();
                 timeUnit = TimeUnit.MILLISECONDS;
             }
-            for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
-                CacheValueHolder<V> h = new CacheValueHolder<>(en.getValue(),
-                        System.currentTimeMillis(), timeUnit.toMillis(expire));
+            long ttl = timeUnit.toMillis(expire);
+            for (Map.Entry<K, Object> en : values.entrySet()) {
+                CacheValueHolder<V> h = newHolder(en.getValue(), now, jitterTtl(c.config(), ttl), version);
                 newMap.put(en.getKey(), h);
             }
+            // the level may add its own jitter, the entry is expired by the inner holder
+            long levelTtl = ttl + jitterRange(c.config(), ttl);
 
-            CacheResult r;
-            if (useDefaultExpire) {
-                r = c.PUT_ALL(newMap);
-            } else {
-                r = c.PUT_ALL(newMap, expire, timeUnit);
-            }
+            CacheResult r = c.PUT_ALL(newMap, levelTtl, TimeUnit.MILLISECONDS);
             if (!r.isSuccess()) {
                 failCount++;
             }
         }
+        putVersions(map.keySet(), version, useDefaultExpire, versionExpire, versionTimeUnit);
+        broadcast(map.keySet());
         return failCount == 0 ? CacheResult.SUCCESS_WITHOUT_MSG :
                 failCount == caches.length ? CacheResult.FAIL_WITHOUT_MSG : CacheResult.PART_SUCCESS_WITHOUT_MSG;
     }
 
-    private CacheResult PUT_caches(boolean useDefaultExpire, int lastIndex, K key, V value, long expire, TimeUnit timeUnit) {
+    private CacheResult PUT_caches(boolean useDefaultExpire, int lastIndex, K key, Object value, long expire, TimeUnit timeUnit,
+                                   long version) {
         int failCount = 0;
+        long now = config.getClock().currentTimeMillis();
         for (int i = 0; i < lastIndex; i++) {
             Cache cache = caches[i];
             if (useDefaultExpire) {
                 expire = cache.config().getDefaultExpireInMillis();
                 timeUnit = TimeUnit.MILLISECONDS;
             }
-            CacheValueHolder<V> h = new CacheValueHolder<>(value, System.currentTimeMillis(), timeUnit.toMillis(expire));
-            CacheResult r;
-            if (useDefaultExpire) {
-                r = cache.PUT(key, h);
-            } else {
-                r = cache.PUT(key, h, expire, timeUnit);
-            }
+            long ttl = jitterTtl(cache.config(), timeUnit.toMillis(expire));
+            CacheValueHolder<V> h = newHolder(value, now, ttl, version);
+            CacheResult r = cache.PUT(key, h, ttl, TimeUnit.MILLISECONDS);
             if (!r.isSuccess()) {
                 failCount++;
             }
@@ -174,6 +705,7 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
+        cancelRefreshTask(key);
         int failCount = 0;
         for (Cache cache : caches) {
             CacheResult r = cache.REMOVE(key);
@@ -181,6 +713,10 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
                 failCount++;
             }
         }
+        if (config.getVersionCache() != null) {
+            versionCache().REMOVE(key);
+        }
+        broadcast(Collections.singleton(key));
         return failCount == 0 ? CacheResult.SUCCESS_WITHOUT_MSG :
                 failCount == caches.length ? CacheResult.FAIL_WITHOUT_MSG : CacheResult.PART_SUCCESS_WITHOUT_MSG;
     }
@@ -190,6 +726,7 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
         if (keys == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
+        cancelRefreshTasks(keys);
         int failCount = 0;
         for (Cache cache : caches) {
             CacheResult r = cache.REMOVE_ALL(keys);
@@ -197,10 +734,227 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
                 failCount++;
             }
         }
+        if (config.getVersionCache() != null) {
+            versionCache().REMOVE_ALL(keys);
+        }
+        broadcast(keys);
         return failCount == 0 ? CacheResult.SUCCESS_WITHOUT_MSG :
                 failCount == caches.length ? CacheResult.FAIL_WITHOUT_MSG : CacheResult.PART_SUCCESS_WITHOUT_MSG;
     }
 
+    @Override
+    public CompletionStage<CacheGetResult<V>> GET_ASYNC(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(
+                    new CacheGetResult<V>(CacheResultCode.FAIL, CacheResult.MSG_ILLEGAL_ARGUMENT, null));
+        }
+        return GET_ASYNC_impl(key, 0, null);
+    }
+
+    // same checks as GET, the stale holder found in the upper levels is served if no level has a valid one
+    private CompletionStage<CacheGetResult<V>> GET_ASYNC_impl(K key, int i, CacheValueHolder<V> staleHolder) {
+        if (i >= caches.length) {
+            long now = config.getClock().currentTimeMillis();
+            if (staleHolder != null && now < staleHolder.getExpireTime() + config.getStaleTtlInMillis()) {
+                return CompletableFuture.completedFuture(CacheGetResult.createStaleResult(decode(staleHolder.getValue())));
+            }
+            return CompletableFuture.completedFuture(CacheGetResult.NOT_EXISTS_WITHOUT_MSG);
+        }
+        Cache<K, CacheValueHolder<V>> cache = caches[i];
+        return cache.GET_ASYNC(key).thenCompose((r) -> {
+            CacheValueHolder<V> h = r.isSuccess() || r.isStale() ? r.getValue() : null;
+            long now = config.getClock().currentTimeMillis();
+            if (needValidate(i, h, now)) {
+                return versionCache().GET_ASYNC(key).thenCompose((version) -> {
+                    if (validate(h, version, now)) {
+                        return GET_ASYNC_check(key, i, h, staleHolder, now);
+                    }
+                    // the next level is read after the outdated value is removed, so its back-fill is kept
+                    return caches[i].REMOVE_ASYNC(key).handle((x, ex) -> null)
+                            .thenCompose((x) -> GET_ASYNC_impl(key, i + 1, staleHolder));
+                });
+            }
+            return GET_ASYNC_check(key, i, h, staleHolder, now);
+        });
+    }
+
+    private CompletionStage<CacheGetResult<V>> GET_ASYNC_check(K key, int i, CacheValueHolder<V> h,
+                                                               CacheValueHolder<V> staleHolder, long now) {
+        if (h != null && now < h.getExpireTime() && isEarlyExpired(h, now)) {
+            return CompletableFuture.completedFuture(config.getStaleTtlInMillis() > 0 ?
+                    CacheGetResult.createStaleResult(decode(h.getValue())) : CacheGetResult.EXPIRED_WITHOUT_MSG);
+        }
+        if (checkResultAndFillUpperCache(key, i, h, true)) {
+            return CompletableFuture.completedFuture(new CacheGetResult<V>(CacheResultCode.SUCCESS, null, decode(h.getValue())));
+        }
+        return GET_ASYNC_impl(key, i + 1, staleHolder == null ? h : staleHolder);
+    }
+
+    @Override
+    public CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC(Set<? extends K> keys) {
+        if (keys == null) {
+            return CompletableFuture.completedFuture(
+                    new MultiGetResult<>(CacheResultCode.FAIL, CacheResult.MSG_ILLEGAL_ARGUMENT, null));
+        }
+        return GET_ALL_ASYNC_impl(new HashSet<K>(keys), 0, new HashMap<>(), new HashMap<>());
+    }
+
+    private CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC_impl(Set<K> restKeys, int i,
+                                                                    HashMap<K, CacheGetResult<V>> resultMap,
+                                                                    Map<K, CacheValueHolder<V>> staleHolders) {
+        if (restKeys.size() == 0 || i >= caches.length) {
+            resolveRest(restKeys, resultMap, staleHolders, config.getClock().currentTimeMillis());
+            return CompletableFuture.completedFuture(new MultiGetResult<>(CacheResultCode.SUCCESS, null, resultMap));
+        }
+        Cache<K, CacheValueHolder<V>> c = caches[i];
+        return c.GET_ALL_ASYNC(restKeys).thenCompose((r) -> {
+            Map<K, CacheValueHolder<V>> holders = holdersOf(r);
+            long now = config.getClock().currentTimeMillis();
+            Set<K> keysToValidate = keysToValidate(i, holders, now);
+            if (keysToValidate.isEmpty()) {
+                return GET_ALL_ASYNC_check(restKeys, i, resultMap, staleHolders, holders, now);
+            }
+            return versionCache().GET_ALL_ASYNC(keysToValidate).thenCompose((versions) -> GET_ALL_ASYNC_check(
+                    restKeys, i, resultMap, staleHolders, removeOutdated(i, holders, keysToValidate, versions, now), now));
+        });
+    }
+
+    private CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC_check(Set<K> restKeys, int i,
+                                                                     HashMap<K, CacheGetResult<V>> resultMap,
+                                                                     Map<K, CacheValueHolder<V>> staleHolders,
+                                                                     Map<K, CacheValueHolder<V>> holders, long now) {
+        resolveLevel(i, holders, now, true, restKeys, resultMap, staleHolders);
+        return GET_ALL_ASYNC_impl(restKeys, i + 1, resultMap, staleHolders);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(K key, V value) {
+        //override to use the default expire time of each level
+        if (key == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        long version = newVersion();
+        CompletionStage<CacheResult> r = PUT_caches_async(true, caches.length, key, encode(value),
+                Integer.MIN_VALUE, TimeUnit.MILLISECONDS, version);
+        r = versionAsync(r, (versionCache) -> versionCache.PUT_ASYNC(key, version));
+        return broadcastAsync(r, Collections.singleton(key));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        long version = newVersion();
+        CompletionStage<CacheResult> r = PUT_caches_async(false, caches.length, key, encode(value), expire, timeUnit, version);
+        r = versionAsync(r, (versionCache) -> versionCache.PUT_ASYNC(key, version, expire, timeUnit));
+        return broadcastAsync(r, Collections.singleton(key));
+    }
+
+    private CompletionStage<CacheResult> PUT_caches_async(boolean useDefaultExpire, int lastIndex, K key, Object value,
+                                                          long expire, TimeUnit timeUnit, long version) {
+        CompletableFuture<CacheResult>[] futures = new CompletableFuture[lastIndex];
+        long now = config.getClock().currentTimeMillis();
+        for (int i = 0; i < lastIndex; i++) {
+            Cache cache = caches[i];
+            if (useDefaultExpire) {
+                expire = cache.config().getDefaultExpireInMillis();
+                timeUnit = TimeUnit.MILLISECONDS;
+            }
+            long ttl = jitterTtl(cache.config(), timeUnit.toMillis(expire));
+            CacheValueHolder<V> h = newHolder(value, now, ttl, version);
+            CompletionStage<CacheResult> r = cache.PUT_ASYNC(key, h, ttl, TimeUnit.MILLISECONDS);
+            futures[i] = r.toCompletableFuture();
+        }
+        return combine(futures);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map) {
+        //override to use the default expire time of each level
+        return PUT_ALL_ASYNC_impl(true, map, Integer.MIN_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        return PUT_ALL_ASYNC_impl(false, map, expire, timeUnit);
+    }
+
+    private CompletionStage<CacheResult> PUT_ALL_ASYNC_impl(boolean useDefaultExpire,
+                                                            Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        if (map == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        CompletableFuture<CacheResult>[] futures = new CompletableFuture[caches.length];
+        long now = config.getClock().currentTimeMillis();
+        long version = newVersion();
+        long versionExpire = expire;
+        TimeUnit versionTimeUnit = timeUnit;
+        Map<K, Object> values = encodeAll(map);
+        for (int i = 0; i < caches.length; i++) {
+            Cache c = caches[i];
+            Map newMap = new HashMap();
+            if (useDefaultExpire) {
+                expire = c.config().getDefaultExpireInMillis();
+                timeUnit = TimeUnit.MILLISECONDS;
+            }
+            long ttl = timeUnit.toMillis(expire);
+            for (Map.Entry<K, Object> en : values.entrySet()) {
+                CacheValueHolder<V> h = newHolder(en.getValue(), now, jitterTtl(c.config(), ttl), version);
+                newMap.put(en.getKey(), h);
+            }
+            // the level may add its own jitter, the entry is expired by the inner holder
+            long levelTtl = ttl + jitterRange(c.config(), ttl);
+            CompletionStage<CacheResult> r = c.PUT_ALL_ASYNC(newMap, levelTtl, TimeUnit.MILLISECONDS);
+            futures[i] = r.toCompletableFuture();
+        }
+        Map<K, Object> versions = versionMap(map.keySet(), version);
+        CompletionStage<CacheResult> r = versionAsync(combine(futures), (versionCache) -> useDefaultExpire ?
+                versionCache.PUT_ALL_ASYNC(versions) : versionCache.PUT_ALL_ASYNC(versions, versionExpire, versionTimeUnit));
+        return broadcastAsync(r, new HashSet<>(map.keySet()));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ASYNC(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        cancelRefreshTask(key);
+        CompletableFuture<CacheResult>[] futures = new CompletableFuture[caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            futures[i] = caches[i].REMOVE_ASYNC(key).toCompletableFuture();
+        }
+        CompletionStage<CacheResult> r = versionAsync(combine(futures), (versionCache) -> versionCache.REMOVE_ASYNC(key));
+        return broadcastAsync(r, Collections.singleton(key));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ALL_ASYNC(Set<? extends K> keys) {
+        if (keys == null) {
+            return CompletableFuture.completedFuture(CacheResult.FAIL_ILLEGAL_ARGUMENT);
+        }
+        cancelRefreshTasks(keys);
+        CompletableFuture<CacheResult>[] futures = new CompletableFuture[caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            futures[i] = caches[i].REMOVE_ALL_ASYNC(keys).toCompletableFuture();
+        }
+        CompletionStage<CacheResult> r = versionAsync(combine(futures), (versionCache) -> versionCache.REMOVE_ALL_ASYNC(keys));
+        return broadcastAsync(r, keys);
+    }
+
+    private CompletionStage<CacheResult> combine(CompletableFuture<CacheResult>[] futures) {
+        return CompletableFuture.allOf(futures).handle((v, ex) -> {
+            int failCount = 0;
+            for (CompletableFuture<CacheResult> f : futures) {
+                if (f.isCompletedExceptionally() || !f.join().isSuccess()) {
+                    failCount++;
+                }
+            }
+            return failCount == 0 ? CacheResult.SUCCESS_WITHOUT_MSG :
+                    failCount == futures.length ? CacheResult.FAIL_WITHOUT_MSG : CacheResult.PART_SUCCESS_WITHOUT_MSG;
+        });
+    }
+
     @Override
     public <T> T unwrap(Class<T> clazz) {
         throw new UnsupportedOperationException("unwrap is not supported by MultiLevelCache");
@@ -223,4 +977,14 @@ public class MultiLevelCache<K, V> implements Cache<K, V> {
     public CacheResult PUT_IF_ABSENT(K key, V value, long expire, TimeUnit timeUnit) {
         throw new UnsupportedOperationException("PUT_IF_ABSENT is not supported by MultiLevelCache");
     }
+
+    /**
+     * Not supported, the returned stage is completed with UnsupportedOperationException instead of throwing it.
+     */
+    @Override
+    public CompletionStage<CacheResult> PUT_IF_ABSENT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        CompletableFuture<CacheResult> f = new CompletableFuture<>();
+        f.completeExceptionally(new UnsupportedOperationException("PUT_IF_ABSENT_ASYNC is not supported by MultiLevelCache"));
+        return f;
+    }
 }
@@ -0,0 +1,163 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/22.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class MultiLevelCacheBuilder<T extends MultiLevelCacheBuilder<T>> extends AbstractCacheBuilder<T> {
+    public static class MultiLevelCacheBuilderImpl extends MultiLevelCacheBuilder<MultiLevelCacheBuilderImpl> {
+    }
+
+    public static MultiLevelCacheBuilderImpl createMultiLevelCacheBuilder() {
+        return new MultiLevelCacheBuilderImpl();
+    }
+
+    protected MultiLevelCacheBuilder() {
+        buildFunc(config -> new MultiLevelCache((MultiLevelCacheConfig) config));
+    }
+
+    @Override
+    protected MultiLevelCacheConfig getConfig() {
+        if (config == null) {
+            config = new MultiLevelCacheConfig();
+        }
+        return (MultiLevelCacheConfig) config;
+    }
+
+    public T addCache(Cache... caches) {
+        getConfig().getCaches().addAll(Arrays.asList(caches));
+        return self();
+    }
+
+    public void setCaches(List<Cache> caches) {
+        getConfig().setCaches(caches);
+    }
+
+    /**
+     * Evict the keys written by other nodes from the levels above the last one.
+     */
+    public T invalidationBroadcaster(InvalidationBroadcaster invalidationBroadcaster) {
+        getConfig().setInvalidationBroadcaster(invalidationBroadcaster);
+        return self();
+    }
+
+    public void setInvalidationBroadcaster(InvalidationBroadcaster invalidationBroadcaster) {
+        getConfig().setInvalidationBroadcaster(invalidationBroadcaster);
+    }
+
+    public T invalidationName(String invalidationName) {
+        getConfig().setInvalidationName(invalidationName);
+        return self();
+    }
+
+    public void setInvalidationName(String invalidationName) {
+        getConfig().setInvalidationName(invalidationName);
+    }
+
+    /**
+     * Validate the upper level hits by the version of the key instead of reading the value from the last level.
+     */
+    public T versionCache(Cache versionCache) {
+        getConfig().setVersionCache(versionCache);
+        return self();
+    }
+
+    public void setVersionCache(Cache versionCache) {
+        getConfig().setVersionCache(versionCache);
+    }
+
+    public T freshnessWindow(long window, TimeUnit timeUnit) {
+        getConfig().setFreshnessWindowInMillis(timeUnit.toMillis(window));
+        return self();
+    }
+
+    public void setFreshnessWindowInMillis(long freshnessWindowInMillis) {
+        getConfig().setFreshnessWindowInMillis(freshnessWindowInMillis);
+    }
+
+    /**
+     * Encode the value once on write and pass the bytes between levels, the value is decoded when it's read.
+     */
+    public T lazyDecode(boolean lazyDecode) {
+        getConfig().setLazyDecode(lazyDecode);
+        return self();
+    }
+
+    public void setLazyDecode(boolean lazyDecode) {
+        getConfig().setLazyDecode(lazyDecode);
+    }
+
+    public T valueEncoder(Function<Object, byte[]> valueEncoder) {
+        getConfig().setValueEncoder(valueEncoder);
+        return self();
+    }
+
+    public void setValueEncoder(Function<Object, byte[]> valueEncoder) {
+        getConfig().setValueEncoder(valueEncoder);
+    }
+
+    public T valueDecoder(Function<byte[], Object> valueDecoder) {
+        getConfig().setValueDecoder(valueDecoder);
+        return self();
+    }
+
+    public void setValueDecoder(Function<byte[], Object> valueDecoder) {
+        getConfig().setValueDecoder(valueDecoder);
+    }
+
+    /**
+     * Queue the writes to the last level and flush them in background, the upper levels are written at once.
+     */
+    public T writeBehind(boolean writeBehind) {
+        getConfig().setWriteBehind(writeBehind);
+        return self();
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        getConfig().setWriteBehind(writeBehind);
+    }
+
+    public T writeBehindCapacity(int writeBehindCapacity) {
+        getConfig().setWriteBehindCapacity(writeBehindCapacity);
+        return self();
+    }
+
+    public void setWriteBehindCapacity(int writeBehindCapacity) {
+        getConfig().setWriteBehindCapacity(writeBehindCapacity);
+    }
+
+    public T writeBehindBatchSize(int writeBehindBatchSize) {
+        getConfig().setWriteBehindBatchSize(writeBehindBatchSize);
+        return self();
+    }
+
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        getConfig().setWriteBehindBatchSize(writeBehindBatchSize);
+    }
+
+    public T writeBehindFlushInterval(long interval, TimeUnit timeUnit) {
+        getConfig().setWriteBehindFlushIntervalInMillis(timeUnit.toMillis(interval));
+        return self();
+    }
+
+    public void setWriteBehindFlushIntervalInMillis(long writeBehindFlushIntervalInMillis) {
+        getConfig().setWriteBehindFlushIntervalInMillis(writeBehindFlushIntervalInMillis);
+    }
+
+    public T backPressurePolicy(String backPressurePolicy) {
+        getConfig().setBackPressurePolicy(backPressurePolicy);
+        return self();
+    }
+
+    public void setBackPressurePolicy(String backPressurePolicy) {
+        getConfig().setBackPressurePolicy(backPressurePolicy);
+    }
+}
@@ -0,0 +1,168 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.anno.BackPressurePolicy;
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+import com.alicp.jetcache.support.JavaValueDecoder;
+import com.alicp.jetcache.support.JavaValueEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/22.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class MultiLevelCacheConfig extends CacheConfig {
+    private List<Cache> caches = new ArrayList<>();
+    private InvalidationBroadcaster invalidationBroadcaster;
+    private String invalidationName;
+    private Cache versionCache;
+    private long freshnessWindowInMillis;
+    private boolean lazyDecode;
+    private Function<Object, byte[]> valueEncoder = JavaValueEncoder.INSTANCE;
+    private Function<byte[], Object> valueDecoder = JavaValueDecoder.INSTANCE;
+    private boolean writeBehind;
+    private int writeBehindCapacity = 10000;
+    private int writeBehindBatchSize = 500;
+    private long writeBehindFlushIntervalInMillis = 100;
+    private String backPressurePolicy = BackPressurePolicy.CALLER_RUNS;
+
+    @Override
+    public MultiLevelCacheConfig clone() {
+        MultiLevelCacheConfig copy = (MultiLevelCacheConfig) super.clone();
+        copy.caches = new ArrayList<>(caches);
+        return copy;
+    }
+
+    public List<Cache> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(List<Cache> caches) {
+        this.caches = caches;
+    }
+
+    public InvalidationBroadcaster getInvalidationBroadcaster() {
+        return invalidationBroadcaster;
+    }
+
+    public void setInvalidationBroadcaster(InvalidationBroadcaster invalidationBroadcaster) {
+        this.invalidationBroadcaster = invalidationBroadcaster;
+    }
+
+    /**
+     * @return name of the cache in the invalidation messages, must be the same on all nodes
+     */
+    public String getInvalidationName() {
+        return invalidationName;
+    }
+
+    public void setInvalidationName(String invalidationName) {
+        this.invalidationName = invalidationName;
+    }
+
+    /**
+     * @return cache shared by all nodes holding the version of each key, usually in the same remote server as
+     * the last level
+     */
+    public Cache getVersionCache() {
+        return versionCache;
+    }
+
+    public void setVersionCache(Cache versionCache) {
+        this.versionCache = versionCache;
+    }
+
+    /**
+     * @return the hits in upper levels validated within the window are returned without reading the version
+     */
+    public long getFreshnessWindowInMillis() {
+        return freshnessWindowInMillis;
+    }
+
+    public void setFreshnessWindowInMillis(long freshnessWindowInMillis) {
+        this.freshnessWindowInMillis = freshnessWindowInMillis;
+    }
+
+    /**
+     * @return true if the values are stored as EncodedValue in all levels and decoded on read
+     */
+    public boolean isLazyDecode() {
+        return lazyDecode;
+    }
+
+    public void setLazyDecode(boolean lazyDecode) {
+        this.lazyDecode = lazyDecode;
+    }
+
+    public Function<Object, byte[]> getValueEncoder() {
+        return valueEncoder;
+    }
+
+    public void setValueEncoder(Function<Object, byte[]> valueEncoder) {
+        this.valueEncoder = valueEncoder;
+    }
+
+    public Function<byte[], Object> getValueDecoder() {
+        return valueDecoder;
+    }
+
+    public void setValueDecoder(Function<byte[], Object> valueDecoder) {
+        this.valueDecoder = valueDecoder;
+    }
+
+    /**
+     * @return true if the writes to the last level are queued and flushed in background, see {@link WriteBehindCache}.
+     * The invalidations are broadcast after the flush, the versions are written at once.
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * @return max count of the pending keys, the back pressure policy applies beyond it
+     */
+    public int getWriteBehindCapacity() {
+        return writeBehindCapacity;
+    }
+
+    public void setWriteBehindCapacity(int writeBehindCapacity) {
+        this.writeBehindCapacity = writeBehindCapacity;
+    }
+
+    /**
+     * @return the pending keys are flushed at once when the count reaches it, and it's the max size of one PUT_ALL
+     */
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public long getWriteBehindFlushIntervalInMillis() {
+        return writeBehindFlushIntervalInMillis;
+    }
+
+    public void setWriteBehindFlushIntervalInMillis(long writeBehindFlushIntervalInMillis) {
+        this.writeBehindFlushIntervalInMillis = writeBehindFlushIntervalInMillis;
+    }
+
+    /**
+     * The policy when the write behind queue is full, see {@link BackPressurePolicy}.
+     */
+    public String getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    public void setBackPressurePolicy(String backPressurePolicy) {
+        this.backPressurePolicy = backPressurePolicy;
+    }
+}
@@ -0,0 +1,72 @@
+package com.alicp.jetcache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh-ahead policy, keys accessed by computeIfAbsent are reloaded in background periodically
+ * so that readers don't wait for the loader when the value expires. The refresh of a key stops when it's removed,
+ * evicted or not accessed for a while.
+ * Created on 2017/5/25.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class RefreshPolicy implements Cloneable {
+
+    /**
+     * The refresh stops after the key is not accessed for this many refresh intervals, if
+     * stopRefreshAfterLastAccess is not set.
+     */
+    public static final int DEFAULT_STOP_REFRESH_INTERVALS = 10;
+
+    private long refreshMillis;
+    private long stopRefreshAfterLastAccessMillis;
+
+    public static RefreshPolicy newPolicy(long time, TimeUnit timeUnit) {
+        RefreshPolicy p = new RefreshPolicy();
+        p.setRefreshMillis(timeUnit.toMillis(time));
+        return p;
+    }
+
+    /**
+     * Stop refreshing the key if it is not accessed for the specified time. Without it the refresh stops after
+     * DEFAULT_STOP_REFRESH_INTERVALS refresh intervals without access.
+     */
+    public RefreshPolicy stopRefreshAfterLastAccess(long time, TimeUnit timeUnit) {
+        this.stopRefreshAfterLastAccessMillis = timeUnit.toMillis(time);
+        return this;
+    }
+
+    @Override
+    public RefreshPolicy clone() {
+        try {
+            return (RefreshPolicy) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    public long getRefreshMillis() {
+        return refreshMillis;
+    }
+
+    public void setRefreshMillis(long refreshMillis) {
+        if (refreshMillis <= 0) {
+            throw new CacheConfigException("refreshMillis should be positive: " + refreshMillis);
+        }
+        this.refreshMillis = refreshMillis;
+    }
+
+    static void check(RefreshPolicy policy) {
+        if (policy != null && policy.refreshMillis <= 0) {
+            throw new CacheConfigException("refreshMillis of RefreshPolicy is not set");
+        }
+    }
+
+    public long getStopRefreshAfterLastAccessMillis() {
+        return stopRefreshAfterLastAccessMillis;
+    }
+
+    public void setStopRefreshAfterLastAccessMillis(long stopRefreshAfterLastAccessMillis) {
+        this.stopRefreshAfterLastAccessMillis = stopRefreshAfterLastAccessMillis;
+    }
+}
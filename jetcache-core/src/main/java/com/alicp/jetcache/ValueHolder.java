@@ -0,0 +1,22 @@
+package com.alicp.jetcache;
+
+/**
+ * Value with its expire time, as stored in caches. CacheValueHolder is the serializable implementation used by
+ * remote caches and MultiLevelCache, embedded caches store smaller implementations in memory.
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public interface ValueHolder<V> {
+
+    V getValue();
+
+    long getExpireTime();
+
+    void setExpireTime(long expireTime);
+
+    /**
+     * @return the ttl to renew the expire time on access, may be 0 if the holder is not renewed
+     */
+    long getInitTtlInMillis();
+}
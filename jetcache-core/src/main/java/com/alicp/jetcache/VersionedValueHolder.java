@@ -0,0 +1,44 @@
+package com.alicp.jetcache;
+
+/**
+ * CacheValueHolder written by MultiLevelCache when a version cache is configured. The version is also stored in
+ * the version cache, so an upper level entry can be validated without reading the value from the last level.
+ * Created on 2017/6/5.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class VersionedValueHolder<V> extends CacheValueHolder<V> {
+    private static final long serialVersionUID = 2480126370245393781L;
+
+    private long version;
+    // last time the version is checked, only meaningful in local cache
+    private transient volatile long validateTime;
+
+    /**
+     * used by kyro
+     */
+    public VersionedValueHolder() {
+    }
+
+    public VersionedValueHolder(V value, long createTime, long initTtlInMillis, long version) {
+        super(value, createTime, initTtlInMillis);
+        this.version = version;
+        this.validateTime = createTime;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getValidateTime() {
+        return validateTime;
+    }
+
+    public void setValidateTime(long validateTime) {
+        this.validateTime = validateTime;
+    }
+}
@@ -0,0 +1,623 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.anno.BackPressurePolicy;
+import com.alicp.jetcache.event.CacheWriteBehindEvent;
+import com.alicp.jetcache.support.JetCacheExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Wraps the last level of MultiLevelCache, the puts and removes are queued and written to the target cache
+ * by a background flush. Repeated writes to the same key are coalesced, the pending writes are flushed with
+ * one PUT_ALL for each expire time (in seconds) and one REMOVE_ALL, so a remote cache can pipeline them.
+ * The reads see the pending writes before they are flushed.
+ * A failed op is queued again up to MAX_RETRIES times unless a newer op of the key is queued, after that the
+ * fail listener is called to evict the key from the upper levels.
+ * Created on 2017/6/6.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class WriteBehindCache<K, V> implements ProxyCache<K, V>, AutoCloseable {
+
+    private static Logger logger = LoggerFactory.getLogger(WriteBehindCache.class);
+
+    static final int MAX_RETRIES = 3;
+
+    private static final AtomicLong OP_SEQ = new AtomicLong();
+
+    private static final class Op {
+        final Object key;
+        final Object value;
+        final long ttl;
+        final boolean remove;
+        final int retries;
+        // the order of the writes, kept by the retries
+        final long seq;
+
+        Op(Object key, Object value, long ttl, boolean remove) {
+            this(key, value, ttl, remove, 0, OP_SEQ.incrementAndGet());
+        }
+
+        private Op(Object key, Object value, long ttl, boolean remove, int retries, long seq) {
+            this.key = key;
+            this.value = value;
+            this.ttl = ttl;
+            this.remove = remove;
+            this.retries = retries;
+            this.seq = seq;
+        }
+
+        Op retry() {
+            return new Op(key, value, ttl, remove, retries + 1, seq);
+        }
+    }
+
+    private final Cache<K, V> cache;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalInMillis;
+    private final String backPressurePolicy;
+
+    private volatile Consumer<Set<K>> flushListener;
+    private volatile Consumer<Set<K>> failListener;
+    private volatile CacheMonitor monitor;
+
+    // guarded by this, keyed by the converted key
+    private LinkedHashMap<Object, Op> pending = new LinkedHashMap<>();
+    // the batch being written, still visible to the reads
+    private Map<Object, Op> flushing = Collections.emptyMap();
+    private boolean flushScheduled;
+    private boolean flushSubmitted;
+    // a background flush is running, at most one thread of the executor is used by each cache
+    private boolean running;
+    private boolean closed;
+    private volatile boolean empty = true;
+
+    // flushes one by one, so the writes to the same key are not reordered
+    private final Object flushLock = new Object();
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong failCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+
+    public WriteBehindCache(Cache<K, V> cache, int capacity, int batchSize, long flushIntervalInMillis,
+                            String backPressurePolicy) {
+        if (!BackPressurePolicy.BLOCK.equals(backPressurePolicy)
+                && !BackPressurePolicy.CALLER_RUNS.equals(backPressurePolicy)
+                && !BackPressurePolicy.DISCARD.equals(backPressurePolicy)) {
+            throw new CacheConfigException("unknown back pressure policy: " + backPressurePolicy);
+        }
+        this.cache = cache;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalInMillis = flushIntervalInMillis;
+        this.backPressurePolicy = backPressurePolicy;
+    }
+
+    @Override
+    public Cache<K, V> getTargetCache() {
+        return cache;
+    }
+
+    @Override
+    public CacheConfig config() {
+        return cache.config();
+    }
+
+    private Object pendingKey(Object key) {
+        Function<Object, Object> keyConvertor = cache.config().getKeyConvertor();
+        return keyConvertor == null ? key : keyConvertor.apply(key);
+    }
+
+    private Op pendingOp(Object key) {
+        if (empty) {
+            return null;
+        }
+        Object k = pendingKey(key);
+        synchronized (this) {
+            Op op = pending.get(k);
+            return op != null ? op : flushing.get(k);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheGetResult<V> result(Op op) {
+        if (op.remove) {
+            return CacheGetResult.NOT_EXISTS_WITHOUT_MSG;
+        }
+        return new CacheGetResult<>(CacheResultCode.SUCCESS, null, (V) op.value);
+    }
+
+    @Override
+    public CacheGetResult<V> GET(K key) {
+        Op op = pendingOp(key);
+        return op == null ? cache.GET(key) : result(op);
+    }
+
+    @Override
+    public MultiGetResult<K, V> GET_ALL(Set<? extends K> keys) {
+        Map<K, CacheGetResult<V>> values = new HashMap<>();
+        Set<K> restKeys = pendingResults(keys, values);
+        if (values.isEmpty()) {
+            return cache.GET_ALL(keys);
+        }
+        if (restKeys.isEmpty()) {
+            return new MultiGetResult<>(CacheResultCode.SUCCESS, null, values);
+        }
+        return merge(cache.GET_ALL(restKeys), values);
+    }
+
+    private Set<K> pendingResults(Set<? extends K> keys, Map<K, CacheGetResult<V>> values) {
+        Set<K> restKeys = new HashSet<>();
+        for (K key : keys) {
+            Op op = pendingOp(key);
+            if (op == null) {
+                restKeys.add(key);
+            } else {
+                values.put(key, result(op));
+            }
+        }
+        return restKeys;
+    }
+
+    private MultiGetResult<K, V> merge(MultiGetResult<K, V> r, Map<K, CacheGetResult<V>> values) {
+        if (r.getValues() != null) {
+            values.putAll(r.getValues());
+        }
+        return new MultiGetResult<>(r.isSuccess() ? CacheResultCode.SUCCESS : CacheResultCode.PART_SUCCESS,
+                r.getMessage(), values);
+    }
+
+    @Override
+    public CacheResult PUT(K key, V value, long expire, TimeUnit timeUnit) {
+        if (key == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        return enqueue(Collections.singletonList(new Op(key, value, timeUnit.toMillis(expire), false)));
+    }
+
+    @Override
+    public CacheResult PUT_ALL(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        if (map == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        long ttl = timeUnit.toMillis(expire);
+        List<Op> ops = new ArrayList<>(map.size());
+        for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
+            ops.add(new Op(en.getKey(), en.getValue(), ttl, false));
+        }
+        return enqueue(ops);
+    }
+
+    @Override
+    public CacheResult REMOVE(K key) {
+        if (key == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        return enqueue(Collections.singletonList(new Op(key, null, 0, true)));
+    }
+
+    @Override
+    public CacheResult REMOVE_ALL(Set<? extends K> keys) {
+        if (keys == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        List<Op> ops = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ops.add(new Op(key, null, 0, true));
+        }
+        return enqueue(ops);
+    }
+
+    @Override
+    public CompletionStage<CacheGetResult<V>> GET_ASYNC(K key) {
+        Op op = pendingOp(key);
+        return op == null ? cache.GET_ASYNC(key) : CompletableFuture.completedFuture(result(op));
+    }
+
+    @Override
+    public CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC(Set<? extends K> keys) {
+        Map<K, CacheGetResult<V>> values = new HashMap<>();
+        Set<K> restKeys = pendingResults(keys, values);
+        if (values.isEmpty()) {
+            return cache.GET_ALL_ASYNC(keys);
+        }
+        if (restKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(new MultiGetResult<>(CacheResultCode.SUCCESS, null, values));
+        }
+        return cache.GET_ALL_ASYNC(restKeys).thenApply(r -> merge(r, values));
+    }
+
+    @Override
+    public CacheResult PUT_IF_ABSENT(K key, V value, long expire, TimeUnit timeUnit) {
+        return cache.PUT_IF_ABSENT(key, value, expire, timeUnit);
+    }
+
+    @Override
+    public AutoReleaseLock tryLock(K key, long expire, TimeUnit timeUnit) {
+        return cache.tryLock(key, expire, timeUnit);
+    }
+
+    /**
+     * Queue the ops, a full queue is handled by the back pressure policy. Writes to the keys already queued are
+     * coalesced and never wait.
+     */
+    private CacheResult enqueue(List<Op> ops) {
+        Object[] keys = new Object[ops.size()];
+        for (int j = 0; j < keys.length; j++) {
+            keys[j] = pendingKey(ops.get(j).key);
+        }
+        Map<Object, Op> callerRuns = new LinkedHashMap<>();
+        int discarded = 0;
+        int i = 0;
+        while (i < ops.size()) {
+            boolean full = false;
+            synchronized (this) {
+                for (; i < ops.size(); i++) {
+                    Op op = ops.get(i);
+                    Object k = keys[i];
+                    if (closed) {
+                        callerRuns.put(k, op);
+                    } else if (pending.containsKey(k)) {
+                        pending.put(k, op);
+                        coalescedCount.incrementAndGet();
+                    } else if (pending.size() < capacity) {
+                        pending.put(k, op);
+                        queuedCount.incrementAndGet();
+                    } else if (BackPressurePolicy.BLOCK.equals(backPressurePolicy)) {
+                        full = true;
+                        break;
+                    } else if (BackPressurePolicy.DISCARD.equals(backPressurePolicy) && !op.remove) {
+                        discarded++;
+                    } else {
+                        callerRuns.put(k, op);
+                    }
+                }
+                empty = pending.isEmpty() && flushing.isEmpty();
+                scheduleFlush(true);
+            }
+            if (full) {
+                // wait for the running flush and write the queue in this thread
+                flush();
+            }
+        }
+        if (discarded > 0) {
+            discardCount.addAndGet(discarded);
+            notifyMonitor(0, 0, 0, discarded);
+        }
+        if (callerRuns.isEmpty()) {
+            return CacheResult.SUCCESS_WITHOUT_MSG;
+        }
+        callerRunsCount.addAndGet(callerRuns.size());
+        Set<Op> failed = writeCallerRuns(callerRuns);
+        // the caller gets the failure in the result, so the failed ops are not retried
+        afterWrite(callerRuns.values(), failed);
+        return failed.isEmpty() ? CacheResult.SUCCESS_WITHOUT_MSG :
+                failed.size() == ops.size() ? CacheResult.FAIL_WITHOUT_MSG : CacheResult.PART_SUCCESS_WITHOUT_MSG;
+    }
+
+    /**
+     * Write the ops in the caller thread. A flush failed before may have queued an older op of the same key
+     * again, it's dropped so the retry never overwrites the new value. An op is skipped if a newer op of the
+     * key is queued.
+     *
+     * @return the failed ops
+     */
+    private Set<Op> writeCallerRuns(Map<Object, Op> callerRuns) {
+        synchronized (flushLock) {
+            Map<Object, Op> batch = new LinkedHashMap<>();
+            synchronized (this) {
+                for (Map.Entry<Object, Op> en : callerRuns.entrySet()) {
+                    Op queued = pending.get(en.getKey());
+                    if (queued == null || queued.seq < en.getValue().seq) {
+                        pending.remove(en.getKey());
+                        batch.put(en.getKey(), en.getValue());
+                    }
+                }
+                // visible to the reads while it's written, no flush is running since we hold the flushLock
+                flushing = batch;
+                empty = batch.isEmpty() && pending.isEmpty();
+            }
+            try {
+                return write(batch.values());
+            } finally {
+                synchronized (this) {
+                    flushing = Collections.emptyMap();
+                    empty = pending.isEmpty();
+                }
+            }
+        }
+    }
+
+    // called with the lock held
+    private void scheduleFlush(boolean allowImmediate) {
+        if (running) {
+            // the running flush calls this again when it finishes
+            return;
+        }
+        if (allowImmediate && pending.size() >= batchSize) {
+            if (!flushSubmitted) {
+                flushSubmitted = true;
+                JetCacheExecutor.refreshExecutor().execute(() -> backgroundFlush(false));
+            }
+        } else if (!pending.isEmpty() && !flushScheduled) {
+            flushScheduled = true;
+            JetCacheExecutor.refreshExecutor().schedule(() -> backgroundFlush(true), flushIntervalInMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void backgroundFlush(boolean scheduled) {
+        synchronized (this) {
+            if (scheduled) {
+                flushScheduled = false;
+            } else {
+                flushSubmitted = false;
+            }
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        int fail = 0;
+        try {
+            fail = flushBatch();
+        } catch (Throwable e) {
+            logger.error("jetcache write behind flush error", e);
+        } finally {
+            synchronized (this) {
+                running = false;
+                // wait for the interval after a failure, so an unavailable remote is not retried in a busy loop
+                scheduleFlush(fail == 0);
+            }
+        }
+    }
+
+    /**
+     * Write the pending ops to the target cache now.
+     */
+    public void flush() {
+        flushBatch();
+    }
+
+    /**
+     * @return count of the failed ops
+     */
+    private int flushBatch() {
+        synchronized (flushLock) {
+            Map<Object, Op> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = batch;
+            }
+            long t = cache.config().getClock().nanoTime();
+            Set<Op> failed = Collections.emptySet();
+            List<Op> dropped = new ArrayList<>();
+            try {
+                failed = write(batch.values());
+            } finally {
+                synchronized (this) {
+                    // queued again in the same block, so the reads never miss them
+                    for (Map.Entry<Object, Op> en : batch.entrySet()) {
+                        Op op = en.getValue();
+                        if (!failed.contains(op) || pending.containsKey(en.getKey())) {
+                            // written, or superseded by a newer op
+                            continue;
+                        }
+                        if (op.retries < MAX_RETRIES && !closed) {
+                            pending.put(en.getKey(), op.retry());
+                            retryCount.incrementAndGet();
+                        } else {
+                            dropped.add(op);
+                        }
+                    }
+                    flushing = Collections.emptyMap();
+                    empty = pending.isEmpty();
+                }
+            }
+            t = TimeUnit.NANOSECONDS.toMillis(cache.config().getClock().nanoTime() - t);
+            writeCount.addAndGet(batch.size());
+            failCount.addAndGet(failed.size());
+            notifyMonitor(t, batch.size(), failed.size(), 0);
+            afterWrite(batch.values(), failed);
+            if (!dropped.isEmpty()) {
+                logger.error("jetcache write behind gave up " + dropped.size() + " ops after " + MAX_RETRIES
+                        + " retries");
+                callListener(failListener, dropped);
+            }
+            return failed.size();
+        }
+    }
+
+    // broadcast the keys written successfully
+    private void afterWrite(Collection<Op> ops, Set<Op> failed) {
+        List<Op> written = new ArrayList<>();
+        for (Op op : ops) {
+            if (!failed.contains(op)) {
+                written.add(op);
+            }
+        }
+        callListener(flushListener, written);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void callListener(Consumer<Set<K>> listener, Collection<Op> ops) {
+        if (listener == null || ops.isEmpty()) {
+            return;
+        }
+        Set<K> keys = new HashSet<>();
+        for (Op op : ops) {
+            keys.add((K) op.key);
+        }
+        try {
+            listener.accept(keys);
+        } catch (Exception e) {
+            logger.error("jetcache write behind listener error", e);
+        }
+    }
+
+    /**
+     * @return the failed ops, compared by identity
+     */
+    private Set<Op> write(Collection<Op> ops) {
+        Set<Op> failed = new HashSet<>();
+        // expire time rounded up to seconds, the entry is expired by the inner holder
+        Map<Long, List<Op>> puts = new HashMap<>();
+        List<Op> removes = new ArrayList<>();
+        for (Op op : ops) {
+            if (op.remove) {
+                removes.add(op);
+                if (removes.size() >= batchSize) {
+                    writeRemoves(removes, failed);
+                    removes = new ArrayList<>();
+                }
+            } else {
+                long seconds = Math.max(1, (op.ttl + 999) / 1000);
+                List<Op> list = puts.computeIfAbsent(seconds, s -> new ArrayList<>());
+                list.add(op);
+                if (list.size() >= batchSize) {
+                    writePuts(list, seconds, failed);
+                    puts.remove(seconds);
+                }
+            }
+        }
+        for (Map.Entry<Long, List<Op>> en : puts.entrySet()) {
+            writePuts(en.getValue(), en.getKey(), failed);
+        }
+        if (!removes.isEmpty()) {
+            writeRemoves(removes, failed);
+        }
+        return failed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writePuts(List<Op> ops, long seconds, Set<Op> failed) {
+        Map<K, V> map = new HashMap<>();
+        for (Op op : ops) {
+            map.put((K) op.key, (V) op.value);
+        }
+        try {
+            CacheResult r = cache.PUT_ALL(map, seconds, TimeUnit.SECONDS);
+            if (r.isSuccess()) {
+                return;
+            }
+            logger.warn("jetcache write behind put error, count=" + map.size() + ", " + r.getResultCode());
+        } catch (Exception e) {
+            logger.error("jetcache write behind put error, count=" + map.size(), e);
+        }
+        failed.addAll(ops);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeRemoves(List<Op> ops, Set<Op> failed) {
+        Set<K> keys = new HashSet<>();
+        for (Op op : ops) {
+            keys.add((K) op.key);
+        }
+        try {
+            CacheResult r = cache.REMOVE_ALL(keys);
+            if (r.isSuccess()) {
+                return;
+            }
+            logger.warn("jetcache write behind remove error, count=" + keys.size() + ", " + r.getResultCode());
+        } catch (Exception e) {
+            logger.error("jetcache write behind remove error, count=" + keys.size(), e);
+        }
+        failed.addAll(ops);
+    }
+
+    private void notifyMonitor(long millis, int writeCount, int failCount, int discardCount) {
+        CacheMonitor m = monitor;
+        if (m != null) {
+            m.afterOperation(new CacheWriteBehindEvent(cache, millis, writeCount, failCount, discardCount));
+        }
+    }
+
+    /**
+     * Flush the pending ops, the writes after close are written in the caller thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @param flushListener called with the keys after they are written to the target cache successfully
+     */
+    public void setFlushListener(Consumer<Set<K>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * @param failListener called with the keys which are not written after all retries
+     */
+    public void setFailListener(Consumer<Set<K>> failListener) {
+        this.failListener = failListener;
+    }
+
+    public void setMonitor(CacheMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public long getFailCount() {
+        return failCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+}
@@ -44,25 +44,73 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
         return newKey;
     }
 
+    /**
+     * Create the holder stored in the inner map, it keeps the ttl only if the cache expires after access.
+     */
+    protected ValueHolder<V> newHolder(V value, long now, long ttlInMillis) {
+        return CompactValueHolder.create(value, now, ttlInMillis, config.isExpireAfterAccess());
+    }
+
+    /**
+     * Remove the expired entries, called by the cleaner periodically if the cache is registered.
+     */
+    public void cleanExpiredEntry() {
+    }
+
     @Override
     public CacheGetResult<V> GET(K key) {
         if (key == null) {
             return new CacheGetResult<V>(CacheResultCode.FAIL, CacheResult.MSG_ILLEGAL_ARGUMENT, null);
         }
         Object newKey = buildKey(key);
-        CacheValueHolder<V> holder = (CacheValueHolder<V>) innerMap.getValue(newKey);
-        return getImpl(holder);
+        ValueHolder<V> holder = (ValueHolder<V>) innerMap.getValue(newKey);
+        return getImpl(holder, config.getClock().currentTimeMillis());
+    }
+
+    /**
+     * Same as GET(key).getValue() when GET succeeds, but allocates nothing when the key is hit
+     * (if there is no keyConvertor which creates new key).
+     */
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        return hitValue((ValueHolder<V>) innerMap.getValue(buildKey(key)));
     }
 
-    private CacheGetResult<V> getImpl(CacheValueHolder<V> holder) {
+    /**
+     * @return the value if the holder is not null nor expired, or null
+     */
+    protected V hitValue(ValueHolder<V> holder) {
+        if (holder == null) {
+            return null;
+        }
+        long now = config.getClock().currentTimeMillis();
+        if (now >= holder.getExpireTime() || isEarlyExpired(holder, now)) {
+            return null;
+        }
+        if (config.isExpireAfterAccess()) {
+            holder.setExpireTime(now + holder.getInitTtlInMillis());
+        }
+        return holder.getValue();
+    }
+
+    private CacheGetResult<V> getImpl(ValueHolder<V> holder, long now) {
         if (holder == null) {
             return CacheGetResult.NOT_EXISTS_WITHOUT_MSG;
-        } else if (System.currentTimeMillis() >= holder.getExpireTime()) {
+        } else if (now >= holder.getExpireTime()) {
+            if (now < holder.getExpireTime() + config.getStaleTtlInMillis()) {
+                return CacheGetResult.createStaleResult(holder.getValue());
+            }
             return CacheGetResult.EXPIRED_WITHOUT_MSG;
+        } else if (isEarlyExpired(holder, now)) {
+            return config.getStaleTtlInMillis() > 0 ?
+                    CacheGetResult.createStaleResult(holder.getValue()) : CacheGetResult.EXPIRED_WITHOUT_MSG;
         } else {
             if (config.isExpireAfterAccess()) {
                 long ttlInMillis = holder.getInitTtlInMillis();
-                holder.setExpireTime(System.currentTimeMillis() + ttlInMillis);
+                holder.setExpireTime(now + ttlInMillis);
             }
             return new CacheGetResult(CacheResultCode.SUCCESS, null, holder.getValue());
         }
@@ -80,13 +128,14 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
             keyList.add(k);
             newKeyList.add(newKey);
         });
-        Map<Object, CacheValueHolder<V>> innerResultMap = innerMap.getAllValues(newKeyList);
+        Map<Object, ValueHolder<V>> innerResultMap = innerMap.getAllValues(newKeyList);
         Map<K, CacheGetResult<V>> resultMap = new HashMap<>();
+        long now = config.getClock().currentTimeMillis();
         for (int i = 0; i < keyList.size(); i++) {
             K key = keyList.get(i);
             Object newKey = newKeyList.get(i);
-            CacheValueHolder<V> holder = innerResultMap.get(newKey);
-            resultMap.put(key, getImpl(holder));
+            ValueHolder<V> holder = innerResultMap.get(newKey);
+            resultMap.put(key, getImpl(holder, now));
         }
         MultiGetResult<K, V> result = new MultiGetResult<>(CacheResultCode.SUCCESS, null, resultMap);
         return result;
@@ -97,7 +146,8 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
-        CacheValueHolder<V> cacheObject = new CacheValueHolder(value, System.currentTimeMillis(), timeUnit.toMillis(expire));
+        ValueHolder<V> cacheObject = newHolder(value, config.getClock().currentTimeMillis(),
+                jitterTtl(timeUnit.toMillis(expire)));
         innerMap.putValue(buildKey(key), cacheObject);
         return CacheResult.SUCCESS_WITHOUT_MSG;
     }
@@ -108,8 +158,9 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
         HashMap newKeyMap = new HashMap();
+        long now = config.getClock().currentTimeMillis();
         for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
-            CacheValueHolder<V> cacheObject = new CacheValueHolder(en.getValue(), System.currentTimeMillis(), timeUnit.toMillis(expire));
+            ValueHolder<V> cacheObject = newHolder(en.getValue(), now, jitterTtl(timeUnit.toMillis(expire)));
             newKeyMap.put(buildKey(en.getKey()), cacheObject);
         }
         innerMap.putAllValues(newKeyMap);
@@ -125,6 +176,7 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
         innerMap.removeValue(buildKey(key));
+        cancelRefreshTask(key);
         return CacheResult.SUCCESS_WITHOUT_MSG;
     }
 
@@ -135,6 +187,7 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
         }
         Set newKeys = keys.stream().map((key) -> buildKey(key)).collect(Collectors.toSet());
         innerMap.removeAllValues(newKeys);
+        cancelRefreshTasks(keys);
 
         final HashMap resultMap = new HashMap();
         keys.forEach((k) -> resultMap.put(k, CacheResultCode.SUCCESS));
@@ -154,7 +207,8 @@ public abstract class AbstractEmbeddedCache<K, V> extends AbstractCache<K, V> {
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
-        CacheValueHolder<V> cacheObject = new CacheValueHolder(value, System.currentTimeMillis(), timeUnit.toMillis(expire));
+        ValueHolder<V> cacheObject = newHolder(value, config.getClock().currentTimeMillis(),
+                jitterTtl(timeUnit.toMillis(expire)));
         if (innerMap.putIfAbsentValue(buildKey(key), cacheObject)) {
             return CacheResult.SUCCESS_WITHOUT_MSG;
         } else {
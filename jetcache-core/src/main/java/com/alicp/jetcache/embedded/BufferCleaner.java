@@ -0,0 +1,66 @@
+package com.alicp.jetcache.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the memory of direct and mapped buffers without waiting for GC. The cleaner is looked up by reflection:
+ * Unsafe.invokeCleaner on java 9+, DirectBuffer.cleaner() on java 8. If neither works the buffers are left to GC.
+ * Created on 2017/6/7.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+final class BufferCleaner {
+
+    private static Logger logger = LoggerFactory.getLogger(BufferCleaner.class);
+
+    private interface Cleaner {
+        void clean(ByteBuffer buffer) throws Exception;
+    }
+
+    private static final Cleaner CLEANER = createCleaner();
+
+    private BufferCleaner() {
+    }
+
+    private static Cleaner createCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Object unsafe = f.get(null);
+            return (buffer) -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (Throwable e) {
+            // java 8
+        }
+        try {
+            Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return (buffer) -> {
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleanMethod.invoke(cleaner);
+                }
+            };
+        } catch (Throwable e) {
+            logger.warn("no buffer cleaner available, off heap memory is freed by GC: " + e);
+            return null;
+        }
+    }
+
+    static void release(ByteBuffer buffer) {
+        if (CLEANER == null || buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            CLEANER.clean(buffer);
+        } catch (Throwable e) {
+            logger.warn("release buffer error: " + e);
+        }
+    }
+}
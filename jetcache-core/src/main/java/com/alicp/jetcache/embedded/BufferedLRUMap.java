@@ -0,0 +1,323 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.support.Clock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * InnerMap of ConcurrentHashMapCache. Reads are lock free: a hit is recorded into a striped ring buffer,
+ * the buffers are drained in batch under a try-lock to update the LRU order. Writes update the LRU list
+ * under the lock and evict the eldest entries when the size exceeds the limit.
+ * The LRU order is approximate, an access may be dropped when its buffer is full.
+ * Expired entries are removed by a TimerWheel which is also guarded by the lock.
+ * Created on 2017/5/28.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class BufferedLRUMap implements InnerMap {
+
+    private static final int MAX_STRIPES = 64;
+
+    private final ConcurrentHashMap<Object, Node> map;
+    private final ReadBuffer[] readBuffers;
+    private final int stripeMask;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int max;
+    private final long staleTtlInMillis;
+    private final Clock clock;
+    private final TimerWheel timerWheel;
+
+    // the LRU list, guarded by evictionLock, head.next is the eldest
+    private final Node head = new Node(null, null);
+    private int size;
+
+    static final class Node {
+        final Object key;
+        final Object value;
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    static final class ReadBuffer {
+        static final int SIZE = 16;
+        static final int MASK = SIZE - 1;
+
+        final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(SIZE);
+        final AtomicLong writeCount = new AtomicLong();
+        volatile long readCount;
+
+        /**
+         * @return false if the buffer is full and the access is dropped
+         */
+        boolean offer(Node node) {
+            long w = writeCount.get();
+            if (w - readCount >= SIZE) {
+                return false;
+            }
+            if (writeCount.compareAndSet(w, w + 1)) {
+                slots.lazySet((int) (w & MASK), node);
+            }
+            return true;
+        }
+    }
+
+    BufferedLRUMap(EmbeddedCacheConfig config) {
+        this.max = config.getLimit();
+        this.staleTtlInMillis = config.getStaleTtlInMillis();
+        this.clock = config.getClock();
+        this.timerWheel = new TimerWheel(clock.currentTimeMillis(), this::expire);
+        this.map = new ConcurrentHashMap<>((int) (max * 1.4f));
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.stripeMask = stripes - 1;
+        head.prev = head;
+        head.next = head;
+    }
+
+    private void recordRead(Node node) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & stripeMask];
+        if (!buffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    // guarded by evictionLock
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            long w = buffer.writeCount.get();
+            for (long r = buffer.readCount; r < w; r++) {
+                int i = (int) (r & ReadBuffer.MASK);
+                Node node = buffer.slots.get(i);
+                if (node != null) {
+                    buffer.slots.lazySet(i, null);
+                    if (node.next != null) {
+                        moveToLast(node);
+                    }
+                }
+            }
+            buffer.readCount = w;
+        }
+    }
+
+    // guarded by evictionLock
+    private void linkLast(Node node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        size++;
+    }
+
+    // guarded by evictionLock
+    private void moveToLast(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    // guarded by evictionLock
+    private void unlink(Node node) {
+        timerWheel.deschedule(node.key, node);
+        if (node.next == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        size--;
+    }
+
+    // guarded by evictionLock, the node may be replaced or removed before we get the lock
+    private void linkIfMapped(Node node) {
+        if (map.get(node.key) == node) {
+            linkLast(node);
+            if (node.value instanceof ValueHolder) {
+                timerWheel.schedule(node.key, node, TimerWheel.dueTime((ValueHolder) node.value, staleTtlInMillis));
+            }
+        }
+    }
+
+    // guarded by evictionLock
+    private void evict() {
+        while (size > max) {
+            Node eldest = head.next;
+            unlink(eldest);
+            map.remove(eldest.key, eldest);
+        }
+    }
+
+    // guarded by evictionLock
+    private long expire(Object key, Object value, long now) {
+        Node node = (Node) value;
+        long time = TimerWheel.dueTime((ValueHolder) node.value, staleTtlInMillis);
+        if (time > now) {
+            return time;
+        }
+        if (map.remove(key, node)) {
+            unlink(node);
+        }
+        return 0;
+    }
+
+    void cleanExpiredEntry() {
+        evictionLock.lock();
+        try {
+            timerWheel.advance(clock.currentTimeMillis());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    @Override
+    public Object getValue(Object key) {
+        Node node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        recordRead(node);
+        return node.value;
+    }
+
+    @Override
+    public Map getAllValues(Collection keys) {
+        Map values = new HashMap();
+        for (Object key : keys) {
+            Object v = getValue(key);
+            if (v != null) {
+                values.put(key, v);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putValue(Object key, Object value) {
+        Node node = new Node(key, value);
+        Node old = map.put(key, node);
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (old != null) {
+                unlink(old);
+            }
+            linkIfMapped(node);
+            evict();
+            timerWheel.advanceIfTicked(clock.currentTimeMillis());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void putAllValues(Map map) {
+        List<Node> nodes = new ArrayList<>(map.size());
+        List<Node> olds = new ArrayList<>();
+        for (Object o : map.entrySet()) {
+            Map.Entry en = (Map.Entry) o;
+            Node node = new Node(en.getKey(), en.getValue());
+            Node old = this.map.put(node.key, node);
+            nodes.add(node);
+            if (old != null) {
+                olds.add(old);
+            }
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (Node old : olds) {
+                unlink(old);
+            }
+            for (Node node : nodes) {
+                linkIfMapped(node);
+            }
+            evict();
+            timerWheel.advanceIfTicked(clock.currentTimeMillis());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeValue(Object key) {
+        Node node = map.remove(key);
+        if (node == null) {
+            return false;
+        }
+        evictionLock.lock();
+        try {
+            unlink(node);
+        } finally {
+            evictionLock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean putIfAbsentValue(Object key, Object value) {
+        Node node = new Node(key, value);
+        if (map.putIfAbsent(key, node) != null) {
+            return false;
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            linkIfMapped(node);
+            evict();
+            timerWheel.advanceIfTicked(clock.currentTimeMillis());
+        } finally {
+            evictionLock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public void removeAllValues(Collection keys) {
+        List<Node> removed = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Node node = map.remove(key);
+            if (node != null) {
+                removed.add(node);
+            }
+        }
+        evictionLock.lock();
+        try {
+            for (Node node : removed) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
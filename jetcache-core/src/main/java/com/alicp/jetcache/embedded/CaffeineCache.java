@@ -1,10 +1,14 @@
 package com.alicp.jetcache.embedded;
 
+import com.alicp.jetcache.ValueHolder;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created on 2016/10/25.
@@ -15,8 +19,15 @@ public class CaffeineCache<K, V> extends AbstractEmbeddedCache<K, V> {
 
     private com.github.benmanes.caffeine.cache.Cache cache;
 
+    // Caffeine expires entries by the default expire only, entries put with a shorter ttl are removed by the wheel.
+    // Writers don't wait for the wheel: the written keys are buffered and drained under a try-lock.
+    private TimerWheel timerWheel;
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<Object> writeBuffer = new ConcurrentLinkedQueue<>();
+
     public CaffeineCache(EmbeddedCacheConfig config) {
         super(config);
+        Cleaner.add(this);
     }
 
     @Override
@@ -31,13 +42,21 @@ public class CaffeineCache<K, V> extends AbstractEmbeddedCache<K, V> {
     protected InnerMap createAreaCache() {
         Caffeine<Object, Object> builder = Caffeine.newBuilder();
         builder.maximumSize(config.getLimit());
+        long expire = config.getDefaultExpireInMillis() + config.getStaleTtlInMillis()
+                + jitterRange(config, config.getDefaultExpireInMillis());
         if (config.isExpireAfterAccess()) {
-            builder.expireAfterAccess(config.getDefaultExpireInMillis(), TimeUnit.MILLISECONDS);
+            builder.expireAfterAccess(expire, TimeUnit.MILLISECONDS);
         } else {
-            builder.expireAfterWrite(config.getDefaultExpireInMillis(), TimeUnit.MILLISECONDS);
+            builder.expireAfterWrite(expire, TimeUnit.MILLISECONDS);
         }
 
+        builder.removalListener((key, value, cause) -> {
+            if (cause == RemovalCause.SIZE || cause == RemovalCause.EXPIRED) {
+                afterWrite(key);
+            }
+        });
         cache = builder.build();
+        timerWheel = new TimerWheel(config.getClock().currentTimeMillis(), this::expire);
         return new InnerMap() {
             @Override
             public Object getValue(Object key) {
@@ -52,27 +71,93 @@ public class CaffeineCache<K, V> extends AbstractEmbeddedCache<K, V> {
             @Override
             public void putValue(Object key, Object value) {
                 cache.put(key, value);
+                afterWrite(key);
             }
 
             @Override
             public void putAllValues(Map map) {
                 cache.putAll(map);
+                for (Object key : map.keySet()) {
+                    writeBuffer.add(key);
+                }
+                drainWriteBuffer();
             }
 
             @Override
             public boolean removeValue(Object key) {
-                return cache.asMap().remove(key) != null;
+                boolean removed = cache.asMap().remove(key) != null;
+                afterWrite(key);
+                return removed;
             }
 
             @Override
             public void removeAllValues(Collection keys) {
                 cache.invalidateAll(keys);
+                for (Object key : keys) {
+                    writeBuffer.add(key);
+                }
+                drainWriteBuffer();
             }
 
             @Override
             public boolean putIfAbsentValue(Object key, Object value) {
-                return cache.asMap().putIfAbsent(key, value) == null;
+                if (cache.asMap().putIfAbsent(key, value) == null) {
+                    afterWrite(key);
+                    return true;
+                }
+                return false;
             }
         };
     }
+
+    private void afterWrite(Object key) {
+        writeBuffer.add(key);
+        drainWriteBuffer();
+    }
+
+    // the writer that gets the lock drains the keys of all writers, others return at once
+    private void drainWriteBuffer() {
+        while (!writeBuffer.isEmpty() && wheelLock.tryLock()) {
+            try {
+                drainWriteBufferLocked();
+                timerWheel.advanceIfTicked(config.getClock().currentTimeMillis());
+            } finally {
+                wheelLock.unlock();
+            }
+        }
+    }
+
+    // guarded by wheelLock, the buffered keys may be out of order, so the wheel follows the current value
+    private void drainWriteBufferLocked() {
+        Object key;
+        while ((key = writeBuffer.poll()) != null) {
+            Object value = cache.asMap().get(key);
+            if (value == null) {
+                timerWheel.deschedule(key);
+            } else {
+                timerWheel.schedule(key, value, TimerWheel.dueTime((ValueHolder) value, config.getStaleTtlInMillis()));
+            }
+        }
+    }
+
+    // guarded by wheelLock
+    private long expire(Object key, Object value, long now) {
+        long time = TimerWheel.dueTime((ValueHolder) value, config.getStaleTtlInMillis());
+        if (time > now) {
+            return time;
+        }
+        cache.asMap().remove(key, value);
+        return 0;
+    }
+
+    @Override
+    public void cleanExpiredEntry() {
+        wheelLock.lock();
+        try {
+            drainWriteBufferLocked();
+            timerWheel.advance(config.getClock().currentTimeMillis());
+        } finally {
+            wheelLock.unlock();
+        }
+    }
 }
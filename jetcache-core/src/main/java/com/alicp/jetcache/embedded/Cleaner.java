@@ -9,31 +9,32 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Ticks the timer wheels of the registered caches every second, entries are also expired on writes.
  * Created on 2017/2/28.
  *
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
 class Cleaner {
 
-    static LinkedList<WeakReference<LinkedHashMapCache>> linkedHashMapCaches = new LinkedList<>();
+    static LinkedList<WeakReference<AbstractEmbeddedCache>> caches = new LinkedList<>();
 
     static {
         ScheduledExecutorService executorService = DefaultCacheMonitorManager.executorService();
-        executorService.scheduleWithFixedDelay(() -> run(), 60, 60, TimeUnit.SECONDS);
+        executorService.scheduleWithFixedDelay(() -> run(), 1, 1, TimeUnit.SECONDS);
     }
 
-    static void add(LinkedHashMapCache cache) {
-        synchronized (linkedHashMapCaches) {
-            linkedHashMapCaches.add(new WeakReference<>(cache));
+    static void add(AbstractEmbeddedCache cache) {
+        synchronized (caches) {
+            caches.add(new WeakReference<>(cache));
         }
     }
 
     static void run() {
-        synchronized (linkedHashMapCaches) {
-            Iterator<WeakReference<LinkedHashMapCache>> it = linkedHashMapCaches.iterator();
+        synchronized (caches) {
+            Iterator<WeakReference<AbstractEmbeddedCache>> it = caches.iterator();
             while (it.hasNext()) {
-                WeakReference<LinkedHashMapCache> ref = it.next();
-                LinkedHashMapCache c = ref.get();
+                WeakReference<AbstractEmbeddedCache> ref = it.next();
+                AbstractEmbeddedCache c = ref.get();
                 if (c == null) {
                     it.remove();
                 } else {
@@ -0,0 +1,74 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.CacheValueHolder;
+import com.alicp.jetcache.ValueHolder;
+
+/**
+ * In-memory holder of embedded caches. It keeps only the value and the expire time (24 bytes with compressed oops,
+ * CacheValueHolder takes 40), the ttl is kept by the Renewable subclass only if the cache expires after access.
+ * Converted to CacheValueHolder when the value is encoded to bytes.
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class CompactValueHolder<V> implements ValueHolder<V> {
+    private final V value;
+    private long expireTime;
+
+    CompactValueHolder(V value, long expireTime) {
+        this.value = value;
+        this.expireTime = expireTime;
+    }
+
+    static <V> ValueHolder<V> create(V value, long now, long ttlInMillis, boolean expireAfterAccess) {
+        if (expireAfterAccess) {
+            return new Renewable<>(value, now + ttlInMillis, ttlInMillis);
+        }
+        return new CompactValueHolder<>(value, now + ttlInMillis);
+    }
+
+    static <V> CacheValueHolder<V> toCacheValueHolder(ValueHolder<V> holder) {
+        if (holder instanceof CacheValueHolder) {
+            return (CacheValueHolder<V>) holder;
+        }
+        long ttl = holder.getInitTtlInMillis();
+        return new CacheValueHolder<>(holder.getValue(), holder.getExpireTime() - ttl, ttl);
+    }
+
+    @Override
+    public V getValue() {
+        return value;
+    }
+
+    @Override
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    @Override
+    public void setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * @return 0, the ttl is not kept
+     */
+    @Override
+    public long getInitTtlInMillis() {
+        return 0;
+    }
+
+    static final class Renewable<V> extends CompactValueHolder<V> {
+        private final long initTtlInMillis;
+
+        Renewable(V value, long expireTime, long initTtlInMillis) {
+            super(value, expireTime);
+            this.initTtlInMillis = initTtlInMillis;
+        }
+
+        @Override
+        public long getInitTtlInMillis() {
+            return initTtlInMillis;
+        }
+    }
+}
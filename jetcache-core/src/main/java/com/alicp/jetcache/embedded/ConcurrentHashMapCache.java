@@ -0,0 +1,31 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Embedded cache based on ConcurrentHashMap, reads are lock free and the LRU order is updated in batch.
+ * It has no dependency on Caffeine.
+ * Created on 2017/5/28.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class ConcurrentHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
+
+    public ConcurrentHashMapCache(EmbeddedCacheConfig config) {
+        super(config);
+        Cleaner.add(this);
+    }
+
+    @Override
+    protected InnerMap createAreaCache() {
+        return new BufferedLRUMap(config);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        throw new IllegalArgumentException(clazz.getName());
+    }
+
+    @Override
+    public void cleanExpiredEntry() {
+        ((BufferedLRUMap) innerMap).cleanExpiredEntry();
+    }
+}
@@ -0,0 +1,19 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Created on 2017/5/28.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class ConcurrentHashMapCacheBuilder<T extends EmbeddedCacheBuilder<T>> extends EmbeddedCacheBuilder<T> {
+    public static class ConcurrentHashMapCacheBuilderImpl extends ConcurrentHashMapCacheBuilder<ConcurrentHashMapCacheBuilderImpl> {
+    }
+
+    public static ConcurrentHashMapCacheBuilderImpl createConcurrentHashMapCacheBuilder() {
+        return new ConcurrentHashMapCacheBuilderImpl();
+    }
+
+    public ConcurrentHashMapCacheBuilder() {
+        buildFunc((c) -> new ConcurrentHashMapCache((EmbeddedCacheConfig) c));
+    }
+}
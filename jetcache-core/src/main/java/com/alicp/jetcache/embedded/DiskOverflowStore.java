@@ -0,0 +1,271 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.support.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Disk tier of LinkedHashMapCache. The entries evicted from heap are encoded by the valueEncoder and appended
+ * to a log file, an in-memory index maps the keys to their records. Overwritten and removed records are garbage,
+ * the live records are copied to a new file when the garbage exceeds them.
+ * The file is truncated on open, entries don't survive restarts.
+ * Created on 2017/6/2.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class DiskOverflowStore {
+
+    private static Logger logger = LoggerFactory.getLogger(DiskOverflowStore.class);
+
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+    private static final long SCAN_INTERVAL = 60 * 1000;
+
+    private static final class Record {
+        final long position;
+        final int length;
+        final long expireTime;
+
+        Record(long position, int length, long expireTime) {
+            this.position = position;
+            this.length = length;
+            this.expireTime = expireTime;
+        }
+    }
+
+    private final File file;
+    private final Function<Object, byte[]> valueEncoder;
+    private final Function<byte[], Object> valueDecoder;
+    private final long capacityInBytes;
+    private final long staleTtlInMillis;
+    private final Clock clock;
+
+    // in insertion order, so the oldest records are dropped first if the capacity is exceeded
+    private final LinkedHashMap<Object, Record> index = new LinkedHashMap<>();
+    private FileChannel channel;
+    private FileLock fileLock;
+    private long writePosition;
+    private long liveBytes;
+    private long lastScanTime;
+    private boolean closed;
+
+    DiskOverflowStore(EmbeddedCacheConfig config, File file) throws IOException {
+        this.file = file;
+        this.valueEncoder = config.getValueEncoder();
+        this.valueDecoder = config.getValueDecoder();
+        this.capacityInBytes = config.getOverflowCapacityInBytes();
+        this.staleTtlInMillis = config.getStaleTtlInMillis();
+        this.clock = config.getClock();
+        this.lastScanTime = clock.currentTimeMillis();
+        open(file);
+    }
+
+    private void open(File f) throws IOException {
+        FileChannel c = new RandomAccessFile(f, "rw").getChannel();
+        FileLock lock;
+        try {
+            lock = c.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            c.close();
+            throw new IOException("file is locked by another cache: " + f);
+        }
+        c.truncate(0);
+        channel = c;
+        fileLock = lock;
+    }
+
+    private boolean isExpired(long expireTime, long now) {
+        return now >= expireTime + staleTtlInMillis;
+    }
+
+    synchronized void put(Object key, ValueHolder holder) {
+        if (closed) {
+            return;
+        }
+        removeRecord(key);
+        if (isExpired(holder.getExpireTime(), clock.currentTimeMillis())) {
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = valueEncoder.apply(CompactValueHolder.toCacheValueHolder(holder));
+        } catch (Exception e) {
+            logger.warn("jetcache overflow encode error, key=" + key + ", " + e);
+            return;
+        }
+        if (bytes.length > capacityInBytes) {
+            return;
+        }
+        try {
+            write(channel, ByteBuffer.wrap(bytes), writePosition);
+        } catch (IOException e) {
+            logger.error("jetcache overflow write error: " + file, e);
+            return;
+        }
+        index.put(key, new Record(writePosition, bytes.length, holder.getExpireTime()));
+        writePosition += bytes.length;
+        liveBytes += bytes.length;
+        Iterator<Record> it = index.values().iterator();
+        while (liveBytes > capacityInBytes) {
+            liveBytes -= it.next().length;
+            it.remove();
+        }
+        if (writePosition - liveBytes > Math.max(liveBytes, MIN_COMPACT_BYTES)) {
+            compact();
+        }
+    }
+
+    /**
+     * Get and remove the entry, the caller moves it back to heap. The entry is decoded as a CacheValueHolder.
+     */
+    synchronized ValueHolder take(Object key) {
+        if (closed) {
+            return null;
+        }
+        Record r = removeRecord(key);
+        if (r == null || isExpired(r.expireTime, clock.currentTimeMillis())) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(r.length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, r.position + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of file: " + file);
+                }
+            }
+            return (ValueHolder) valueDecoder.apply(buffer.array());
+        } catch (Exception e) {
+            logger.error("jetcache overflow read error, key=" + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the expire time of the entry, or 0 if the key is not on disk
+     */
+    synchronized long expireTime(Object key) {
+        Record r = index.get(key);
+        return r == null ? 0 : r.expireTime;
+    }
+
+    synchronized boolean remove(Object key) {
+        return removeRecord(key) != null;
+    }
+
+    private Record removeRecord(Object key) {
+        Record r = index.remove(key);
+        if (r != null) {
+            liveBytes -= r.length;
+        }
+        return r;
+    }
+
+    // copy the live records to a new file and replace the old one with it
+    private void compact() {
+        File tmp = new File(file.getPath() + ".compact");
+        FileChannel oldChannel = channel;
+        FileLock oldLock = fileLock;
+        try {
+            open(tmp);
+        } catch (IOException e) {
+            logger.error("jetcache overflow compact error: " + file, e);
+            return;
+        }
+        long position = 0;
+        try {
+            for (Map.Entry<Object, Record> en : index.entrySet()) {
+                Record r = en.getValue();
+                long count = 0;
+                while (count < r.length) {
+                    count += oldChannel.transferTo(r.position + count, r.length - count, channel);
+                }
+                en.setValue(new Record(position, r.length, r.expireTime));
+                position += r.length;
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            writePosition = position;
+            close(oldChannel, oldLock);
+        } catch (IOException e) {
+            // part of the index points to the new file, drop all entries and keep the old file
+            logger.error("jetcache overflow compact error: " + file, e);
+            close(channel, fileLock);
+            tmp.delete();
+            channel = oldChannel;
+            fileLock = oldLock;
+            index.clear();
+            writePosition = 0;
+            liveBytes = 0;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Entries are expired lazily on get and dropped by age, so the full scan runs once a minute only.
+     */
+    synchronized void cleanExpiredEntry() {
+        long now = clock.currentTimeMillis();
+        if (closed || now - lastScanTime < SCAN_INTERVAL) {
+            return;
+        }
+        lastScanTime = now;
+        Iterator<Record> it = index.values().iterator();
+        while (it.hasNext()) {
+            Record r = it.next();
+            if (isExpired(r.expireTime, now)) {
+                liveBytes -= r.length;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized long fileBytes() {
+        return writePosition;
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        index.clear();
+        close(channel, fileLock);
+        if (!file.delete()) {
+            logger.warn("can't delete overflow file " + file);
+        }
+    }
+
+    private void close(FileChannel c, FileLock lock) {
+        try {
+            lock.release();
+            c.close();
+        } catch (IOException e) {
+            logger.warn("close overflow file error: " + e);
+        }
+    }
+}
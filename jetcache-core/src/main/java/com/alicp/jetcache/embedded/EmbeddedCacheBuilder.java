@@ -2,6 +2,8 @@ package com.alicp.jetcache.embedded;
 
 import com.alicp.jetcache.AbstractCacheBuilder;
 
+import java.util.function.Function;
+
 /**
  * Created on 16/9/7.
  *
@@ -36,4 +38,31 @@ public class EmbeddedCacheBuilder<T extends EmbeddedCacheBuilder<T>> extends Abs
         getConfig().setLimit(limit);
     }
 
+    public T evictionPolicy(String evictionPolicy) {
+        getConfig().setEvictionPolicy(evictionPolicy);
+        return self();
+    }
+
+    public void setEvictionPolicy(String evictionPolicy) {
+        getConfig().setEvictionPolicy(evictionPolicy);
+    }
+
+    public T valueEncoder(Function<Object, byte[]> valueEncoder) {
+        getConfig().setValueEncoder(valueEncoder);
+        return self();
+    }
+
+    public T valueDecoder(Function<byte[], Object> valueDecoder) {
+        getConfig().setValueDecoder(valueDecoder);
+        return self();
+    }
+
+    public void setValueEncoder(Function<Object, byte[]> valueEncoder) {
+        getConfig().setValueEncoder(valueEncoder);
+    }
+
+    public void setValueDecoder(Function<byte[], Object> valueDecoder) {
+        getConfig().setValueDecoder(valueDecoder);
+    }
+
 }
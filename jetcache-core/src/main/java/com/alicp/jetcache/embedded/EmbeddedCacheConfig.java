@@ -2,6 +2,11 @@ package com.alicp.jetcache.embedded;
 
 import com.alicp.jetcache.CacheConfig;
 import com.alicp.jetcache.anno.CacheConsts;
+import com.alicp.jetcache.anno.EvictionPolicy;
+import com.alicp.jetcache.support.JavaValueDecoder;
+import com.alicp.jetcache.support.JavaValueEncoder;
+
+import java.util.function.Function;
 
 /**
  * Created on 16/9/7.
@@ -10,6 +15,13 @@ import com.alicp.jetcache.anno.CacheConsts;
  */
 public class EmbeddedCacheConfig extends CacheConfig {
     private int limit = CacheConsts.DEFAULT_LOCAL_LIMIT;
+    private int segmentCount = 1;
+    private String evictionPolicy = EvictionPolicy.LRU;
+    private Function<Object, byte[]> valueEncoder = JavaValueEncoder.INSTANCE;
+    private Function<byte[], Object> valueDecoder = JavaValueDecoder.INSTANCE;
+    private String overflowDirectory;
+    private String overflowName;
+    private long overflowCapacityInBytes = 1024L * 1024 * 1024;
 
     public int getLimit() {
         return limit;
@@ -19,4 +31,77 @@ public class EmbeddedCacheConfig extends CacheConfig {
         this.limit = limit;
     }
 
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public void setSegmentCount(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    /**
+     * The eviction policy, see {@link EvictionPolicy}. Only LinkedHashMapCache supports all policies,
+     * ConcurrentHashMapCache always evicts by LRU and CaffeineCache uses the policy of Caffeine.
+     */
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(String evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Used by the caches which store values as bytes, such as OffHeapCache and the disk overflow tier.
+     */
+    public Function<Object, byte[]> getValueEncoder() {
+        return valueEncoder;
+    }
+
+    public void setValueEncoder(Function<Object, byte[]> valueEncoder) {
+        this.valueEncoder = valueEncoder;
+    }
+
+    public Function<byte[], Object> getValueDecoder() {
+        return valueDecoder;
+    }
+
+    public void setValueDecoder(Function<byte[], Object> valueDecoder) {
+        this.valueDecoder = valueDecoder;
+    }
+
+    /**
+     * If set, the entries evicted from LinkedHashMapCache are written to the file overflowDirectory/overflowName,
+     * and looked up there before the cache reports a miss. Only LinkedHashMapCache supports it.
+     */
+    public String getOverflowDirectory() {
+        return overflowDirectory;
+    }
+
+    public void setOverflowDirectory(String overflowDirectory) {
+        this.overflowDirectory = overflowDirectory;
+    }
+
+    /**
+     * The file name in overflowDirectory, should be unique for each cache. CacheContext uses the cache name.
+     */
+    public String getOverflowName() {
+        return overflowName;
+    }
+
+    public void setOverflowName(String overflowName) {
+        this.overflowName = overflowName;
+    }
+
+    /**
+     * The max bytes of live entries in the overflow file, the oldest entries are dropped beyond it.
+     */
+    public long getOverflowCapacityInBytes() {
+        return overflowCapacityInBytes;
+    }
+
+    public void setOverflowCapacityInBytes(long overflowCapacityInBytes) {
+        this.overflowCapacityInBytes = overflowCapacityInBytes;
+    }
+
 }
@@ -0,0 +1,91 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Count-min sketch with 4-bit counters, estimates the access frequency of keys with a fixed memory.
+ * All counters are halved after sampleSize increments so old popularity fades out.
+ * Not thread safe.
+ * Created on 2017/5/29.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int maximum) {
+        int n = 16;
+        while (n < maximum) {
+            n <<= 1;
+        }
+        table = new long[n];
+        tableMask = n - 1;
+        sampleSize = 10 * n;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            frequency = Math.min(frequency, counter(hash, i));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(hash, i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private int counter(int hash, int depth) {
+        int offset = nibbleOffset(hash, depth);
+        return (int) ((table[indexOf(hash, depth)] >>> offset) & 0xfL);
+    }
+
+    private boolean incrementAt(int hash, int depth) {
+        int index = indexOf(hash, depth);
+        int offset = nibbleOffset(hash, depth);
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    // each long holds 16 counters, 4 for each depth
+    private static int nibbleOffset(int hash, int depth) {
+        return ((depth << 2) + ((hash >>> (depth << 3)) & 3)) << 2;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int h) {
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size >>> 1;
+    }
+}
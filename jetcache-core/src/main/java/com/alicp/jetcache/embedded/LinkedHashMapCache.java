@@ -3,19 +3,35 @@
  */
 package com.alicp.jetcache.embedded;
 
-import com.alicp.jetcache.CacheValueHolder;
+import com.alicp.jetcache.CacheConfigException;
+import com.alicp.jetcache.CacheMonitor;
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.anno.EvictionPolicy;
+import com.alicp.jetcache.event.CacheOverflowGetEvent;
+import com.alicp.jetcache.support.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
+ * If overflowDirectory is set, the evicted entries are written to a disk tier which is looked up on heap miss,
+ * call close() to delete the overflow file.
+ *
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
  */
-public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
+public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> implements AutoCloseable {
 
     private static Logger logger = LoggerFactory.getLogger(LinkedHashMapCache.class);
 
+    // assigned in createAreaCache, which is called by the constructor of super class
+    private DiskOverflowStore overflowStore;
+    private volatile CacheMonitor overflowMonitor;
+
     public LinkedHashMapCache(EmbeddedCacheConfig config) {
         super(config);
         addToCleaner();
@@ -27,56 +43,320 @@ public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
 
     @Override
     protected InnerMap createAreaCache() {
-        return new LRUMap(config.getLimit(), this);
+        DiskOverflowStore store = createOverflowStore();
+        BiConsumer<Object, Object> evictionListener = null;
+        // called in the lock of heap, the evicted entries are written to disk after the lock is released
+        ConcurrentHashMap<Object, ValueHolder> evicted = new ConcurrentHashMap<>();
+        if (store != null) {
+            evictionListener = (key, value) -> {
+                if (value instanceof ValueHolder) {
+                    evicted.put(key, (ValueHolder) value);
+                }
+            };
+        }
+        InnerMap map;
+        if (config.getSegmentCount() > 1) {
+            map = new SegmentedLRUMap(config, evictionListener);
+        } else {
+            map = createMap(config.getLimit(), config, this, evictionListener);
+        }
+        if (store == null) {
+            return map;
+        }
+        overflowStore = store;
+        return new OverflowMap(map, store, evicted);
+    }
+
+    private DiskOverflowStore createOverflowStore() {
+        if (config.getOverflowDirectory() == null) {
+            return null;
+        }
+        if (config.getOverflowName() == null) {
+            throw new CacheConfigException("overflowName is required if overflowDirectory is set");
+        }
+        File dir = new File(config.getOverflowDirectory());
+        File file = new File(dir, config.getOverflowName());
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("can't create directory " + dir);
+            }
+            return new DiskOverflowStore(config, file);
+        } catch (IOException e) {
+            logger.error("can't open overflow file " + file + ", the disk tier is disabled", e);
+            return null;
+        }
+    }
+
+    static InnerMap createMap(int max, EmbeddedCacheConfig config, Object lock,
+                              BiConsumer<Object, Object> evictionListener) {
+        String policy = config.getEvictionPolicy();
+        if (EvictionPolicy.LRU.equalsIgnoreCase(policy)) {
+            return new LRUMap(max, config, lock, evictionListener);
+        } else if (EvictionPolicy.SLRU.equalsIgnoreCase(policy)) {
+            return new SLRUMap(max, config, lock, false, evictionListener);
+        } else if (EvictionPolicy.TINY_LFU.equalsIgnoreCase(policy)) {
+            return new SLRUMap(max, config, lock, true, evictionListener);
+        } else {
+            throw new CacheConfigException("not supported eviction policy: " + policy);
+        }
+    }
+
+    static void cleanExpiredEntry(InnerMap map) {
+        if (map instanceof LRUMap) {
+            ((LRUMap) map).cleanExpiredEntry();
+        } else if (map instanceof SLRUMap) {
+            ((SLRUMap) map).cleanExpiredEntry();
+        } else if (map instanceof LinkedHashMapCache.OverflowMap) {
+            LinkedHashMapCache.OverflowMap overflowMap = (LinkedHashMapCache.OverflowMap) map;
+            cleanExpiredEntry(overflowMap.heap);
+            overflowMap.store.cleanExpiredEntry();
+        } else {
+            ((SegmentedLRUMap) map).cleanExpiredEntry();
+        }
     }
 
     @Override
     public <T> T unwrap(Class<T> clazz) {
-        if (clazz.equals(LinkedHashMap.class)) {
+        if (clazz.equals(LinkedHashMap.class) && innerMap instanceof LRUMap) {
             return (T) innerMap;
         }
         throw new IllegalArgumentException(clazz.getName());
     }
 
+    @Override
     public void cleanExpiredEntry() {
-        ((LRUMap) innerMap).cleanExpiredEntry();
+        cleanExpiredEntry(innerMap);
+    }
+
+    /**
+     * Report the lookups of the disk tier to the monitor, see {@link CacheOverflowGetEvent}.
+     */
+    public void setOverflowMonitor(CacheMonitor overflowMonitor) {
+        this.overflowMonitor = overflowMonitor;
+    }
+
+    /**
+     * @return entry count of the disk tier, 0 if overflowDirectory is not set
+     */
+    public int overflowSize() {
+        return overflowStore == null ? 0 : overflowStore.size();
+    }
+
+    /**
+     * Close and delete the overflow file, the entries in heap are not affected.
+     */
+    @Override
+    public void close() {
+        if (overflowStore != null) {
+            overflowStore.close();
+        }
+    }
+
+    /**
+     * Looks up the disk tier on heap miss, and moves the hit entry back to heap.
+     */
+    private final class OverflowMap implements InnerMap {
+        private final InnerMap heap;
+        private final DiskOverflowStore store;
+        // evicted from heap but not written to disk yet
+        private final ConcurrentHashMap<Object, ValueHolder> evicted;
+        // serialize moving back with the removal of the same key, or the removed entry may come back
+        private final Object[] locks = new Object[16];
+
+        OverflowMap(InnerMap heap, DiskOverflowStore store, ConcurrentHashMap<Object, ValueHolder> evicted) {
+            this.heap = heap;
+            this.store = store;
+            this.evicted = evicted;
+            for (int i = 0; i < locks.length; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        private Object lockFor(Object key) {
+            int h = key == null ? 0 : key.hashCode();
+            return locks[(h ^ (h >>> 16)) & (locks.length - 1)];
+        }
+
+        // called after the heap operations which may evict, without holding the heap lock or the key locks
+        private void writeEvicted() {
+            if (evicted.isEmpty()) {
+                return;
+            }
+            for (Object key : evicted.keySet()) {
+                synchronized (lockFor(key)) {
+                    ValueHolder holder = evicted.remove(key);
+                    if (holder != null) {
+                        store.put(key, holder);
+                    }
+                }
+            }
+        }
+
+        private Object getFromDisk(Object key) {
+            long t = config.getClock().nanoTime();
+            ValueHolder holder;
+            synchronized (lockFor(key)) {
+                holder = evicted.remove(key);
+                if (holder == null) {
+                    holder = store.take(key);
+                }
+                if (holder != null) {
+                    heap.putIfAbsentValue(key, holder);
+                }
+            }
+            writeEvicted();
+            CacheMonitor monitor = overflowMonitor;
+            if (monitor != null) {
+                monitor.afterOperation(new CacheOverflowGetEvent(LinkedHashMapCache.this,
+                        config.getClock().nanoTime() - t, key, holder != null));
+            }
+            return holder;
+        }
+
+        @Override
+        public Object getValue(Object key) {
+            Object value = heap.getValue(key);
+            return value != null ? value : getFromDisk(key);
+        }
+
+        @Override
+        public Map getAllValues(Collection keys) {
+            Map values = heap.getAllValues(keys);
+            for (Object key : keys) {
+                if (!values.containsKey(key)) {
+                    Object value = getFromDisk(key);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+            }
+            return values;
+        }
+
+        // drop the old copy, the new value may be evicted by its own put and is kept
+        private void removeOldCopy(Object key, Object value) {
+            synchronized (lockFor(key)) {
+                ValueHolder holder = evicted.get(key);
+                if (holder != null && holder != value) {
+                    evicted.remove(key, holder);
+                }
+                store.remove(key);
+            }
+        }
+
+        @Override
+        public void putValue(Object key, Object value) {
+            heap.putValue(key, value);
+            removeOldCopy(key, value);
+            writeEvicted();
+        }
+
+        @Override
+        public void putAllValues(Map map) {
+            heap.putAllValues(map);
+            for (Object o : map.entrySet()) {
+                Map.Entry en = (Map.Entry) o;
+                removeOldCopy(en.getKey(), en.getValue());
+            }
+            writeEvicted();
+        }
+
+        @Override
+        public boolean removeValue(Object key) {
+            synchronized (lockFor(key)) {
+                boolean removed = heap.removeValue(key);
+                removed = evicted.remove(key) != null || removed;
+                return store.remove(key) || removed;
+            }
+        }
+
+        @Override
+        public boolean putIfAbsentValue(Object key, Object value) {
+            boolean result;
+            synchronized (lockFor(key)) {
+                ValueHolder holder = evicted.get(key);
+                long expireTime = holder != null ? holder.getExpireTime() : store.expireTime(key);
+                if (expireTime != 0 && config.getClock().currentTimeMillis() < expireTime) {
+                    return false;
+                }
+                // the expired copy is dropped, or it may be moved back over the new value
+                evicted.remove(key);
+                store.remove(key);
+                result = heap.putIfAbsentValue(key, value);
+            }
+            writeEvicted();
+            return result;
+        }
+
+        @Override
+        public void removeAllValues(Collection keys) {
+            for (Object key : keys) {
+                removeValue(key);
+            }
+        }
     }
 
     static final class LRUMap extends LinkedHashMap implements InnerMap {
 
         private final int max;
+        private final long staleTtlInMillis;
+        private final Clock clock;
+        private final TimerWheel timerWheel;
+        private final BiConsumer<Object, Object> evictionListener;
         private Object lock;
 
-        public LRUMap(int max, Object lock) {
+        public LRUMap(int max, EmbeddedCacheConfig config, Object lock, BiConsumer<Object, Object> evictionListener) {
             super((int) (max * 1.4f), 0.75f, true);
             this.max = max;
-            this.lock = lock;
+            this.staleTtlInMillis = config.getStaleTtlInMillis();
+            this.clock = config.getClock();
+            this.timerWheel = new TimerWheel(clock.currentTimeMillis(), this::expire);
+            // null means the map itself, used by the segments of SegmentedLRUMap
+            this.lock = lock == null ? this : lock;
+            this.evictionListener = evictionListener;
         }
 
         @Override
         protected boolean removeEldestEntry(Map.Entry eldest) {
-            return size() > max;
+            if (size() > max) {
+                timerWheel.deschedule(eldest.getKey());
+                if (evictionListener != null) {
+                    evictionListener.accept(eldest.getKey(), eldest.getValue());
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void schedule(Object key, Object value) {
+            if (value instanceof ValueHolder) {
+                timerWheel.schedule(key, value, TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis));
+            } else {
+                // assert false
+                if (value == null) {
+                    logger.error("value of key " + key + " is null");
+                } else {
+                    logger.error("value of key " + key + " is not a ValueHolder. type=" + value.getClass());
+                }
+            }
+        }
+
+        private long expire(Object key, Object value, long now) {
+            long time = TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis);
+            if (time > now) {
+                return time;
+            }
+            remove(key, value);
+            return 0;
+        }
+
+        private void afterWrite() {
+            timerWheel.advanceIfTicked(clock.currentTimeMillis());
         }
 
         void cleanExpiredEntry() {
             synchronized (lock) {
-                for (Iterator it = entrySet().iterator(); it.hasNext();) {
-                    Map.Entry en = (Map.Entry) it.next();
-                    Object value = en.getValue();
-                    if (value != null && value instanceof CacheValueHolder) {
-                        CacheValueHolder h = (CacheValueHolder) value;
-                        if (System.currentTimeMillis() >= h.getExpireTime()) {
-                            it.remove();
-                        }
-                    } else {
-                        // assert false
-                        if (value == null) {
-                            logger.error("key " + en.getKey() + " is null");
-                        } else {
-                            logger.error("value of key " + en.getKey() + " is not a CacheValueHolder. type=" + value.getClass());
-                        }
-                    }
-                }
+                timerWheel.advance(clock.currentTimeMillis());
             }
         }
 
@@ -103,6 +383,8 @@ public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
         public void putValue(Object key, Object value) {
             synchronized (lock) {
                 put(key, value);
+                schedule(key, value);
+                afterWrite();
             }
         }
 
@@ -112,13 +394,16 @@ public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
                 Set<Map.Entry> set = map.entrySet();
                 for (Map.Entry en : set) {
                     put(en.getKey(), en.getValue());
+                    schedule(en.getKey(), en.getValue());
                 }
+                afterWrite();
             }
         }
 
         @Override
         public boolean removeValue(Object key) {
             synchronized (lock) {
+                timerWheel.deschedule(key);
                 return remove(key) != null;
             }
         }
@@ -127,6 +412,7 @@ public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
         public void removeAllValues(Collection keys) {
             synchronized (lock) {
                 for (Object k : keys) {
+                    timerWheel.deschedule(k);
                     remove(k);
                 }
             }
@@ -137,6 +423,8 @@ public class LinkedHashMapCache<K, V> extends AbstractEmbeddedCache<K, V> {
             synchronized (lock) {
                 if (get(key) == null) {
                     put(key, value);
+                    schedule(key, value);
+                    afterWrite();
                     return true;
                 } else {
                     return false;
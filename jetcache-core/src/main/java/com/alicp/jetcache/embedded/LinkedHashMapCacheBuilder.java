@@ -16,4 +16,48 @@ public class LinkedHashMapCacheBuilder<T extends EmbeddedCacheBuilder<T>> extend
     public LinkedHashMapCacheBuilder() {
         buildFunc((c) -> new LinkedHashMapCache((EmbeddedCacheConfig) c));
     }
+
+    /**
+     * Split the cache into segments (rounded up to a power of 2), each segment has its own lock,
+     * LRU list and an equal share of the limit. Default is 1, the whole cache is guarded by one lock.
+     */
+    public T segmentCount(int segmentCount) {
+        getConfig().setSegmentCount(segmentCount);
+        return self();
+    }
+
+    public void setSegmentCount(int segmentCount) {
+        getConfig().setSegmentCount(segmentCount);
+    }
+
+    /**
+     * Write the evicted entries to a file in this directory and look them up there on heap miss.
+     * Values are encoded by the valueEncoder.
+     */
+    public T overflowDirectory(String overflowDirectory) {
+        getConfig().setOverflowDirectory(overflowDirectory);
+        return self();
+    }
+
+    public T overflowName(String overflowName) {
+        getConfig().setOverflowName(overflowName);
+        return self();
+    }
+
+    public T overflowCapacityInBytes(long overflowCapacityInBytes) {
+        getConfig().setOverflowCapacityInBytes(overflowCapacityInBytes);
+        return self();
+    }
+
+    public void setOverflowDirectory(String overflowDirectory) {
+        getConfig().setOverflowDirectory(overflowDirectory);
+    }
+
+    public void setOverflowName(String overflowName) {
+        getConfig().setOverflowName(overflowName);
+    }
+
+    public void setOverflowCapacityInBytes(long overflowCapacityInBytes) {
+        getConfig().setOverflowCapacityInBytes(overflowCapacityInBytes);
+    }
 }
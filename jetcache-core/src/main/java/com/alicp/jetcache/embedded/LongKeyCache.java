@@ -0,0 +1,59 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded cache for long keys (any Number key is converted by longValue()), evicts by LRU.
+ * The keys are stored as primitive longs, use the long overloads of get/put/remove to avoid boxing.
+ * The keyConvertor, evictionPolicy and segmentCount in config are ignored.
+ * Created on 2017/6/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class LongKeyCache<V> extends AbstractEmbeddedCache<Long, V> {
+
+    public LongKeyCache(EmbeddedCacheConfig config) {
+        super(config);
+        Cleaner.add(this);
+    }
+
+    @Override
+    protected InnerMap createAreaCache() {
+        return new LongLRUMap(config.getLimit(), config, this);
+    }
+
+    @Override
+    protected Object buildKey(Long key) {
+        return key;
+    }
+
+    public V get(long key) {
+        return hitValue((ValueHolder<V>) ((LongLRUMap) innerMap).getValue(key));
+    }
+
+    public void put(long key, V value) {
+        put(key, value, config.getDefaultExpireInMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void put(long key, V value, long expire, TimeUnit timeUnit) {
+        ValueHolder<V> cacheObject = newHolder(value, config.getClock().currentTimeMillis(),
+                jitterTtl(timeUnit.toMillis(expire)));
+        ((LongLRUMap) innerMap).putValue(key, cacheObject);
+    }
+
+    public boolean remove(long key) {
+        return ((LongLRUMap) innerMap).removeValue(key);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        throw new IllegalArgumentException(clazz.getName());
+    }
+
+    @Override
+    public void cleanExpiredEntry() {
+        ((LongLRUMap) innerMap).cleanExpiredEntry();
+    }
+}
@@ -0,0 +1,19 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Created on 2017/6/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class LongKeyCacheBuilder<T extends EmbeddedCacheBuilder<T>> extends EmbeddedCacheBuilder<T> {
+    public static class LongKeyCacheBuilderImpl extends LongKeyCacheBuilder<LongKeyCacheBuilderImpl> {
+    }
+
+    public static LongKeyCacheBuilderImpl createLongKeyCacheBuilder() {
+        return new LongKeyCacheBuilderImpl();
+    }
+
+    public LongKeyCacheBuilder() {
+        buildFunc((c) -> new LongKeyCache((EmbeddedCacheConfig) c));
+    }
+}
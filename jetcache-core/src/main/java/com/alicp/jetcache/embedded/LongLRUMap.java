@@ -0,0 +1,320 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.support.Clock;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * InnerMap of LongKeyCache. The keys are kept as primitive longs in an open addressing table (linear probing),
+ * the entries live in parallel arrays allocated for the limit up front and are linked by index in LRU order,
+ * so no object is created per entry except the ValueHolder and its node in the TimerWheel.
+ * Expired entries are removed by a TimerWheel keyed by the entry index, like the other LRU inner maps.
+ * Created on 2017/6/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class LongLRUMap implements InnerMap {
+
+    private static final int NIL = -1;
+
+    private final int max;
+    private final long[] keys;
+    private final Object[] values;
+    private final int[] prev;
+    private final int[] next;
+    // index of the entry + 1, 0 means empty
+    private final int[] table;
+    private final int mask;
+    private final long staleTtlInMillis;
+    private final Clock clock;
+    private final Object lock;
+    private final TimerWheel timerWheel;
+
+    // eldest
+    private int head = NIL;
+    private int tail = NIL;
+    // free entries, linked by next
+    private int free;
+    private int size;
+
+    LongLRUMap(int max, EmbeddedCacheConfig config, Object lock) {
+        this.max = Math.max(1, max);
+        this.keys = new long[this.max];
+        this.values = new Object[this.max];
+        this.prev = new int[this.max];
+        this.next = new int[this.max];
+        int tableSize = 2;
+        while (tableSize < this.max * 2) {
+            tableSize <<= 1;
+        }
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+        for (int i = 0; i < this.max; i++) {
+            next[i] = i + 1 < this.max ? i + 1 : NIL;
+        }
+        this.staleTtlInMillis = config.getStaleTtlInMillis();
+        this.clock = config.getClock();
+        this.lock = lock == null ? this : lock;
+        this.timerWheel = new TimerWheel(clock.currentTimeMillis(), this::expire);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long toLong(Object key) {
+        if (key instanceof Number) {
+            return ((Number) key).longValue();
+        }
+        throw new IllegalArgumentException("key of LongKeyCache should be a Number: " + key);
+    }
+
+    private void schedule(int e, Object value) {
+        if (value instanceof ValueHolder) {
+            timerWheel.schedule(e, value, TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis));
+        } else {
+            timerWheel.deschedule(e);
+        }
+    }
+
+    // guarded by lock
+    private long expire(Object key, Object value, long now) {
+        int e = (Integer) key;
+        if (values[e] != value) {
+            return 0;
+        }
+        long time = TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis);
+        if (time > now) {
+            return time;
+        }
+        remove(keys[e]);
+        return 0;
+    }
+
+    // the slot in table holding the key, or NIL
+    private int slotOf(long key) {
+        int i = hash(key) & mask;
+        while (true) {
+            int e = table[i];
+            if (e == 0) {
+                return NIL;
+            }
+            if (keys[e - 1] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private int indexOf(long key) {
+        int slot = slotOf(key);
+        return slot == NIL ? NIL : table[slot] - 1;
+    }
+
+    // backward shift deletion, keeps the probe sequences without tombstones
+    private void deleteSlot(int slot) {
+        int i = slot;
+        int j = slot;
+        while (true) {
+            j = (j + 1) & mask;
+            int e = table[j];
+            if (e == 0) {
+                break;
+            }
+            int k = hash(keys[e - 1]) & mask;
+            // the entry at j can't move to i if its home slot k is cyclically in (i, j]
+            if (i <= j ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;
+            }
+            table[i] = e;
+            i = j;
+        }
+        table[i] = 0;
+    }
+
+    private void unlink(int e) {
+        int p = prev[e];
+        int n = next[e];
+        if (p == NIL) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NIL) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+
+    private void linkLast(int e) {
+        prev[e] = tail;
+        next[e] = NIL;
+        if (tail == NIL) {
+            head = e;
+        } else {
+            next[tail] = e;
+        }
+        tail = e;
+    }
+
+    private void moveToLast(int e) {
+        if (e != tail) {
+            unlink(e);
+            linkLast(e);
+        }
+    }
+
+    private boolean remove(long key) {
+        int slot = slotOf(key);
+        if (slot == NIL) {
+            return false;
+        }
+        int e = table[slot] - 1;
+        deleteSlot(slot);
+        unlink(e);
+        timerWheel.deschedule(e);
+        values[e] = null;
+        next[e] = free;
+        free = e;
+        size--;
+        return true;
+    }
+
+    private Object get(long key) {
+        int e = indexOf(key);
+        if (e == NIL) {
+            return null;
+        }
+        moveToLast(e);
+        return values[e];
+    }
+
+    private void put(long key, Object value) {
+        int e = indexOf(key);
+        if (e != NIL) {
+            values[e] = value;
+            schedule(e, value);
+            moveToLast(e);
+            return;
+        }
+        if (size == max) {
+            remove(keys[head]);
+        }
+        int i = hash(key) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        e = free;
+        free = next[e];
+        keys[e] = key;
+        values[e] = value;
+        schedule(e, value);
+        table[i] = e + 1;
+        linkLast(e);
+        size++;
+    }
+
+    Object getValue(long key) {
+        synchronized (lock) {
+            return get(key);
+        }
+    }
+
+    void putValue(long key, Object value) {
+        synchronized (lock) {
+            put(key, value);
+            afterWrite();
+        }
+    }
+
+    // guarded by lock
+    private void afterWrite() {
+        timerWheel.advanceIfTicked(clock.currentTimeMillis());
+    }
+
+    boolean removeValue(long key) {
+        synchronized (lock) {
+            return remove(key);
+        }
+    }
+
+    int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    void cleanExpiredEntry() {
+        synchronized (lock) {
+            timerWheel.advance(clock.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public Object getValue(Object key) {
+        return getValue(toLong(key));
+    }
+
+    @Override
+    public Map getAllValues(Collection keys) {
+        Map values = new HashMap();
+        synchronized (lock) {
+            for (Object key : keys) {
+                Object v = get(toLong(key));
+                if (v != null) {
+                    values.put(key, v);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putValue(Object key, Object value) {
+        putValue(toLong(key), value);
+    }
+
+    @Override
+    public void putAllValues(Map map) {
+        synchronized (lock) {
+            Set<Map.Entry> set = map.entrySet();
+            for (Map.Entry en : set) {
+                put(toLong(en.getKey()), en.getValue());
+            }
+            afterWrite();
+        }
+    }
+
+    @Override
+    public boolean removeValue(Object key) {
+        return removeValue(toLong(key));
+    }
+
+    @Override
+    public boolean putIfAbsentValue(Object key, Object value) {
+        long k = toLong(key);
+        synchronized (lock) {
+            if (indexOf(k) == NIL) {
+                put(k, value);
+                afterWrite();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void removeAllValues(Collection keys) {
+        synchronized (lock) {
+            for (Object k : keys) {
+                remove(toLong(k));
+            }
+        }
+    }
+}
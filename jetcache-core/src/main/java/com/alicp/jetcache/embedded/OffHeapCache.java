@@ -0,0 +1,115 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.CacheConfigException;
+import com.alicp.jetcache.CacheResult;
+import com.alicp.jetcache.CacheResultCode;
+import com.alicp.jetcache.ValueHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded cache which stores the entries in direct memory, so they are not scanned by GC.
+ * Values are encoded by the valueEncoder of OffHeapCacheConfig and decoded on every get,
+ * keys are compared by their bytes like the keys of remote caches.
+ * Call close() to free the direct memory.
+ * If persistDirectory is set, the memory is mapped from a file which is reloaded after restart.
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class OffHeapCache<K, V> extends AbstractEmbeddedCache<K, V> implements AutoCloseable {
+
+    private static Logger logger = LoggerFactory.getLogger(OffHeapCache.class);
+
+    /**
+     * @param config an OffHeapCacheConfig, or an EmbeddedCacheConfig to use the default off heap settings
+     */
+    public OffHeapCache(EmbeddedCacheConfig config) {
+        super(config);
+        Cleaner.add(this);
+    }
+
+    @Override
+    protected InnerMap createAreaCache() {
+        if (config instanceof OffHeapCacheConfig && ((OffHeapCacheConfig) config).getPersistDirectory() != null) {
+            OffHeapCacheConfig c = (OffHeapCacheConfig) config;
+            if (c.getPersistName() == null) {
+                throw new CacheConfigException("persistName is required if persistDirectory is set");
+            }
+            File dir = new File(c.getPersistDirectory());
+            File file = new File(dir, c.getPersistName());
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("can't create directory " + dir);
+                }
+                return new OffHeapMap(config, file);
+            } catch (IOException e) {
+                logger.error("can't map file " + file + ", use direct memory instead", e);
+            }
+        }
+        return new OffHeapMap(config);
+    }
+
+    @Override
+    public CacheResult PUT(K key, V value, long expire, TimeUnit timeUnit) {
+        if (key == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        ValueHolder<V> cacheObject = newHolder(value, config.getClock().currentTimeMillis(),
+                jitterTtl(timeUnit.toMillis(expire)));
+        if (((OffHeapMap) innerMap).tryPutValue(buildKey(key), cacheObject)) {
+            return CacheResult.SUCCESS_WITHOUT_MSG;
+        }
+        return new CacheResult(CacheResultCode.FAIL, "entry is larger than a slab");
+    }
+
+    @Override
+    public CacheResult PUT_ALL(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        if (map == null) {
+            return CacheResult.FAIL_ILLEGAL_ARGUMENT;
+        }
+        HashMap newKeyMap = new HashMap();
+        long now = config.getClock().currentTimeMillis();
+        for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
+            ValueHolder<V> cacheObject = newHolder(en.getValue(), now, jitterTtl(timeUnit.toMillis(expire)));
+            newKeyMap.put(buildKey(en.getKey()), cacheObject);
+        }
+        int failCount = ((OffHeapMap) innerMap).tryPutAllValues(newKeyMap);
+        if (failCount == 0) {
+            return CacheResult.SUCCESS_WITHOUT_MSG;
+        }
+        return new CacheResult(failCount == map.size() ? CacheResultCode.FAIL : CacheResultCode.PART_SUCCESS,
+                failCount + " entries are larger than a slab");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        throw new IllegalArgumentException(clazz.getName());
+    }
+
+    @Override
+    public void cleanExpiredEntry() {
+        ((OffHeapMap) innerMap).cleanExpiredEntry();
+    }
+
+    /**
+     * @return the direct memory allocated by this cache in bytes
+     */
+    public long offHeapBytes() {
+        return ((OffHeapMap) innerMap).offHeapBytes();
+    }
+
+    /**
+     * Free the direct memory, the cache can't be used after closed.
+     */
+    @Override
+    public void close() {
+        ((OffHeapMap) innerMap).close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class OffHeapCacheBuilder<T extends EmbeddedCacheBuilder<T>> extends EmbeddedCacheBuilder<T> {
+    public static class OffHeapCacheBuilderImpl extends OffHeapCacheBuilder<OffHeapCacheBuilderImpl> {
+    }
+
+    public static OffHeapCacheBuilderImpl createOffHeapCacheBuilder() {
+        return new OffHeapCacheBuilderImpl();
+    }
+
+    public OffHeapCacheBuilder() {
+        buildFunc((c) -> new OffHeapCache((EmbeddedCacheConfig) c));
+    }
+
+    @Override
+    protected OffHeapCacheConfig getConfig() {
+        if (config == null) {
+            config = new OffHeapCacheConfig();
+        }
+        return (OffHeapCacheConfig) config;
+    }
+
+    public T capacityInBytes(long capacityInBytes) {
+        getConfig().setCapacityInBytes(capacityInBytes);
+        return self();
+    }
+
+    public T slabSizeInBytes(int slabSizeInBytes) {
+        getConfig().setSlabSizeInBytes(slabSizeInBytes);
+        return self();
+    }
+
+    public T persistDirectory(String persistDirectory) {
+        getConfig().setPersistDirectory(persistDirectory);
+        return self();
+    }
+
+    public T persistName(String persistName) {
+        getConfig().setPersistName(persistName);
+        return self();
+    }
+
+    public void setCapacityInBytes(long capacityInBytes) {
+        getConfig().setCapacityInBytes(capacityInBytes);
+    }
+
+    public void setSlabSizeInBytes(int slabSizeInBytes) {
+        getConfig().setSlabSizeInBytes(slabSizeInBytes);
+    }
+
+    public void setPersistDirectory(String persistDirectory) {
+        getConfig().setPersistDirectory(persistDirectory);
+    }
+
+    public void setPersistName(String persistName) {
+        getConfig().setPersistName(persistName);
+    }
+}
@@ -0,0 +1,55 @@
+package com.alicp.jetcache.embedded;
+
+/**
+ * Config of OffHeapCache. The limit of entry count is ignored, the cache is limited by capacityInBytes.
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class OffHeapCacheConfig extends EmbeddedCacheConfig {
+    private long capacityInBytes = 64 * 1024 * 1024;
+    private int slabSizeInBytes = 1024 * 1024;
+    private String persistDirectory;
+    private String persistName;
+
+    public long getCapacityInBytes() {
+        return capacityInBytes;
+    }
+
+    public void setCapacityInBytes(long capacityInBytes) {
+        this.capacityInBytes = capacityInBytes;
+    }
+
+    /**
+     * Direct memory is allocated in slabs of this size, an entry larger than a slab is not cached.
+     */
+    public int getSlabSizeInBytes() {
+        return slabSizeInBytes;
+    }
+
+    public void setSlabSizeInBytes(int slabSizeInBytes) {
+        this.slabSizeInBytes = slabSizeInBytes;
+    }
+
+    /**
+     * If set, the slabs are mapped from the file persistDirectory/persistName, so the entries survive restarts.
+     */
+    public String getPersistDirectory() {
+        return persistDirectory;
+    }
+
+    public void setPersistDirectory(String persistDirectory) {
+        this.persistDirectory = persistDirectory;
+    }
+
+    /**
+     * The file name in persistDirectory, should be unique for each cache. CacheContext uses the cache name.
+     */
+    public String getPersistName() {
+        return persistName;
+    }
+
+    public void setPersistName(String persistName) {
+        this.persistName = persistName;
+    }
+}
@@ -0,0 +1,677 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.CacheException;
+import com.alicp.jetcache.CacheValueHolder;
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.external.ExternalKeyUtil;
+import com.alicp.jetcache.support.CacheEncodeException;
+import com.alicp.jetcache.support.Clock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * InnerMap of OffHeapCache, keys and encoded values are stored in direct memory slabs.
+ * Each slab is cut into blocks of a size class (64 bytes, 128 bytes ... slab size) when it is allocated,
+ * an entry takes one block of the smallest class it fits. Each class has a free list and a LRU list,
+ * when no slab can be allocated the eldest entry of the class is evicted. If the class has no entry to evict,
+ * the slab holding the eldest entry of the class owning most slabs is emptied and cut into blocks of the class.
+ * The hash index is also off heap, it's a table of chain heads and the chain pointer is in the entry header.
+ * <p>If a file is given, the slabs are mapped from the file, so the entries survive restarts. An entry is
+ * committed by writing its state after the key, value and checksum, torn entries are dropped on reload.
+ * The index and LRU lists are rebuilt on reload, expired entries are dropped.</p>
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class OffHeapMap implements InnerMap {
+
+    private static final int MIN_BLOCK = 64;
+
+    // entry header, an address is (slab index + 1) << 32 | offset, 0 means null
+    private static final int PREV = 0;
+    private static final int NEXT = 8;
+    private static final int CHAIN = 16;
+    private static final int EXPIRE_TIME = 24;
+    private static final int HASH = 32;
+    private static final int KEY_LENGTH = 36;
+    private static final int VALUE_LENGTH = 40;
+    private static final int STATE = 44;
+    private static final int CHECKSUM = 48;
+    private static final int HEADER = 52;
+
+    private static final int STATE_USED = 0x55534544;
+
+    // file header: magic, version, slab size, max slabs, slab count, then the size class of each slab
+    private static final long FILE_MAGIC = 0x4A45544341434845L;
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_SLAB_SIZE = 12;
+    private static final int FILE_MAX_SLABS = 16;
+    private static final int FILE_SLAB_COUNT = 20;
+    private static final int FILE_SLAB_CLASSES = 24;
+
+    private static final long SCAN_INTERVAL = 60 * 1000;
+
+    private final Function<Object, byte[]> valueEncoder;
+    private final Function<byte[], Object> valueDecoder;
+    private final boolean expireAfterAccess;
+    private final long staleTtlInMillis;
+    private final Clock clock;
+    private final int slabSize;
+
+    private ByteBuffer[] slabs;
+    private final byte[] slabClasses;
+    private int slabCount;
+    private final long[] freeHeads;
+    private final long[] lruHeads;
+    private final long[] lruTails;
+
+    private ByteBuffer table;
+    private int tableMask;
+    private int count;
+
+    private long lastScanTime;
+    private boolean closed;
+
+    private FileChannel channel;
+    private FileLock fileLock;
+    private MappedByteBuffer fileHeader;
+    private int fileHeaderSize;
+
+    OffHeapMap(EmbeddedCacheConfig embeddedConfig) {
+        OffHeapCacheConfig config = embeddedConfig instanceof OffHeapCacheConfig ?
+                (OffHeapCacheConfig) embeddedConfig : new OffHeapCacheConfig();
+        this.valueEncoder = embeddedConfig.getValueEncoder();
+        this.valueDecoder = embeddedConfig.getValueDecoder();
+        this.expireAfterAccess = embeddedConfig.isExpireAfterAccess();
+        this.staleTtlInMillis = embeddedConfig.getStaleTtlInMillis();
+        this.clock = embeddedConfig.getClock();
+        int s = MIN_BLOCK;
+        while (s < config.getSlabSizeInBytes()) {
+            s <<= 1;
+        }
+        this.slabSize = s;
+        int maxSlabs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, config.getCapacityInBytes() / slabSize));
+        this.slabs = new ByteBuffer[maxSlabs];
+        this.slabClasses = new byte[maxSlabs];
+        int classes = Integer.numberOfTrailingZeros(slabSize / MIN_BLOCK) + 1;
+        this.freeHeads = new long[classes];
+        this.lruHeads = new long[classes];
+        this.lruTails = new long[classes];
+        this.table = ByteBuffer.allocateDirect(1024 * 8);
+        this.tableMask = 1023;
+        this.lastScanTime = clock.currentTimeMillis();
+    }
+
+    OffHeapMap(EmbeddedCacheConfig embeddedConfig, File file) throws IOException {
+        this(embeddedConfig);
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            channel.close();
+            throw new IOException("file is locked by another cache: " + file);
+        }
+        fileHeaderSize = ((FILE_SLAB_CLASSES + slabs.length + 4095) / 4096) * 4096;
+        fileHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileHeaderSize);
+        if (fileHeader.getLong(0) == FILE_MAGIC && fileHeader.getInt(8) == FILE_VERSION
+                && fileHeader.getInt(FILE_SLAB_SIZE) == slabSize && fileHeader.getInt(FILE_MAX_SLABS) == slabs.length) {
+            load();
+        } else {
+            // new file or the config is changed
+            channel.truncate(fileHeaderSize);
+            for (int i = 0; i < fileHeaderSize; i++) {
+                fileHeader.put(i, (byte) 0);
+            }
+            fileHeader.putInt(8, FILE_VERSION);
+            fileHeader.putInt(FILE_SLAB_SIZE, slabSize);
+            fileHeader.putInt(FILE_MAX_SLABS, slabs.length);
+            fileHeader.putLong(0, FILE_MAGIC);
+        }
+    }
+
+    private ByteBuffer mapSlab(int index) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, fileHeaderSize + (long) index * slabSize, slabSize);
+    }
+
+    private void load() throws IOException {
+        long now = clock.currentTimeMillis();
+        int fileSlabCount = Math.min(fileHeader.getInt(FILE_SLAB_COUNT), slabs.length);
+        for (int i = 0; i < fileSlabCount; i++) {
+            int c = fileHeader.get(FILE_SLAB_CLASSES + i);
+            if (c < 0 || c >= freeHeads.length) {
+                fileHeader.putInt(FILE_SLAB_COUNT, i);
+                break;
+            }
+            slabs[i] = mapSlab(i);
+            slabClasses[i] = (byte) c;
+            slabCount++;
+            long base = ((long) slabCount) << 32;
+            int blockSize = MIN_BLOCK << c;
+            for (int offset = slabSize - blockSize; offset >= 0; offset -= blockSize) {
+                long address = base | offset;
+                if (!loadEntry(address, blockSize, now)) {
+                    putInt(address, STATE, 0);
+                    putLong(address, NEXT, freeHeads[c]);
+                    freeHeads[c] = address;
+                }
+            }
+        }
+    }
+
+    private boolean loadEntry(long address, int blockSize, long now) {
+        if (getInt(address, STATE) != STATE_USED) {
+            return false;
+        }
+        int keyLength = getInt(address, KEY_LENGTH);
+        int valueLength = getInt(address, VALUE_LENGTH);
+        if (keyLength < 0 || valueLength < 0 || HEADER + (long) keyLength + valueLength > blockSize
+                || classOf(HEADER + keyLength + valueLength) != classOf(blockSize)) {
+            return false;
+        }
+        if (now >= getLong(address, EXPIRE_TIME) + staleTtlInMillis) {
+            return false;
+        }
+        byte[] keyBytes = readBytes(address, HEADER, keyLength);
+        if (checksum(keyBytes, readBytes(address, HEADER + keyLength, valueLength)) != getInt(address, CHECKSUM)) {
+            return false;
+        }
+        int hash = hash(keyBytes);
+        if (hash != getInt(address, HASH) || find(keyBytes, hash) != 0) {
+            return false;
+        }
+        link(address, hash, classOf(blockSize));
+        return true;
+    }
+
+    private static int checksum(byte[] keyBytes, byte[] valueBytes) {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(valueBytes);
+        return (int) crc.getValue();
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs[(int) (address >>> 32) - 1];
+    }
+
+    private long getLong(long address, int field) {
+        return slab(address).getLong((int) address + field);
+    }
+
+    private void putLong(long address, int field, long value) {
+        slab(address).putLong((int) address + field, value);
+    }
+
+    private int getInt(long address, int field) {
+        return slab(address).getInt((int) address + field);
+    }
+
+    private void putInt(long address, int field, int value) {
+        slab(address).putInt((int) address + field, value);
+    }
+
+    private byte[] readBytes(long address, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer slab = slab(address);
+        slab.position((int) address + offset);
+        slab.get(bytes);
+        return bytes;
+    }
+
+    private void writeBytes(long address, int offset, byte[] bytes) {
+        ByteBuffer slab = slab(address);
+        slab.position((int) address + offset);
+        slab.put(bytes);
+    }
+
+    private static int hash(byte[] keyBytes) {
+        int h = Arrays.hashCode(keyBytes);
+        return h ^ (h >>> 16);
+    }
+
+    private static byte[] keyBytes(Object key) {
+        try {
+            return ExternalKeyUtil.buildKeyAfterConvert(key, "");
+        } catch (Exception e) {
+            throw new CacheEncodeException("encode key fail: " + key, e);
+        }
+    }
+
+    private int classOf(int size) {
+        int c = 0;
+        int blockSize = MIN_BLOCK;
+        while (blockSize < size) {
+            blockSize <<= 1;
+            c++;
+        }
+        return c;
+    }
+
+    private int classOf(long address) {
+        return classOf(HEADER + getInt(address, KEY_LENGTH) + getInt(address, VALUE_LENGTH));
+    }
+
+    private long find(byte[] keyBytes, int hash) {
+        long address = table.getLong((hash & tableMask) << 3);
+        while (address != 0) {
+            if (getInt(address, HASH) == hash && getInt(address, KEY_LENGTH) == keyBytes.length
+                    && keyEquals(address, keyBytes)) {
+                return address;
+            }
+            address = getLong(address, CHAIN);
+        }
+        return 0;
+    }
+
+    private boolean keyEquals(long address, byte[] keyBytes) {
+        ByteBuffer slab = slab(address);
+        int offset = (int) address + HEADER;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (slab.get(offset + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long allocate(int c) {
+        if (freeHeads[c] == 0) {
+            if (slabCount < slabs.length) {
+                newSlab(c);
+            } else if (lruHeads[c] != 0) {
+                free(lruHeads[c]);
+            } else if (!reassignSlab(c)) {
+                return 0;
+            }
+        }
+        long address = freeHeads[c];
+        freeHeads[c] = getLong(address, NEXT);
+        return address;
+    }
+
+    private void newSlab(int c) {
+        if (channel == null) {
+            slabs[slabCount] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            try {
+                slabs[slabCount] = mapSlab(slabCount);
+            } catch (IOException e) {
+                throw new CacheException("map slab fail", e);
+            }
+        }
+        slabCount++;
+        cutSlab(slabCount - 1, c);
+        if (channel != null) {
+            // all blocks are free before the slab count is written
+            fileHeader.putInt(FILE_SLAB_COUNT, slabCount);
+        }
+    }
+
+    private void cutSlab(int index, int c) {
+        long base = ((long) index + 1) << 32;
+        int blockSize = MIN_BLOCK << c;
+        for (int offset = slabSize - blockSize; offset >= 0; offset -= blockSize) {
+            putInt(base | offset, STATE, 0);
+            putLong(base | offset, NEXT, freeHeads[c]);
+            freeHeads[c] = base | offset;
+        }
+        slabClasses[index] = (byte) c;
+        if (channel != null) {
+            fileHeader.put(FILE_SLAB_CLASSES + index, (byte) c);
+        }
+    }
+
+    /**
+     * Move a slab of another class to class c, all entries in the slab are evicted.
+     */
+    private boolean reassignSlab(int c) {
+        int[] slabsOfClass = new int[freeHeads.length];
+        for (int i = 0; i < slabCount; i++) {
+            slabsOfClass[slabClasses[i]]++;
+        }
+        int donor = -1;
+        for (int i = 0; i < slabsOfClass.length; i++) {
+            if (i != c && slabsOfClass[i] > 0 && (donor < 0 || slabsOfClass[i] > slabsOfClass[donor])) {
+                donor = i;
+            }
+        }
+        if (donor < 0) {
+            return false;
+        }
+        int index;
+        if (lruHeads[donor] != 0) {
+            index = (int) (lruHeads[donor] >>> 32) - 1;
+        } else {
+            index = 0;
+            while (slabClasses[index] != donor) {
+                index++;
+            }
+        }
+        long base = ((long) index + 1) << 32;
+        int blockSize = MIN_BLOCK << donor;
+        for (int offset = slabSize - blockSize; offset >= 0; offset -= blockSize) {
+            if (getInt(base | offset, STATE) == STATE_USED) {
+                free(base | offset);
+            }
+        }
+        // drop the blocks of the slab from the free list of the donor
+        long prev = 0;
+        long address = freeHeads[donor];
+        while (address != 0) {
+            long next = getLong(address, NEXT);
+            if ((address >>> 32) == index + 1) {
+                if (prev == 0) {
+                    freeHeads[donor] = next;
+                } else {
+                    putLong(prev, NEXT, next);
+                }
+            } else {
+                prev = address;
+            }
+            address = next;
+        }
+        cutSlab(index, c);
+        return true;
+    }
+
+    private void free(long address) {
+        int c = classOf(address);
+        // unlink from the hash chain
+        int bucket = (getInt(address, HASH) & tableMask) << 3;
+        long a = table.getLong(bucket);
+        if (a == address) {
+            table.putLong(bucket, getLong(address, CHAIN));
+        } else {
+            while (a != 0) {
+                long next = getLong(a, CHAIN);
+                if (next == address) {
+                    putLong(a, CHAIN, getLong(address, CHAIN));
+                    break;
+                }
+                a = next;
+            }
+        }
+        unlinkLru(address, c);
+        putInt(address, STATE, 0);
+        putLong(address, NEXT, freeHeads[c]);
+        freeHeads[c] = address;
+        count--;
+    }
+
+    private void unlinkLru(long address, int c) {
+        long prev = getLong(address, PREV);
+        long next = getLong(address, NEXT);
+        if (prev == 0) {
+            lruHeads[c] = next;
+        } else {
+            putLong(prev, NEXT, next);
+        }
+        if (next == 0) {
+            lruTails[c] = prev;
+        } else {
+            putLong(next, PREV, prev);
+        }
+    }
+
+    private void linkLruTail(long address, int c) {
+        long tail = lruTails[c];
+        putLong(address, PREV, tail);
+        putLong(address, NEXT, 0);
+        if (tail == 0) {
+            lruHeads[c] = address;
+        } else {
+            putLong(tail, NEXT, address);
+        }
+        lruTails[c] = address;
+    }
+
+    private void resizeTable() {
+        ByteBuffer oldTable = table;
+        int oldBuckets = tableMask + 1;
+        table = ByteBuffer.allocateDirect(oldBuckets * 2 * 8);
+        tableMask = oldBuckets * 2 - 1;
+        for (int i = 0; i < oldBuckets; i++) {
+            long address = oldTable.getLong(i << 3);
+            while (address != 0) {
+                long next = getLong(address, CHAIN);
+                int bucket = (getInt(address, HASH) & tableMask) << 3;
+                putLong(address, CHAIN, table.getLong(bucket));
+                table.putLong(bucket, address);
+                address = next;
+            }
+        }
+        BufferCleaner.release(oldTable);
+    }
+
+    private void checkClosed() {
+        if (closed) {
+            throw new IllegalStateException("cache is closed");
+        }
+    }
+
+    private Object get(Object key, long now) {
+        byte[] keyBytes = keyBytes(key);
+        long address = find(keyBytes, hash(keyBytes));
+        if (address == 0) {
+            return null;
+        }
+        long expireTime = getLong(address, EXPIRE_TIME);
+        if (now >= expireTime + staleTtlInMillis) {
+            free(address);
+            return null;
+        }
+        int c = classOf(address);
+        unlinkLru(address, c);
+        linkLruTail(address, c);
+        CacheValueHolder holder = (CacheValueHolder) valueDecoder.apply(
+                readBytes(address, HEADER + keyBytes.length, getInt(address, VALUE_LENGTH)));
+        if (expireAfterAccess && now < expireTime) {
+            // the holder is a copy, so renew the expire time stored off heap
+            expireTime = now + holder.getInitTtlInMillis();
+            putLong(address, EXPIRE_TIME, expireTime);
+        }
+        holder.setExpireTime(expireTime);
+        return holder;
+    }
+
+    private boolean put(Object key, Object value, boolean onlyIfAbsent) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        long old = find(keyBytes, hash);
+        if (old != 0) {
+            if (onlyIfAbsent && clock.currentTimeMillis() < getLong(old, EXPIRE_TIME) + staleTtlInMillis) {
+                return false;
+            }
+            free(old);
+        }
+        ValueHolder holder = (ValueHolder) value;
+        byte[] valueBytes = valueEncoder.apply(CompactValueHolder.toCacheValueHolder(holder));
+        int size = HEADER + keyBytes.length + valueBytes.length;
+        if (size > slabSize) {
+            return false;
+        }
+        long address = allocate(classOf(size));
+        if (address == 0) {
+            return false;
+        }
+        putInt(address, HASH, hash);
+        putInt(address, KEY_LENGTH, keyBytes.length);
+        putInt(address, VALUE_LENGTH, valueBytes.length);
+        putLong(address, EXPIRE_TIME, holder.getExpireTime());
+        writeBytes(address, HEADER, keyBytes);
+        writeBytes(address, HEADER + keyBytes.length, valueBytes);
+        putInt(address, CHECKSUM, channel == null ? 0 : checksum(keyBytes, valueBytes));
+        // commit
+        putInt(address, STATE, STATE_USED);
+        link(address, hash, classOf(size));
+        return true;
+    }
+
+    private void link(long address, int hash, int c) {
+        int bucket = (hash & tableMask) << 3;
+        putLong(address, CHAIN, table.getLong(bucket));
+        table.putLong(bucket, address);
+        linkLruTail(address, c);
+        count++;
+        if (count > (tableMask + 1) * 3 / 4) {
+            resizeTable();
+        }
+    }
+
+    private boolean remove(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        long address = find(keyBytes, hash(keyBytes));
+        if (address == 0) {
+            return false;
+        }
+        free(address);
+        return true;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized long offHeapBytes() {
+        return closed ? 0 : (long) slabCount * slabSize + table.capacity();
+    }
+
+    /**
+     * Entries are expired lazily on get and evicted by LRU, so the full scan runs once a minute only.
+     */
+    synchronized void cleanExpiredEntry() {
+        if (closed) {
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        if (now - lastScanTime < SCAN_INTERVAL) {
+            return;
+        }
+        lastScanTime = now;
+        for (int c = 0; c < lruHeads.length; c++) {
+            long address = lruHeads[c];
+            while (address != 0) {
+                long next = getLong(address, NEXT);
+                if (now >= getLong(address, EXPIRE_TIME) + staleTtlInMillis) {
+                    free(address);
+                }
+                address = next;
+            }
+        }
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < slabCount; i++) {
+            if (channel != null) {
+                ((MappedByteBuffer) slabs[i]).force();
+            }
+            BufferCleaner.release(slabs[i]);
+            slabs[i] = null;
+        }
+        BufferCleaner.release(table);
+        count = 0;
+        if (channel != null) {
+            fileHeader.force();
+            BufferCleaner.release(fileHeader);
+            try {
+                fileLock.release();
+                channel.close();
+            } catch (IOException e) {
+                throw new CacheException("close file fail", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Object getValue(Object key) {
+        checkClosed();
+        return get(key, clock.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized Map getAllValues(Collection keys) {
+        checkClosed();
+        long now = clock.currentTimeMillis();
+        Map values = new HashMap();
+        for (Object key : keys) {
+            Object v = get(key, now);
+            if (v != null) {
+                values.put(key, v);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putValue(Object key, Object value) {
+        tryPutValue(key, value);
+    }
+
+    @Override
+    public void putAllValues(Map map) {
+        tryPutAllValues(map);
+    }
+
+    /**
+     * @return false if the entry is larger than a slab and not stored
+     */
+    synchronized boolean tryPutValue(Object key, Object value) {
+        checkClosed();
+        return put(key, value, false);
+    }
+
+    /**
+     * @return count of the entries not stored
+     */
+    synchronized int tryPutAllValues(Map map) {
+        checkClosed();
+        int failCount = 0;
+        for (Object o : map.entrySet()) {
+            Map.Entry en = (Map.Entry) o;
+            if (!put(en.getKey(), en.getValue(), false)) {
+                failCount++;
+            }
+        }
+        return failCount;
+    }
+
+    @Override
+    public synchronized boolean removeValue(Object key) {
+        checkClosed();
+        return remove(key);
+    }
+
+    @Override
+    public synchronized boolean putIfAbsentValue(Object key, Object value) {
+        checkClosed();
+        return put(key, value, true);
+    }
+
+    @Override
+    public synchronized void removeAllValues(Collection keys) {
+        checkClosed();
+        for (Object key : keys) {
+            remove(key);
+        }
+    }
+}
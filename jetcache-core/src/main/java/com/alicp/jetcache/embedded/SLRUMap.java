@@ -0,0 +1,307 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+import com.alicp.jetcache.support.Clock;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * InnerMap of LinkedHashMapCache for the SLRU and TINY_LFU eviction policies.
+ * New entries enter the probation segment and are promoted to the protected segment on hit.
+ * With an admission sketch, new entries enter a small LRU window first, an entry leaving the window
+ * replaces the eldest probation entry only if its estimated frequency is higher, otherwise it is dropped.
+ * Created on 2017/5/29.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class SLRUMap implements InnerMap {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    static final class Node {
+        final Object key;
+        Object value;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    static final class Queue {
+        final Node head = new Node(null, null);
+        int size;
+
+        Queue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node first() {
+            return head.next == head ? null : head.next;
+        }
+
+        void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+    }
+
+    private final HashMap<Object, Node> data;
+    private final Queue[] queues = {new Queue(), new Queue(), new Queue()};
+    private final int max;
+    private final int maxWindow;
+    private final int maxProtected;
+    private final FrequencySketch sketch;
+    private final long staleTtlInMillis;
+    private final Clock clock;
+    private final TimerWheel timerWheel;
+    private final Object lock;
+    private final BiConsumer<Object, Object> evictionListener;
+
+    /**
+     * @param admission use a LRU window and a frequency sketch (W-TinyLFU), or a plain SLRU
+     * @param lock null means the map itself
+     * @param evictionListener called with the evicted entries in the lock, may be null
+     */
+    SLRUMap(int max, EmbeddedCacheConfig config, Object lock, boolean admission,
+            BiConsumer<Object, Object> evictionListener) {
+        this.max = max;
+        this.data = new HashMap<>((int) (max * 1.4f));
+        if (admission) {
+            this.maxWindow = Math.max(1, max / 100);
+            this.sketch = new FrequencySketch(max);
+        } else {
+            this.maxWindow = 0;
+            this.sketch = null;
+        }
+        this.maxProtected = (max - maxWindow) * 8 / 10;
+        this.staleTtlInMillis = config.getStaleTtlInMillis();
+        this.clock = config.getClock();
+        this.timerWheel = new TimerWheel(clock.currentTimeMillis(), this::expire);
+        this.lock = lock == null ? this : lock;
+        this.evictionListener = evictionListener;
+    }
+
+    private void moveTo(Node node, int queue) {
+        queues[node.queue].remove(node);
+        node.queue = queue;
+        queues[queue].addLast(node);
+    }
+
+    private Node get(Object key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        Node node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.queue == PROBATION) {
+            moveTo(node, PROTECTED);
+            Queue protectedQueue = queues[PROTECTED];
+            if (protectedQueue.size > maxProtected) {
+                moveTo(protectedQueue.first(), PROBATION);
+            }
+        } else {
+            moveTo(node, node.queue);
+        }
+        return node;
+    }
+
+    private void put(Object key, Object value) {
+        Node node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            schedule(key, value);
+            get(key);
+            return;
+        }
+        schedule(key, value);
+        node = new Node(key, value);
+        data.put(key, node);
+        if (sketch == null) {
+            node.queue = PROBATION;
+            queues[PROBATION].addLast(node);
+        } else {
+            sketch.increment(key);
+            node.queue = WINDOW;
+            queues[WINDOW].addLast(node);
+            admit();
+        }
+        while (data.size() > max) {
+            Node victim = victim();
+            if (victim == null) {
+                victim = queues[WINDOW].first();
+            }
+            evict(victim);
+        }
+    }
+
+    // move the entries overflowing the window to the probation segment if they win the victims
+    private void admit() {
+        Queue window = queues[WINDOW];
+        while (window.size > maxWindow) {
+            Node candidate = window.first();
+            if (data.size() > max) {
+                Node victim = victim();
+                if (victim != null && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    evict(candidate);
+                    continue;
+                }
+                if (victim != null) {
+                    evict(victim);
+                }
+            }
+            moveTo(candidate, PROBATION);
+        }
+    }
+
+    private Node victim() {
+        Node victim = queues[PROBATION].first();
+        return victim != null ? victim : queues[PROTECTED].first();
+    }
+
+    private void remove(Node node) {
+        data.remove(node.key);
+        queues[node.queue].remove(node);
+        timerWheel.deschedule(node.key);
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        if (evictionListener != null) {
+            evictionListener.accept(node.key, node.value);
+        }
+    }
+
+    private void schedule(Object key, Object value) {
+        if (value instanceof ValueHolder) {
+            timerWheel.schedule(key, value, TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis));
+        }
+    }
+
+    private long expire(Object key, Object value, long now) {
+        long time = TimerWheel.dueTime((ValueHolder) value, staleTtlInMillis);
+        if (time > now) {
+            return time;
+        }
+        Node node = data.get(key);
+        if (node != null && node.value == value) {
+            remove(node);
+        }
+        return 0;
+    }
+
+    private void afterWrite() {
+        timerWheel.advanceIfTicked(clock.currentTimeMillis());
+    }
+
+    int size() {
+        synchronized (lock) {
+            return data.size();
+        }
+    }
+
+    void cleanExpiredEntry() {
+        synchronized (lock) {
+            timerWheel.advance(clock.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public Object getValue(Object key) {
+        synchronized (lock) {
+            Node node = get(key);
+            return node == null ? null : node.value;
+        }
+    }
+
+    @Override
+    public Map getAllValues(Collection keys) {
+        Map values = new HashMap();
+        synchronized (lock) {
+            for (Object key : keys) {
+                Node node = get(key);
+                if (node != null) {
+                    values.put(key, node.value);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putValue(Object key, Object value) {
+        synchronized (lock) {
+            put(key, value);
+            afterWrite();
+        }
+    }
+
+    @Override
+    public void putAllValues(Map map) {
+        synchronized (lock) {
+            for (Object o : map.entrySet()) {
+                Map.Entry en = (Map.Entry) o;
+                put(en.getKey(), en.getValue());
+            }
+            afterWrite();
+        }
+    }
+
+    @Override
+    public boolean removeValue(Object key) {
+        synchronized (lock) {
+            Node node = data.get(key);
+            if (node == null) {
+                return false;
+            }
+            remove(node);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean putIfAbsentValue(Object key, Object value) {
+        synchronized (lock) {
+            if (data.containsKey(key)) {
+                return false;
+            }
+            put(key, value);
+            afterWrite();
+            return true;
+        }
+    }
+
+    @Override
+    public void removeAllValues(Collection keys) {
+        synchronized (lock) {
+            for (Object key : keys) {
+                Node node = data.get(key);
+                if (node != null) {
+                    remove(node);
+                }
+            }
+        }
+    }
+}
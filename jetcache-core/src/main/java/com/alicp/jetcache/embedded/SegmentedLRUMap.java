@@ -0,0 +1,125 @@
+package com.alicp.jetcache.embedded;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * InnerMap of LinkedHashMapCache which hashes keys across independently locked segments.
+ * Each segment holds limit/segmentCount entries at most and evicts by the configured eviction policy.
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class SegmentedLRUMap implements InnerMap {
+
+    private final InnerMap[] segments;
+    private final int mask;
+
+    SegmentedLRUMap(EmbeddedCacheConfig config, BiConsumer<Object, Object> evictionListener) {
+        int count = 1;
+        while (count < config.getSegmentCount()) {
+            count <<= 1;
+        }
+        int max = Math.max(1, (config.getLimit() + count - 1) / count);
+        segments = new InnerMap[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = LinkedHashMapCache.createMap(max, config, null, evictionListener);
+        }
+        mask = count - 1;
+    }
+
+    private int segmentIndex(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private InnerMap segmentFor(Object key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private List[] splitKeys(Collection keys) {
+        List[] parts = new List[segments.length];
+        for (Object key : keys) {
+            int i = segmentIndex(key);
+            if (parts[i] == null) {
+                parts[i] = new ArrayList();
+            }
+            parts[i].add(key);
+        }
+        return parts;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    void cleanExpiredEntry() {
+        for (InnerMap segment : segments) {
+            LinkedHashMapCache.cleanExpiredEntry(segment);
+        }
+    }
+
+    @Override
+    public Object getValue(Object key) {
+        return segmentFor(key).getValue(key);
+    }
+
+    @Override
+    public Map getAllValues(Collection keys) {
+        Map values = new HashMap();
+        List[] parts = splitKeys(keys);
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] != null) {
+                values.putAll(segments[i].getAllValues(parts[i]));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putValue(Object key, Object value) {
+        segmentFor(key).putValue(key, value);
+    }
+
+    @Override
+    public void putAllValues(Map map) {
+        Map[] parts = new Map[segments.length];
+        for (Object o : map.entrySet()) {
+            Map.Entry en = (Map.Entry) o;
+            int i = segmentIndex(en.getKey());
+            if (parts[i] == null) {
+                parts[i] = new HashMap();
+            }
+            parts[i].put(en.getKey(), en.getValue());
+        }
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] != null) {
+                segments[i].putAllValues(parts[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeValue(Object key) {
+        return segmentFor(key).removeValue(key);
+    }
+
+    @Override
+    public boolean putIfAbsentValue(Object key, Object value) {
+        return segmentFor(key).putIfAbsentValue(key, value);
+    }
+
+    @Override
+    public void removeAllValues(Collection keys) {
+        List[] parts = splitKeys(keys);
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] != null) {
+                segments[i].removeAllValues(parts[i]);
+            }
+        }
+    }
+}
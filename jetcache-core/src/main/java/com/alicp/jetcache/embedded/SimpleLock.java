@@ -23,7 +23,7 @@ public class SimpleLock implements AutoReleaseLock {
     }
 
     public static SimpleLock tryLock(Cache cache, Object key, long expire, TimeUnit timeUnit) {
-        long expireTimestamp = System.currentTimeMillis() + timeUnit.toMillis(expire);
+        long expireTimestamp = cache.config().getClock().currentTimeMillis() + timeUnit.toMillis(expire);
         synchronized (cache) {
             Object fromCache = cache.get(key);
             if (fromCache == null) {
@@ -38,7 +38,7 @@ public class SimpleLock implements AutoReleaseLock {
 
     @Override
     public void close() {
-        long t = System.currentTimeMillis();
+        long t = cache.config().getClock().currentTimeMillis();
         if (t < expireTimestamp) {
             cache.remove(key);
         }
@@ -0,0 +1,191 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.ValueHolder;
+
+import java.util.HashMap;
+
+/**
+ * Hierarchical timing wheel to expire the entries of an inner map incrementally.
+ * Level 0 has 64 buckets of 1024ms, each higher level has 64 buckets which span a whole lower level.
+ * When the wheel advances, only the buckets passed by are visited, entries not due yet are moved to a lower level.
+ * The expirer checks the expire time again, so an entry renewed by expireAfterAccess is rescheduled.
+ * Not thread safe, guarded by the lock of the inner map.
+ * Created on 2017/5/30.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+class TimerWheel {
+
+    private static final int[] SHIFTS = {10, 16, 22, 28, 34};
+    private static final int BUCKETS = 64;
+    private static final int MASK = BUCKETS - 1;
+    private static final long MAX_DELAY = (1L << (SHIFTS[SHIFTS.length - 1] + 6)) - 1;
+
+    /**
+     * The time to remove the holder from the inner map.
+     */
+    static long dueTime(ValueHolder holder, long staleTtlInMillis) {
+        return holder.getExpireTime() + staleTtlInMillis;
+    }
+
+    interface Expirer {
+        /**
+         * Remove the entry from the inner map if the key is still mapped to the value and it is expired.
+         *
+         * @return the new expire time if the entry is not expired yet (renewed by access), or 0
+         */
+        long expire(Object key, Object value, long now);
+    }
+
+    static final class Node {
+        final Object key;
+        Object value;
+        long time;
+        Node prev;
+        Node next;
+
+        Node(Object key) {
+            this.key = key;
+        }
+    }
+
+    private final Node[][] wheel;
+    private final HashMap<Object, Node> index = new HashMap<>();
+    private final Expirer expirer;
+    private long currentTime;
+
+    TimerWheel(long now, Expirer expirer) {
+        this.currentTime = now;
+        this.expirer = expirer;
+        wheel = new Node[SHIFTS.length][BUCKETS];
+        for (Node[] level : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                Node sentinel = new Node(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[i] = sentinel;
+            }
+        }
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Schedule the expiration of the key, replace the previous schedule of the key.
+     */
+    void schedule(Object key, Object value, long time) {
+        Node node = index.get(key);
+        if (node == null) {
+            node = new Node(key);
+            index.put(key, node);
+        } else {
+            unlink(node);
+        }
+        node.value = value;
+        node.time = time;
+        link(node);
+    }
+
+    void deschedule(Object key) {
+        Node node = index.remove(key);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Cancel the schedule of the key only if it is scheduled with the value.
+     */
+    void deschedule(Object key, Object value) {
+        Node node = index.get(key);
+        if (node != null && node.value == value) {
+            index.remove(key);
+            unlink(node);
+        }
+    }
+
+    /**
+     * Advance only if the wheel passes a level 0 bucket, called on writes so the amortized cost is small.
+     */
+    void advanceIfTicked(long now) {
+        if ((now >>> SHIFTS[0]) != (currentTime >>> SHIFTS[0])) {
+            advance(now);
+        }
+    }
+
+    /**
+     * Expire the due entries in the buckets passed by since the last advance and in the current bucket.
+     */
+    void advance(long now) {
+        long prev = currentTime;
+        if (now < prev) {
+            now = prev;
+        }
+        currentTime = now;
+        for (int i = SHIFTS.length - 1; i >= 0; i--) {
+            long prevTicks = prev >>> SHIFTS[i];
+            long delta = (now >>> SHIFTS[i]) - prevTicks;
+            if (delta == 0 && i > 0) {
+                continue;
+            }
+            int count = (int) Math.min(delta + 1, BUCKETS);
+            for (int j = 0; j < count; j++) {
+                expireBucket(wheel[i][(int) ((prevTicks + j) & MASK)], now);
+            }
+        }
+    }
+
+    private void expireBucket(Node sentinel, long now) {
+        if (sentinel.next == sentinel) {
+            return;
+        }
+        // detach the list first, the entries not due may be linked back to the same bucket
+        Node node = sentinel.next;
+        sentinel.prev.next = null;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        while (node != null) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.time <= now) {
+                long time = expirer.expire(node.key, node.value, now);
+                if (time > now) {
+                    node.time = time;
+                    link(node);
+                } else if (index.get(node.key) == node) {
+                    index.remove(node.key);
+                }
+            } else {
+                link(node);
+            }
+            node = next;
+        }
+    }
+
+    private void link(Node node) {
+        long time = Math.max(node.time, currentTime);
+        long delay = Math.min(time - currentTime, MAX_DELAY);
+        time = currentTime + delay;
+        int level = 0;
+        while (level < SHIFTS.length - 1 && delay >= (1L << (SHIFTS[level] + 6))) {
+            level++;
+        }
+        Node sentinel = wheel[level][(int) ((time >>> SHIFTS[level]) & MASK)];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+}
@@ -12,13 +12,20 @@ public class CacheLoadEvent extends CacheEvent {
     private final Object key;
     private final Object loadedValue;
     private final boolean success;
+    private final int coalescedCount;
 
     public CacheLoadEvent(Cache cache, long millis, Object key, Object loadedValue, boolean success) {
+        this(cache, millis, key, loadedValue, success, 0);
+    }
+
+    public CacheLoadEvent(Cache cache, long millis, Object key, Object loadedValue, boolean success,
+                          int coalescedCount) {
         super(cache);
         this.millis = millis;
         this.key = key;
         this.loadedValue = loadedValue;
         this.success = success;
+        this.coalescedCount = coalescedCount;
     }
 
     public long getMillis() {
@@ -36,4 +43,11 @@ public class CacheLoadEvent extends CacheEvent {
     public boolean isSuccess() {
         return success;
     }
+
+    /**
+     * @return how many other callers waited for this load instead of running the loader themselves
+     */
+    public int getCoalescedCount() {
+        return coalescedCount;
+    }
 }
@@ -0,0 +1,53 @@
+package com.alicp.jetcache.event;
+
+import com.alicp.jetcache.Cache;
+
+/**
+ * Fired when computeIfAbsent uses the cluster-wide loader lock (distributed penetration protect).
+ * Created on 2017/5/23.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CacheLoaderLockEvent extends CacheEvent {
+
+    public enum Result {
+        /**
+         * this node got the lock and ran the loader.
+         */
+        WIN,
+        /**
+         * another node held the lock, and this node read the value it loaded.
+         */
+        WAIT,
+        /**
+         * the value didn't appear in time, this node ran the loader itself.
+         */
+        TIMEOUT
+    }
+
+    private final long millis;
+    private final Object key;
+    private final Result result;
+
+    public CacheLoaderLockEvent(Cache cache, long millis, Object key, Result result) {
+        super(cache);
+        this.millis = millis;
+        this.key = key;
+        this.result = result;
+    }
+
+    /**
+     * @return time spent on acquiring the lock or waiting for the value, not including the load
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package com.alicp.jetcache.event;
+
+import com.alicp.jetcache.Cache;
+
+/**
+ * Fired when LinkedHashMapCache misses in heap and looks up its disk overflow tier.
+ * Created on 2017/6/2.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CacheOverflowGetEvent extends CacheEvent {
+
+    private final long nanos;
+    private final Object key;
+    private final boolean hit;
+
+    public CacheOverflowGetEvent(Cache cache, long nanos, Object key, boolean hit) {
+        super(cache);
+        this.nanos = nanos;
+        this.key = key;
+        this.hit = hit;
+    }
+
+    /**
+     * @return time spent on the disk lookup in nanoseconds, a disk read is usually far less than a millisecond
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the key after conversion by the keyConvertor
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    public boolean isHit() {
+        return hit;
+    }
+}
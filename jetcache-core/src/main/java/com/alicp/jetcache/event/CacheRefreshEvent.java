@@ -0,0 +1,33 @@
+package com.alicp.jetcache.event;
+
+import com.alicp.jetcache.Cache;
+
+/**
+ * Created on 2017/5/25.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CacheRefreshEvent extends CacheEvent {
+    private final long millis;
+    private final Object key;
+    private final boolean success;
+
+    public CacheRefreshEvent(Cache cache, long millis, Object key, boolean success) {
+        super(cache);
+        this.millis = millis;
+        this.key = key;
+        this.success = success;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
@@ -0,0 +1,45 @@
+package com.alicp.jetcache.event;
+
+import com.alicp.jetcache.Cache;
+
+/**
+ * Fired when the write behind queue of MultiLevelCache is flushed to the remote cache, or when remote writes
+ * are discarded because the queue is full.
+ * Created on 2017/6/6.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CacheWriteBehindEvent extends CacheEvent {
+
+    private final long millis;
+    private final int writeCount;
+    private final int failCount;
+    private final int discardCount;
+
+    public CacheWriteBehindEvent(Cache cache, long millis, int writeCount, int failCount, int discardCount) {
+        super(cache);
+        this.millis = millis;
+        this.writeCount = writeCount;
+        this.failCount = failCount;
+        this.discardCount = discardCount;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return count of the puts and removes written by the flush, including the failed ones
+     */
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public int getDiscardCount() {
+        return discardCount;
+    }
+}
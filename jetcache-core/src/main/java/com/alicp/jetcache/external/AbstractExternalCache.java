@@ -3,8 +3,10 @@ package com.alicp.jetcache.external;
 import com.alicp.jetcache.AbstractCache;
 import com.alicp.jetcache.CacheConfigException;
 import com.alicp.jetcache.CacheException;
+import com.alicp.jetcache.support.JetCacheExecutor;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /**
  * Created on 2016/10/8.
@@ -14,6 +16,7 @@ import java.io.IOException;
 public abstract class AbstractExternalCache<K, V> extends AbstractCache<K, V> {
 
     private ExternalCacheConfig config;
+    private Executor asyncExecutor;
 
     public AbstractExternalCache(ExternalCacheConfig config) {
         this.config = config;
@@ -23,6 +26,18 @@ public abstract class AbstractExternalCache<K, V> extends AbstractCache<K, V> {
         if (config.getValueDecoder() == null) {
             throw new CacheConfigException("no value decoder");
         }
+        asyncExecutor = config.getAsyncExecutor();
+        if (asyncExecutor == null) {
+            asyncExecutor = JetCacheExecutor.asyncExecutor();
+        }
+    }
+
+    /**
+     * The executor used by the *_ASYNC operations to run blocking client calls off the caller thread, it's
+     * JetCacheExecutor.asyncExecutor() unless asyncExecutor is configured.
+     */
+    protected Executor asyncExecutor() {
+        return asyncExecutor;
     }
 
     protected byte[] buildKey(Object key) {
@@ -2,6 +2,7 @@ package com.alicp.jetcache.external;
 
 import com.alicp.jetcache.AbstractCacheBuilder;
 
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 /**
@@ -34,6 +35,11 @@ public abstract class ExternalCacheBuilder<T extends ExternalCacheBuilder<T>> ex
         return self();
     }
 
+    public T asyncExecutor(Executor asyncExecutor){
+        getConfig().setAsyncExecutor(asyncExecutor);
+        return self();
+    }
+
     public void setKeyPrefix(String keyPrefix){
         getConfig().setKeyPrefix(keyPrefix);
     }
@@ -45,4 +51,8 @@ public abstract class ExternalCacheBuilder<T extends ExternalCacheBuilder<T>> ex
     public void setValueDecoder(Function<byte[], Object> valueDecoder){
         getConfig().setValueDecoder(valueDecoder);
     }
+
+    public void setAsyncExecutor(Executor asyncExecutor){
+        getConfig().setAsyncExecutor(asyncExecutor);
+    }
 }
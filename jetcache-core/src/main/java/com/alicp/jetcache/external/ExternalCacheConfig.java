@@ -4,6 +4,7 @@ import com.alicp.jetcache.CacheConfig;
 import com.alicp.jetcache.support.JavaValueDecoder;
 import com.alicp.jetcache.support.JavaValueEncoder;
 
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 /**
@@ -15,6 +16,7 @@ public class ExternalCacheConfig extends CacheConfig {
     private String keyPrefix;
     private Function<Object, byte[]> valueEncoder = JavaValueEncoder.INSTANCE;
     private Function<byte[], Object> valueDecoder = JavaValueDecoder.INSTANCE;
+    private Executor asyncExecutor;
 
     public String getKeyPrefix() {
         return keyPrefix;
@@ -39,4 +41,12 @@ public class ExternalCacheConfig extends CacheConfig {
     public void setValueDecoder(Function<byte[], Object> valueDecoder) {
         this.valueDecoder = valueDecoder;
     }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
 }
@@ -47,6 +47,31 @@ public class CacheStat implements Serializable, Cloneable {
     protected long minLoadTime = Long.MAX_VALUE;
     protected long maxLoadTime = 0;
 
+    protected long refreshCount;
+    protected long refreshFailCount;
+    protected long refreshTimeSum;
+    protected long maxRefreshTime = 0;
+
+    protected long loaderLockWinCount;
+    protected long loaderLockWaitCount;
+    protected long loaderLockTimeoutCount;
+
+    protected long offHeapBytes;
+
+    protected long diskGetCount;
+    protected long diskHitCount;
+    protected long diskMissCount;
+    // in nanoseconds
+    protected long diskGetTimeSum;
+    protected long maxDiskGetTime = 0;
+
+    protected long writeBehindFlushCount;
+    protected long writeBehindCount;
+    protected long writeBehindFailCount;
+    protected long writeBehindDiscardCount;
+    protected long writeBehindTimeSum;
+    protected long maxWriteBehindTime = 0;
+
     @Override
     public CacheStat clone() {
         try {
@@ -92,6 +117,41 @@ public class CacheStat implements Serializable, Cloneable {
         return 1.0 * getHitCount / getCount;
     }
 
+    public double diskQps() {
+        return tps(diskGetCount);
+    }
+
+    public double diskHitRate() {
+        if (diskGetCount == 0) {
+            return 0;
+        }
+        return 1.0 * diskHitCount / diskGetCount;
+    }
+
+    /**
+     * @return average time of the disk overflow lookups in milliseconds
+     */
+    public double avgDiskGetTime() {
+        if (diskGetCount == 0) {
+            return 0;
+        }
+        return diskGetTimeSum / 1000000.0 / diskGetCount;
+    }
+
+    public double writeBehindTps() {
+        return tps(writeBehindCount);
+    }
+
+    /**
+     * @return average time of the write behind flushes in milliseconds
+     */
+    public double avgWriteBehindTime() {
+        if (writeBehindFlushCount == 0) {
+            return 0;
+        }
+        return 1.0 * writeBehindTimeSum / writeBehindFlushCount;
+    }
+
     public double avgGetTime() {
         if (getCount == 0) {
             return 0;
@@ -120,6 +180,13 @@ public class CacheStat implements Serializable, Cloneable {
         return 1.0 * loadTimeSum / loadCount;
     }
 
+    public double avgRefreshTime() {
+        if (refreshCount == 0) {
+            return 0;
+        }
+        return 1.0 * refreshTimeSum / refreshCount;
+    }
+
     //---------------------------------------------------------------------
 
 
@@ -354,4 +421,156 @@ public class CacheStat implements Serializable, Cloneable {
     public void setCacheName(String cacheName) {
         this.cacheName = cacheName;
     }
+
+    public long getLoaderLockWinCount() {
+        return loaderLockWinCount;
+    }
+
+    public void setLoaderLockWinCount(long loaderLockWinCount) {
+        this.loaderLockWinCount = loaderLockWinCount;
+    }
+
+    public long getLoaderLockWaitCount() {
+        return loaderLockWaitCount;
+    }
+
+    public void setLoaderLockWaitCount(long loaderLockWaitCount) {
+        this.loaderLockWaitCount = loaderLockWaitCount;
+    }
+
+    public long getLoaderLockTimeoutCount() {
+        return loaderLockTimeoutCount;
+    }
+
+    public void setLoaderLockTimeoutCount(long loaderLockTimeoutCount) {
+        this.loaderLockTimeoutCount = loaderLockTimeoutCount;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public void setRefreshCount(long refreshCount) {
+        this.refreshCount = refreshCount;
+    }
+
+    public long getRefreshFailCount() {
+        return refreshFailCount;
+    }
+
+    public void setRefreshFailCount(long refreshFailCount) {
+        this.refreshFailCount = refreshFailCount;
+    }
+
+    public long getRefreshTimeSum() {
+        return refreshTimeSum;
+    }
+
+    public void setRefreshTimeSum(long refreshTimeSum) {
+        this.refreshTimeSum = refreshTimeSum;
+    }
+
+    public long getMaxRefreshTime() {
+        return maxRefreshTime;
+    }
+
+    public void setMaxRefreshTime(long maxRefreshTime) {
+        this.maxRefreshTime = maxRefreshTime;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public void setOffHeapBytes(long offHeapBytes) {
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    public long getDiskGetCount() {
+        return diskGetCount;
+    }
+
+    public void setDiskGetCount(long diskGetCount) {
+        this.diskGetCount = diskGetCount;
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    public void setDiskHitCount(long diskHitCount) {
+        this.diskHitCount = diskHitCount;
+    }
+
+    public long getDiskMissCount() {
+        return diskMissCount;
+    }
+
+    public void setDiskMissCount(long diskMissCount) {
+        this.diskMissCount = diskMissCount;
+    }
+
+    public long getDiskGetTimeSum() {
+        return diskGetTimeSum;
+    }
+
+    public void setDiskGetTimeSum(long diskGetTimeSum) {
+        this.diskGetTimeSum = diskGetTimeSum;
+    }
+
+    public long getMaxDiskGetTime() {
+        return maxDiskGetTime;
+    }
+
+    public void setMaxDiskGetTime(long maxDiskGetTime) {
+        this.maxDiskGetTime = maxDiskGetTime;
+    }
+
+    public long getWriteBehindFlushCount() {
+        return writeBehindFlushCount;
+    }
+
+    public void setWriteBehindFlushCount(long writeBehindFlushCount) {
+        this.writeBehindFlushCount = writeBehindFlushCount;
+    }
+
+    public long getWriteBehindCount() {
+        return writeBehindCount;
+    }
+
+    public void setWriteBehindCount(long writeBehindCount) {
+        this.writeBehindCount = writeBehindCount;
+    }
+
+    public long getWriteBehindFailCount() {
+        return writeBehindFailCount;
+    }
+
+    public void setWriteBehindFailCount(long writeBehindFailCount) {
+        this.writeBehindFailCount = writeBehindFailCount;
+    }
+
+    public long getWriteBehindDiscardCount() {
+        return writeBehindDiscardCount;
+    }
+
+    public void setWriteBehindDiscardCount(long writeBehindDiscardCount) {
+        this.writeBehindDiscardCount = writeBehindDiscardCount;
+    }
+
+    public long getWriteBehindTimeSum() {
+        return writeBehindTimeSum;
+    }
+
+    public void setWriteBehindTimeSum(long writeBehindTimeSum) {
+        this.writeBehindTimeSum = writeBehindTimeSum;
+    }
+
+    public long getMaxWriteBehindTime() {
+        return maxWriteBehindTime;
+    }
+
+    public void setMaxWriteBehindTime(long maxWriteBehindTime) {
+        this.maxWriteBehindTime = maxWriteBehindTime;
+    }
 }
@@ -0,0 +1,70 @@
+package com.alicp.jetcache.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coarse-grained clock, a daemon thread updates the current time every tick, so reading it is
+ * only a volatile read. The time may be behind the wall clock for at most one tick.
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CachedClock implements Clock, AutoCloseable {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static volatile CachedClock defaultInstance;
+
+    private final long tickNanos;
+    private final Thread ticker;
+    private volatile long now;
+    private volatile boolean closed;
+
+    public CachedClock(long tick, TimeUnit timeUnit) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("tick:" + tick);
+        }
+        this.tickNanos = timeUnit.toNanos(tick);
+        this.now = System.currentTimeMillis();
+        this.ticker = new Thread(this::tick, "JetCacheClock-" + threadCount.incrementAndGet());
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * @return the shared clock which ticks every millisecond
+     */
+    public static CachedClock getInstance() {
+        if (defaultInstance == null) {
+            synchronized (CachedClock.class) {
+                if (defaultInstance == null) {
+                    defaultInstance = new CachedClock(1, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    private void tick() {
+        while (!closed) {
+            now = System.currentTimeMillis();
+            LockSupport.parkNanos(this, tickNanos);
+        }
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void close() {
+        if (this == defaultInstance) {
+            throw new IllegalStateException("the shared clock can't be closed");
+        }
+        closed = true;
+        LockSupport.unpark(ticker);
+    }
+}
@@ -0,0 +1,28 @@
+package com.alicp.jetcache.support;
+
+/**
+ * The time source of caches, set by {@link com.alicp.jetcache.CacheConfig#setClock(Clock)}.
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ * @see SystemClock
+ * @see CachedClock
+ */
+public interface Clock {
+
+    /**
+     * @return the wall clock time in millis, used by expire time of the entries
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return a monotonic time in nanos, used to measure the elapsed time of operations
+     */
+    default long nanoTime() {
+        return System.nanoTime();
+    }
+
+    static Clock systemClock() {
+        return SystemClock.INSTANCE;
+    }
+}
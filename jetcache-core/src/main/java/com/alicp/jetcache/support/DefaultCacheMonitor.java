@@ -1,5 +1,6 @@
 package com.alicp.jetcache.support;
 
+import com.alicp.jetcache.Cache;
 import com.alicp.jetcache.CacheGetResult;
 import com.alicp.jetcache.CacheMonitor;
 import com.alicp.jetcache.CacheResult;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.LongSupplier;
 
 /**
  * Created on 2016/10/27.
@@ -22,6 +24,7 @@ public class DefaultCacheMonitor implements CacheMonitor {
 
     protected CacheStat cacheStat;
     private String cacheName;
+    private LongSupplier offHeapBytesSupplier;
 
     public DefaultCacheMonitor(String cacheName) {
         if (cacheName == null) {
@@ -44,9 +47,19 @@ public class DefaultCacheMonitor implements CacheMonitor {
     public synchronized CacheStat getCacheStat() {
         CacheStat stat = cacheStat.clone();
         stat.setStatEndTime(System.currentTimeMillis());
+        if (offHeapBytesSupplier != null) {
+            stat.setOffHeapBytes(offHeapBytesSupplier.getAsLong());
+        }
         return stat;
     }
 
+    /**
+     * Report the off heap footprint of the cache in the stat, such as OffHeapCache::offHeapBytes.
+     */
+    public void setOffHeapBytesSupplier(LongSupplier offHeapBytesSupplier) {
+        this.offHeapBytesSupplier = offHeapBytesSupplier;
+    }
+
     @Override
     public synchronized void afterOperation(CacheEvent event) {
         if (event instanceof CacheGetEvent) {
@@ -70,15 +83,37 @@ public class DefaultCacheMonitor implements CacheMonitor {
         } else if (event instanceof CacheRemoveAllEvent) {
             CacheRemoveAllEvent e = (CacheRemoveAllEvent) event;
             afterRemoveAll(e.getMillis(), e.getKeys(), e.getResult());
+        } else if (event instanceof CacheRefreshEvent) {
+            CacheRefreshEvent e = (CacheRefreshEvent) event;
+            afterRefresh(e.getMillis(), e.isSuccess());
+        } else if (event instanceof CacheLoaderLockEvent) {
+            CacheLoaderLockEvent e = (CacheLoaderLockEvent) event;
+            afterLoaderLock(e.getResult());
+        } else if (event instanceof CacheOverflowGetEvent) {
+            CacheOverflowGetEvent e = (CacheOverflowGetEvent) event;
+            afterOverflowGet(e.getNanos(), e.isHit());
+        } else if (event instanceof CacheWriteBehindEvent) {
+            CacheWriteBehindEvent e = (CacheWriteBehindEvent) event;
+            afterWriteBehind(e.getMillis(), e.getWriteCount(), e.getFailCount(), e.getDiscardCount());
         }
     }
 
+    @Override
+    public synchronized void afterGetHit(Cache cache, long millis, Object key, Object value) {
+        recordGetTime(millis);
+        cacheStat.getHitCount++;
+    }
+
     private void afterGet(long millis, Object key, CacheGetResult result) {
+        recordGetTime(millis);
+        parseSingleGet(result);
+    }
+
+    private void recordGetTime(long millis) {
         cacheStat.minGetTime = Math.min(cacheStat.minGetTime, millis);
         cacheStat.maxGetTime = Math.max(cacheStat.maxGetTime, millis);
         cacheStat.getTimeSum += millis;
         cacheStat.getCount++;
-        parseSingleGet(result);
     }
 
     private void parseSingleGet(CacheGetResult result) {
@@ -148,6 +183,53 @@ public class DefaultCacheMonitor implements CacheMonitor {
         }
     }
 
+    private void afterRefresh(long millis, boolean success) {
+        cacheStat.maxRefreshTime = Math.max(cacheStat.maxRefreshTime, millis);
+        cacheStat.refreshTimeSum += millis;
+        cacheStat.refreshCount++;
+        if (!success) {
+            cacheStat.refreshFailCount++;
+        }
+    }
+
+    private void afterLoaderLock(CacheLoaderLockEvent.Result result) {
+        switch (result) {
+            case WIN:
+                cacheStat.loaderLockWinCount++;
+                break;
+            case WAIT:
+                cacheStat.loaderLockWaitCount++;
+                break;
+            case TIMEOUT:
+                cacheStat.loaderLockTimeoutCount++;
+                break;
+            default:
+                logger.warn("jetcache loader lock return unexpected result: " + result);
+        }
+    }
+
+    private void afterOverflowGet(long nanos, boolean hit) {
+        cacheStat.maxDiskGetTime = Math.max(cacheStat.maxDiskGetTime, nanos);
+        cacheStat.diskGetTimeSum += nanos;
+        cacheStat.diskGetCount++;
+        if (hit) {
+            cacheStat.diskHitCount++;
+        } else {
+            cacheStat.diskMissCount++;
+        }
+    }
+
+    private void afterWriteBehind(long millis, int writeCount, int failCount, int discardCount) {
+        if (writeCount > 0) {
+            cacheStat.maxWriteBehindTime = Math.max(cacheStat.maxWriteBehindTime, millis);
+            cacheStat.writeBehindTimeSum += millis;
+            cacheStat.writeBehindFlushCount++;
+            cacheStat.writeBehindCount += writeCount;
+            cacheStat.writeBehindFailCount += failCount;
+        }
+        cacheStat.writeBehindDiscardCount += discardCount;
+    }
+
     private void afterGetAll(long millis, Set keys, MultiGetResult result) {
         if (keys == null) {
             return;
@@ -0,0 +1,188 @@
+package com.alicp.jetcache.support;
+
+import com.alicp.jetcache.CacheConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the keys written on this node to the other nodes, and evicts the keys written by other nodes
+ * from the local caches registered here. The keys are collected for batchDelayInMillis (or until
+ * maxBatchSize keys are pending) and published in one message per cache.
+ * The keys are sent as they are passed to the cache, they must be encodable by the channel.
+ * The received keys are evicted in invalidateExecutor, so the thread of the channel is not blocked.
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class InvalidationBroadcaster implements AutoCloseable {
+
+    private static Logger logger = LoggerFactory.getLogger(InvalidationBroadcaster.class);
+
+    private final String sourceId = UUID.randomUUID().toString();
+    private final InvalidationChannel channel;
+    private final ConcurrentHashMap<String, Consumer<Set<Object>>> invalidators = new ConcurrentHashMap<>();
+
+    private long batchDelayInMillis = 10;
+    private int maxBatchSize = 1000;
+    private Executor invalidateExecutor = JetCacheExecutor.asyncExecutor();
+
+    // guarded by this
+    private Map<String, Set<Object>> pending = new HashMap<>();
+    private int pendingCount;
+    private boolean flushScheduled;
+    private volatile boolean closed;
+
+    public InvalidationBroadcaster(InvalidationChannel channel) {
+        this.channel = channel;
+        channel.subscribe(this::onMessage);
+    }
+
+    /**
+     * @param cacheName   the same name on all nodes, unique in this broadcaster
+     * @param invalidator removes the keys from the local cache, called in invalidateExecutor
+     * @throws CacheConfigException if the name is already registered
+     */
+    public void register(String cacheName, Consumer<Set<Object>> invalidator) {
+        if (invalidators.putIfAbsent(cacheName, invalidator) != null) {
+            throw new CacheConfigException("invalidation name already registered: " + cacheName);
+        }
+    }
+
+    public void unregister(String cacheName) {
+        invalidators.remove(cacheName);
+    }
+
+    /**
+     * Unregister the name only if it's still bound to the invalidator.
+     */
+    public void unregister(String cacheName, Consumer<Set<Object>> invalidator) {
+        invalidators.remove(cacheName, invalidator);
+    }
+
+    public void invalidate(String cacheName, Collection<?> keys) {
+        if (closed || keys.isEmpty()) {
+            return;
+        }
+        Map<String, Set<Object>> batch = null;
+        synchronized (this) {
+            Set<Object> set = pending.computeIfAbsent(cacheName, k -> new HashSet<>());
+            int oldSize = set.size();
+            set.addAll(keys);
+            pendingCount += set.size() - oldSize;
+            if (pendingCount >= maxBatchSize) {
+                batch = drain();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                JetCacheExecutor.refreshExecutor().schedule(this::flush, batchDelayInMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            Map<String, Set<Object>> b = batch;
+            JetCacheExecutor.defaultExecutor().execute(() -> publish(b));
+        }
+    }
+
+    private Map<String, Set<Object>> drain() {
+        Map<String, Set<Object>> batch = pending;
+        pending = new HashMap<>();
+        pendingCount = 0;
+        return batch;
+    }
+
+    /**
+     * Publish the pending keys now.
+     */
+    public void flush() {
+        Map<String, Set<Object>> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pendingCount == 0) {
+                return;
+            }
+            batch = drain();
+        }
+        publish(batch);
+    }
+
+    private void publish(Map<String, Set<Object>> batch) {
+        for (Map.Entry<String, Set<Object>> en : batch.entrySet()) {
+            try {
+                channel.publish(new InvalidationMessage(sourceId, en.getKey(), en.getValue().toArray()));
+            } catch (Exception e) {
+                logger.error("jetcache publish invalidation error, cache=" + en.getKey(), e);
+            }
+        }
+    }
+
+    private void onMessage(InvalidationMessage message) {
+        if (closed || sourceId.equals(message.getSourceId())) {
+            return;
+        }
+        Consumer<Set<Object>> invalidator = invalidators.get(message.getCacheName());
+        if (invalidator == null || message.getKeys() == null) {
+            return;
+        }
+        Set<Object> keys = new HashSet<>(Arrays.asList(message.getKeys()));
+        Runnable task = () -> {
+            try {
+                invalidator.accept(keys);
+            } catch (Exception e) {
+                logger.error("jetcache invalidate error, cache=" + message.getCacheName(), e);
+            }
+        };
+        try {
+            invalidateExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // never drop an invalidation
+            task.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        channel.close();
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public long getBatchDelayInMillis() {
+        return batchDelayInMillis;
+    }
+
+    public void setBatchDelayInMillis(long batchDelayInMillis) {
+        this.batchDelayInMillis = batchDelayInMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Executor getInvalidateExecutor() {
+        return invalidateExecutor;
+    }
+
+    public void setInvalidateExecutor(Executor invalidateExecutor) {
+        this.invalidateExecutor = invalidateExecutor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.alicp.jetcache.support;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport of the local cache invalidations between nodes, see InvalidationBroadcaster.
+ * The delivery is best effort, a lost message leaves the stale entry in local cache until it expires.
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public interface InvalidationChannel {
+
+    void publish(InvalidationMessage message);
+
+    /**
+     * The listener receives the messages published by all nodes, including the current one.
+     */
+    void subscribe(Consumer<InvalidationMessage> listener);
+
+    void close();
+}
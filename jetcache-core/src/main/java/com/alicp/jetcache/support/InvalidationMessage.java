@@ -0,0 +1,53 @@
+package com.alicp.jetcache.support;
+
+import java.io.Serializable;
+
+/**
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class InvalidationMessage implements Serializable {
+
+    private static final long serialVersionUID = 6224127358291386017L;
+
+    private String sourceId;
+    private String cacheName;
+    private Object[] keys;
+
+    public InvalidationMessage() {
+    }
+
+    public InvalidationMessage(String sourceId, String cacheName, Object[] keys) {
+        this.sourceId = sourceId;
+        this.cacheName = cacheName;
+        this.keys = keys;
+    }
+
+    /**
+     * @return id of the publishing InvalidationBroadcaster, used to skip the messages of the node itself
+     */
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void setCacheName(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public Object[] getKeys() {
+        return keys;
+    }
+
+    public void setKeys(Object[] keys) {
+        this.keys = keys;
+    }
+}
@@ -0,0 +1,119 @@
+package com.alicp.jetcache.support;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on 2017/5/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class JetCacheExecutor {
+    protected static ExecutorService defaultExecutor;
+    protected static ScheduledExecutorService refreshExecutor;
+    protected static ExecutorService asyncExecutor;
+
+    private static int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static int asyncQueueSize = 10000;
+
+    public static ExecutorService defaultExecutor() {
+        if (defaultExecutor != null) {
+            return defaultExecutor;
+        }
+        synchronized (JetCacheExecutor.class) {
+            if (defaultExecutor == null) {
+                ThreadFactory tf = new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "JetCacheDefaultExecutor-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                };
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tf);
+                executor.allowCoreThreadTimeOut(true);
+                defaultExecutor = executor;
+            }
+        }
+        return defaultExecutor;
+    }
+
+    public static void setDefaultExecutor(ExecutorService executor) {
+        JetCacheExecutor.defaultExecutor = executor;
+    }
+
+    /**
+     * The executor which runs the background refresh of caches with a RefreshPolicy.
+     */
+    public static ScheduledExecutorService refreshExecutor() {
+        if (refreshExecutor != null) {
+            return refreshExecutor;
+        }
+        synchronized (JetCacheExecutor.class) {
+            if (refreshExecutor == null) {
+                ThreadFactory tf = new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "JetCacheRefreshExecutor-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                };
+                refreshExecutor = new ScheduledThreadPoolExecutor(threadCount, tf);
+            }
+        }
+        return refreshExecutor;
+    }
+
+    public static void setRefreshExecutor(ScheduledExecutorService executor) {
+        JetCacheExecutor.refreshExecutor = executor;
+    }
+
+    /**
+     * The default executor of the *_ASYNC operations of external caches, which run blocking client calls,
+     * and of the invalidations received by InvalidationBroadcaster.
+     * It's separated from the other executors and its queue is bounded, the tasks beyond the queue are rejected
+     * with RejectedExecutionException.
+     */
+    public static ExecutorService asyncExecutor() {
+        if (asyncExecutor != null) {
+            return asyncExecutor;
+        }
+        synchronized (JetCacheExecutor.class) {
+            if (asyncExecutor == null) {
+                ThreadFactory tf = new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "JetCacheAsyncExecutor-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                };
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                        60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(asyncQueueSize), tf,
+                        new ThreadPoolExecutor.AbortPolicy());
+                executor.allowCoreThreadTimeOut(true);
+                asyncExecutor = executor;
+            }
+        }
+        return asyncExecutor;
+    }
+
+    public static void setAsyncExecutor(ExecutorService executor) {
+        JetCacheExecutor.asyncExecutor = executor;
+    }
+}
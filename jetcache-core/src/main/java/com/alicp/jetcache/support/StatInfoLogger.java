@@ -111,7 +111,14 @@ public class StatInfoLogger implements Consumer<StatInfo> {
 
             printSepLine(sb, title);
 
-            sb.append(s.getCacheName()).append("(hit rate ").append(String.format("%.3f", s.hitRate() * 100)).append("%)").append('\n');
+            sb.append(s.getCacheName()).append("(hit rate ").append(String.format("%.3f", s.hitRate() * 100)).append("%");
+            if (s.getOffHeapBytes() > 0) {
+                sb.append(", off heap ").append(String.format("%,d", s.getOffHeapBytes())).append(" bytes");
+            }
+            if (s.getWriteBehindDiscardCount() > 0) {
+                sb.append(", write behind discarded ").append(String.format("%,d", s.getWriteBehindDiscardCount()));
+            }
+            sb.append(")\n");
             sb.append(title).append('\n');
 
             printSepLine(sb, title);
@@ -127,6 +134,19 @@ public class StatInfoLogger implements Consumer<StatInfo> {
             sb.append(String.format("%,7d", s.getMinGetTime() == Long.MAX_VALUE ? 0 : s.getMinGetTime())).append('|');
             sb.append(String.format("%,7d", s.getMaxGetTime())).append('\n');
 
+            if (s.getDiskGetCount() > 0) {
+                sb.append(String.format("%-10s", "disk get")).append('|');
+                sb.append(String.format("%,10.2f", s.diskQps())).append('|');
+                sb.append(String.format("%,14d", s.getDiskGetCount())).append('|');
+                sb.append(String.format("%,14d", s.getDiskHitCount())).append('|');
+                sb.append(String.format("%14s", "N/A")).append('|');
+                sb.append(String.format("%,14d", s.getDiskMissCount())).append('|');
+                sb.append(String.format("%14s", "N/A")).append('|');
+                sb.append(String.format("%,9.3f", s.avgDiskGetTime())).append('|');
+                sb.append(String.format("%7s", "N/A")).append('|');
+                sb.append(String.format("%,7d", s.getMaxDiskGetTime() / 1000000)).append('\n');
+            }
+
             sb.append(String.format("%-10s", "put")).append('|');
             sb.append(String.format("%,10.2f", s.putTps())).append('|');
             sb.append(String.format("%,14d", s.getPutCount())).append('|');
@@ -138,6 +158,19 @@ public class StatInfoLogger implements Consumer<StatInfo> {
             sb.append(String.format("%,7d", s.getMinPutTime() == Long.MAX_VALUE ? 0 : s.getMinPutTime())).append('|');
             sb.append(String.format("%,7d", s.getMaxPutTime())).append('\n');
 
+            if (s.getWriteBehindCount() > 0) {
+                sb.append(String.format("%-10s", "wb write")).append('|');
+                sb.append(String.format("%,10.2f", s.writeBehindTps())).append('|');
+                sb.append(String.format("%,14d", s.getWriteBehindCount())).append('|');
+                sb.append(String.format("%,14d", s.getWriteBehindCount() - s.getWriteBehindFailCount())).append('|');
+                sb.append(String.format("%,14d", s.getWriteBehindFailCount())).append('|');
+                sb.append(String.format("%14s", "N/A")).append('|');
+                sb.append(String.format("%14s", "N/A")).append('|');
+                sb.append(String.format("%,9.1f", s.avgWriteBehindTime())).append('|');
+                sb.append(String.format("%7s", "N/A")).append('|');
+                sb.append(String.format("%,7d", s.getMaxWriteBehindTime())).append('\n');
+            }
+
             sb.append(String.format("%-10s", "remove")).append('|');
             sb.append(String.format("%,10.2f", s.removeTps())).append('|');
             sb.append(String.format("%,14d", s.getRemoveCount())).append('|');
@@ -0,0 +1,25 @@
+package com.alicp.jetcache.support;
+
+/**
+ * Clock which reads System.currentTimeMillis() and System.nanoTime() on every call.
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class SystemClock implements Clock {
+
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    protected SystemClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -12,10 +12,17 @@ import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.util.Pool;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
+ * The *_ASYNC operations are blocking Jedis calls offloaded to the asyncExecutor, not a non-blocking client.
+ * If the executor rejects the call the returned stage is completed exceptionally with
+ * RejectedExecutionException.
  * Created on 2016/10/7.
  *
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
@@ -24,6 +31,10 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisCache.class);
 
+    private static final byte[] PUT_IF_ABSENT_SCRIPT = ("local t = redis.call('PTTL', KEYS[1]) "
+            + "if t == -2 or (t >= 0 and t <= tonumber(ARGV[3])) then "
+            + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end return 0").getBytes();
+
     private RedisCacheConfig config;
 
     Function<Object, byte[]> valueEncoder;
@@ -68,9 +79,17 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
             byte[] bytes = jedis.get(newKey);
             if (bytes != null) {
                 CacheValueHolder<V> holder = (CacheValueHolder<V>) valueDecoder.apply(bytes);
-                if (System.currentTimeMillis() >= holder.getExpireTime()) {
+                long now = config.getClock().currentTimeMillis();
+                if (now >= holder.getExpireTime()) {
+                    if (now < holder.getExpireTime() + config.getStaleTtlInMillis()) {
+                        return CacheGetResult.createStaleResult(holder.getValue());
+                    }
                     return CacheGetResult.EXPIRED_WITHOUT_MSG;
                 }
+                if (isEarlyExpired(holder, now)) {
+                    return config.getStaleTtlInMillis() > 0 ?
+                            CacheGetResult.createStaleResult(holder.getValue()) : CacheGetResult.EXPIRED_WITHOUT_MSG;
+                }
                 return new CacheGetResult(CacheResultCode.SUCCESS, null, holder.getValue());
             } else {
                 return CacheGetResult.NOT_EXISTS_WITHOUT_MSG;
@@ -93,13 +112,19 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
         try (Jedis jedis = pool.getResource()) {
             if (newKeys.length > 0) {
                 List mgetResults = jedis.mget(newKeys);
+                long now = config.getClock().currentTimeMillis();
                 for (int i = 0; i < mgetResults.size(); i++) {
                     Object value = mgetResults.get(i);
                     K key = keyList.get(i);
                     if (value != null) {
                         CacheValueHolder<V> holder = (CacheValueHolder<V>) valueDecoder.apply((byte[]) value);
-                        if (System.currentTimeMillis() >= holder.getExpireTime()) {
+                        if (now >= holder.getExpireTime() + config.getStaleTtlInMillis()) {
                             resultMap.put(key, CacheGetResult.EXPIRED_WITHOUT_MSG);
+                        } else if (now >= holder.getExpireTime()) {
+                            resultMap.put(key, CacheGetResult.createStaleResult(holder.getValue()));
+                        } else if (isEarlyExpired(holder, now)) {
+                            resultMap.put(key, config.getStaleTtlInMillis() > 0 ?
+                                    CacheGetResult.createStaleResult(holder.getValue()) : CacheGetResult.EXPIRED_WITHOUT_MSG);
                         } else {
                             CacheGetResult<V> r = new CacheGetResult<V>(CacheResultCode.SUCCESS, null, holder.getValue());
                             resultMap.put(key, r);
@@ -123,9 +148,10 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
         try (Jedis jedis = pool.getResource()) {
-            CacheValueHolder<V> holder = new CacheValueHolder(value, System.currentTimeMillis(), timeUnit.toMillis(expire));
+            long ttl = jitterTtl(timeUnit.toMillis(expire));
+            CacheValueHolder<V> holder = new CacheValueHolder(value, config.getClock().currentTimeMillis(), ttl);
             byte[] newKey = buildKey(key);
-            String rt = jedis.psetex(newKey, timeUnit.toMillis(expire), valueEncoder.apply(holder));
+            String rt = jedis.psetex(newKey, ttl + config.getStaleTtlInMillis(), valueEncoder.apply(holder));
             if ("OK".equals(rt)) {
                 return CacheResult.SUCCESS_WITHOUT_MSG;
             } else {
@@ -146,9 +172,11 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
             int failCount = 0;
             List<Response<String>> responses = new ArrayList<>();
             Pipeline p = jedis.pipelined();
+            long now = config.getClock().currentTimeMillis();
             for (Map.Entry<? extends K, ? extends V> en : map.entrySet()) {
-                CacheValueHolder<V> holder = new CacheValueHolder(en.getValue(), System.currentTimeMillis(), timeUnit.toMillis(expire));
-                Response<String> resp = p.psetex(buildKey(en.getKey()), timeUnit.toMillis(expire), valueEncoder.apply(holder));
+                long ttl = jitterTtl(timeUnit.toMillis(expire));
+                CacheValueHolder<V> holder = new CacheValueHolder(en.getValue(), now, ttl);
+                Response<String> resp = p.psetex(buildKey(en.getKey()), ttl + config.getStaleTtlInMillis(), valueEncoder.apply(holder));
                 responses.add(resp);
             }
             p.sync();
@@ -170,6 +198,7 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
         if (key == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
+        cancelRefreshTask(key);
         return REMOVE_impl(key, buildKey(key));
     }
 
@@ -196,6 +225,7 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
         if (keys == null) {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
+        cancelRefreshTasks(keys);
         try (Jedis jedis = pool.getResource()) {
             byte[][] newKeys = keys.stream().map((k) -> buildKey(k)).toArray((len) -> new byte[keys.size()][]);
             jedis.del(newKeys);
@@ -211,15 +241,36 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
         if (key == null) {
             return null;
         }
+        return tryLock(key, buildKey(key), expire, timeUnit);
+    }
+
+    @Override
+    protected boolean supportLoaderLock() {
+        return true;
+    }
+
+    @Override
+    protected AutoReleaseLock tryLoaderLock(K key, String lockSuffix, long expire, TimeUnit timeUnit) {
+        if (key == null) {
+            return null;
+        }
+        byte[] newKey = buildKey(key);
+        byte[] suffix = lockSuffix.getBytes();
+        byte[] lockKey = new byte[newKey.length + suffix.length];
+        System.arraycopy(newKey, 0, lockKey, 0, newKey.length);
+        System.arraycopy(suffix, 0, lockKey, newKey.length, suffix.length);
+        return tryLock(key, lockKey, expire, timeUnit);
+    }
+
+    private AutoReleaseLock tryLock(K key, byte[] newKey, long expire, TimeUnit timeUnit) {
         try (Jedis jedis = pool.getResource()) {
             final String uuid = UUID.randomUUID().toString();
-            final byte[] newKey = buildKey(key);
-            final long expireTimestamp = System.currentTimeMillis() + timeUnit.toMillis(expire);
+            final long expireTimestamp = config.getClock().currentTimeMillis() + timeUnit.toMillis(expire);
 
             AutoReleaseLock lock = () -> {
-                if (System.currentTimeMillis() < expireTimestamp) {
+                if (config.getClock().currentTimeMillis() < expireTimestamp) {
                     CacheResult cacheResult = REMOVE_impl(key, newKey);
-                    if (cacheResult.getResultCode() == CacheResultCode.FAIL && System.currentTimeMillis() < expireTimestamp) {
+                    if (cacheResult.getResultCode() == CacheResultCode.FAIL && config.getClock().currentTimeMillis() < expireTimestamp) {
                         logger.warn("unlock key {} + failed, retry. msg = {}", key, cacheResult.getMessage());
                         cacheResult = REMOVE_impl(key, newKey);
                         if (cacheResult.getResultCode() == CacheResultCode.FAIL) {
@@ -271,9 +322,18 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
             return CacheResult.FAIL_ILLEGAL_ARGUMENT;
         }
         try (Jedis jedis = pool.getResource()) {
-            CacheValueHolder<V> holder = new CacheValueHolder(value, System.currentTimeMillis(), timeUnit.toMillis(expire));
+            long ttl = jitterTtl(timeUnit.toMillis(expire));
+            CacheValueHolder<V> holder = new CacheValueHolder(value, config.getClock().currentTimeMillis(), ttl);
             byte[] newKey = buildKey(key);
-            String rt = jedis.set(newKey, valueEncoder.apply(holder), "NX".getBytes(), "PX".getBytes(), timeUnit.toMillis(expire));
+            long staleTtl = config.getStaleTtlInMillis();
+            if (staleTtl > 0) {
+                // the redis key lives ttl + staleTtl, a key with no more than staleTtl left is expired and overwritten
+                Object r = jedis.eval(PUT_IF_ABSENT_SCRIPT, Collections.singletonList(newKey),
+                        Arrays.asList(valueEncoder.apply(holder), String.valueOf(ttl + staleTtl).getBytes(),
+                                String.valueOf(staleTtl).getBytes()));
+                return Long.valueOf(1).equals(r) ? CacheResult.SUCCESS_WITHOUT_MSG : CacheResult.EXISTS_WITHOUT_MSG;
+            }
+            String rt = jedis.set(newKey, valueEncoder.apply(holder), "NX".getBytes(), "PX".getBytes(), ttl);
             if ("OK".equals(rt)) {
                 return CacheResult.SUCCESS_WITHOUT_MSG;
             } else if (rt == null) {
@@ -287,6 +347,51 @@ public class RedisCache<K, V> extends AbstractExternalCache<K, V> {
         }
     }
 
+    private <R> CompletionStage<R> supplyAsync(Supplier<R> action) {
+        try {
+            return CompletableFuture.supplyAsync(action, asyncExecutor());
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<R> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+
+    @Override
+    public CompletionStage<CacheGetResult<V>> GET_ASYNC(K key) {
+        return supplyAsync(() -> GET(key));
+    }
+
+    @Override
+    public CompletionStage<MultiGetResult<K, V>> GET_ALL_ASYNC(Set<? extends K> keys) {
+        return supplyAsync(() -> GET_ALL(keys));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        return supplyAsync(() -> PUT(key, value, expire, timeUnit));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_ALL_ASYNC(Map<? extends K, ? extends V> map, long expire, TimeUnit timeUnit) {
+        return supplyAsync(() -> PUT_ALL(map, expire, timeUnit));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ASYNC(K key) {
+        return supplyAsync(() -> REMOVE(key));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> REMOVE_ALL_ASYNC(Set<? extends K> keys) {
+        return supplyAsync(() -> REMOVE_ALL(keys));
+    }
+
+    @Override
+    public CompletionStage<CacheResult> PUT_IF_ABSENT_ASYNC(K key, V value, long expire, TimeUnit timeUnit) {
+        return supplyAsync(() -> PUT_IF_ABSENT(key, value, expire, timeUnit));
+    }
+
     @Override
     protected boolean needLogStackTrace(Throwable e) {
         if (e instanceof JedisConnectionException) {
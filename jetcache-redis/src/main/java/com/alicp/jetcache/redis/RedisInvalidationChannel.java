@@ -0,0 +1,131 @@
+package com.alicp.jetcache.redis;
+
+import com.alicp.jetcache.support.InvalidationChannel;
+import com.alicp.jetcache.support.InvalidationMessage;
+import com.alicp.jetcache.support.JavaValueDecoder;
+import com.alicp.jetcache.support.JavaValueEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * InvalidationChannel on redis pub/sub. The subscriber holds one connection of the pool in a daemon thread,
+ * and reconnects after connection errors. The messages published during the reconnection are lost.
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class RedisInvalidationChannel implements InvalidationChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisInvalidationChannel.class);
+
+    private static final long RETRY_INTERVAL = 1000;
+
+    private final Pool<Jedis> pool;
+    private final byte[] channel;
+    private Function<Object, byte[]> valueEncoder = JavaValueEncoder.INSTANCE;
+    private Function<byte[], Object> valueDecoder = JavaValueDecoder.INSTANCE;
+
+    private final CopyOnWriteArrayList<Consumer<InvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final BinaryJedisPubSub pubSub = new BinaryJedisPubSub() {
+        @Override
+        public void onMessage(byte[] channel, byte[] message) {
+            InvalidationMessage m;
+            try {
+                m = (InvalidationMessage) valueDecoder.apply(message);
+            } catch (Exception e) {
+                logger.error("jetcache decode invalidation message error", e);
+                return;
+            }
+            for (Consumer<InvalidationMessage> listener : listeners) {
+                listener.accept(m);
+            }
+        }
+    };
+    private Thread subscribeThread;
+    private volatile boolean closed;
+
+    public RedisInvalidationChannel(Pool<Jedis> pool, String channel) {
+        this.pool = pool;
+        this.channel = channel.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        byte[] bytes = valueEncoder.apply(message);
+        try (Jedis jedis = pool.getResource()) {
+            jedis.publish(channel, bytes);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<InvalidationMessage> listener) {
+        listeners.add(listener);
+        if (subscribeThread == null && !closed) {
+            subscribeThread = new Thread(this::subscribeLoop, "JetCacheInvalidationSubscriber");
+            subscribeThread.setDaemon(true);
+            subscribeThread.start();
+        }
+    }
+
+    private void subscribeLoop() {
+        while (!closed) {
+            try (Jedis jedis = pool.getResource()) {
+                // blocks until unsubscribed or the connection is broken
+                jedis.subscribe(pubSub, channel);
+            } catch (Exception e) {
+                if (closed) {
+                    return;
+                }
+                logger.error("jetcache invalidation subscriber error, retry in " + RETRY_INTERVAL + "ms", e);
+                try {
+                    Thread.sleep(RETRY_INTERVAL);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        listeners.clear();
+        if (pubSub.isSubscribed()) {
+            try {
+                pubSub.unsubscribe();
+            } catch (Exception e) {
+                logger.warn("jetcache invalidation unsubscribe error: " + e);
+            }
+        }
+        if (subscribeThread != null) {
+            subscribeThread.interrupt();
+        }
+    }
+
+    public Function<Object, byte[]> getValueEncoder() {
+        return valueEncoder;
+    }
+
+    public void setValueEncoder(Function<Object, byte[]> valueEncoder) {
+        this.valueEncoder = valueEncoder;
+    }
+
+    public Function<byte[], Object> getValueDecoder() {
+        return valueDecoder;
+    }
+
+    public void setValueDecoder(Function<byte[], Object> valueDecoder) {
+        this.valueDecoder = valueDecoder;
+    }
+}
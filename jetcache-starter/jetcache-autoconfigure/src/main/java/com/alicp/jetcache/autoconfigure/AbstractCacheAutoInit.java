@@ -83,6 +83,18 @@ public abstract class AbstractCacheAutoInit implements ApplicationContextAware {
         acb.setDefaultExpireInMillis(Long.parseLong(expire));
         String expireAfterAccess = resolver.getProperty("expireAfterAccess", "false");
         acb.setExpireAfterAccess(Boolean.parseBoolean(expireAfterAccess));
+        String expireJitterPercent = resolver.getProperty("expireJitterPercent", "0");
+        acb.setExpireJitterPercent(Integer.parseInt(expireJitterPercent));
+        String expireJitter = resolver.getProperty("expireJitterInMillis", "0");
+        acb.setExpireJitterInMillis(Long.parseLong(expireJitter));
+        String penetrationProtect = resolver.getProperty("penetrationProtect", "false");
+        acb.setCachePenetrationProtect(Boolean.parseBoolean(penetrationProtect));
+        String penetrationProtectTimeout = resolver.getProperty("penetrationProtectTimeoutInMillis", "3000");
+        acb.setPenetrationProtectTimeoutInMillis(Long.parseLong(penetrationProtectTimeout));
+        String distributedPenetrationProtect = resolver.getProperty("distributedPenetrationProtect", "false");
+        acb.setDistributedPenetrationProtect(Boolean.parseBoolean(distributedPenetrationProtect));
+        String lockExpire = resolver.getProperty("penetrationProtectLockExpireInMillis", "10000");
+        acb.setPenetrationProtectLockExpireInMillis(Long.parseLong(lockExpire));
     }
 
     protected abstract CacheBuilder initCache(RelaxedPropertyResolver resolver, String cacheAreaWithPrefix);
@@ -0,0 +1,33 @@
+package com.alicp.jetcache.autoconfigure;
+
+import com.alicp.jetcache.CacheBuilder;
+import com.alicp.jetcache.embedded.ConcurrentHashMapCacheBuilder;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Created on 2017/5/28.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+@Component
+@Conditional(ConcurrentHashMapAutoConfiguration.ConcurrentHashMapCondition.class)
+public class ConcurrentHashMapAutoConfiguration extends EmbeddedCacheAutoInit {
+    public ConcurrentHashMapAutoConfiguration() {
+        super("concurrenthashmap");
+    }
+
+    @Override
+    protected CacheBuilder initCache(RelaxedPropertyResolver resolver, String cacheAreaWithPrefix) {
+        ConcurrentHashMapCacheBuilder builder = ConcurrentHashMapCacheBuilder.createConcurrentHashMapCacheBuilder();
+        parseGeneralConfig(builder, resolver);
+        return builder;
+    }
+
+    public static class ConcurrentHashMapCondition extends JetCacheConditon {
+        public ConcurrentHashMapCondition() {
+            super("concurrenthashmap");
+        }
+    }
+}
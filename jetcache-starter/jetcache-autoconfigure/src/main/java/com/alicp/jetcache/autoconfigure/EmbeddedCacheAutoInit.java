@@ -2,6 +2,7 @@ package com.alicp.jetcache.autoconfigure;
 
 import com.alicp.jetcache.CacheBuilder;
 import com.alicp.jetcache.anno.CacheConsts;
+import com.alicp.jetcache.anno.EvictionPolicy;
 import com.alicp.jetcache.embedded.EmbeddedCacheBuilder;
 import org.springframework.boot.bind.RelaxedPropertyResolver;
 
@@ -22,5 +23,6 @@ public abstract class EmbeddedCacheAutoInit extends AbstractCacheAutoInit {
         EmbeddedCacheBuilder ecb = (EmbeddedCacheBuilder) builder;
 
         ecb.limit(Integer.parseInt(resolver.getProperty("limit", String.valueOf(CacheConsts.DEFAULT_LOCAL_LIMIT))));
+        ecb.evictionPolicy(resolver.getProperty("evictionPolicy", EvictionPolicy.LRU));
     }
 }
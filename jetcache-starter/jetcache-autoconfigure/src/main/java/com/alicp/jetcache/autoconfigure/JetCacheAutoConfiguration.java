@@ -2,6 +2,7 @@ package com.alicp.jetcache.autoconfigure;
 
 import com.alicp.jetcache.anno.support.GlobalCacheConfig;
 import com.alicp.jetcache.anno.support.SpringConfigProvider;
+import com.alicp.jetcache.support.InvalidationChannel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -19,7 +20,8 @@ import org.springframework.context.annotation.Import;
 @ConditionalOnClass(GlobalCacheConfig.class)
 @ConditionalOnMissingBean(GlobalCacheConfig.class)
 @EnableConfigurationProperties(JetCacheProperties.class)
-@Import({RedisAutoConfiguration.class, CaffeineAutoConfiguration.class, LinkedHashMapAutoConfiguration.class})
+@Import({RedisAutoConfiguration.class, CaffeineAutoConfiguration.class, LinkedHashMapAutoConfiguration.class,
+        ConcurrentHashMapAutoConfiguration.class, OffHeapAutoConfiguration.class, LongKeyAutoConfiguration.class})
 public class JetCacheAutoConfiguration {
 
     public JetCacheAutoConfiguration() {
@@ -34,6 +36,9 @@ public class JetCacheAutoConfiguration {
     @Autowired
     private JetCacheProperties props;
 
+    @Autowired(required = false)
+    private InvalidationChannel invalidationChannel;
+
     @Bean
     @ConditionalOnMissingBean
     public SpringConfigProvider springConfigProvider() {
@@ -56,6 +61,12 @@ public class JetCacheAutoConfiguration {
         _globalCacheConfig.setStatIntervalMinutes(props.getStatIntervalMinutes());
         _globalCacheConfig.setLocalCacheBuilders(autoConfigureBeans.getLocalCacheBuilders());
         _globalCacheConfig.setRemoteCacheBuilders(autoConfigureBeans.getRemoteCacheBuilders());
+        _globalCacheConfig.setInvalidationChannel(invalidationChannel);
+        _globalCacheConfig.setFreshnessWindowInMillis(props.getFreshnessWindowInMillis());
+        _globalCacheConfig.setLazyDecode(props.isLazyDecode());
+        _globalCacheConfig.setWriteBehind(props.isWriteBehind());
+        _globalCacheConfig.setWriteBehindCapacity(props.getWriteBehindCapacity());
+        _globalCacheConfig.setBackPressurePolicy(props.getBackPressurePolicy());
         return _globalCacheConfig;
     }
 
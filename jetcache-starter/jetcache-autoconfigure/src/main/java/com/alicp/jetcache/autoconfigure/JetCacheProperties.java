@@ -1,5 +1,6 @@
 package com.alicp.jetcache.autoconfigure;
 
+import com.alicp.jetcache.anno.BackPressurePolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -12,6 +13,11 @@ public class JetCacheProperties {
 
     private String[] hidePackages;
     private int statIntervalMinutes;
+    private long freshnessWindowInMillis;
+    private boolean lazyDecode;
+    private boolean writeBehind;
+    private int writeBehindCapacity = 10000;
+    private String backPressurePolicy = BackPressurePolicy.CALLER_RUNS;
 
     public JetCacheProperties(){
     }
@@ -32,4 +38,44 @@ public class JetCacheProperties {
         this.statIntervalMinutes = statIntervalMinutes;
     }
 
+    public long getFreshnessWindowInMillis() {
+        return freshnessWindowInMillis;
+    }
+
+    public void setFreshnessWindowInMillis(long freshnessWindowInMillis) {
+        this.freshnessWindowInMillis = freshnessWindowInMillis;
+    }
+
+    public boolean isLazyDecode() {
+        return lazyDecode;
+    }
+
+    public void setLazyDecode(boolean lazyDecode) {
+        this.lazyDecode = lazyDecode;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public int getWriteBehindCapacity() {
+        return writeBehindCapacity;
+    }
+
+    public void setWriteBehindCapacity(int writeBehindCapacity) {
+        this.writeBehindCapacity = writeBehindCapacity;
+    }
+
+    public String getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    public void setBackPressurePolicy(String backPressurePolicy) {
+        this.backPressurePolicy = backPressurePolicy;
+    }
+
 }
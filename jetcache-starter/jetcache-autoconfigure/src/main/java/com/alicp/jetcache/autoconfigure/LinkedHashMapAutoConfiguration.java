@@ -1,6 +1,7 @@
 package com.alicp.jetcache.autoconfigure;
 
 import com.alicp.jetcache.CacheBuilder;
+import com.alicp.jetcache.anno.CacheConsts;
 import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
 import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.context.annotation.Conditional;
@@ -22,6 +23,11 @@ public class LinkedHashMapAutoConfiguration extends EmbeddedCacheAutoInit {
     protected CacheBuilder initCache(RelaxedPropertyResolver resolver, String cacheAreaWithPrefix) {
         LinkedHashMapCacheBuilder builder = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder();
         parseGeneralConfig(builder, resolver);
+        builder.setSegmentCount(Integer.parseInt(resolver.getProperty("segmentCount", "1")));
+        builder.setOverflowDirectory(resolver.getProperty("overflowDirectory"));
+        builder.setOverflowCapacityInBytes(Long.parseLong(resolver.getProperty("overflowCapacityInBytes", String.valueOf(1024L * 1024 * 1024))));
+        builder.setValueEncoder(configProvider.parseValueEncoder(resolver.getProperty("valueEncoder", CacheConsts.DEFAULT_SERIAL_POLICY)));
+        builder.setValueDecoder(configProvider.parseValueDecoder(resolver.getProperty("valueDecoder", CacheConsts.DEFAULT_SERIAL_POLICY)));
         return builder;
     }
 
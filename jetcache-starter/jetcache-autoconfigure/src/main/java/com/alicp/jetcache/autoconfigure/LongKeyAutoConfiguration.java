@@ -0,0 +1,33 @@
+package com.alicp.jetcache.autoconfigure;
+
+import com.alicp.jetcache.CacheBuilder;
+import com.alicp.jetcache.embedded.LongKeyCacheBuilder;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Created on 2017/6/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+@Component
+@Conditional(LongKeyAutoConfiguration.LongKeyCondition.class)
+public class LongKeyAutoConfiguration extends EmbeddedCacheAutoInit {
+    public LongKeyAutoConfiguration() {
+        super("longkey");
+    }
+
+    @Override
+    protected CacheBuilder initCache(RelaxedPropertyResolver resolver, String cacheAreaWithPrefix) {
+        LongKeyCacheBuilder builder = LongKeyCacheBuilder.createLongKeyCacheBuilder();
+        parseGeneralConfig(builder, resolver);
+        return builder;
+    }
+
+    public static class LongKeyCondition extends JetCacheConditon {
+        public LongKeyCondition() {
+            super("longkey");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.alicp.jetcache.autoconfigure;
+
+import com.alicp.jetcache.CacheBuilder;
+import com.alicp.jetcache.anno.CacheConsts;
+import com.alicp.jetcache.embedded.OffHeapCacheBuilder;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+@Component
+@Conditional(OffHeapAutoConfiguration.OffHeapCondition.class)
+public class OffHeapAutoConfiguration extends EmbeddedCacheAutoInit {
+    public OffHeapAutoConfiguration() {
+        super("offheap");
+    }
+
+    @Override
+    protected CacheBuilder initCache(RelaxedPropertyResolver resolver, String cacheAreaWithPrefix) {
+        OffHeapCacheBuilder builder = OffHeapCacheBuilder.createOffHeapCacheBuilder();
+        parseGeneralConfig(builder, resolver);
+        builder.setValueEncoder(configProvider.parseValueEncoder(resolver.getProperty("valueEncoder", CacheConsts.DEFAULT_SERIAL_POLICY)));
+        builder.setValueDecoder(configProvider.parseValueDecoder(resolver.getProperty("valueDecoder", CacheConsts.DEFAULT_SERIAL_POLICY)));
+        builder.setCapacityInBytes(Long.parseLong(resolver.getProperty("capacityInBytes", String.valueOf(64 * 1024 * 1024))));
+        builder.setSlabSizeInBytes(Integer.parseInt(resolver.getProperty("slabSizeInBytes", String.valueOf(1024 * 1024))));
+        builder.setPersistDirectory(resolver.getProperty("persistDirectory"));
+        return builder;
+    }
+
+    public static class OffHeapCondition extends JetCacheConditon {
+        public OffHeapCondition() {
+            super("offheap");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -44,9 +45,11 @@ public abstract class AbstractCacheTest {
         removeAllTest();
 
         computeIfAbsentTest();
+        computeIfAbsentAllTest();
         lockTest();
         putIfAbsentTest();
         complextValueTest();
+        asyncTest();
     }
 
     private void getAllTest() {
@@ -132,6 +135,42 @@ public abstract class AbstractCacheTest {
         Assert.assertNull(cache.get(k3));
     }
 
+    private void asyncTest() throws Exception {
+        String k1 = "ASYNC_K1", k2 = "ASYNC_K2", k3 = "ASYNC_K3";
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS,
+                cache.GET_ASYNC(k1).toCompletableFuture().get().getResultCode());
+        Assert.assertTrue(cache.PUT_ASYNC(k1, "V1").toCompletableFuture().get().isSuccess());
+        CacheGetResult<Object> r = cache.GET_ASYNC(k1).toCompletableFuture().get();
+        Assert.assertTrue(r.isSuccess());
+        Assert.assertEquals("V1", r.getValue());
+        Assert.assertTrue(cache.PUT_ASYNC(k1, "V2", 10, TimeUnit.SECONDS).toCompletableFuture().get().isSuccess());
+        Assert.assertEquals("V2", cache.get(k1));
+
+        Map<Object, Object> m = new HashMap<>();
+        m.put(k2, "V2");
+        m.put(k3, "V3");
+        Assert.assertTrue(cache.PUT_ALL_ASYNC(m).toCompletableFuture().get().isSuccess());
+        Assert.assertTrue(cache.PUT_ALL_ASYNC(m, 10, TimeUnit.SECONDS).toCompletableFuture().get().isSuccess());
+        MultiGetResult<Object, Object> mr = cache.GET_ALL_ASYNC(m.keySet()).toCompletableFuture().get();
+        Assert.assertTrue(mr.isSuccess());
+        Assert.assertEquals("V2", mr.getValues().get(k2).getValue());
+        Assert.assertEquals("V3", mr.getValues().get(k3).getValue());
+
+        Assert.assertTrue(cache.REMOVE_ASYNC(k1).toCompletableFuture().get().isSuccess());
+        Assert.assertNull(cache.get(k1));
+        Assert.assertTrue(cache.REMOVE_ALL_ASYNC(m.keySet()).toCompletableFuture().get().isSuccess());
+        Assert.assertNull(cache.get(k2));
+        Assert.assertNull(cache.get(k3));
+
+        if (!isMultiLevelCache()) {
+            Assert.assertEquals(CacheResultCode.SUCCESS, cache.PUT_IF_ABSENT_ASYNC(k1, "V1", 10, TimeUnit.SECONDS)
+                    .toCompletableFuture().get().getResultCode());
+            Assert.assertEquals(CacheResultCode.EXISTS, cache.PUT_IF_ABSENT_ASYNC(k1, "V1", 10, TimeUnit.SECONDS)
+                    .toCompletableFuture().get().getResultCode());
+            Assert.assertTrue(cache.remove(k1));
+        }
+    }
+
     private boolean isMultiLevelCache() {
         Cache c = cache;
         while (c instanceof ProxyCache) {
@@ -236,6 +275,51 @@ public abstract class AbstractCacheTest {
         }
     }
 
+    private void computeIfAbsentAllTest() {
+        String k1 = "CIAA_K1", k2 = "CIAA_K2", k3 = "CIAA_K3", k4 = "CIAA_K4";
+        cache.put(k1, "V1");
+        Set<Object> keys = new HashSet<>(Arrays.asList(k1, k2, k3));
+        List<Set<Object>> loadedKeys = new ArrayList<>();
+        Map<Object, Object> r = cache.computeIfAbsentAll(keys, (missKeys) -> {
+            loadedKeys.add(new HashSet<>(missKeys));
+            Map<Object, Object> m = new HashMap<>();
+            m.put(k2, "V2");
+            return m;
+        });
+        Assert.assertEquals(1, loadedKeys.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(k2, k3)), loadedKeys.get(0));
+        Assert.assertEquals(2, r.size());
+        Assert.assertEquals("V1", r.get(k1));
+        Assert.assertEquals("V2", r.get(k2));
+        Assert.assertEquals("V2", cache.get(k2));
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET(k3).getResultCode());
+
+        // only k3 is missing now, and null values are cached if required
+        r = cache.computeIfAbsentAll(keys, (missKeys) -> {
+            loadedKeys.add(new HashSet<>(missKeys));
+            return new HashMap<>();
+        }, true);
+        Assert.assertEquals(2, loadedKeys.size());
+        Assert.assertEquals(Collections.singleton(k3), loadedKeys.get(1));
+        Assert.assertEquals(2, r.size());
+        CacheGetResult<Object> gr = cache.GET(k3);
+        Assert.assertTrue(gr.isSuccess());
+        Assert.assertNull(gr.getValue());
+
+        // all keys hit, the loader is not invoked
+        r = cache.computeIfAbsentAll(keys, (missKeys) -> {
+            throw new RuntimeException();
+        });
+        Assert.assertEquals(3, r.size());
+
+        r = cache.computeIfAbsentAll(Collections.singleton(k4),
+                (missKeys) -> Collections.singletonMap(k4, "V4"), false, 1, TimeUnit.MINUTES);
+        Assert.assertEquals("V4", r.get(k4));
+        Assert.assertEquals("V4", cache.get(k4));
+
+        cache.removeAll(new HashSet<>(Arrays.asList(k1, k2, k3, k4)));
+    }
+
     private void complextValueTest() {
         A a1 = new A();
         A a2 = new A();
@@ -381,6 +465,44 @@ public abstract class AbstractCacheTest {
     private volatile AtomicLong lockAtommicCount1;
     private volatile AtomicLong lockAtommicCount2;
 
+    protected void penetrationProtectTest(Cache<Object, Object> cache) throws Exception {
+        String key = "penetrationProtect_K1";
+        int threadCount = 10;
+        AtomicInteger loadCount = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch endLatch = new CountDownLatch(threadCount);
+        Object[] results = new Object[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int index = i;
+            new Thread(() -> {
+                try {
+                    startLatch.await();
+                    results[index] = cache.computeIfAbsent(key, k -> {
+                        loadCount.incrementAndGet();
+                        try {
+                            Thread.sleep(100);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "LOADED_V1";
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    endLatch.countDown();
+                }
+            }).start();
+        }
+        startLatch.countDown();
+        endLatch.await();
+        Assert.assertEquals(1, loadCount.get());
+        for (Object r : results) {
+            Assert.assertEquals("LOADED_V1", r);
+        }
+        Assert.assertEquals("LOADED_V1", cache.get(key));
+        cache.remove(key);
+    }
+
     protected void concurrentTest(int threadCount, int limit, int timeInMillis) throws Exception {
         int count = 2 * limit / threadCount;
         lockAtommicCount1 = new AtomicLong();
@@ -0,0 +1,118 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.EmbeddedCacheConfig;
+import com.alicp.jetcache.embedded.LinkedHashMapCache;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.support.CacheStat;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates several nodes sharing one remote cache, the shared cache is a LinkedHashMapCache which
+ * provides the loader lock like RedisCache does.
+ * Created on 2017/5/23.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class DistributedPenetrationProtectTest {
+
+    private Cache<Object, Object> remote;
+
+    static class SharedCache extends LinkedHashMapCache<Object, Object> {
+        public SharedCache(EmbeddedCacheConfig config) {
+            super(config);
+        }
+
+        @Override
+        protected boolean supportLoaderLock() {
+            return true;
+        }
+
+        @Override
+        protected AutoReleaseLock tryLoaderLock(Object key, String lockSuffix, long expire, TimeUnit timeUnit) {
+            return tryLock(key + lockSuffix, expire, timeUnit);
+        }
+    }
+
+    @Before
+    public void setup() {
+        remote = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .buildFunc(c -> new SharedCache((EmbeddedCacheConfig) c))
+                .buildCache();
+    }
+
+    private MonitoredCache<Object, Object> createNode(DefaultCacheMonitor monitor, long timeoutMillis) {
+        Cache<Object, Object> local = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        Cache<Object, Object> cache = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local, remote)
+                .cachePenetrationProtect(true)
+                .distributedPenetrationProtect(true)
+                .penetrationProtectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .buildCache();
+        return new MonitoredCache<>(cache, monitor);
+    }
+
+    @Test
+    public void testSingleLoadInCluster() throws Exception {
+        DefaultCacheMonitor m1 = new DefaultCacheMonitor("node1");
+        DefaultCacheMonitor m2 = new DefaultCacheMonitor("node2");
+        Cache<Object, Object> node1 = createNode(m1, 3000);
+        Cache<Object, Object> node2 = createNode(m2, 3000);
+
+        int threadCount = 10;
+        AtomicInteger loadCount = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        Object[] results = new Object[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int index = i;
+            Cache<Object, Object> node = i % 2 == 0 ? node1 : node2;
+            new Thread(() -> {
+                try {
+                    results[index] = node.computeIfAbsent("K1", k -> {
+                        loadCount.incrementAndGet();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "V1";
+                    });
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        Assert.assertEquals(1, loadCount.get());
+        for (Object r : results) {
+            Assert.assertEquals("V1", r);
+        }
+        CacheStat s1 = m1.getCacheStat();
+        CacheStat s2 = m2.getCacheStat();
+        Assert.assertEquals(1, s1.getLoaderLockWinCount() + s2.getLoaderLockWinCount());
+        Assert.assertEquals(1, s1.getLoaderLockWaitCount() + s2.getLoaderLockWaitCount());
+        Assert.assertEquals(0, s1.getLoaderLockTimeoutCount() + s2.getLoaderLockTimeoutCount());
+        Assert.assertEquals(1, s1.getLoadCount() + s2.getLoadCount());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        DefaultCacheMonitor m = new DefaultCacheMonitor("node");
+        Cache<Object, Object> node = createNode(m, 100);
+        try (AutoReleaseLock lock = remote.tryLock("K1_#LL#", 10, TimeUnit.SECONDS)) {
+            Assert.assertNotNull(lock);
+            long t = System.currentTimeMillis();
+            Assert.assertEquals("V1", node.computeIfAbsent("K1", k -> "V1"));
+            Assert.assertTrue(System.currentTimeMillis() - t >= 100);
+        }
+        Assert.assertEquals(1, m.getCacheStat().getLoaderLockTimeoutCount());
+        Assert.assertEquals("V1", ((CacheValueHolder) remote.get("K1")).getValue());
+    }
+}
@@ -0,0 +1,119 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/5/26.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class EarlyExpireTest {
+
+    @Test
+    public void testDisabled() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .buildCache();
+        cache.computeIfAbsent("K1", k -> sleepAndReturn(20, "V1"));
+        Thread.sleep(70);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("V1", cache.get("K1"));
+        }
+    }
+
+    @Test
+    public void testEarlyExpire() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .earlyExpireBeta(1.0)
+                .buildCache();
+        // no load time is recorded, never expires early
+        cache.put("K0", "V0");
+        Thread.sleep(60);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("V0", cache.get("K0"));
+        }
+
+        cache.computeIfAbsent("K1", k -> sleepAndReturn(30, "V1"));
+        // far from the expire time, p = exp(-100 / 30), about 4%
+        int miss = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("K1") == null) {
+                miss++;
+            }
+        }
+        Assert.assertTrue(miss < 200);
+        // near the expire time, p = exp(-25 / 30), about 40%
+        Thread.sleep(75);
+        miss = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("K1") == null) {
+                miss++;
+            }
+        }
+        Assert.assertTrue(miss > 200);
+    }
+
+    @Test
+    public void testEarlyExpireWithStaleTtl() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .earlyExpireBeta(100.0)
+                .staleTtl(100, TimeUnit.MILLISECONDS)
+                .buildCache();
+        cache.computeIfAbsent("K1", k -> sleepAndReturn(10, "V1"));
+        // almost always early expired, the value is kept as a stale value
+        CacheGetResult<Object> r = cache.GET("K1");
+        if (!r.isSuccess()) {
+            Assert.assertTrue(r.isStale());
+            Assert.assertEquals("V1", r.getValue());
+        }
+    }
+
+    @Test
+    public void testMultiLevelGetAll() throws Exception {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS).buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS).buildCache();
+        Cache<Object, Object> cache = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, l2)
+                .earlyExpireBeta(10000.0)
+                .staleTtl(100, TimeUnit.MILLISECONDS)
+                .buildCache();
+        cache.computeIfAbsent("K1", k -> sleepAndReturn(10, "V1"));
+        // almost always early expired like GET, the value is served as a stale value
+        Set<Object> keys = Collections.singleton("K1");
+        int stale = 0;
+        for (int i = 0; i < 20; i++) {
+            CacheGetResult<Object> r = cache.GET_ALL(keys).getValues().get("K1");
+            if (r.isStale()) {
+                Assert.assertEquals("V1", r.getValue());
+                stale++;
+            }
+        }
+        Assert.assertTrue(stale > 15);
+        stale = 0;
+        for (int i = 0; i < 20; i++) {
+            if (cache.GET_ALL_ASYNC(keys).toCompletableFuture().get().getValues().get("K1").isStale()) {
+                stale++;
+            }
+        }
+        Assert.assertTrue(stale > 15);
+    }
+
+    private static Object sleepAndReturn(long millis, Object value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.CaffeineCacheBuilder;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.embedded.EmbeddedCacheConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class ExpireJitterTest {
+
+    @Test
+    public void testJitterTtl() {
+        CacheConfig config = new EmbeddedCacheConfig();
+        Assert.assertEquals(1000, AbstractCache.jitterTtl(config, 1000));
+        config.setExpireJitterPercent(10);
+        config.setExpireJitterInMillis(50);
+        Assert.assertEquals(150, AbstractCache.jitterRange(config, 1000));
+        Assert.assertEquals(59, AbstractCache.jitterRange(config, 99));
+        config.setExpireJitterInMillis(0);
+        Assert.assertEquals(9, AbstractCache.jitterRange(config, 99));
+        Assert.assertEquals(Long.MAX_VALUE / 100 * 10, AbstractCache.jitterRange(config, Long.MAX_VALUE));
+        config.setExpireJitterInMillis(50);
+        boolean jittered = false;
+        for (int i = 0; i < 100; i++) {
+            long ttl = AbstractCache.jitterTtl(config, 1000);
+            Assert.assertTrue(ttl >= 1000 && ttl <= 1150);
+            jittered |= ttl != 1000;
+        }
+        Assert.assertTrue(jittered);
+        Assert.assertEquals(Long.MAX_VALUE, AbstractCache.jitterTtl(config, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLinkedHashMapCache() throws Exception {
+        jitterTest(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(1000)
+                .expireJitterPercent(100)
+                .buildCache());
+    }
+
+    @Test
+    public void testCaffeineCache() throws Exception {
+        jitterTest(CaffeineCacheBuilder.createCaffeineCacheBuilder()
+                .limit(1000)
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .expireJitterPercent(100)
+                .buildCache());
+    }
+
+    @Test
+    public void testMultiLevelCache() throws Exception {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(1000)
+                .expireJitterPercent(100)
+                .buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(1000)
+                .expireJitter(100, TimeUnit.MILLISECONDS)
+                .buildCache();
+        jitterTest(MultiLevelCacheBuilder.createMultiLevelCacheBuilder().addCache(l1, l2).buildCache());
+    }
+
+    private void jitterTest(Cache<Object, Object> cache) throws Exception {
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put("K" + i, "V" + i);
+        }
+        cache.putAll(map, 100, TimeUnit.MILLISECONDS);
+        Thread.sleep(150);
+        int hit = cache.getAll(map.keySet()).size();
+        // about half of the keys is expired
+        Assert.assertTrue(hit > 0);
+        Assert.assertTrue(hit < 100);
+        Thread.sleep(100);
+        Assert.assertEquals(0, cache.getAll(map.keySet()).size());
+    }
+}
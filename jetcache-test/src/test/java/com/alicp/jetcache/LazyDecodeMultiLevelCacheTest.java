@@ -0,0 +1,139 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.embedded.OffHeapCacheBuilder;
+import com.alicp.jetcache.support.JavaValueDecoder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/6/5.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class LazyDecodeMultiLevelCacheTest {
+
+    private AtomicInteger decodeCount = new AtomicInteger();
+    private Function<byte[], Object> decoder = (bytes) -> {
+        decodeCount.incrementAndGet();
+        return JavaValueDecoder.INSTANCE.apply(bytes);
+    };
+
+    private Cache<Object, Object> local;
+    // stores encoded values like a remote cache
+    private Cache<Object, Object> remote;
+    private Cache<Object, Object> cache;
+
+    @Before
+    public void setup() {
+        local = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        remote = OffHeapCacheBuilder.createOffHeapCacheBuilder().capacityInBytes(1024 * 1024).buildCache();
+        cache = build(local);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ((AutoCloseable) remote).close();
+    }
+
+    private Cache<Object, Object> build(Cache<Object, Object> l1) {
+        return MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, remote)
+                .lazyDecode(true)
+                .valueDecoder(decoder)
+                .buildCache();
+    }
+
+    private static List<String> value(int i) {
+        return new ArrayList<>(Arrays.asList("A" + i, "B" + i, "C" + i));
+    }
+
+    @Test
+    public void testPassThrough() {
+        cache.put("K1", value(1));
+        Assert.assertEquals(value(1), cache.get("K1"));
+        // the value written is kept decoded
+        Assert.assertEquals(0, decodeCount.get());
+
+        local.remove("K1");
+        Assert.assertEquals(value(1), cache.get("K1"));
+        Assert.assertEquals(1, decodeCount.get());
+
+        // the bytes from remote are back-filled as they are, and decoded once in local
+        CacheValueHolder h = (CacheValueHolder) local.get("K1");
+        Assert.assertTrue(h.getValue() instanceof EncodedValue);
+        Assert.assertEquals(value(1), cache.get("K1"));
+        Assert.assertEquals(value(1), cache.GET("K1").getValue());
+        Assert.assertEquals(1, decodeCount.get());
+    }
+
+    @Test
+    public void testGetAll() {
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put("K" + i, value(i));
+        }
+        cache.putAll(map);
+        Set<Object> keys = new HashSet<>(map.keySet());
+        local.removeAll(keys);
+
+        MultiGetResult<Object, Object> r = cache.GET_ALL(keys);
+        Assert.assertTrue(r.isSuccess());
+        Assert.assertEquals(0, decodeCount.get());
+        Assert.assertEquals(value(1), r.getValues().get("K1").getValue());
+        Assert.assertEquals(value(1), r.getValues().get("K1").getValue());
+        Assert.assertEquals(value(2), r.getValues().get("K2").getValue());
+        Assert.assertEquals(2, decodeCount.get());
+
+        // the back-filled values share the decoded values
+        Assert.assertEquals(map, cache.getAll(keys));
+        Assert.assertEquals(10, decodeCount.get());
+        Assert.assertEquals(map, cache.getAll(keys));
+        Assert.assertEquals(10, decodeCount.get());
+
+        local.removeAll(keys);
+        r = cache.GET_ALL_ASYNC(keys).toCompletableFuture().join();
+        Assert.assertEquals(10, decodeCount.get());
+        Assert.assertEquals(map, r.unwrapValues());
+    }
+
+    @Test
+    public void testOffHeapLocal() throws Exception {
+        Cache<Object, Object> offHeapLocal = OffHeapCacheBuilder.createOffHeapCacheBuilder()
+                .capacityInBytes(1024 * 1024).buildCache();
+        try {
+            Cache<Object, Object> c = build(offHeapLocal);
+            c.put("K1", value(1));
+            offHeapLocal.remove("K1");
+            Assert.assertEquals(value(1), c.get("K1"));
+            Assert.assertTrue(((CacheValueHolder) offHeapLocal.get("K1")).getValue() instanceof EncodedValue);
+            Assert.assertEquals(value(1), c.get("K1"));
+        } finally {
+            ((AutoCloseable) offHeapLocal).close();
+        }
+    }
+
+    @Test
+    public void testModeChange() {
+        cache.put("K1", value(1));
+        // the encoded values written in lazyDecode mode are still readable
+        Cache<Object, Object> plain = new MultiLevelCache<>(
+                LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache(), remote);
+        Assert.assertEquals(value(1), plain.get("K1"));
+
+        plain.put("K3", value(3));
+        Assert.assertEquals(value(3), cache.get("K3"));
+    }
+}
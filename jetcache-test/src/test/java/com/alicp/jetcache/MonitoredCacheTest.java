@@ -1,9 +1,23 @@
 package com.alicp.jetcache;
 
 import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.event.CacheEvent;
+import com.alicp.jetcache.event.CacheLoadEvent;
 import com.alicp.jetcache.test.AbstractCacheTest;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 /**
  * Created on 2016/10/27.
  *
@@ -18,4 +32,101 @@ public class MonitoredCacheTest extends AbstractCacheTest {
 
         baseTest();
     }
+
+    @Test
+    public void nullConfigTest() {
+        Cache<Object, Object> target = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        Cache<Object, Object> noConfig = new MonitoredCache<Object, Object>(target, event -> {}) {
+            @Override
+            public CacheConfig config() {
+                return null;
+            }
+        };
+        List<CacheEvent> events = new CopyOnWriteArrayList<>();
+        Cache<Object, Object> c = new MonitoredCache<>(noConfig, events::add);
+        c.PUT("K1", "V1", 1, TimeUnit.MINUTES);
+        c.PUT_ALL(Collections.singletonMap("K2", "V2"), 1, TimeUnit.MINUTES);
+        Assert.assertEquals("V1", c.get("K1"));
+        Assert.assertEquals("V2", c.get("K2"));
+        c.remove("K1");
+        Assert.assertEquals(5, events.size());
+    }
+
+    @Test
+    public void penetrationProtectTest() throws Exception {
+        Cache target = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .cachePenetrationProtect(true)
+                .buildCache();
+        List<CacheLoadEvent> loadEvents = new CopyOnWriteArrayList<>();
+        cache = new MonitoredCache(target, event -> {
+            if (event instanceof CacheLoadEvent) {
+                loadEvents.add((CacheLoadEvent) event);
+            }
+        });
+        penetrationProtectTest(cache);
+        Assert.assertEquals(1, loadEvents.size());
+        Assert.assertTrue(loadEvents.get(0).getCoalescedCount() > 0);
+    }
+
+    @Test
+    public void computeIfAbsentAllTest() {
+        Cache target = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .buildCache();
+        List<CacheLoadEvent> loadEvents = new CopyOnWriteArrayList<>();
+        cache = new MonitoredCache(target, event -> {
+            if (event instanceof CacheLoadEvent) {
+                loadEvents.add((CacheLoadEvent) event);
+            }
+        });
+        cache.put("K1", "V1");
+        Set<Object> keys = new HashSet<>(Arrays.asList("K1", "K2", "K3"));
+        Map<Object, Object> r = cache.computeIfAbsentAll(keys, missKeys -> {
+            Map<Object, Object> m = new HashMap<>();
+            missKeys.forEach(k -> m.put(k, k + "_V"));
+            return m;
+        });
+        Assert.assertEquals(3, r.size());
+        Assert.assertEquals(1, loadEvents.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("K2", "K3")), loadEvents.get(0).getKey());
+    }
+
+    @Test
+    public void computeIfAbsentAllStaleTest() throws Exception {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS).staleTtl(1000, TimeUnit.MILLISECONDS).buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS).staleTtl(1000, TimeUnit.MILLISECONDS).buildCache();
+        Cache<Object, Object> multiLevel = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, l2).staleTtl(1000, TimeUnit.MILLISECONDS).buildCache();
+        Cache<Object, Object> plain = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS).staleTtl(1000, TimeUnit.MILLISECONDS).buildCache();
+        computeIfAbsentAllStaleTest(multiLevel);
+        computeIfAbsentAllStaleTest(plain);
+    }
+
+    private void computeIfAbsentAllStaleTest(Cache<Object, Object> target) throws Exception {
+        List<CacheLoadEvent> loadEvents = new CopyOnWriteArrayList<>();
+        Cache<Object, Object> cache = new MonitoredCache<>(target, event -> {
+            if (event instanceof CacheLoadEvent) {
+                loadEvents.add((CacheLoadEvent) event);
+            }
+        });
+        cache.put("K1", "V1");
+        Thread.sleep(150);
+        Set<Object> keys = new HashSet<>(Arrays.asList("K1", "K2"));
+        Function<Set<Object>, Map<Object, Object>> loader = missKeys -> {
+            Map<Object, Object> m = new HashMap<>();
+            missKeys.forEach(k -> m.put(k, k + "_V"));
+            return m;
+        };
+        // the stale value is served like computeIfAbsent, and reloaded in background
+        Map<Object, Object> r = cache.computeIfAbsentAll(keys, loader);
+        Assert.assertEquals("V1", r.get("K1"));
+        Assert.assertEquals("K2_V", r.get("K2"));
+        for (int i = 0; i < 100 && !"K1_V".equals(cache.get("K1")); i++) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals("K1_V", cache.get("K1"));
+        Assert.assertEquals(2, loadEvents.size());
+    }
 }
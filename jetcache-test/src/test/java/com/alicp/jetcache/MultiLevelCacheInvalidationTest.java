@@ -0,0 +1,234 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+import com.alicp.jetcache.support.InvalidationChannel;
+import com.alicp.jetcache.support.InvalidationMessage;
+import com.alicp.jetcache.support.JavaValueDecoder;
+import com.alicp.jetcache.support.JavaValueEncoder;
+import com.alicp.jetcache.support.LocalInvalidationChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class MultiLevelCacheInvalidationTest {
+
+    private LocalInvalidationChannel channel;
+    private InvalidationBroadcaster broadcaster1;
+    private InvalidationBroadcaster broadcaster2;
+    private Cache<Object, Object> remote;
+    private Cache<Object, Object> local1;
+    private Cache<Object, Object> local2;
+    private Cache<Object, Object> node1;
+    private Cache<Object, Object> node2;
+
+    @Before
+    public void setup() {
+        channel = new LocalInvalidationChannel();
+        broadcaster1 = new InvalidationBroadcaster(channel);
+        broadcaster2 = new InvalidationBroadcaster(channel);
+        // evict in the thread of the channel, so the tests can check the result after flush
+        broadcaster1.setInvalidateExecutor(Runnable::run);
+        broadcaster2.setInvalidateExecutor(Runnable::run);
+        remote = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        local1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        local2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        node1 = build(local1, broadcaster1);
+        node2 = build(local2, broadcaster2);
+    }
+
+    @After
+    public void tearDown() {
+        broadcaster1.close();
+        broadcaster2.close();
+    }
+
+    private Cache<Object, Object> build(Cache<Object, Object> local, InvalidationBroadcaster broadcaster) {
+        return MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local, remote)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .invalidationBroadcaster(broadcaster)
+                .invalidationName("c1")
+                .buildCache();
+    }
+
+    private void flush() {
+        broadcaster1.flush();
+        broadcaster2.flush();
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        node1.put("K1", "V1");
+        Assert.assertEquals("V1", node2.get("K1"));
+        Assert.assertNotNull(local2.get("K1"));
+
+        node1.put("K1", "V2");
+        // node2 reads the stale value in local cache until the invalidation arrives
+        Assert.assertEquals("V1", node2.get("K1"));
+        flush();
+        Assert.assertNull(local2.get("K1"));
+        // the writer keeps its own local cache
+        Assert.assertNotNull(local1.get("K1"));
+        Assert.assertEquals("V2", node2.get("K1"));
+
+        node2.remove("K1");
+        flush();
+        Assert.assertNull(local1.get("K1"));
+        Assert.assertNull(node1.get("K1"));
+    }
+
+    @Test
+    public void testBatch() {
+        broadcaster1.setBatchDelayInMillis(60000);
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put("K" + i, "V" + i);
+        }
+        node1.putAll(map);
+        flush();
+        node2.getAll(map.keySet());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNotNull(local2.get("K" + i));
+        }
+        int[] count = new int[1];
+        channel.subscribe(m -> count[0]++);
+        node1.removeAll(new HashSet<>(Arrays.asList("K1", "K2")));
+        node1.put("K3", "V3_NEW");
+        node1.PUT_ASYNC("K4", "V4_NEW").toCompletableFuture().join();
+        flush();
+        // the keys are published in one message
+        Assert.assertEquals(1, count[0]);
+        for (int i = 0; i < 10; i++) {
+            if (i >= 1 && i <= 4) {
+                Assert.assertNull(local2.get("K" + i));
+            } else {
+                Assert.assertNotNull(local2.get("K" + i));
+            }
+        }
+        Assert.assertEquals("V4_NEW", node2.get("K4"));
+    }
+
+    @Test
+    public void testScheduledFlush() throws Exception {
+        node2.put("K1", "V1");
+        node1.get("K1");
+        Assert.assertNotNull(local1.get("K1"));
+        node2.put("K1", "V2");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (local1.get("K1") != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertNull(local1.get("K1"));
+        Assert.assertEquals("V2", node1.get("K1"));
+    }
+
+    @Test
+    public void testOtherCache() {
+        Cache<Object, Object> local3 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        Cache<Object, Object> other = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local3, remote)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .invalidationBroadcaster(broadcaster2)
+                .invalidationName("c2")
+                .buildCache();
+        other.put("K1", "V1");
+        node1.put("K1", "V1");
+        flush();
+        Assert.assertNotNull(local3.get("K1"));
+    }
+
+    @Test
+    public void testEncodedChannel() {
+        // the messages pass through the encoder like on a remote channel
+        InvalidationChannel encoded = new InvalidationChannel() {
+            @Override
+            public void publish(InvalidationMessage message) {
+                byte[] bytes = JavaValueEncoder.INSTANCE.apply(message);
+                channel.publish((InvalidationMessage) JavaValueDecoder.INSTANCE.apply(bytes));
+            }
+
+            @Override
+            public void subscribe(java.util.function.Consumer<InvalidationMessage> listener) {
+                channel.subscribe(listener);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        InvalidationBroadcaster broadcaster3 = new InvalidationBroadcaster(encoded);
+        broadcaster3.setInvalidateExecutor(Runnable::run);
+        Cache<Object, Object> local3 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        Cache<Object, Object> node3 = build(local3, broadcaster3);
+        node1.put("K1", "V1");
+        Assert.assertEquals("V1", node1.get("K1"));
+        node3.put("K1", "V2");
+        broadcaster3.flush();
+        Assert.assertNull(local1.get("K1"));
+        Assert.assertEquals("V2", node1.get("K1"));
+    }
+
+    @Test(expected = CacheConfigException.class)
+    public void testDuplicateName() {
+        build(local1, broadcaster1);
+    }
+
+    @Test
+    public void testClose() {
+        node1.put("K1", "V1");
+        ((MultiLevelCache) node1).close();
+        node2.put("K1", "V2");
+        flush();
+        // not registered any more
+        Assert.assertNotNull(local1.get("K1"));
+        // the name can be used again
+        Cache<Object, Object> node3 = build(local1, broadcaster1);
+        node2.put("K1", "V3");
+        flush();
+        Assert.assertNull(local1.get("K1"));
+        Assert.assertEquals("V3", node3.get("K1"));
+    }
+
+    @Test
+    public void testInvalidateExecutor() throws Exception {
+        InvalidationBroadcaster broadcaster3 = new InvalidationBroadcaster(channel);
+        try {
+            Thread[] invalidateThread = new Thread[1];
+            CountDownLatch latch = new CountDownLatch(1);
+            broadcaster3.register("c3", keys -> {
+                invalidateThread[0] = Thread.currentThread();
+                latch.countDown();
+            });
+            broadcaster1.invalidate("c3", Collections.singleton("K1"));
+            broadcaster1.flush();
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+            // not evicted in the thread which published the message
+            Assert.assertNotSame(Thread.currentThread(), invalidateThread[0]);
+        } finally {
+            broadcaster3.close();
+        }
+    }
+
+    @Test(expected = CacheConfigException.class)
+    public void testNoName() {
+        MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local1, remote)
+                .invalidationBroadcaster(broadcaster1)
+                .buildCache();
+    }
+}
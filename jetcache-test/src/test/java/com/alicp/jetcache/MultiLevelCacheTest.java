@@ -2,6 +2,8 @@ package com.alicp.jetcache;
 
 import com.alicp.jetcache.embedded.CaffeineCacheBuilder;
 import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.event.CachePutAllEvent;
+import com.alicp.jetcache.event.CachePutEvent;
 import com.alicp.jetcache.support.DefaultCacheMonitor;
 import com.alicp.jetcache.support.DefaultCacheMonitorManager;
 import com.alicp.jetcache.support.FastjsonKeyConvertor;
@@ -9,8 +11,14 @@ import com.alicp.jetcache.test.AbstractCacheTest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created on 2016/10/8.
@@ -67,6 +75,77 @@ public class MultiLevelCacheTest extends AbstractCacheTest {
         });
     }
 
+    @Test
+    public void putIfAbsentAsyncTest() {
+        initL1L2(2000);
+        cache = new MultiLevelCache(l1Cache, l2Cache);
+        // not thrown by the caller
+        CompletionStage<CacheResult> stage = cache.PUT_IF_ABSENT_ASYNC("K1", "V1", 1, TimeUnit.SECONDS);
+        try {
+            stage.toCompletableFuture().join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test
+    public void penetrationProtectTest() throws Exception {
+        initL1L2(2000);
+        cache = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1Cache, l2Cache)
+                .cachePenetrationProtect(true)
+                .buildCache();
+        penetrationProtectTest(cache);
+    }
+
+    @Test
+    public void batchFillTest() {
+        initL1L2(10000);
+        AtomicInteger putCount = new AtomicInteger();
+        AtomicInteger putAllCount = new AtomicInteger();
+        l1Cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        Cache<Object, Object> l1 = new MonitoredCache<>(l1Cache, (event) -> {
+            if (event instanceof CachePutEvent) {
+                putCount.incrementAndGet();
+            } else if (event instanceof CachePutAllEvent) {
+                putAllCount.incrementAndGet();
+            }
+        });
+        cache = new MultiLevelCache<>(l1, l2Cache);
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            map.put("K" + i, "V" + i);
+        }
+        cache.putAll(map, 10, TimeUnit.SECONDS);
+        cache.put("K50", "V50", 2, TimeUnit.SECONDS);
+        l1Cache.removeAll(new HashSet<>(map.keySet()));
+        l1Cache.remove("K50");
+        putCount.set(0);
+        putAllCount.set(0);
+
+        HashSet<Object> keys = new HashSet<>(map.keySet());
+        keys.add("K50");
+        Map<Object, Object> values = cache.getAll(keys);
+        Assert.assertEquals(51, values.size());
+        Assert.assertEquals(0, putCount.get());
+        Assert.assertEquals(1, putAllCount.get());
+
+        // each entry keeps its rest ttl
+        CacheValueHolder h0 = (CacheValueHolder) l1Cache.get("K0");
+        CacheValueHolder h50 = (CacheValueHolder) l1Cache.get("K50");
+        CacheValueHolder h50InL2 = (CacheValueHolder) l2Cache.get("K50");
+        Assert.assertEquals(h50InL2.getExpireTime(), h50.getExpireTime(), 10);
+        Assert.assertTrue(h0.getExpireTime() - h50.getExpireTime() > 5000);
+
+        putAllCount.set(0);
+        l1Cache.removeAll(new HashSet<>(map.keySet()));
+        MultiGetResult<Object, Object> r = cache.GET_ALL_ASYNC(keys).toCompletableFuture().join();
+        Assert.assertEquals(51, r.unwrapValues().size());
+        Assert.assertEquals(1, putAllCount.get());
+        Assert.assertEquals(0, putCount.get());
+    }
+
     private void doMonitoredTest(int expireMillis, Runnable test) {
         initL1L2(expireMillis);
         DefaultCacheMonitor m1 = new DefaultCacheMonitor("l1");
@@ -99,16 +178,19 @@ public class MultiLevelCacheTest extends AbstractCacheTest {
         AbstractCache c1 = getAbstractCache(l1Cache);
         AbstractCache c2 = getAbstractCache(l2Cache);
 
-        CacheValueHolder<Object> h1 = (CacheValueHolder<Object>)
+        // the embedded caches store their own holders, the values are the CacheValueHolder of MultiLevelCache
+        ValueHolder<Object> h1 = (ValueHolder<Object>)
                 ((com.github.benmanes.caffeine.cache.Cache) c1.unwrap(com.github.benmanes.caffeine.cache.Cache.class))
                         .getIfPresent("KK1");
-        CacheValueHolder<Object> h2 = (CacheValueHolder<Object>)
+        ValueHolder<Object> h2 = (ValueHolder<Object>)
                 ((LinkedHashMap) c2.unwrap(LinkedHashMap.class)).get("KK1");
+        Assert.assertTrue(h1.getValue() instanceof CacheValueHolder);
+        Assert.assertTrue(h2.getValue() instanceof CacheValueHolder);
 
         long x = h1.getExpireTime() - h2.getExpireTime();
         if (Math.abs(x) > 10) {
-            System.out.println(h1.getCreateTime() + "," + h1.getExpireTime() + "," + ((CacheValueHolder) h1.getValue()).getCreateTime() + "," + ((CacheValueHolder) h1.getValue()).getExpireTime());
-            System.out.println(h2.getCreateTime() + "," + h2.getExpireTime() + "," + ((CacheValueHolder) h2.getValue()).getCreateTime() + "," + ((CacheValueHolder) h2.getValue()).getExpireTime());
+            System.out.println(h1.getExpireTime() + "," + ((CacheValueHolder) h1.getValue()).getCreateTime() + "," + ((CacheValueHolder) h1.getValue()).getExpireTime());
+            System.out.println(h2.getExpireTime() + "," + ((CacheValueHolder) h2.getValue()).getCreateTime() + "," + ((CacheValueHolder) h2.getValue()).getExpireTime());
             Assert.fail();
         }
     }
@@ -0,0 +1,150 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.EmbeddedCacheConfig;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.support.CacheStat;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on 2017/5/25.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class RefreshCacheTest {
+
+    @Test
+    public void testRefresh() throws Exception {
+        Cache<Object, Object> target = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .refreshPolicy(RefreshPolicy.newPolicy(50, TimeUnit.MILLISECONDS))
+                .buildCache();
+        DefaultCacheMonitor monitor = new DefaultCacheMonitor("refresh");
+        Cache<Object, Object> cache = new MonitoredCache<>(target, monitor);
+        AtomicInteger count = new AtomicInteger();
+        Assert.assertEquals(0, cache.computeIfAbsent("K1", k -> count.getAndIncrement()));
+        Thread.sleep(180);
+        int c = count.get();
+        Assert.assertTrue(c >= 3);
+        Object v = cache.get("K1");
+        Assert.assertTrue((Integer) v >= c - 2);
+        // hit the cache, the loader is not invoked by caller
+        Assert.assertEquals(cache.get("K1"), cache.computeIfAbsent("K1", k -> -1));
+
+        CacheStat stat = monitor.getCacheStat();
+        Assert.assertTrue(stat.getRefreshCount() >= 2);
+        Assert.assertEquals(0, stat.getRefreshFailCount());
+    }
+
+    @Test
+    public void testIllegalRefreshMillis() {
+        try {
+            RefreshPolicy.newPolicy(0, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (CacheConfigException e) {
+            // expected
+        }
+        try {
+            LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().refreshPolicy(new RefreshPolicy());
+            Assert.fail();
+        } catch (CacheConfigException e) {
+            // expected
+        }
+        // set on the config directly, the refresh is skipped instead of failing computeIfAbsent
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        cache.config().setRefreshPolicy(new RefreshPolicy());
+        Assert.assertEquals("V1", cache.computeIfAbsent("K1", k -> "V1"));
+    }
+
+    @Test
+    public void testStopRefreshAfterLastAccess() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .refreshPolicy(RefreshPolicy.newPolicy(30, TimeUnit.MILLISECONDS)
+                        .stopRefreshAfterLastAccess(100, TimeUnit.MILLISECONDS))
+                .buildCache();
+        AtomicInteger count = new AtomicInteger();
+        cache.computeIfAbsent("K1", k -> count.getAndIncrement());
+        Thread.sleep(250);
+        int c = count.get();
+        Thread.sleep(150);
+        Assert.assertEquals(c, count.get());
+    }
+
+    @Test
+    public void testDefaultStopRefresh() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .refreshPolicy(RefreshPolicy.newPolicy(10, TimeUnit.MILLISECONDS))
+                .buildCache();
+        AtomicInteger count = new AtomicInteger();
+        cache.computeIfAbsent("K1", k -> count.getAndIncrement());
+        // stopped after 10 refresh intervals without access
+        Thread.sleep(250);
+        int c = count.get();
+        Assert.assertTrue(c >= 3);
+        Thread.sleep(100);
+        Assert.assertEquals(c, count.get());
+    }
+
+    @Test
+    public void testStopRefreshAfterRemove() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .refreshPolicy(RefreshPolicy.newPolicy(30, TimeUnit.MILLISECONDS))
+                .buildCache();
+        AtomicInteger count = new AtomicInteger();
+        cache.computeIfAbsent("K1", k -> count.getAndIncrement());
+        cache.computeIfAbsent("K2", k -> count.getAndIncrement());
+        Thread.sleep(50);
+        cache.remove("K1");
+        cache.removeAll(Collections.singleton("K2"));
+        int c = count.get();
+        Thread.sleep(100);
+        Assert.assertEquals(c, count.get());
+        Assert.assertNull(cache.get("K1"));
+        Assert.assertNull(cache.get("K2"));
+    }
+
+    @Test
+    public void testStopRefreshAfterEvict() throws Exception {
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(1)
+                .refreshPolicy(RefreshPolicy.newPolicy(30, TimeUnit.MILLISECONDS))
+                .buildCache();
+        AtomicInteger count = new AtomicInteger();
+        cache.computeIfAbsent("K1", k -> count.getAndIncrement());
+        for (int i = 0; i < 100 && count.get() < 2; i++) {
+            Thread.sleep(5);
+        }
+        Assert.assertTrue(count.get() >= 2);
+        // K1 is evicted before the next refresh
+        cache.put("K2", "V2");
+        Thread.sleep(50);
+        int c = count.get();
+        Thread.sleep(100);
+        Assert.assertEquals(c, count.get());
+        Assert.assertEquals("V2", cache.get("K2"));
+    }
+
+    @Test
+    public void testRefreshByOneNode() throws Exception {
+        Cache<Object, Object> remote = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .buildFunc(c -> new DistributedPenetrationProtectTest.SharedCache((EmbeddedCacheConfig) c))
+                .buildCache();
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            Cache<Object, Object> local = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+            Cache<Object, Object> node = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                    .addCache(local, remote)
+                    .refreshPolicy(RefreshPolicy.newPolicy(200, TimeUnit.MILLISECONDS))
+                    .buildCache();
+            node.computeIfAbsent("K1", k -> count.getAndIncrement());
+        }
+        Assert.assertEquals(1, count.get());
+        Thread.sleep(300);
+        // three nodes own a refresh task of the key, but only one of them refreshes in an interval
+        Assert.assertEquals(2, count.get());
+    }
+}
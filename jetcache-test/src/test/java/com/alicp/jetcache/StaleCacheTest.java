@@ -0,0 +1,163 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.CaffeineCacheBuilder;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/26.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class StaleCacheTest {
+
+    @Test
+    public void testLinkedHashMapCache() throws Exception {
+        staleTest(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache());
+    }
+
+    @Test
+    public void testCaffeineCache() throws Exception {
+        staleTest(CaffeineCacheBuilder.createCaffeineCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache());
+    }
+
+    @Test
+    public void testMultiLevelCache() throws Exception {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache();
+        staleTest(MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, l2)
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache());
+    }
+
+    @Test
+    public void testMultiLevelCacheBatch() throws Exception {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Cache<Object, Object> cache = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, l2)
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(200, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Set<Object> keys = new HashSet<>(Arrays.asList("K1", "K2", "K3"));
+        cache.put("K1", "V1");
+        cache.put("K2", "V2");
+        Thread.sleep(130);
+
+        Map<Object, CacheGetResult<Object>> results = cache.GET_ALL(keys).getValues();
+        Assert.assertTrue(results.get("K1").isStale());
+        Assert.assertEquals("V1", results.get("K1").getValue());
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, results.get("K3").getResultCode());
+        results = cache.GET_ALL_ASYNC(keys).toCompletableFuture().get().getValues();
+        Assert.assertTrue(results.get("K2").isStale());
+        Assert.assertEquals("V2", results.get("K2").getValue());
+
+        // the stale values are returned at once and reloaded in background by one batch load
+        List<Set<Object>> loads = new CopyOnWriteArrayList<>();
+        Function<Set<Object>, Map<Object, Object>> loader = ks -> {
+            loads.add(ks);
+            Map<Object, Object> m = new HashMap<>();
+            ks.forEach(k -> m.put(k, k + "_NEW"));
+            return m;
+        };
+        Map<Object, Object> values = cache.computeIfAbsentAll(keys, loader);
+        Assert.assertEquals("V1", values.get("K1"));
+        Assert.assertEquals("V2", values.get("K2"));
+        // the missing key is loaded by the caller
+        Assert.assertEquals("K3_NEW", values.get("K3"));
+        for (int i = 0; i < 50 && !"K1_NEW".equals(cache.get("K1")); i++) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(2, loads.size());
+        Assert.assertTrue(loads.contains(new HashSet<>(Arrays.asList("K1", "K2"))));
+        Assert.assertTrue(loads.contains(Collections.singleton("K3")));
+        Assert.assertEquals("K1_NEW", cache.get("K1"));
+        Assert.assertEquals("K2_NEW", cache.get("K2"));
+    }
+
+    private void staleTest(Cache<Object, Object> cache) throws Exception {
+        cache.put("K1", "V1");
+        Assert.assertEquals(CacheResultCode.SUCCESS, cache.GET("K1").getResultCode());
+        Thread.sleep(130);
+
+        CacheGetResult<Object> r = cache.GET("K1");
+        Assert.assertEquals(CacheResultCode.EXPIRED, r.getResultCode());
+        Assert.assertTrue(r.isStale());
+        Assert.assertEquals("V1", r.getValue());
+        r = cache.GET_ASYNC("K1").toCompletableFuture().get();
+        Assert.assertTrue(r.isStale());
+        Assert.assertEquals("V1", r.getValue());
+        Assert.assertNull(cache.get("K1"));
+
+        // the stale value is returned at once, and only one background reload
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("V1", cache.computeIfAbsent("K1", k -> {
+                count.incrementAndGet();
+                sleep(50);
+                return "V2";
+            }));
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(1, count.get());
+        Assert.assertEquals("V2", cache.get("K1"));
+
+        // the stale value is served when the loader fails
+        Thread.sleep(130);
+        Assert.assertEquals("V2", cache.computeIfAbsent("K1", k -> {
+            count.incrementAndGet();
+            throw new IllegalStateException("mock error");
+        }));
+        Thread.sleep(50);
+        Assert.assertEquals(2, count.get());
+        Assert.assertEquals("V2", cache.GET("K1").getValue());
+
+        // expired after the stale ttl
+        Thread.sleep(200);
+        r = cache.GET("K1");
+        Assert.assertFalse(r.isStale());
+        Assert.assertNull(r.getValue());
+        Assert.assertEquals("V3", cache.computeIfAbsent("K1", k -> "V3"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.support.Clock;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created on 2017/6/5.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class VersionedMultiLevelCacheTest {
+
+    private AtomicLong time = new AtomicLong(System.currentTimeMillis());
+    private Clock clock = time::get;
+
+    private DefaultCacheMonitor remoteMonitor;
+    private DefaultCacheMonitor versionMonitor;
+    private Cache<Object, Object> remote;
+    private Cache<Object, Object> versionCache;
+    private Cache<Object, Object> local1;
+    private Cache<Object, Object> local2;
+    private Cache<Object, Object> node1;
+    private Cache<Object, Object> node2;
+
+    @Before
+    public void setup() {
+        remoteMonitor = new DefaultCacheMonitor("remote");
+        versionMonitor = new DefaultCacheMonitor("version");
+        remote = new MonitoredCache<>(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(100).buildCache(), remoteMonitor);
+        versionCache = new MonitoredCache<>(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(100).buildCache(), versionMonitor);
+        local1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        local2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+        node1 = build(local1);
+        node2 = build(local2);
+    }
+
+    private Cache<Object, Object> build(Cache<Object, Object> local) {
+        return MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local, remote)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .versionCache(versionCache)
+                .freshnessWindow(1000, TimeUnit.MILLISECONDS)
+                .clock(clock)
+                .buildCache();
+    }
+
+    private long remoteGets() {
+        return remoteMonitor.getCacheStat().getGetCount();
+    }
+
+    private long versionGets() {
+        return versionMonitor.getCacheStat().getGetCount();
+    }
+
+    @Test
+    public void testGet() {
+        node1.put("K1", "V1");
+        Assert.assertEquals("V1", node2.get("K1"));
+        Assert.assertEquals(1, remoteGets());
+
+        // within the window, no remote access
+        Assert.assertEquals("V1", node2.get("K1"));
+        Assert.assertEquals("V1", node2.GET("K1").getValue());
+        Assert.assertEquals(1, remoteGets());
+        Assert.assertEquals(0, versionGets());
+
+        // unchanged, validated by the version only
+        time.addAndGet(2000);
+        Assert.assertEquals("V1", node2.get("K1"));
+        Assert.assertEquals(1, remoteGets());
+        Assert.assertEquals(1, versionGets());
+        // validate time is renewed
+        Assert.assertEquals("V1", node2.get("K1"));
+        Assert.assertEquals(1, versionGets());
+
+        node1.put("K1", "V2");
+        // stale until the window passes
+        Assert.assertEquals("V1", node2.get("K1"));
+        time.addAndGet(2000);
+        Assert.assertEquals("V2", node2.get("K1"));
+        Assert.assertEquals(2, remoteGets());
+        Assert.assertEquals(2, versionGets());
+        Assert.assertEquals("V2", node2.get("K1"));
+        Assert.assertEquals(2, remoteGets());
+
+        node1.remove("K1");
+        time.addAndGet(2000);
+        Assert.assertNull(node2.get("K1"));
+        Assert.assertNull(local2.get("K1"));
+    }
+
+    @Test
+    public void testGetAll() {
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            map.put("K" + i, "V" + i);
+        }
+        node1.putAll(map);
+        Set<Object> keys = new HashSet<>(map.keySet());
+        Assert.assertEquals(map, node2.getAll(keys));
+        long remoteGets = remoteGets();
+
+        node1.put("K1", "V1_NEW");
+        node1.removeAll(new HashSet<>(Arrays.asList("K2")));
+        time.addAndGet(2000);
+        Map<Object, Object> values = node2.getAll(keys);
+        Assert.assertEquals("V1_NEW", values.get("K1"));
+        Assert.assertFalse(values.containsKey("K2"));
+        Assert.assertEquals("V0", values.get("K0"));
+        // the versions of 5 keys are read in one batch, only the 2 changed keys are read from remote
+        Assert.assertEquals(5, versionGets());
+        Assert.assertEquals(remoteGets + 2, remoteGets());
+    }
+
+    @Test
+    public void testAsync() {
+        node1.PUT_ASYNC("K1", "V1").toCompletableFuture().join();
+        Assert.assertEquals("V1", node2.GET_ASYNC("K1").toCompletableFuture().join().getValue());
+        node1.PUT_ASYNC("K1", "V2", 1, TimeUnit.HOURS).toCompletableFuture().join();
+        time.addAndGet(2000);
+        Assert.assertEquals("V2", node2.GET_ASYNC("K1").toCompletableFuture().join().getValue());
+
+        Map<Object, Object> map = new HashMap<>();
+        map.put("K1", "V3");
+        map.put("K2", "V4");
+        node1.PUT_ALL_ASYNC(map).toCompletableFuture().join();
+        time.addAndGet(2000);
+        MultiGetResult<Object, Object> r = node2.GET_ALL_ASYNC(map.keySet()).toCompletableFuture().join();
+        Assert.assertEquals(map, r.unwrapValues());
+
+        node1.REMOVE_ASYNC("K1").toCompletableFuture().join();
+        time.addAndGet(2000);
+        Assert.assertFalse(node2.GET_ASYNC("K1").toCompletableFuture().join().isSuccess());
+    }
+
+    @Test
+    public void testVersionUnavailable() {
+        node1.put("K1", "V1");
+        Assert.assertEquals("V1", node2.get("K1"));
+        // the local value is kept if the version can't be read
+        Cache<Object, Object> failVersionCache = new MonitoredCache<Object, Object>(versionCache, versionMonitor) {
+            @Override
+            public CacheGetResult<Object> GET(Object key) {
+                return new CacheGetResult<>(new RuntimeException("mock"));
+            }
+        };
+        Cache<Object, Object> node3 = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(local2, remote)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .versionCache(failVersionCache)
+                .freshnessWindow(1000, TimeUnit.MILLISECONDS)
+                .clock(clock)
+                .buildCache();
+        long remoteGets = remoteGets();
+        time.addAndGet(2000);
+        Assert.assertEquals("V1", node3.get("K1"));
+        Assert.assertEquals(remoteGets, remoteGets());
+    }
+
+    @Test
+    public void testUnversionedLocalValue() {
+        // written without version, always read from remote after the window
+        Cache<Object, Object> plain = new MultiLevelCache<>(local1, remote);
+        plain.put("K1", "V1");
+        time.addAndGet(2000);
+        long remoteGets = remoteGets();
+        Assert.assertEquals("V1", node1.get("K1"));
+        Assert.assertEquals(remoteGets + 1, remoteGets());
+    }
+}
@@ -0,0 +1,337 @@
+package com.alicp.jetcache;
+
+import com.alicp.jetcache.anno.BackPressurePolicy;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.event.CachePutAllEvent;
+import com.alicp.jetcache.event.CacheRemoveAllEvent;
+import com.alicp.jetcache.support.CacheStat;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import com.alicp.jetcache.support.InvalidationBroadcaster;
+import com.alicp.jetcache.support.LocalInvalidationChannel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on 2017/6/6.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class WriteBehindMultiLevelCacheTest {
+
+    private AtomicInteger putAllCount = new AtomicInteger();
+    private AtomicInteger removeAllCount = new AtomicInteger();
+    private AtomicBoolean failPut = new AtomicBoolean();
+    // if set, PUT_ALL of the remote counts down putEntered and waits for putLatch
+    private volatile CountDownLatch putLatch;
+    private volatile CountDownLatch putEntered;
+
+    private Cache<Object, Object> remoteStore;
+    private Cache<Object, Object> remote;
+    private Cache<Object, Object> local;
+
+    @Before
+    public void setup() {
+        remoteStore = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(1000).buildCache();
+        remote = new MonitoredCache<Object, Object>(remoteStore, (e) -> {
+            if (e instanceof CachePutAllEvent) {
+                putAllCount.incrementAndGet();
+            } else if (e instanceof CacheRemoveAllEvent) {
+                removeAllCount.incrementAndGet();
+            }
+        }) {
+            @Override
+            public CacheResult PUT_ALL(Map<?, ?> map, long expire, TimeUnit timeUnit) {
+                boolean fail = failPut.get();
+                CountDownLatch latch = putLatch;
+                if (latch != null) {
+                    putLatch = null;
+                    putEntered.countDown();
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                if (fail) {
+                    return CacheResult.FAIL_WITHOUT_MSG;
+                }
+                return super.PUT_ALL(map, expire, timeUnit);
+            }
+        };
+        local = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(1000).buildCache();
+    }
+
+    private MultiLevelCache<Object, Object> build(Cache<Object, Object> l1, int capacity, int batchSize,
+                                                  String policy) {
+        return (MultiLevelCache<Object, Object>) MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, remote)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .writeBehind(true)
+                .writeBehindCapacity(capacity)
+                .writeBehindBatchSize(batchSize)
+                .writeBehindFlushInterval(1, TimeUnit.HOURS)
+                .backPressurePolicy(policy)
+                .buildCache();
+    }
+
+    private MultiLevelCache<Object, Object> build(int capacity, int batchSize, String policy) {
+        return build(local, capacity, batchSize, policy);
+    }
+
+    @Test
+    public void testCoalesceAndFlush() {
+        MultiLevelCache<Object, Object> cache = build(100, 100, BackPressurePolicy.BLOCK);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        remoteStore.put("K3", "V3");
+
+        cache.put("K1", "V1");
+        cache.put("K1", "V1_NEW");
+        cache.putAll(new HashMap<Object, Object>() {{
+            put("K2", "V2");
+            put("K4", "V4");
+        }});
+        cache.remove("K3");
+        Assert.assertEquals(4, writer.pendingCount());
+        Assert.assertEquals(1, writer.getCoalescedCount());
+        Assert.assertNull(remoteStore.get("K1"));
+        Assert.assertNotNull(remoteStore.get("K3"));
+
+        // the pending writes are visible after the local level is evicted
+        local.removeAll(new HashSet<>(Arrays.asList("K1", "K2", "K3", "K4")));
+        Assert.assertEquals("V1_NEW", cache.get("K1"));
+        local.remove("K1");
+        Map<Object, Object> values = cache.getAll(new HashSet<>(Arrays.asList("K1", "K2", "K3", "K5")));
+        Assert.assertEquals(2, values.size());
+        Assert.assertEquals("V1_NEW", values.get("K1"));
+        Assert.assertNull(cache.get("K3"));
+
+        writer.flush();
+        Assert.assertEquals(0, writer.pendingCount());
+        Assert.assertEquals(4, writer.getWriteCount());
+        Assert.assertEquals(0, writer.getFailCount());
+        // one PUT_ALL for the puts with the same expire time, one REMOVE_ALL
+        Assert.assertEquals(1, putAllCount.get());
+        Assert.assertEquals(1, removeAllCount.get());
+        Assert.assertEquals("V1_NEW", ((CacheValueHolder) remoteStore.get("K1")).getValue());
+        Assert.assertNull(remoteStore.get("K3"));
+
+        local.remove("K4");
+        Assert.assertEquals("V4", cache.get("K4"));
+    }
+
+    @Test
+    public void testBatchSize() throws Exception {
+        MultiLevelCache<Object, Object> cache = build(100, 10, BackPressurePolicy.BLOCK);
+        for (int i = 0; i < 10; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        // flushed in background when the batch is full
+        for (int i = 0; i < 100 && remoteStore.get("K9") == null; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(remoteStore.get("K0"));
+        Assert.assertNotNull(remoteStore.get("K9"));
+    }
+
+    @Test
+    public void testCallerRuns() {
+        MultiLevelCache<Object, Object> cache = build(2, 100, BackPressurePolicy.CALLER_RUNS);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        cache.put("K1", "V1");
+        cache.put("K2", "V2");
+        cache.put("K3", "V3");
+        // coalesced writes are queued even if the queue is full
+        cache.put("K1", "V1_NEW");
+        Assert.assertEquals(2, writer.pendingCount());
+        Assert.assertEquals(1, writer.getCallerRunsCount());
+        Assert.assertNull(remoteStore.get("K1"));
+        Assert.assertNotNull(remoteStore.get("K3"));
+    }
+
+    @Test
+    public void testCallerRunsDuringFailedFlush() throws Exception {
+        MultiLevelCache<Object, Object> cache = build(1, 100, BackPressurePolicy.CALLER_RUNS);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        cache.put("K1", "V1");
+        failPut.set(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        putEntered = new CountDownLatch(1);
+        putLatch = latch;
+        Thread flusher = new Thread(writer::flush);
+        flusher.start();
+        putEntered.await();
+        failPut.set(false);
+
+        // K1 is being flushed and the queue is full, the new value is written by the caller
+        cache.put("K2", "V2");
+        Thread caller = new Thread(() -> cache.put("K1", "V1_NEW"));
+        caller.start();
+        for (int i = 0; i < 100 && writer.getCallerRunsCount() == 0; i++) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(1, writer.getCallerRunsCount());
+        // the flush fails and queues V1 again, the caller must drop it
+        latch.countDown();
+        flusher.join();
+        caller.join();
+        Assert.assertEquals("V1_NEW", ((CacheValueHolder) remoteStore.get("K1")).getValue());
+        local.remove("K1");
+        Assert.assertEquals("V1_NEW", cache.get("K1"));
+        writer.flush();
+        Assert.assertEquals("V1_NEW", ((CacheValueHolder) remoteStore.get("K1")).getValue());
+        Assert.assertEquals("V2", ((CacheValueHolder) remoteStore.get("K2")).getValue());
+    }
+
+    @Test
+    public void testBlock() {
+        MultiLevelCache<Object, Object> cache = build(2, 100, BackPressurePolicy.BLOCK);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        cache.put("K1", "V1");
+        cache.put("K2", "V2");
+        cache.put("K3", "V3");
+        // the caller flushed the full queue and queued its own write
+        Assert.assertEquals(1, writer.pendingCount());
+        Assert.assertNotNull(remoteStore.get("K1"));
+        Assert.assertNotNull(remoteStore.get("K2"));
+        Assert.assertNull(remoteStore.get("K3"));
+        Assert.assertEquals(0, writer.getCallerRunsCount());
+    }
+
+    @Test
+    public void testDiscardAndFailure() {
+        MultiLevelCache<Object, Object> cache = build(2, 100, BackPressurePolicy.DISCARD);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        DefaultCacheMonitor monitor = new DefaultCacheMonitor("test");
+        writer.setMonitor(monitor);
+        remoteStore.put("K4", "V4");
+
+        cache.put("K1", "V1");
+        cache.put("K2", "V2");
+        cache.put("K3", "V3");
+        // removes are never discarded
+        cache.remove("K4");
+        Assert.assertEquals(1, writer.getDiscardCount());
+        Assert.assertEquals(1, writer.getCallerRunsCount());
+        Assert.assertNull(remoteStore.get("K4"));
+        Assert.assertEquals("V3", cache.get("K3"));
+
+        failPut.set(true);
+        writer.flush();
+        Assert.assertEquals(2, writer.getFailCount());
+        Assert.assertNull(remoteStore.get("K1"));
+
+        CacheStat stat = monitor.getCacheStat();
+        Assert.assertEquals(1, stat.getWriteBehindDiscardCount());
+        Assert.assertEquals(1, stat.getWriteBehindFlushCount());
+        Assert.assertEquals(2, stat.getWriteBehindCount());
+        Assert.assertEquals(2, stat.getWriteBehindFailCount());
+    }
+
+    @Test
+    public void testRetry() {
+        MultiLevelCache<Object, Object> cache = build(100, 100, BackPressurePolicy.BLOCK);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        failPut.set(true);
+        cache.put("K1", "V1");
+        writer.flush();
+        // queued again and still visible
+        Assert.assertEquals(1, writer.pendingCount());
+        Assert.assertEquals(1, writer.getRetryCount());
+        local.remove("K1");
+        Assert.assertEquals("V1", cache.get("K1"));
+
+        failPut.set(false);
+        writer.flush();
+        Assert.assertEquals(0, writer.pendingCount());
+        Assert.assertEquals("V1", ((CacheValueHolder) remoteStore.get("K1")).getValue());
+    }
+
+    @Test
+    public void testGiveUp() {
+        MultiLevelCache<Object, Object> cache = build(100, 100, BackPressurePolicy.BLOCK);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        failPut.set(true);
+        cache.put("K1", "V1");
+        for (int i = 0; i <= WriteBehindCache.MAX_RETRIES; i++) {
+            Assert.assertEquals(1, writer.pendingCount());
+            writer.flush();
+        }
+        Assert.assertEquals(0, writer.pendingCount());
+        Assert.assertEquals(WriteBehindCache.MAX_RETRIES, writer.getRetryCount());
+        Assert.assertEquals(WriteBehindCache.MAX_RETRIES + 1, writer.getFailCount());
+        // evicted from the upper level, since the last level never received it
+        Assert.assertNull(local.get("K1"));
+        Assert.assertNull(cache.get("K1"));
+    }
+
+    @Test
+    public void testClose() {
+        MultiLevelCache<Object, Object> cache = build(100, 100, BackPressurePolicy.BLOCK);
+        WriteBehindCache<Object, Object> writer = cache.writeBehindCache();
+        cache.put("K1", "V1");
+        writer.close();
+        Assert.assertNotNull(remoteStore.get("K1"));
+        // written in the caller thread after close
+        cache.put("K2", "V2");
+        Assert.assertNotNull(remoteStore.get("K2"));
+        Assert.assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    public void testBroadcastAfterFlush() {
+        LocalInvalidationChannel channel = new LocalInvalidationChannel();
+        InvalidationBroadcaster broadcaster1 = new InvalidationBroadcaster(channel);
+        InvalidationBroadcaster broadcaster2 = new InvalidationBroadcaster(channel);
+        broadcaster2.setInvalidateExecutor(Runnable::run);
+        try {
+            Cache<Object, Object> local2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().limit(100).buildCache();
+            MultiLevelCache<Object, Object> node1 = (MultiLevelCache<Object, Object>) MultiLevelCacheBuilder
+                    .createMultiLevelCacheBuilder()
+                    .addCache(local, remote)
+                    .expireAfterWrite(1, TimeUnit.HOURS)
+                    .writeBehind(true)
+                    .writeBehindFlushInterval(1, TimeUnit.HOURS)
+                    .invalidationBroadcaster(broadcaster1)
+                    .invalidationName("c1")
+                    .buildCache();
+            Cache<Object, Object> node2 = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                    .addCache(local2, remote)
+                    .expireAfterWrite(1, TimeUnit.HOURS)
+                    .invalidationBroadcaster(broadcaster2)
+                    .invalidationName("c1")
+                    .buildCache();
+
+            node2.put("K1", "V1");
+            node1.put("K1", "V2");
+            broadcaster1.flush();
+            // not invalidated before the remote is written
+            Assert.assertEquals("V1", node2.get("K1"));
+
+            node1.writeBehindCache().flush();
+            broadcaster1.flush();
+            Assert.assertNull(local2.get("K1"));
+            Assert.assertEquals("V2", node2.get("K1"));
+
+            // the failed writes are not broadcast
+            failPut.set(true);
+            node1.put("K1", "V3");
+            node1.writeBehindCache().flush();
+            broadcaster1.flush();
+            Assert.assertNotNull(local2.get("K1"));
+            Assert.assertEquals("V2", node2.get("K1"));
+        } finally {
+            broadcaster1.close();
+            broadcaster2.close();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.alicp.jetcache.MultiLevelCache;
 import com.alicp.jetcache.ProxyCache;
 import com.alicp.jetcache.anno.CacheType;
 import com.alicp.jetcache.anno.CreateCache;
+import com.alicp.jetcache.anno.EvictionPolicy;
 import com.alicp.jetcache.anno.KeyConvertor;
 import com.alicp.jetcache.anno.SerialPolicy;
 import com.alicp.jetcache.anno.config.EnableCreateCacheAnnotation;
@@ -90,7 +91,7 @@ public class CreateCacheTest extends SpringTest {
             @CreateCache(name = "sameCacheName")
             private Cache cacheSameName2;
 
-            @CreateCache(area = "A1", name = "name1", expire = 5, cacheType = CacheType.BOTH, localLimit = 10, serialPolicy = SerialPolicy.JAVA, keyConvertor = KeyConvertor.NONE)
+            @CreateCache(area = "A1", name = "name1", expire = 5, cacheType = CacheType.BOTH, localLimit = 10, localEvictionPolicy = EvictionPolicy.TINY_LFU, serialPolicy = SerialPolicy.JAVA, keyConvertor = KeyConvertor.NONE)
             private Cache cacheWithConfig;
 
             private Cache getTarget(Cache cache) {
@@ -130,6 +131,7 @@ public class CreateCacheTest extends SpringTest {
                 Assert.assertEquals(5000, localConfig.getDefaultExpireInMillis());
                 Assert.assertEquals(5000, remoteConfig.getDefaultExpireInMillis());
                 Assert.assertEquals(10, localConfig.getLimit());
+                Assert.assertEquals(EvictionPolicy.TINY_LFU, localConfig.getEvictionPolicy());
                 Assert.assertSame(JavaValueEncoder.INSTANCE, remoteConfig.getValueEncoder());
                 Assert.assertSame(JavaValueDecoder.INSTANCE, remoteConfig.getValueDecoder());
                 Assert.assertNull(localConfig.getKeyConvertor());
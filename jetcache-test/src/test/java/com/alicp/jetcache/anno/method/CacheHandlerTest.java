@@ -4,6 +4,8 @@
 package com.alicp.jetcache.anno.method;
 
 import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.MonitoredCache;
+import com.alicp.jetcache.RefreshPolicy;
 import com.alicp.jetcache.anno.CacheConsts;
 import com.alicp.jetcache.anno.CacheType;
 import com.alicp.jetcache.anno.KeyConvertor;
@@ -11,6 +13,7 @@ import com.alicp.jetcache.anno.support.CacheAnnoConfig;
 import com.alicp.jetcache.anno.support.CacheContext;
 import com.alicp.jetcache.anno.support.GlobalCacheConfig;
 import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import com.alicp.jetcache.event.CacheLoadEvent;
 import com.alicp.jetcache.support.FastjsonKeyConvertor;
 import com.alicp.jetcache.test.support.DynamicQuery;
 import com.alicp.jetcache.testsupport.CountClass;
@@ -21,6 +24,11 @@ import org.junit.Test;
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
@@ -105,6 +113,51 @@ public class CacheHandlerTest {
 
     }
 
+    @Test
+    public void testStaticInvokeException() throws Throwable {
+        Method method = CountClass.class.getMethod("count");
+        try {
+            CacheHandler.invoke(createContext(() -> {
+                throw new IllegalStateException("mock");
+            }, method, null));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("mock", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStaticInvokePenetrationProtect() throws Throwable {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .keyConvertor(FastjsonKeyConvertor.INSTANCE)
+                .cachePenetrationProtect(true)
+                .buildCache();
+        Method method = CountClass.class.getMethod("count");
+        int threadCount = 5;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        Object[] results = new Object[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int index = i;
+            new Thread(() -> {
+                try {
+                    results[index] = CacheHandler.invoke(createContext(() -> {
+                        Thread.sleep(100);
+                        return method.invoke(count);
+                    }, method, null));
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        for (Object r : results) {
+            Assert.assertEquals(0, r);
+        }
+        Assert.assertEquals(1, count.count());
+    }
+
     // basic test
     @Test
     public void testStaticInvoke2() throws Throwable {
@@ -228,6 +281,72 @@ public class CacheHandlerTest {
         Assert.assertNotEquals(x3, x1);
     }
 
+    @Test
+    public void testRefreshWithOwnContext() throws Throwable {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .keyConvertor(FastjsonKeyConvertor.INSTANCE)
+                .refreshPolicy(RefreshPolicy.newPolicy(20, TimeUnit.MILLISECONDS))
+                .buildCache();
+        Method method = CountClass.class.getMethod("count");
+        cacheAnnoConfig.setUnless("mvel{result%2==1}");
+        cacheInvokeConfig.init();
+        AtomicInteger invokers = new AtomicInteger();
+        CacheInvokeContext context = createContext(() -> method.invoke(count), method, null);
+        context.setInvokerSupplier(() -> {
+            invokers.incrementAndGet();
+            return () -> method.invoke(count);
+        });
+        Assert.assertEquals(0, CacheHandler.invoke(context));
+        for (int i = 0; i < 200 && invokers.get() < 4; i++) {
+            Thread.sleep(5);
+        }
+        // each background load gets a new invoker, and never writes the result of the call
+        Assert.assertTrue(invokers.get() >= 4);
+        Assert.assertEquals(0, context.getResult());
+        // unless is evaluated with the value of each load, the odd values are not cached
+        Assert.assertEquals(0, (Integer) cache.get("_$JETCACHE_NULL_KEY$_") % 2);
+    }
+
+    @Test
+    public void testLoadEventCoalescedCount() throws Throwable {
+        List<CacheLoadEvent> loadEvents = new CopyOnWriteArrayList<>();
+        cache = new MonitoredCache(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .keyConvertor(FastjsonKeyConvertor.INSTANCE)
+                .cachePenetrationProtect(true)
+                .buildCache(), event -> {
+            if (event instanceof CacheLoadEvent) {
+                loadEvents.add((CacheLoadEvent) event);
+            }
+        });
+        Method method = CountClass.class.getMethod("count");
+        cacheInvokeConfig.init();
+        CountDownLatch loading = new CountDownLatch(1);
+        Invoker invoker = () -> {
+            loading.countDown();
+            Thread.sleep(200);
+            return method.invoke(count);
+        };
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    Assert.assertEquals(0, CacheHandler.invoke(createContext(invoker, method, null)));
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[i].start();
+            if (i == 0) {
+                loading.await();
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(1, loadEvents.size());
+        Assert.assertTrue(loadEvents.get(0).getCoalescedCount() > 0);
+    }
+
     @Test
     public void testStaticInvokeUnlessAndNull() throws Throwable {
         Method method = CountClass.class.getMethod("countNull");
@@ -2,8 +2,11 @@ package com.alicp.jetcache.embedded;
 
 import com.alicp.jetcache.Cache;
 import com.alicp.jetcache.CacheConfig;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -34,4 +37,55 @@ public class CaffeineCacheTest extends AbstractEmbeddedCacheTest {
 //        System.out.println(cache.get("K3"));
     }
 
+    @Test
+    public void testPerEntryExpire() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        cache = CaffeineCacheBuilder.createCaffeineCacheBuilder()
+                .clock(now::get).limit(100).expireAfterWrite(100, TimeUnit.SECONDS).buildCache();
+        com.github.benmanes.caffeine.cache.Cache c = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        for (int i = 0; i < 50; i++) {
+            cache.put("K" + i, "V" + i, 5, TimeUnit.SECONDS);
+        }
+        cache.put("K", "V");
+        Assert.assertEquals(51, c.asMap().size());
+        now.addAndGet(6000);
+        // the short ttl entries are removed from Caffeine, not only hidden by the holder check
+        cache.put("K2", "V2");
+        Assert.assertEquals(2, c.asMap().size());
+        Assert.assertEquals("V", cache.get("K"));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        cache = CaffeineCacheBuilder.createCaffeineCacheBuilder()
+                .clock(now::get).limit(10000).expireAfterWrite(100, TimeUnit.SECONDS).buildCache();
+        com.github.benmanes.caffeine.cache.Cache c = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int base = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    String key = "K" + (base + i);
+                    cache.put(key, "V", 5, TimeUnit.SECONDS);
+                    if (i % 3 == 0) {
+                        cache.remove(key);
+                    } else if (i % 3 == 1) {
+                        // replaced by a long ttl value
+                        cache.put(key, "V2");
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        now.addAndGet(6000);
+        ((CaffeineCache) cache).cleanExpiredEntry();
+        // only the replaced keys are left, the wheel follows the latest write of each key
+        Assert.assertEquals(8 * 333, c.asMap().size());
+        Assert.assertEquals("V2", cache.get("K1"));
+        Assert.assertNull(cache.get("K2"));
+    }
 }
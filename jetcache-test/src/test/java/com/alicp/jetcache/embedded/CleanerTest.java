@@ -16,7 +16,7 @@ public class CleanerTest {
 
     @Test
     public void test() throws Exception {
-        Cleaner.linkedHashMapCaches.clear();
+        Cleaner.caches.clear();
         Cache c1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
                 .expireAfterWrite(2000, TimeUnit.MILLISECONDS).limit(3).buildCache();
         Cache c2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
@@ -30,11 +30,11 @@ public class CleanerTest {
         Assert.assertEquals(CacheResultCode.NOT_EXISTS, c1.GET("K1").getResultCode());
         Assert.assertEquals(CacheResultCode.NOT_EXISTS, c1.GET("K1").getResultCode());
 
-        Assert.assertEquals(2, Cleaner.linkedHashMapCaches.size());
+        Assert.assertEquals(2, Cleaner.caches.size());
         c1 = null;
         System.gc();
         Cleaner.run();
-        Assert.assertEquals(1, Cleaner.linkedHashMapCaches.size());
+        Assert.assertEquals(1, Cleaner.caches.size());
 
     }
 }
@@ -0,0 +1,60 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheValueHolder;
+import com.alicp.jetcache.ValueHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/6/4.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class CompactValueHolderTest {
+
+    @Test
+    public void testCreate() {
+        ValueHolder<String> h = CompactValueHolder.create("V1", 1000, 200, false);
+        Assert.assertEquals(CompactValueHolder.class, h.getClass());
+        Assert.assertEquals("V1", h.getValue());
+        Assert.assertEquals(1200, h.getExpireTime());
+        Assert.assertEquals(0, h.getInitTtlInMillis());
+
+        h = CompactValueHolder.create("V1", 1000, 200, true);
+        Assert.assertEquals(CompactValueHolder.Renewable.class, h.getClass());
+        Assert.assertEquals(1200, h.getExpireTime());
+        Assert.assertEquals(200, h.getInitTtlInMillis());
+    }
+
+    @Test
+    public void testToCacheValueHolder() {
+        ValueHolder<String> h = CompactValueHolder.create("V1", 1000, 200, true);
+        h.setExpireTime(1500);
+        CacheValueHolder<String> c = CompactValueHolder.toCacheValueHolder(h);
+        Assert.assertEquals("V1", c.getValue());
+        Assert.assertEquals(1500, c.getExpireTime());
+        Assert.assertEquals(200, c.getInitTtlInMillis());
+        Assert.assertSame(c, CompactValueHolder.toCacheValueHolder(c));
+    }
+
+    @Test
+    public void testStoredHolder() throws Exception {
+        Cache<String, String> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        cache.put("K1", "V1");
+        Assert.assertEquals(CompactValueHolder.class, cache.unwrap(LinkedHashMap.class).get("K1").getClass());
+
+        // the ttl is kept through the bytes of OffHeapCache
+        cache = OffHeapCacheBuilder.createOffHeapCacheBuilder()
+                .expireAfterAccess(50, TimeUnit.MILLISECONDS).buildCache();
+        cache.put("K1", "V1");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(20);
+            Assert.assertEquals("V1", cache.get("K1"));
+        }
+        ((OffHeapCache) cache).close();
+    }
+}
@@ -0,0 +1,71 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheConfig;
+import com.alicp.jetcache.CacheResultCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/28.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class ConcurrentHashMapCacheTest extends AbstractEmbeddedCacheTest {
+
+    @Override
+    protected Function<CacheConfig, Cache> getBuildFunc() {
+        return (c) -> new ConcurrentHashMapCache((EmbeddedCacheConfig) c);
+    }
+
+    @Test
+    public void test() throws Exception {
+        super.test(50, true);
+    }
+
+    @Test
+    public void limitTest() throws Exception {
+        cache = ConcurrentHashMapCacheBuilder.createConcurrentHashMapCacheBuilder()
+                .limit(100).buildCache();
+        BufferedLRUMap map = (BufferedLRUMap) ((ConcurrentHashMapCache) cache).innerMap;
+        Map<Object, Object> values = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            values.put("K" + i, "V" + i);
+        }
+        cache.putAll(values);
+        Assert.assertEquals(100, map.size());
+
+        int threads = 4;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int base = t;
+            new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String key = "K" + ((i + base) % 300);
+                    if (i % 3 == 0) {
+                        cache.put(key, "V");
+                    } else if (i % 7 == 0) {
+                        cache.remove(key);
+                    } else {
+                        cache.get(key);
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertTrue(map.size() <= 100);
+
+        cache.put("K1", "V1", 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(2);
+        Assert.assertEquals(CacheResultCode.EXPIRED, cache.GET("K1").getResultCode());
+        ((ConcurrentHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET("K1").getResultCode());
+    }
+}
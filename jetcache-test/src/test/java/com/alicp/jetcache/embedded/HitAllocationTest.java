@@ -0,0 +1,116 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.MonitoredCache;
+import com.alicp.jetcache.MultiLevelCacheBuilder;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class HitAllocationTest {
+
+    private static final int COUNT = 100000;
+
+    @Test
+    public void testLinkedHashMapCache() {
+        hitTest(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache());
+        hitTest(LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().expireAfterAccess(100, TimeUnit.SECONDS).buildCache());
+    }
+
+    @Test
+    public void testCaffeineCache() {
+        hitTest(CaffeineCacheBuilder.createCaffeineCacheBuilder().buildCache());
+    }
+
+    @Test
+    public void testConcurrentHashMapCache() {
+        hitTest(ConcurrentHashMapCacheBuilder.createConcurrentHashMapCacheBuilder().buildCache());
+    }
+
+    @Test
+    public void testLongKeyCache() {
+        LongKeyCache<Object> cache = (LongKeyCache<Object>) (Cache) LongKeyCacheBuilder.createLongKeyCacheBuilder().buildCache();
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported()
+                && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        // not in the Long cache, get(Long) would allocate a Long for each call
+        long key = 123456789L;
+        cache.put(key, "V1");
+        Object v = null;
+        for (int i = 0; i < COUNT; i++) {
+            v = cache.get(key);
+        }
+        long base = threadBean.getThreadAllocatedBytes(threadId);
+        long empty = threadBean.getThreadAllocatedBytes(threadId) - base;
+        base = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < COUNT; i++) {
+            v = cache.get(key);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - base - empty;
+        Assert.assertEquals("V1", v);
+        Assert.assertTrue("allocated " + allocated + " bytes", allocated < COUNT);
+    }
+
+    @Test
+    public void testMultiLevelCache() {
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        Cache<Object, Object> l2 = CaffeineCacheBuilder.createCaffeineCacheBuilder().buildCache();
+        hitTest(MultiLevelCacheBuilder.createMultiLevelCacheBuilder().addCache(l1, l2).buildCache());
+    }
+
+    @Test
+    public void testMonitoredCache() {
+        DefaultCacheMonitor monitor = new DefaultCacheMonitor("test");
+        Cache<Object, Object> target = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder().buildCache();
+        hitTest(new MonitoredCache<>(target, monitor));
+        Assert.assertEquals(2 * COUNT, monitor.getCacheStat().getGetHitCount());
+
+        monitor = new DefaultCacheMonitor("test");
+        hitTest(new MonitoredCache<>(CaffeineCacheBuilder.createCaffeineCacheBuilder().buildCache(), monitor));
+        Assert.assertEquals(2 * COUNT, monitor.getCacheStat().getGetCount());
+    }
+
+    private void hitTest(Cache<Object, Object> cache) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported()
+                && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        String key = "K1";
+        cache.put(key, "V1");
+        Assert.assertEquals("V1", getMany(cache, key));
+
+        long base = threadBean.getThreadAllocatedBytes(threadId);
+        long empty = threadBean.getThreadAllocatedBytes(threadId) - base;
+        base = threadBean.getThreadAllocatedBytes(threadId);
+        Object v = getMany(cache, key);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - base - empty;
+        Assert.assertEquals("V1", v);
+        // less than 1 byte per get
+        Assert.assertTrue("allocated " + allocated + " bytes", allocated < COUNT);
+    }
+
+    private Object getMany(Cache<Object, Object> cache, String key) {
+        Object v = null;
+        for (int i = 0; i < COUNT; i++) {
+            v = cache.get(key);
+        }
+        return v;
+    }
+}
@@ -27,6 +27,13 @@ public class LinkedHashMapCacheTest extends AbstractEmbeddedCacheTest {
         super.test(50, true);
     }
 
+    @Test
+    public void penetrationProtectTest() throws Exception {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .cachePenetrationProtect(true).buildCache();
+        penetrationProtectTest(cache);
+    }
+
     @Test
     public void cleanTest() throws Exception {
         cache = EmbeddedCacheBuilder.createEmbeddedCacheBuilder()
@@ -0,0 +1,157 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheResultCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created on 2017/6/3.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class LongKeyCacheTest {
+
+    private LongKeyCache<String> build(int limit) {
+        return (LongKeyCache<String>) (Cache) LongKeyCacheBuilder.createLongKeyCacheBuilder()
+                .limit(limit).buildCache();
+    }
+
+    @Test
+    public void testBasic() {
+        LongKeyCache<String> cache = build(100);
+        cache.put(1L, "V1");
+        Assert.assertEquals("V1", cache.get(1L));
+        Assert.assertEquals("V1", cache.get(Long.valueOf(1)));
+        Assert.assertEquals("V1", cache.GET(1L).getValue());
+        Assert.assertNull(cache.get(2L));
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET(2L).getResultCode());
+
+        cache.put(2L, "V2", 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(cache.putIfAbsent(3L, "V3"));
+        Assert.assertFalse(cache.putIfAbsent(3L, "V3_NEW"));
+        Map<Long, String> m = new HashMap<>();
+        m.put(4L, "V4");
+        m.put(-5L, "V5");
+        cache.putAll(m);
+        Map<Long, String> values = cache.getAll(new HashSet<>(Arrays.asList(1L, 3L, 4L, -5L, 6L)));
+        Assert.assertEquals(4, values.size());
+        Assert.assertEquals("V5", values.get(-5L));
+
+        Assert.assertTrue(cache.remove(1L));
+        Assert.assertFalse(cache.remove(1L));
+        Assert.assertNull(cache.get(1L));
+        cache.removeAll(new HashSet<>(Arrays.asList(3L, 4L)));
+        Assert.assertNull(cache.get(3L));
+        Assert.assertEquals("V5", cache.get(-5L));
+
+        Assert.assertNull(cache.get(null));
+        try {
+            ((Cache) cache).get("K1");
+            Assert.fail();
+        } catch (ClassCastException e) {
+        }
+    }
+
+    @Test
+    public void testLRU() {
+        LongKeyCache<String> cache = build(3);
+        cache.put(1L, "V1");
+        cache.put(2L, "V2");
+        cache.put(3L, "V3");
+        cache.get(1L);
+        cache.put(4L, "V4");
+        Assert.assertNull(cache.get(2L));
+        Assert.assertEquals("V1", cache.get(1L));
+        Assert.assertEquals("V3", cache.get(3L));
+        Assert.assertEquals("V4", cache.get(4L));
+        Assert.assertEquals(3, ((LongLRUMap) cache.innerMap).size());
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        LongKeyCache<String> cache = build(100);
+        cache.put(1L, "V1", 1, TimeUnit.MILLISECONDS);
+        cache.put(2L, "V2", 100, TimeUnit.SECONDS);
+        Thread.sleep(2);
+        Assert.assertNull(cache.get(1L));
+        cache.cleanExpiredEntry();
+        Assert.assertEquals(1, ((LongLRUMap) cache.innerMap).size());
+        Assert.assertEquals("V2", cache.get(2L));
+
+        cache = (LongKeyCache<String>) (Cache) LongKeyCacheBuilder.createLongKeyCacheBuilder()
+                .expireAfterAccess(50, TimeUnit.MILLISECONDS).buildCache();
+        cache.put(1L, "V1");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(20);
+            Assert.assertEquals("V1", cache.get(1L));
+            cache.cleanExpiredEntry();
+        }
+        Assert.assertEquals(1, ((LongLRUMap) cache.innerMap).size());
+    }
+
+    @Test
+    public void testExpireByWheel() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        LongKeyCache<String> cache = (LongKeyCache<String>) (Cache) LongKeyCacheBuilder.createLongKeyCacheBuilder()
+                .clock(now::get).limit(100).expireAfterWrite(100, TimeUnit.SECONDS).buildCache();
+        LongLRUMap map = (LongLRUMap) cache.innerMap;
+        for (long i = 0; i < 50; i++) {
+            cache.put(i, "V" + i, 5, TimeUnit.SECONDS);
+        }
+        // replaced by a long ttl value, the schedule of the entry follows
+        cache.put(0L, "V0");
+        now.addAndGet(6000);
+        // a write advances the wheel, no cleaner is needed
+        cache.put(100L, "V100");
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals("V0", cache.get(0L));
+
+        // the entry index is reused by another key with a long ttl
+        cache.put(200L, "V200", 5, TimeUnit.SECONDS);
+        cache.remove(200L);
+        cache.put(300L, "V300");
+        now.addAndGet(6000);
+        cache.cleanExpiredEntry();
+        Assert.assertEquals("V300", cache.get(300L));
+        Assert.assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testRandom() {
+        int limit = 200;
+        LongKeyCache<String> cache = build(limit);
+        // access ordered reference
+        LinkedHashMap<Long, String> ref = new LinkedHashMap<>(16, 0.75f, true);
+        Random r = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            // small key range makes long probe sequences and many deletions
+            long key = r.nextInt(500) * 1024L;
+            int op = r.nextInt(10);
+            if (op < 5) {
+                Assert.assertEquals(ref.get(key), cache.get(key));
+            } else if (op < 8) {
+                cache.put(key, "V" + i);
+                ref.put(key, "V" + i);
+                if (ref.size() > limit) {
+                    Iterator<Long> it = ref.keySet().iterator();
+                    it.next();
+                    it.remove();
+                }
+            } else {
+                Assert.assertEquals(ref.remove(key) != null, cache.remove(key));
+            }
+        }
+        Assert.assertEquals(ref.size(), ((LongLRUMap) cache.innerMap).size());
+    }
+}
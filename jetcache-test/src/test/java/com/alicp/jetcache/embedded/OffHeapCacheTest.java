@@ -0,0 +1,123 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheConfig;
+import com.alicp.jetcache.CacheResultCode;
+import com.alicp.jetcache.MonitoredCache;
+import com.alicp.jetcache.support.CacheStat;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import com.alicp.jetcache.test.support.DynamicQuery;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/31.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class OffHeapCacheTest extends AbstractEmbeddedCacheTest {
+
+    @Override
+    protected Function<CacheConfig, Cache> getBuildFunc() {
+        return (c) -> new OffHeapCache((EmbeddedCacheConfig) c);
+    }
+
+    @Test
+    public void test() throws Exception {
+        super.test(100, false);
+    }
+
+    @Override
+    protected void nullKeyConvertorTest() {
+        // keys are compared by the serialized bytes
+        DynamicQuery d1 = new DynamicQuery();
+        DynamicQuery d2 = new DynamicQuery();
+        DynamicQuery d3 = new DynamicQuery();
+        d1.setId(100);
+        d2.setId(100);
+        d3.setId(101);
+        cache.put(d1, "V1");
+        Assert.assertEquals("V1", cache.get(d2));
+        Assert.assertNull(cache.get(d3));
+    }
+
+    @Test
+    public void evictAndCloseTest() {
+        OffHeapCache c = (OffHeapCache) OffHeapCacheBuilder.createOffHeapCacheBuilder()
+                .capacityInBytes(64 * 1024).slabSizeInBytes(16 * 1024).buildCache();
+        OffHeapMap map = (OffHeapMap) c.innerMap;
+        DefaultCacheMonitor monitor = new DefaultCacheMonitor("offheap");
+        monitor.setOffHeapBytesSupplier(c::offHeapBytes);
+        Cache<String, String> cache = new MonitoredCache<String, String>(c, monitor);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append('x');
+        }
+        String value = sb.toString();
+        for (int i = 0; i < 2000; i++) {
+            cache.put("K" + i, value + i);
+        }
+        // 4 slabs of 16k, entries share one size class, the eldest are evicted
+        Assert.assertTrue(map.size() < 2000);
+        Assert.assertNull(cache.get("K0"));
+        Assert.assertEquals(value + 1999, cache.get("K1999"));
+        CacheStat stat = monitor.getCacheStat();
+        Assert.assertTrue(stat.getOffHeapBytes() >= 64 * 1024);
+        Assert.assertTrue(stat.getOffHeapBytes() < 64 * 1024 + 100 * 1024);
+
+        // too large for a slab
+        sb.setLength(0);
+        for (int i = 0; i < 20 * 1024; i++) {
+            sb.append('x');
+        }
+        Assert.assertEquals(CacheResultCode.FAIL, cache.PUT("K1999", sb.toString()).getResultCode());
+        Assert.assertNull(cache.get("K1999"));
+
+        c.close();
+        Assert.assertEquals(0, c.offHeapBytes());
+        try {
+            cache.get("K1998");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void mixedSizeTest() {
+        OffHeapCache<String, String> cache = (OffHeapCache<String, String>) (Cache) OffHeapCacheBuilder
+                .createOffHeapCacheBuilder().capacityInBytes(4 * 1024 * 1024).buildCache();
+        // the tiny values take all slabs
+        for (int i = 0; i < 200000; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            sb.append('x');
+        }
+        String big = sb.toString();
+        OffHeapMap innerMap = (OffHeapMap) cache.innerMap;
+        int tinyCount = innerMap.size();
+        // a slab of the tiny values (1 of the 4) is moved to the size class of the big value
+        Assert.assertTrue(cache.PUT("big", big).isSuccess());
+        Assert.assertEquals(big, cache.get("big"));
+        Assert.assertTrue(innerMap.size() > tinyCount / 2);
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put("B" + i, big + i);
+        }
+        Assert.assertTrue(cache.PUT_ALL(map).isSuccess());
+        Assert.assertEquals(big + 99, cache.get("B99"));
+        for (int i = 200000; i < 201000; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        Assert.assertEquals("V200999", cache.get("K200999"));
+        Assert.assertEquals(big + 99, cache.get("B99"));
+        cache.close();
+    }
+}
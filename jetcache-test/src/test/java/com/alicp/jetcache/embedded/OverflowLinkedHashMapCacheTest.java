@@ -0,0 +1,167 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheResultCode;
+import com.alicp.jetcache.anno.EvictionPolicy;
+import com.alicp.jetcache.support.CacheStat;
+import com.alicp.jetcache.support.DefaultCacheMonitor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/6/2.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class OverflowLinkedHashMapCacheTest {
+
+    private File dir;
+    private LinkedHashMapCache<String, String> cache;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("jetcache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private LinkedHashMapCache<String, String> build(String policy, int segmentCount, long capacity) {
+        return (LinkedHashMapCache<String, String>) (Cache) LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .limit(10).evictionPolicy(policy).segmentCount(segmentCount)
+                .overflowDirectory(dir.getPath()).overflowName("test.overflow")
+                .overflowCapacityInBytes(capacity).buildCache();
+    }
+
+    private void testOverflow(String policy, int segmentCount) {
+        cache = build(policy, segmentCount, 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        Assert.assertEquals(100, cache.overflowSize() + 10, segmentCount > 1 ? 10 : 0);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("V" + i, cache.get("K" + i));
+        }
+        Map<String, String> values = cache.getAll(new HashSet<>(Arrays.asList("K1", "K2", "K3", "X")));
+        Assert.assertEquals(3, values.size());
+        Assert.assertEquals("V2", values.get("K2"));
+        cache.close();
+        Assert.assertFalse(new File(dir, "test.overflow").exists());
+        cache = null;
+    }
+
+    @Test
+    public void testOverflow() {
+        testOverflow(EvictionPolicy.LRU, 1);
+        testOverflow(EvictionPolicy.SLRU, 1);
+        testOverflow(EvictionPolicy.TINY_LFU, 1);
+        testOverflow(EvictionPolicy.LRU, 4);
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        cache = build(EvictionPolicy.LRU, 1, 1024 * 1024);
+        for (int i = 0; i < 20; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        // K0~K9 are on disk
+        Assert.assertEquals(10, cache.overflowSize());
+
+        cache.put("K0", "V0_NEW");
+        Assert.assertEquals("V0_NEW", cache.get("K0"));
+
+        cache.remove("K1");
+        Assert.assertNull(cache.get("K1"));
+
+        Assert.assertFalse(cache.putIfAbsent("K2", "V2_NEW"));
+        Assert.assertEquals("V2", cache.get("K2"));
+
+        cache.removeAll(new HashSet<>(Arrays.asList("K3", "K4")));
+        Assert.assertNull(cache.get("K3"));
+        Assert.assertNull(cache.get("K4"));
+
+        cache.put("E", "V", 1, TimeUnit.MILLISECONDS);
+        for (int i = 100; i < 110; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        Thread.sleep(2);
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET("E").getResultCode());
+    }
+
+    @Test
+    public void testPutIfAbsentOverExpiredCopy() throws Exception {
+        cache = build(EvictionPolicy.LRU, 1, 1024 * 1024);
+        cache.put("E", "V", 200, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        Assert.assertEquals(1, cache.overflowSize());
+        Thread.sleep(250);
+        // the expired copy on disk doesn't block the put
+        Assert.assertTrue(cache.putIfAbsent("E", "V_NEW"));
+        Assert.assertEquals("V_NEW", cache.get("E"));
+        Assert.assertFalse(cache.putIfAbsent("K0", "V0_NEW"));
+    }
+
+    @Test
+    public void testCapacityAndCompact() {
+        String value = new String(new char[1000]).replace('\0', 'x');
+        cache = build(EvictionPolicy.LRU, 1, 200 * 1024);
+        File file = new File(dir, "test.overflow");
+        for (int i = 0; i < 1000; i++) {
+            cache.put("K" + i, value + i);
+        }
+        // the oldest entries are dropped
+        Assert.assertTrue(cache.overflowSize() < 200);
+        Assert.assertNull(cache.get("K0"));
+        Assert.assertEquals(value + 999, cache.get("K999"));
+        Assert.assertEquals(value + 980, cache.get("K980"));
+
+        // moving entries between heap and disk leaves garbage in the file
+        for (int round = 0; round < 20; round++) {
+            for (int i = 900; i < 1000; i++) {
+                Assert.assertEquals(value + i, cache.get("K" + i));
+            }
+        }
+        Assert.assertTrue(file.length() < 2 * 1024 * 1024 + 200 * 1024);
+    }
+
+    @Test
+    public void testMonitor() {
+        cache = build(EvictionPolicy.LRU, 1, 1024 * 1024);
+        DefaultCacheMonitor monitor = new DefaultCacheMonitor("test");
+        cache.setOverflowMonitor(monitor);
+        for (int i = 0; i < 20; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        cache.get("K0");
+        cache.get("K19");
+        cache.get("X");
+        CacheStat stat = monitor.getCacheStat();
+        Assert.assertEquals(2, stat.getDiskGetCount());
+        Assert.assertEquals(1, stat.getDiskHitCount());
+        Assert.assertEquals(1, stat.getDiskMissCount());
+        Assert.assertEquals(0.5, stat.diskHitRate(), 0.001);
+        Assert.assertTrue(stat.getDiskGetTimeSum() > 0);
+    }
+}
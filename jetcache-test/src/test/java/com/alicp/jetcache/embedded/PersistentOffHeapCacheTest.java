@@ -0,0 +1,121 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 2017/6/1.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class PersistentOffHeapCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("jetcache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private OffHeapCache<String, String> build(int slabSize) {
+        return (OffHeapCache<String, String>) (Cache) OffHeapCacheBuilder.createOffHeapCacheBuilder()
+                .capacityInBytes(256 * 1024).slabSizeInBytes(slabSize)
+                .persistDirectory(dir.getPath()).persistName("test.cache").buildCache();
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        OffHeapCache<String, String> cache = build(16 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        cache.put("SHORT", "V", 1, TimeUnit.MILLISECONDS);
+        cache.put("TORN", "TORN_VALUE");
+        cache.remove("K0");
+        cache.close();
+
+        // flip a byte of an entry as if the write is torn by a crash
+        File file = new File(dir, "test.cache");
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int pos = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("TORN_VALUE");
+        Assert.assertTrue(pos > 0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(pos);
+            raf.write('X');
+        }
+        Thread.sleep(2);
+
+        cache = build(16 * 1024);
+        OffHeapMap map = (OffHeapMap) cache.innerMap;
+        Assert.assertEquals(99, map.size());
+        Assert.assertNull(cache.get("K0"));
+        Assert.assertNull(cache.get("SHORT"));
+        Assert.assertNull(cache.get("TORN"));
+        for (int i = 1; i < 100; i++) {
+            Assert.assertEquals("V" + i, cache.get("K" + i));
+        }
+        cache.put("K100", "V100");
+        cache.close();
+
+        // the file is discarded if the slab size is changed
+        cache = build(32 * 1024);
+        Assert.assertNull(cache.get("K1"));
+        cache.put("K1", "V1");
+        cache.close();
+        cache = build(32 * 1024);
+        Assert.assertEquals("V1", cache.get("K1"));
+        cache.close();
+    }
+
+    @Test
+    public void testLocked() throws Exception {
+        OffHeapCache<String, String> c1 = build(16 * 1024);
+        // falls back to direct memory
+        OffHeapCache<String, String> c2 = build(16 * 1024);
+        c1.put("K1", "V1");
+        Assert.assertNull(c2.get("K1"));
+        c1.close();
+        c2.close();
+    }
+
+    @Test
+    public void testReloadReassignedSlab() throws Exception {
+        OffHeapCache<String, String> cache = build(16 * 1024);
+        for (int i = 0; i < 10000; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            sb.append('x');
+        }
+        String big = sb.toString();
+        Assert.assertTrue(cache.PUT("big", big).isSuccess());
+        int size = ((OffHeapMap) cache.innerMap).size();
+        cache.close();
+
+        cache = build(16 * 1024);
+        Assert.assertEquals(size, ((OffHeapMap) cache.innerMap).size());
+        Assert.assertEquals(big, cache.get("big"));
+        cache.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheConfig;
+import com.alicp.jetcache.CacheResultCode;
+import com.alicp.jetcache.anno.EvictionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs for both eviction policies backed by SLRUMap.
+ * Created on 2017/5/29.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+@RunWith(Parameterized.class)
+public class SLRULinkedHashMapCacheTest extends AbstractEmbeddedCacheTest {
+
+    private final String evictionPolicy;
+
+    public SLRULinkedHashMapCacheTest(String evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> policies() {
+        return Arrays.asList(new Object[][]{{EvictionPolicy.SLRU}, {EvictionPolicy.TINY_LFU}});
+    }
+
+    @Override
+    protected Function<CacheConfig, Cache> getBuildFunc() {
+        return (c) -> {
+            ((EmbeddedCacheConfig) c).setEvictionPolicy(evictionPolicy);
+            return new LinkedHashMapCache((EmbeddedCacheConfig) c);
+        };
+    }
+
+    @Test
+    public void test() throws Exception {
+        super.test(50, false);
+    }
+
+    @Test
+    public void scanTest() throws Exception {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .evictionPolicy(evictionPolicy).limit(100).buildCache();
+        for (int i = 0; i < 20; i++) {
+            cache.put("H" + i, "V" + i);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals("V" + i, cache.get("H" + i));
+            }
+        }
+        // a scan of keys used only once should not flush the hot keys
+        for (int i = 0; i < 1000; i++) {
+            cache.put("S" + i, "V" + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("V" + i, cache.get("H" + i));
+        }
+        Assert.assertEquals(100, ((SLRUMap) ((LinkedHashMapCache) cache).innerMap).size());
+
+        cache.put("K1", "V1", 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(2);
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET("K1").getResultCode());
+    }
+
+    @Test
+    public void admissionTest() throws Exception {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .evictionPolicy(evictionPolicy).limit(100).buildCache();
+        for (int i = 0; i < 100; i++) {
+            cache.put("K" + i, "V" + i);
+        }
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals("V" + i, cache.get("K" + i));
+            }
+        }
+        boolean tinyLfu = EvictionPolicy.TINY_LFU.equals(evictionPolicy);
+
+        // C0 leaves the 1 entry window when C1 comes, it is colder than the probation victim
+        cache.put("C0", "V");
+        cache.put("C1", "V");
+        SLRUMap map = (SLRUMap) ((LinkedHashMapCache) cache).innerMap;
+        Assert.assertEquals(100, map.size());
+        Assert.assertEquals(!tinyLfu, map.getValue("C0") != null);
+        Assert.assertNotNull(map.getValue("C1"));
+
+        // a candidate seen more often than the victim is admitted
+        for (int i = 0; i < 5; i++) {
+            Assert.assertNull(cache.get("F"));
+        }
+        cache.put("F", "V");
+        cache.put("C2", "V");
+        Assert.assertNotNull(map.getValue("F"));
+        Assert.assertEquals(100, map.size());
+
+        if (tinyLfu) {
+            int hot = 0;
+            for (int i = 0; i < 100; i++) {
+                if (map.getValue("K" + i) != null) {
+                    hot++;
+                }
+            }
+            // only K99 (lost a tie at the window boundary) and the victim of F are gone
+            Assert.assertEquals(98, hot);
+        }
+    }
+}
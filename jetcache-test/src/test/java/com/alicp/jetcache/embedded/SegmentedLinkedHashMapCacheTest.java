@@ -0,0 +1,77 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheConfig;
+import com.alicp.jetcache.CacheResultCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class SegmentedLinkedHashMapCacheTest extends AbstractEmbeddedCacheTest {
+
+    @Override
+    protected Function<CacheConfig, Cache> getBuildFunc() {
+        return (c) -> {
+            ((EmbeddedCacheConfig) c).setSegmentCount(4);
+            return new LinkedHashMapCache((EmbeddedCacheConfig) c);
+        };
+    }
+
+    @Test
+    public void test() throws Exception {
+        // the limit is shared by segments, so the LRU order is only kept inside a segment
+        super.test(50, false);
+    }
+
+    @Test
+    public void segmentTest() throws Exception {
+        cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .segmentCount(3).limit(40).buildCache();
+        SegmentedLRUMap map = (SegmentedLRUMap) ((LinkedHashMapCache) cache).innerMap;
+        Assert.assertEquals(4, map.segmentCount());
+        try {
+            cache.unwrap(LinkedHashMap.class);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Map<Object, Object> values = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            values.put("K" + i, "V" + i);
+        }
+        cache.putAll(values);
+        // each segment keeps 10 entries at most
+        Map<Object, Object> hits = cache.getAll(values.keySet());
+        Assert.assertTrue(hits.size() <= 40);
+        Assert.assertTrue(hits.size() > 0);
+        for (Map.Entry<Object, Object> en : hits.entrySet()) {
+            Assert.assertEquals(values.get(en.getKey()), en.getValue());
+        }
+
+        Set<Object> keys = new HashSet<>(hits.keySet());
+        cache.removeAll(keys);
+        Assert.assertTrue(cache.getAll(keys).isEmpty());
+
+        cache.put("K1", "V1", 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(cache.putIfAbsent("K2", "V2"));
+        Assert.assertFalse(cache.putIfAbsent("K2", "V3"));
+        Thread.sleep(2);
+        Assert.assertEquals(CacheResultCode.EXPIRED, cache.GET("K1").getResultCode());
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET("K1").getResultCode());
+        Assert.assertEquals("V2", cache.get("K2"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.alicp.jetcache.embedded;
+
+import com.alicp.jetcache.Cache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created on 2017/5/30.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class TimerWheelTest {
+
+    @Test
+    public void testWheel() {
+        long start = 1_000_000_000L;
+        Map<Object, Object> expired = new HashMap<>();
+        TimerWheel wheel = new TimerWheel(start, (k, v, now) -> {
+            expired.put(k, v);
+            return 0;
+        });
+        long[] delays = {0, 1, 999, 1024, 5000, 65_000, 120_000, 3_600_000, 10 * 86_400_000L, Long.MAX_VALUE / 2};
+        for (int i = 0; i < delays.length; i++) {
+            wheel.schedule("K" + i, "V" + i, start + delays[i]);
+        }
+        Assert.assertEquals(delays.length, wheel.size());
+
+        long now = start;
+        long step = 317;
+        while (now < start + 11 * 86_400_000L) {
+            wheel.advance(now);
+            for (int i = 0; i < delays.length; i++) {
+                boolean due = start + delays[i] <= now;
+                // entries are expired in the advance which passes their expire time
+                Assert.assertEquals("K" + i + " at " + (now - start), due, expired.containsKey("K" + i));
+            }
+            now += step;
+            step = Math.min(step * 2, 3_000_000L);
+        }
+        Assert.assertEquals(1, wheel.size());
+        Assert.assertEquals("V0", expired.get("K0"));
+    }
+
+    @Test
+    public void testReschedule() {
+        long start = 1_000_000_000L;
+        Map<Object, Object> expired = new HashMap<>();
+        TimerWheel wheel = new TimerWheel(start, (k, v, now) -> {
+            expired.put(k, v);
+            return 0;
+        });
+        wheel.schedule("K1", "V1", start + 1000);
+        wheel.schedule("K1", "V2", start + 100_000);
+        wheel.schedule("K2", "V1", start + 1000);
+        wheel.schedule("K3", "V1", start + 1000);
+        wheel.deschedule("K2");
+        wheel.deschedule("K3", "V2");
+        wheel.advanceIfTicked(start + 1);
+        Assert.assertEquals(0, expired.size());
+        wheel.advance(start + 2000);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertEquals("V1", expired.get("K3"));
+        wheel.advance(start + 100_000);
+        Assert.assertEquals("V2", expired.get("K1"));
+        Assert.assertEquals(0, wheel.size());
+
+        // the expirer renews K4 once
+        AtomicLong renewed = new AtomicLong(start + 300_000);
+        wheel = new TimerWheel(start, (k, v, now) -> renewed.getAndSet(0));
+        wheel.schedule("K4", "V4", start + 100_000);
+        wheel.advance(start + 200_000);
+        Assert.assertEquals(1, wheel.size());
+        wheel.advance(start + 300_000);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testExpireOnWrite() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        Cache<String, String> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .clock(now::get).limit(100).buildCache();
+        LinkedHashMapCache.LRUMap map = (LinkedHashMapCache.LRUMap) ((LinkedHashMapCache) cache).innerMap;
+        for (int i = 0; i < 50; i++) {
+            cache.put("K" + i, "V" + i, 5, TimeUnit.SECONDS);
+        }
+        cache.put("K", "V", 100, TimeUnit.SECONDS);
+        Assert.assertEquals(51, map.size());
+        now.addAndGet(6000);
+        // no cleaner, the write advances the wheel
+        cache.put("K2", "V2");
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals("V", cache.get("K"));
+        cache.remove("K");
+        now.addAndGet(200_000);
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals("V2", cache.get("K2"));
+    }
+
+    @Test
+    public void testExpireAfterAccess() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        Cache<String, String> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .clock(now::get).expireAfterAccess(5, TimeUnit.SECONDS).buildCache();
+        cache.put("K1", "V1");
+        now.addAndGet(4000);
+        Assert.assertEquals("V1", cache.get("K1"));
+        now.addAndGet(3000);
+        // renewed by the access, the wheel reschedules it
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals("V1", cache.get("K1"));
+        now.addAndGet(6000);
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(0, ((LinkedHashMapCache.LRUMap) ((LinkedHashMapCache) cache).innerMap).size());
+    }
+}
@@ -1,8 +1,10 @@
 package com.alicp.jetcache.redis;
 
+import com.alicp.jetcache.CacheResultCode;
 import com.alicp.jetcache.support.*;
 import com.alicp.jetcache.test.external.AbstractExternalCacheTest;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Assert;
 import org.junit.Test;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
@@ -78,6 +80,17 @@ public class RedisCacheTest extends AbstractExternalCacheTest {
                 .buildCache();
         nullKeyConvertorTest();
 
+        cache = RedisCacheBuilder.createRedisCacheBuilder()
+                .keyConvertor(FastjsonKeyConvertor.INSTANCE)
+                .valueEncoder(JavaValueEncoder.INSTANCE)
+                .valueDecoder(JavaValueDecoder.INSTANCE)
+                .jedisPool(pool)
+                .keyPrefix(new Random().nextInt() + "")
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .staleTtl(1000, TimeUnit.MILLISECONDS)
+                .buildCache();
+        putIfAbsentInStaleWindowTest();
+
         int thread = 10;
         int time = 3000;
         cache = RedisCacheBuilder.createRedisCacheBuilder()
@@ -89,4 +102,15 @@ public class RedisCacheTest extends AbstractExternalCacheTest {
                 .buildCache();
         concurrentTest(thread, 500 , time);
     }
+
+    private void putIfAbsentInStaleWindowTest() throws Exception {
+        cache.put("PIA_K1", "V1");
+        Assert.assertEquals(CacheResultCode.EXISTS, cache.PUT_IF_ABSENT("PIA_K1", "V2", 100, TimeUnit.MILLISECONDS).getResultCode());
+        Thread.sleep(150);
+        Assert.assertTrue(cache.GET("PIA_K1").isStale());
+        // expired but still in the stale window, the key is absent for PUT_IF_ABSENT
+        Assert.assertTrue(cache.PUT_IF_ABSENT("PIA_K1", "V2", 100, TimeUnit.MILLISECONDS).isSuccess());
+        Assert.assertEquals("V2", cache.get("PIA_K1"));
+        Assert.assertEquals(CacheResultCode.EXISTS, cache.PUT_IF_ABSENT("PIA_K1", "V3", 100, TimeUnit.MILLISECONDS).getResultCode());
+    }
 }
@@ -0,0 +1,101 @@
+package com.alicp.jetcache.support;
+
+import com.alicp.jetcache.Cache;
+import com.alicp.jetcache.CacheResultCode;
+import com.alicp.jetcache.MultiLevelCacheBuilder;
+import com.alicp.jetcache.embedded.LinkedHashMapCache;
+import com.alicp.jetcache.embedded.LinkedHashMapCacheBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created on 2017/5/27.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class ClockTest {
+
+    static class ManualClock implements Clock {
+        private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+
+        @Override
+        public long currentTimeMillis() {
+            return now.get();
+        }
+
+        void advance(long millis) {
+            now.addAndGet(millis);
+        }
+    }
+
+    @Test
+    public void testSystemClock() {
+        Clock clock = Clock.systemClock();
+        long t = System.currentTimeMillis();
+        Assert.assertTrue(clock.currentTimeMillis() - t < 100);
+        long n = clock.nanoTime();
+        Assert.assertTrue(clock.nanoTime() >= n);
+    }
+
+    @Test
+    public void testCachedClock() throws Exception {
+        try (CachedClock clock = new CachedClock(5, TimeUnit.MILLISECONDS)) {
+            long t = clock.currentTimeMillis();
+            Assert.assertTrue(Math.abs(System.currentTimeMillis() - t) < 100);
+            Thread.sleep(50);
+            Assert.assertTrue(clock.currentTimeMillis() > t);
+        }
+        Assert.assertSame(CachedClock.getInstance(), CachedClock.getInstance());
+        try {
+            CachedClock.getInstance().close();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEmbeddedExpire() {
+        ManualClock clock = new ManualClock();
+        Cache<Object, Object> cache = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .clock(clock)
+                .expireAfterWrite(1000, TimeUnit.MILLISECONDS)
+                .buildCache();
+        cache.put("K1", "V1");
+        clock.advance(999);
+        Assert.assertEquals("V1", cache.get("K1"));
+        clock.advance(1);
+        Assert.assertEquals(CacheResultCode.EXPIRED, cache.GET("K1").getResultCode());
+
+        cache.put("K2", "V2");
+        clock.advance(1000);
+        ((LinkedHashMapCache) cache).cleanExpiredEntry();
+        Assert.assertEquals(CacheResultCode.NOT_EXISTS, cache.GET("K2").getResultCode());
+    }
+
+    @Test
+    public void testMultiLevelExpire() {
+        ManualClock clock = new ManualClock();
+        Cache<Object, Object> l1 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .clock(clock)
+                .expireAfterWrite(500, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Cache<Object, Object> l2 = LinkedHashMapCacheBuilder.createLinkedHashMapCacheBuilder()
+                .clock(clock)
+                .expireAfterWrite(1000, TimeUnit.MILLISECONDS)
+                .buildCache();
+        Cache<Object, Object> cache = MultiLevelCacheBuilder.createMultiLevelCacheBuilder()
+                .addCache(l1, l2)
+                .clock(clock)
+                .buildCache();
+        cache.put("K1", "V1");
+        clock.advance(600);
+        Assert.assertNull(l1.get("K1"));
+        Assert.assertEquals("V1", cache.get("K1"));
+        clock.advance(400);
+        Assert.assertNull(cache.get("K1"));
+    }
+}
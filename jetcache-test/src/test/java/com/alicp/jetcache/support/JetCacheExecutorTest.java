@@ -0,0 +1,31 @@
+package com.alicp.jetcache.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Created on 2017/6/7.
+ *
+ * @author <a href="mailto:yeli.hl@taobao.com">huangli</a>
+ */
+public class JetCacheExecutorTest {
+
+    @Test
+    public void testAsyncExecutor() {
+        ExecutorService executor = JetCacheExecutor.asyncExecutor();
+        Assert.assertNotSame(JetCacheExecutor.defaultExecutor(), executor);
+        ThreadPoolExecutor tpe = (ThreadPoolExecutor) executor;
+        Assert.assertTrue(tpe.getQueue().remainingCapacity() < Integer.MAX_VALUE);
+        try {
+            tpe.getRejectedExecutionHandler().rejectedExecution(() -> {
+            }, tpe);
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+}